@@ -6,11 +6,14 @@ echo.
 
 cd /d "%~dp0"
 
-echo [1/4] Limpiando builds anteriores...
+echo [1/6] Limpiando builds anteriores...
 if exist "target\dist" rmdir /s /q "target\dist"
 if exist "target\installer-input" rmdir /s /q "target\installer-input"
+if exist "target\app-image" rmdir /s /q "target\app-image"
+if exist "target\cds-entrenamiento.db.reports" rmdir /s /q "target\cds-entrenamiento.db.reports"
+del /q "target\cds-entrenamiento.db*" 2>nul
 
-echo [2/4] Compilando proyecto con Maven...
+echo [2/6] Compilando proyecto con Maven...
 call mvn clean package -DskipTests -q
 if %ERRORLEVEL% NEQ 0 (
     echo ERROR: Fallo la compilacion con Maven
@@ -19,17 +22,49 @@ if %ERRORLEVEL% NEQ 0 (
 )
 echo      Compilacion exitosa!
 
-echo [3/4] Preparando archivos para el instalador...
+echo [3/6] Preparando archivos para el instalador...
 mkdir "target\installer-input"
 copy "target\ferreteria-app-1.0.0.jar" "target\installer-input\"
 echo      Archivos preparados!
 
-echo [4/4] Generando instalador .exe con jpackage...
+echo [4/6] Generando imagen de la aplicacion con jpackage...
 call jpackage ^
     --input target\installer-input ^
     --name Ferreteria ^
     --main-jar ferreteria-app-1.0.0.jar ^
     --main-class com.ferreteria.Launcher ^
+    --dest target\app-image ^
+    --type app-image ^
+    --app-version 1.0.0 ^
+    --vendor "Ferreteria" ^
+    --description "Sistema de Gestion para Ferreteria" ^
+    --icon src\main\resources\icons\ferreteria.ico ^
+    --java-options "-Dfile.encoding=UTF-8" ^
+    --verbose
+if %ERRORLEVEL% NEQ 0 (
+    echo ERROR: Fallo jpackage
+    pause
+    exit /b 1
+)
+
+rem AppCDS: corrida de entrenamiento con el runtime y el jar que se instalan
+rem (ver build-linux.sh). La app se cierra sola; si falla, se empaqueta sin el archivo.
+echo [5/6] Generando archivo AppCDS (corrida de entrenamiento)...
+set APP_DIR=target\app-image\Ferreteria\app
+set JAVA_TOOL_OPTIONS=-XX:ArchiveClassesAtExit=%APP_DIR%\ferreteria.jsa -Dferreteria.cds.entrenamiento=true -Dferreteria.db.path=%CD%\target\cds-entrenamiento.db
+start "" /wait target\app-image\Ferreteria\Ferreteria.exe
+set JAVA_TOOL_OPTIONS=
+if exist "%APP_DIR%\ferreteria.jsa" (
+    echo java-options=-XX:SharedArchiveFile=$APPDIR\ferreteria.jsa>> "%APP_DIR%\Ferreteria.cfg"
+    echo      Archivo AppCDS generado!
+) else (
+    echo      AVISO: no se pudo generar el archivo AppCDS; se empaqueta sin el
+)
+
+echo [6/6] Generando instalador .exe con jpackage...
+call jpackage ^
+    --app-image target\app-image\Ferreteria ^
+    --name Ferreteria ^
     --dest target\dist ^
     --type exe ^
     --win-menu ^
@@ -38,8 +73,6 @@ call jpackage ^
     --app-version 1.0.0 ^
     --vendor "Ferreteria" ^
     --description "Sistema de Gestion para Ferreteria" ^
-    --icon src\main\resources\icons\ferreteria.ico ^
-    --java-options "-Dfile.encoding=UTF-8" ^
     --verbose
 if %ERRORLEVEL% NEQ 0 (
     echo ERROR: Fallo jpackage
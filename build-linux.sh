@@ -6,10 +6,10 @@ echo
 
 cd "$(dirname "$0")"
 
-echo "[1/4] Limpiando builds anteriores..."
-rm -rf target/dist target/installer-input
+echo "[1/6] Limpiando builds anteriores..."
+rm -rf target/dist target/installer-input target/app-image target/cds-entrenamiento.db*
 
-echo "[2/4] Compilando proyecto con Maven..."
+echo "[2/6] Compilando proyecto con Maven..."
 mvn clean package -DskipTests -q
 if [ $? -ne 0 ]; then
     echo "ERROR: Fallo la compilacion con Maven"
@@ -17,17 +17,50 @@ if [ $? -ne 0 ]; then
 fi
 echo "     Compilacion exitosa!"
 
-echo "[3/4] Preparando archivos para el instalador..."
+echo "[3/6] Preparando archivos para el instalador..."
 mkdir -p target/installer-input
 cp target/ferreteria-app-1.0.0.jar target/installer-input/
 echo "     Archivos preparados!"
 
-echo "[4/4] Generando paquete .deb con jpackage..."
+echo "[4/6] Generando imagen de la aplicacion con jpackage..."
 jpackage \
     --input target/installer-input \
     --name ferreteria \
     --main-jar ferreteria-app-1.0.0.jar \
     --main-class com.ferreteria.Launcher \
+    --dest target/app-image \
+    --type app-image \
+    --app-version 1.0.0 \
+    --vendor "Ferreteria" \
+    --description "Sistema de Gestion para Ferreteria" \
+    --icon src/main/resources/icons/ferreteria.png \
+    --java-options "-Dfile.encoding=UTF-8" \
+    --verbose
+if [ $? -ne 0 ]; then
+    echo "ERROR: Fallo jpackage"
+    exit 1
+fi
+
+# AppCDS: una corrida de entrenamiento con el mismo runtime y el mismo jar que
+# se instalan guarda las clases que se cargan al arrancar; con el archivo, la
+# JVM las mapea en lugar de leerlas y verificarlas en cada inicio. La app se
+# cierra sola al terminar el arranque (ferreteria.cds.entrenamiento) y usa una
+# base temporal. Necesita pantalla; si falla, el paquete sale sin el archivo.
+echo "[5/6] Generando archivo AppCDS (corrida de entrenamiento)..."
+APP_DIR=target/app-image/ferreteria/lib/app
+JAVA_TOOL_OPTIONS="-XX:ArchiveClassesAtExit=$APP_DIR/ferreteria.jsa -Dferreteria.cds.entrenamiento=true -Dferreteria.db.path=$(pwd)/target/cds-entrenamiento.db" \
+    timeout 120 target/app-image/ferreteria/bin/ferreteria
+if [ -f "$APP_DIR/ferreteria.jsa" ]; then
+    echo 'java-options=-XX:SharedArchiveFile=$APPDIR/ferreteria.jsa' >> "$APP_DIR/ferreteria.cfg"
+    echo "     Archivo AppCDS generado!"
+else
+    echo "     AVISO: no se pudo generar el archivo AppCDS; se empaqueta sin el"
+fi
+
+echo "[6/6] Generando paquete .deb con jpackage..."
+jpackage \
+    --app-image target/app-image/ferreteria \
+    --name ferreteria \
     --dest target/dist \
     --type deb \
     --linux-shortcut \
@@ -36,7 +69,6 @@ jpackage \
     --vendor "Ferreteria" \
     --description "Sistema de Gestion para Ferreteria" \
     --icon src/main/resources/icons/ferreteria.png \
-    --java-options "-Dfile.encoding=UTF-8" \
     --verbose
 if [ $? -ne 0 ]; then
     echo "ERROR: Fallo jpackage"
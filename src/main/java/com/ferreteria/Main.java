@@ -1,24 +1,40 @@
 package com.ferreteria;
 
 import com.ferreteria.models.dao.DatabaseConfig;
-import com.ferreteria.models.dao.DatabaseInitializer;
+import com.ferreteria.utils.BackgroundTasks;
+import com.ferreteria.utils.SessionManager;
+import com.ferreteria.utils.Startup;
+import com.ferreteria.utils.ViewRegistry;
 
 import atlantafx.base.theme.PrimerLight;
 import javafx.application.Application;
 import javafx.application.Platform;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Punto de entrada principal de la aplicación JavaFX.
  */
 public class Main extends Application {
 
     private static Stage primaryStage;
+    private static Scene scene;
+
+    // Pantallas del navbar: se cargan una vez y se conservan hasta cerrar sesión
+    private static final ViewRegistry views = new ViewRegistry(Set.of(
+        "/views/Dashboard.fxml",
+        "/views/Products.fxml",
+        "/views/Sales.fxml",
+        "/views/Reports.fxml",
+        "/views/Users.fxml"
+    ));
 
     @Override
     public void start(Stage stage) {
@@ -28,29 +44,32 @@ public class Main extends Application {
         Application.setUserAgentStylesheet(new PrimerLight().getUserAgentStylesheet());
 
         try {
-            initializeDatabase();
+            // La base se verifica en segundo plano; el login no la espera para mostrarse
+            Startup startup = Startup.getInstance();
+            startup.begin();
             showLoginScreen();
+            startup.loginShown();
+
+            // Corrida de entrenamiento del archivo AppCDS (ver build-linux.sh):
+            // se cierra sola cuando terminó el arranque completo
+            if (Boolean.getBoolean("ferreteria.cds.entrenamiento")) {
+                startup.ready().whenComplete((result, error) -> Platform.runLater(Platform::exit));
+            }
         } catch (Exception e) {
             System.err.println("Error iniciando aplicación: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
-    private void initializeDatabase() {
-        System.out.println("Inicializando base de datos...");
-        DatabaseInitializer initializer = new DatabaseInitializer(DatabaseConfig.getInstance());
-        initializer.initialize();
-    }
-
     private void showLoginScreen() throws Exception {
-        Parent root = FXMLLoader.load(getClass().getResource("/views/Login.fxml"));
-
-        Scene scene = new Scene(root, 1100, 650);
+        // Una sola escena para toda la sesión; navegar cambia su raíz
+        scene = new Scene(new StackPane(), 1100, 650);
         scene.getStylesheets().add(getClass().getResource("/styles/main.css").toExternalForm());
 
         // Agregar atajo F12 para Debug Panel
         setupDebugShortcut(scene);
 
+        views.show("/views/Login.fxml", scene);
         primaryStage.setTitle("Ferreteria - Sistema de Gestion");
         primaryStage.setScene(scene);
         primaryStage.setMinWidth(950);
@@ -60,26 +79,45 @@ public class Main extends Application {
         primaryStage.show();
     }
 
+    /**
+     * Muestra una pantalla en la ventana principal. Las del navbar ya cargadas
+     * sólo cambian la raíz de la escena y refrescan sus datos en segundo plano.
+     */
     public static void navigateTo(String fxmlPath, String title) {
+        // Lo que cargaba la pantalla anterior ya no se muestra
+        BackgroundTasks.getInstance().viewChanged();
         try {
-            Parent root = FXMLLoader.load(Main.class.getResource(fxmlPath));
-            Scene scene = new Scene(root, 1200, 700);
-            scene.getStylesheets().add(Main.class.getResource("/styles/main.css").toExternalForm());
-
-            // Agregar atajo F12 para Debug Panel (excepto si ya estamos en debug)
-            if (!fxmlPath.contains("Debug")) {
-                setupDebugShortcut(scene);
-            }
-
+            views.show(fxmlPath, scene);
             primaryStage.setTitle(title);
-            primaryStage.setMaximized(false);
-            primaryStage.setScene(scene);
-            Platform.runLater(() -> primaryStage.setMaximized(true));
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Carga en segundo plano las pantallas del navbar, para que la primera
+     * visita a cada una no espere al FXML. Se llama después del login.
+     */
+    public static void preloadViews() {
+        List<String> paths = new ArrayList<>(List.of(
+            "/views/Products.fxml",
+            "/views/Sales.fxml",
+            "/views/Reports.fxml"
+        ));
+        if (SessionManager.getInstance().isAdmin()) {
+            paths.add("/views/Users.fxml");
+        }
+        views.preload(paths);
+    }
+
+    /**
+     * Descarta las pantallas cargadas; se llama al cerrar sesión, ya que
+     * guardan datos del usuario anterior.
+     */
+    public static void clearViews() {
+        views.clear();
+    }
+
     /**
      * Configura el atajo F12 para abrir el panel de debug.
      */
@@ -96,11 +134,15 @@ public class Main extends Application {
      * Abre el panel de debug.
      */
     public static void openDebugPanel() {
-        navigateTo("/views/Debug.fxml", "DEBUG PANEL - Testing");
+        if (!"/views/Debug.fxml".equals(views.currentPath())) {
+            navigateTo("/views/Debug.fxml", "DEBUG PANEL - Testing");
+        }
     }
 
     @Override
     public void stop() {
+        BackgroundTasks.getInstance().shutdown();
+        DatabaseConfig.getInstance().checkpoint();
         DatabaseConfig.getInstance().close();
         System.out.println("Aplicación cerrada");
     }
@@ -2,12 +2,23 @@ package com.ferreteria;
 
 import com.ferreteria.models.*;
 import com.ferreteria.models.dao.*;
+import com.ferreteria.utils.BackgroundTasks;
+import com.ferreteria.utils.CatalogIndex;
+import com.ferreteria.utils.Startup;
+import com.ferreteria.utils.TaskSlot;
 
 import java.math.BigDecimal;
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Test rápido para verificar módulos de Productos y Reportes.
@@ -25,8 +36,13 @@ public class TestModulos {
             DatabaseInitializer initializer = new DatabaseInitializer(dbConfig);
             initializer.initialize();
 
+            testEsquemaVersionado(dbConfig);
+            testMigraciones(dbConfig);
+            testArranque();
             testProductos(dbConfig);
             testReportes();
+            testFiltrosPorPeriodo(dbConfig);
+            testTareasEnSegundoPlano();
 
             System.out.println("\n===========================================");
             System.out.println("   TODOS LOS TESTS PASARON ✓");
@@ -38,6 +54,166 @@ public class TestModulos {
         }
     }
 
+    /**
+     * Con la versión del esquema al día, initialize() no ejecuta DDL; con una
+     * versión vieja aplica sólo las migraciones que faltan.
+     */
+    private static void testEsquemaVersionado(DatabaseConfig dbConfig) throws SQLException {
+        System.out.println("► TEST: Versión del esquema...\n");
+
+        DatabaseInitializer initializer = new DatabaseInitializer(dbConfig);
+        MigrationEngine engine = dbConfig.getMigrationEngine();
+        int ultima = engine.latestVersion();
+        try (Connection conn = dbConfig.getWriteConnection();
+             Statement stmt = conn.createStatement()) {
+            if (DatabaseInitializer.schemaVersion(conn) != ultima) {
+                throw new IllegalStateException("user_version no quedó en " + ultima);
+            }
+
+            stmt.execute("DROP INDEX idx_sales_user");
+            long inicio = System.nanoTime();
+            initializer.initialize();
+            long rapidoMs = (System.nanoTime() - inicio) / 1_000_000;
+            if (existeIndice(stmt, "idx_sales_user")) {
+                throw new IllegalStateException("Con el esquema al día no debería ejecutarse DDL");
+            }
+
+            stmt.execute("PRAGMA user_version = 0");
+            inicio = System.nanoTime();
+            initializer.initialize();
+            long completoMs = (System.nanoTime() - inicio) / 1_000_000;
+            if (!existeIndice(stmt, "idx_sales_user")
+                    || DatabaseInitializer.schemaVersion(conn) != ultima) {
+                throw new IllegalStateException("Con un esquema viejo debería recrearse el índice y la versión");
+            }
+            System.out.println("  Esquema al día: " + rapidoMs + " ms | todas las migraciones: " + completoMs + " ms");
+        }
+        System.out.println("  ✓ Sin DDL cuando la versión coincide\n");
+    }
+
+    /**
+     * Historial con sumas de verificación, migraciones pendientes aplicadas de
+     * a una y relleno en segundo plano de las claves de búsqueda.
+     */
+    private static void testMigraciones(DatabaseConfig dbConfig) throws Exception {
+        System.out.println("► TEST: Migraciones...\n");
+
+        MigrationEngine engine = dbConfig.getMigrationEngine();
+        // Volver a la versión 0 en el test anterior dejó el relleno de las claves en curso
+        if (!engine.awaitBackfills(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("El relleno anterior no terminó");
+        }
+        List<MigrationEngine.AppliedMigration> historial = engine.getHistory();
+        if (historial.size() != engine.latestVersion()
+                || historial.get(historial.size() - 1).version() != engine.latestVersion()) {
+            throw new IllegalStateException("Historial incompleto: " + historial);
+        }
+
+        try (Connection conn = dbConfig.getWriteConnection();
+             Statement stmt = conn.createStatement()) {
+            // Sólo falta la última: se aplica ésa y nada más
+            int ultima = engine.latestVersion();
+            stmt.execute("DROP INDEX idx_sale_items_variant");
+            stmt.execute("DROP INDEX idx_sales_user");
+            stmt.execute("DELETE FROM schema_migrations WHERE version = " + ultima);
+            stmt.execute("PRAGMA user_version = " + (ultima - 1));
+            if (engine.migrate() != 1 || !existeIndice(stmt, "idx_sale_items_variant")) {
+                throw new IllegalStateException("Debería aplicarse sólo la migración " + ultima);
+            }
+            if (existeIndice(stmt, "idx_sales_user")) {
+                throw new IllegalStateException("No debería volver a ejecutarse el esquema inicial");
+            }
+            stmt.execute("CREATE INDEX idx_sales_user ON sales(user_id)");
+
+            // Cambiar el paso de una migración Java cambia su huella y su suma
+            List<Migration> editadas = new ArrayList<>();
+            for (Migration m : new DatabaseInitializer(dbConfig).migrations()) {
+                editadas.add(m.getVersion() != 2 ? m
+                    : Migration.java(2, m.getDescription(), "ADD COLUMN search_key TEXT COLLATE NOCASE", c -> {}));
+            }
+            try {
+                new MigrationEngine(dbConfig, editadas).migrate();
+                throw new AssertionError("Debería rechazar una migración Java con otra huella");
+            } catch (IllegalStateException e) {
+                System.out.println("  Huella distinta rechazada: " + e.getMessage());
+            }
+
+            // Una migración aplicada que cambió no deja arrancar
+            stmt.execute("UPDATE schema_migrations SET checksum = 'x' WHERE version = 1");
+            try {
+                engine.migrate();
+                throw new AssertionError("Debería rechazar una suma de verificación distinta");
+            } catch (IllegalStateException e) {
+                System.out.println("  Suma distinta rechazada: " + e.getMessage());
+            } finally {
+                stmt.execute("DELETE FROM schema_migrations");
+            }
+            // Sin historial y con versión: se adopta la base tal como está
+            if (engine.migrate() != 0 || engine.getHistory().size() != ultima) {
+                throw new IllegalStateException("No se adoptó la base existente");
+            }
+
+            stmt.execute("UPDATE products SET search_key = NULL");
+            stmt.execute("UPDATE product_variants SET search_key = NULL");
+        }
+
+        // El relleno necesita la conexión de escritura: se lanza sin tenerla
+        long faltantes;
+        try (Connection conn = dbConfig.getReadConnection()) {
+            faltantes = SearchKey.countMissing(conn);
+        }
+        engine.startBackfills();
+        if (!engine.awaitBackfills(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("El relleno no terminó");
+        }
+        MigrationEngine.BackfillProgress progreso = engine.getProgress().get(0);
+        if (progreso.state() != MigrationEngine.BackfillProgress.State.DONE || progreso.processed() != faltantes) {
+            throw new IllegalStateException("Relleno incompleto: " + progreso);
+        }
+        try (Connection conn = dbConfig.getReadConnection()) {
+            if (SearchKey.countMissing(conn) != 0) {
+                throw new IllegalStateException("Quedaron claves sin calcular");
+            }
+        }
+        for (MigrationEngine.AppliedMigration m : engine.getHistory()) {
+            if (!m.backfillDone()) {
+                throw new IllegalStateException("Relleno sin marcar como terminado: V" + m.version());
+            }
+        }
+        System.out.println("  Relleno: " + progreso.processed() + " claves en tandas de " + MigrationEngine.CHUNK_SIZE);
+        System.out.println("  ✓ Migraciones pendientes, sumas y relleno en segundo plano\n");
+    }
+
+    /**
+     * El arranque verifica la base y precarga catálogo y reportes en segundo plano.
+     */
+    private static void testArranque() throws Exception {
+        System.out.println("► TEST: Arranque en segundo plano...\n");
+
+        Startup startup = Startup.getInstance();
+        startup.begin();
+        startup.ready().get(30, TimeUnit.SECONDS);
+        if (!startup.database().isDone() || startup.database().isCompletedExceptionally()) {
+            throw new IllegalStateException("La base debería estar lista antes que la precarga");
+        }
+        Startup.StartupStats stats = startup.getStats();
+        if (stats.databaseMs() < 0 || stats.warmupMs() < stats.databaseMs()) {
+            throw new IllegalStateException("Tiempos de arranque inválidos: " + stats);
+        }
+        if (!CatalogIndex.getInstance().isLoaded()) {
+            throw new IllegalStateException("La precarga no cargó el catálogo");
+        }
+        System.out.println("  ✓ Base lista a los " + stats.databaseMs() + " ms, precarga a los "
+            + stats.warmupMs() + " ms\n");
+    }
+
+    private static boolean existeIndice(Statement stmt, String nombre) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT 1 FROM sqlite_master WHERE type = 'index' AND name = '" + nombre + "'")) {
+            return rs.next();
+        }
+    }
+
     private static void testProductos(DatabaseConfig dbConfig) throws SQLException {
         System.out.println("► TEST: Módulo de Productos...\n");
 
@@ -48,29 +224,30 @@ public class TestModulos {
         System.out.println("  Productos disponibles: " + disponibles.size());
 
         // Test consulta directa (como hace ProductsController)
-        Connection conn = dbConfig.getConnection();
-        Statement stmt = conn.createStatement();
-        ResultSet rs = stmt.executeQuery("""
-            SELECT p.id, p.code, p.name, c.name as category,
-                   COALESCE(pv.sale_price, 0) as price,
-                   COALESCE(pv.stock, 0) as stock
-            FROM products p
-            LEFT JOIN categories c ON p.category_id = c.id
-            LEFT JOIN product_variants pv ON p.id = pv.product_id AND pv.active = 1
-            WHERE p.active = 1
-            ORDER BY p.name
-            """);
-
         int count = 0;
-        while (rs.next()) {
-            count++;
-            if (count <= 3) {
-                System.out.printf("    [%d] %s - %s | $%.2f | Stock: %d%n",
-                    rs.getInt("id"),
-                    rs.getString("code"),
-                    rs.getString("name"),
-                    rs.getBigDecimal("price"),
-                    rs.getInt("stock"));
+        try (Connection conn = dbConfig.getReadConnection();
+             Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("""
+                SELECT p.id, p.code, p.name, c.name as category,
+                       COALESCE(pv.sale_price, 0) as price,
+                       COALESCE(pv.stock, 0) as stock
+                FROM products p
+                LEFT JOIN categories c ON p.category_id = c.id
+                LEFT JOIN product_variants pv ON p.id = pv.product_id AND pv.active = 1
+                WHERE p.active = 1
+                ORDER BY p.name
+                """);
+
+            while (rs.next()) {
+                count++;
+                if (count <= 3) {
+                    System.out.printf("    [%d] %s - %s | $%.2f | Stock: %d%n",
+                        rs.getInt("id"),
+                        rs.getString("code"),
+                        rs.getString("name"),
+                        rs.getBigDecimal("price"),
+                        rs.getInt("stock"));
+                }
             }
         }
         if (count > 3) {
@@ -118,6 +295,199 @@ public class TestModulos {
         Map<Integer, BigDecimal> diarias = reportDAO.getDailySales(mesActual);
         System.out.println("\n  Días con ventas: " + diarias.size());
 
+        // El motor de una pasada da lo mismo que las cuatro consultas
+        MonthlyReportEngine.Report reporte = new MonthlyReportEngine(DatabaseConfig.getInstance()).generate(mesActual);
+        if (reporte.summary().salesCount() != (Integer) stats.get("totalVentas")
+                || !reporte.paymentTotals().keySet().equals(pagos.keySet())
+                || reporte.products().size() != productos.size()
+                || !reporte.salesByDayOfMonth().keySet().equals(diarias.keySet())) {
+            throw new AssertionError("Reportes: el motor no coincide con ReportDAO");
+        }
+        System.out.println("  Motor de reportes: " + reporte.summary());
+
         System.out.println("  ✓ Reportes funcionando correctamente\n");
     }
+
+    /**
+     * Verifica que un slot entrega sólo el último resultado, que cambiar de
+     * pantalla descarta lo pendiente y que se registran las métricas.
+     */
+    private static void testTareasEnSegundoPlano() throws InterruptedException {
+        System.out.println("► TEST: Tareas en segundo plano...\n");
+
+        // Sin JavaFX: los resultados se entregan en el mismo hilo de la tarea
+        BackgroundTasks tareas = new BackgroundTasks(Runnable::run);
+        TaskSlot slot = new TaskSlot(tareas);
+        List<String> entregados = new CopyOnWriteArrayList<>();
+
+        // La primera consulta queda bloqueada hasta que llega la segunda
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch terminadas = new CountDownLatch(2);
+        slot.submit("prueba.filtrar", () -> {
+            liberar.await();
+            return "vieja";
+        }, r -> { entregados.add(r); }, null);
+        Thread.sleep(50);
+        slot.submit("prueba.filtrar", () -> "nueva", r -> {
+            entregados.add(r);
+            liberar.countDown();
+        }, null);
+        tareas.run("prueba.esperar", () -> {
+            try {
+                liberar.await();
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            terminadas.countDown();
+            terminadas.countDown();
+        });
+        if (!terminadas.await(5, TimeUnit.SECONDS)) {
+            throw new AssertionError("Tareas: no terminaron");
+        }
+        if (!entregados.equals(List.of("nueva"))) {
+            throw new AssertionError("Tareas: se esperaba sólo el último resultado, llegó " + entregados);
+        }
+
+        // Cambiar de pantalla descarta lo que todavía no llegó
+        CountDownLatch pantalla = new CountDownLatch(1);
+        slot.submit("prueba.pantalla", () -> {
+            pantalla.await();
+            return "descartada";
+        }, r -> { entregados.add(r); }, null);
+        tareas.viewChanged();
+        pantalla.countDown();
+
+        // Los errores llegan al manejador
+        CountDownLatch error = new CountDownLatch(1);
+        new TaskSlot(tareas).submit("prueba.error", () -> {
+            throw new IllegalStateException("falla");
+        }, r -> { }, e -> error.countDown());
+        if (!error.await(5, TimeUnit.SECONDS)) {
+            throw new AssertionError("Tareas: el error no llegó al manejador");
+        }
+
+        // Subtareas en paralelo: cada una espera a que la otra haya empezado
+        CountDownLatch ambas = new CountDownLatch(2);
+        CountDownLatch combinadas = new CountDownLatch(1);
+        Callable<Integer> subtarea = () -> {
+            ambas.countDown();
+            if (!ambas.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("las subtareas no corrieron a la vez");
+            }
+            return 1;
+        };
+        new TaskSlot(tareas).submitAsync("prueba.combinada", () -> {
+            CompletableFuture<Integer> a = tareas.supply("prueba.subtarea", subtarea);
+            CompletableFuture<Integer> b = tareas.supply("prueba.subtarea", subtarea);
+            return a.thenCombine(b, Integer::sum);
+        }, suma -> {
+            entregados.add("suma=" + suma);
+            combinadas.countDown();
+        }, e -> combinadas.countDown());
+        if (!combinadas.await(10, TimeUnit.SECONDS) || !entregados.contains("suma=2")) {
+            throw new AssertionError("Tareas: las subtareas no se combinaron en paralelo " + entregados);
+        }
+
+        // Reporte completo con sus consultas en paralelo (como ReportsController)
+        ReportDAO reportDAO = new ReportDAO();
+        YearMonth mes = YearMonth.now();
+        CompletableFuture<Map<String, Object>> estadisticas = tareas.supply("prueba.reporte", () -> reportDAO.getMonthlyStats(mes));
+        CompletableFuture<Map<Integer, BigDecimal>> diarias = tareas.supply("prueba.reporte", () -> reportDAO.getDailySales(mes));
+        CompletableFuture.allOf(estadisticas, diarias).orTimeout(30, TimeUnit.SECONDS).join();
+        if (!estadisticas.join().equals(reportDAO.getMonthlyStats(mes)) || !diarias.join().equals(reportDAO.getDailySales(mes))) {
+            throw new AssertionError("Tareas: el reporte en paralelo no coincide con el secuencial");
+        }
+
+        tareas.shutdown();
+        if (entregados.contains("descartada")) {
+            throw new AssertionError("Tareas: se entregó un resultado de una pantalla cerrada");
+        }
+
+        Map<String, BackgroundTasks.TaskStats> stats = new java.util.HashMap<>();
+        tareas.getStats().forEach(t -> stats.put(t.name(), t));
+        if (stats.get("prueba.filtrar").runs() != 2 || stats.get("prueba.filtrar").dropped() != 1) {
+            throw new AssertionError("Tareas: métricas incorrectas " + stats.get("prueba.filtrar"));
+        }
+        if (stats.get("prueba.pantalla").dropped() != 1 || stats.get("prueba.error").failed() != 1) {
+            throw new AssertionError("Tareas: métricas incorrectas " + stats);
+        }
+        System.out.println("  Hilos virtuales: " + (tareas.usesVirtualThreads() ? "sí" : "no (pool acotado)"));
+        System.out.println("  ✓ Tareas en segundo plano funcionando correctamente\n");
+    }
+
+    /**
+     * Verifica los límites de SalePeriod y que los filtros por fecha usan el
+     * índice de created_at (EXPLAIN QUERY PLAN) en lugar de recorrer la tabla.
+     */
+    private static void testFiltrosPorPeriodo(DatabaseConfig dbConfig) throws SQLException {
+        System.out.println("► TEST: Filtros por período...\n");
+
+        try (Connection conn = dbConfig.getReadConnection()) {
+            // Límites semiabiertos sobre el formato guardado 'YYYY-MM-DD HH:MM:SS'
+            SalePeriod octubre = SalePeriod.month(2025, 10);
+            verificarLimite(conn, octubre, "2025-10-01 00:00:00", true);
+            verificarLimite(conn, octubre, "2025-10-31 23:59:59", true);
+            verificarLimite(conn, octubre, "2025-11-01 00:00:00", false);
+            verificarLimite(conn, octubre, "2025-09-30 23:59:59", false);
+            verificarLimite(conn, SalePeriod.day(LocalDate.of(2025, 3, 15)), "2025-03-15 12:30", true);
+            verificarLimite(conn, SalePeriod.range(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31)),
+                "2025-01-31 23:59:59", true);
+            System.out.println("  ✓ Límites de período correctos");
+
+            // Planes de las consultas de SaleDAO, SaleStatsDAO, SalePaymentDAO y ReportDAO
+            SalePeriod mes = SalePeriod.month(YearMonth.now());
+            String[] consultas = {
+                "SELECT * FROM sales WHERE " + mes.predicate("created_at") + " ORDER BY created_at DESC",
+                "SELECT COALESCE(SUM(total), 0) FROM sales WHERE status = 'completed' AND " + mes.predicate("created_at"),
+                "SELECT COUNT(*) FROM sales WHERE status = 'completed' AND " + mes.predicate("created_at"),
+                "SELECT COUNT(*), SUM(total), AVG(total), MAX(total), MIN(total) FROM sales WHERE " + mes.predicate("created_at"),
+                "SELECT CAST(strftime('%d', s.created_at) AS INTEGER) as dia, SUM(s.total) FROM sales s "
+                    + "WHERE " + mes.predicate("s.created_at") + " AND s.status = 'completed' GROUP BY dia",
+                "SELECT sp.payment_method, SUM(sp.amount) FROM sale_payments sp JOIN sales s ON sp.sale_id = s.id "
+                    + "WHERE " + mes.predicate("s.created_at") + " GROUP BY sp.payment_method",
+                "SELECT p.name, SUM(si.quantity) FROM sale_items si JOIN sales s ON si.sale_id = s.id "
+                    + "JOIN product_variants pv ON si.variant_id = pv.id JOIN products p ON pv.product_id = p.id "
+                    + "WHERE " + mes.predicate("s.created_at") + " GROUP BY p.id, pv.id"
+            };
+
+            for (String sql : consultas) {
+                String plan = explicar(conn, sql, mes);
+                boolean usaIndice = plan.matches("(?s).*SEARCH s(ales)? USING (COVERING )?INDEX idx_sales_(status_)?date .*created_at>\\?.*");
+                if (!usaIndice) {
+                    throw new IllegalStateException("La consulta no usa el índice de fecha:\n  " + sql + "\n" + plan);
+                }
+                System.out.println("  ✓ " + plan.lines().filter(l -> l.contains("idx_sales")).findFirst().orElse("").trim());
+            }
+        }
+
+        System.out.println("  ✓ Filtros por período usan índice\n");
+    }
+
+    private static void verificarLimite(Connection conn, SalePeriod periodo, String fecha, boolean esperado)
+            throws SQLException {
+        // ?1 = fecha a evaluar, ?2 y ?3 = límites del período
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT ?1 >= ?2 AND ?1 < ?3")) {
+            pstmt.setString(1, fecha);
+            periodo.bind(pstmt, 2);
+            ResultSet rs = pstmt.executeQuery();
+            boolean incluido = rs.next() && rs.getBoolean(1);
+            if (incluido != esperado) {
+                throw new IllegalStateException(fecha + (esperado ? " debería" : " no debería")
+                    + " estar en " + periodo);
+            }
+        }
+    }
+
+    private static String explicar(Connection conn, String sql, SalePeriod periodo) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            periodo.bind(pstmt, 1);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                plan.append("    ").append(rs.getString("detail")).append("\n");
+            }
+        }
+        return plan.toString();
+    }
 }
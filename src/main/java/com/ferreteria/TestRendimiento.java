@@ -0,0 +1,680 @@
+package com.ferreteria;
+
+import com.ferreteria.models.CartItem;
+import com.ferreteria.models.Money;
+import com.ferreteria.models.ProductVariant;
+import com.ferreteria.models.dao.DatabaseConfig;
+import com.ferreteria.models.dao.DatabaseInitializer;
+import com.ferreteria.models.dao.MonthlyReportEngine;
+import com.ferreteria.models.dao.ProductVariantDAO;
+import com.ferreteria.models.dao.ReportDAO;
+import com.ferreteria.models.dao.SaleDAO;
+import com.ferreteria.models.dao.SalePeriod;
+import com.ferreteria.models.dao.SalesColumnStore;
+import com.ferreteria.utils.BackgroundTasks;
+import com.ferreteria.utils.CatalogPager;
+import com.ferreteria.utils.TextIndex;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Mediciones de rendimiento.
+ * Se ejecuta como aplicación: imprime tiempos y falla si los resultados no
+ * coinciden con la versión directa. Las pruebas con base de datos usan un
+ * archivo propio en el directorio temporal, nunca la base de la aplicación.
+ */
+public class TestRendimiento {
+
+    private static final int VARIANTES = 100_000;
+    private static final int REPETICIONES = 200;
+
+    private static final int VENTAS = 1_000_000;
+    private static final YearMonth MES_REPORTE = YearMonth.of(2025, 6);
+    private static final int REPETICIONES_REPORTE = 5;
+
+    private static final int VARIANTES_POS = 50_000;
+    private static final int PAGINA_POS = 100;
+
+    private static final int ITEMS_CARRITO = 30;
+    private static final int RECALCULOS = 200_000;
+
+    private static final String[] NOMBRES = {
+        "Tornillo", "Tuerca", "Arandela", "Martillo", "Destornillador", "Llave", "Taladro",
+        "Sierra", "Clavo", "Bulón", "Pinza", "Cinta", "Lija", "Pintura", "Cable", "Caño",
+        "Codo", "Mecha", "Broca", "Candado", "Bisagra", "Manguera", "Pegamento", "Silicona"
+    };
+    private static final String[] DETALLES = {
+        "Hexagonal", "Phillips", "Galvanizado", "Inoxidable", "Cromado", "Estándar",
+        "Profesional", "Reforzado", "Térmico", "Eléctrico", "Madera", "Metal"
+    };
+    private static final String[] MEDIDAS = {
+        "3mm", "4mm", "5mm", "6mm", "8mm", "10mm", "12mm", "1/4\"", "3/8\"", "1/2\"", "500W", "750W"
+    };
+
+    public static void main(String[] args) {
+        System.out.println("===========================================");
+        System.out.println("   TEST DE RENDIMIENTO");
+        System.out.println("===========================================\n");
+
+        try {
+            testIndiceCatalogo();
+            testReporteMensual();
+            testHistorialEnColumnas();
+            testAperturaPOS();
+            testImportesCarrito();
+
+            System.out.println("\n===========================================");
+            System.out.println("   TODOS LOS TESTS PASARON ✓");
+            System.out.println("===========================================");
+
+        } catch (Exception | AssertionError e) {
+            System.err.println("\n❌ ERROR EN TEST: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void testIndiceCatalogo() {
+        System.out.println("► TEST: Índice de catálogo con " + VARIANTES + " variantes...");
+
+        List<ProductVariant> catalogo = generarCatalogo(VARIANTES, new Random(42));
+
+        // Carga y memoria
+        long heapAntes = heapUsado();
+        long inicio = System.nanoTime();
+        TextIndex<ProductVariant> indice = new TextIndex<>();
+        for (ProductVariant v : catalogo) {
+            indice.put(v.getId(), v, v.getDisplayName(),
+                v.getProductName(), v.getProductCode(), v.getSku(), v.getVariantName());
+        }
+        long cargaMs = (System.nanoTime() - inicio) / 1_000_000;
+        long heapDespues = heapUsado();
+
+        TextIndex.MemoryStats memoria = indice.memoryStats();
+        System.out.printf("  Carga: %d ms%n", cargaMs);
+        System.out.printf("  Memoria estimada: %.1f MB (%d gramas, %d entradas); medida en heap: %.1f MB%n",
+            memoria.estimatedMb(), memoria.grams(), memoria.postings(),
+            (heapDespues - heapAntes) / (1024.0 * 1024.0));
+
+        // Latencia por consulta, comparada con recorrer la lista como antes
+        String[] consultas = {"tornillo 8mm", "torn", "hexagonal inox", "MART-0042", "llave cromado 1/2",
+            "pintura", "silicona term", "destornillador phillips 5mm", "zzz"};
+        // Calentamiento: que el JIT compile la búsqueda antes de medir
+        for (int i = 0; i < REPETICIONES; i++) {
+            for (String consulta : consultas) {
+                indice.search(consulta, 50);
+            }
+        }
+        for (String consulta : consultas) {
+            long[] indexado = new long[REPETICIONES];
+            List<ProductVariant> resultado = null;
+            for (int i = 0; i < REPETICIONES; i++) {
+                long t = System.nanoTime();
+                resultado = indice.search(consulta, 50);
+                indexado[i] = System.nanoTime() - t;
+            }
+
+            long[] lineal = new long[20];
+            List<ProductVariant> esperado = null;
+            for (int i = 0; i < lineal.length; i++) {
+                long t = System.nanoTime();
+                esperado = busquedaLineal(catalogo, consulta);
+                lineal[i] = System.nanoTime() - t;
+            }
+
+            verificarMismosResultados(consulta, indice, esperado);
+            System.out.printf("  %-30s índice p50 %7.3f ms  p99 %7.3f ms | lineal p50 %7.2f ms | %d resultados%n",
+                "'" + consulta + "'", percentil(indexado, 50), percentil(indexado, 99),
+                percentil(lineal, 50), resultado.size());
+        }
+
+        // Actualización incremental (cambio de stock o nombre de una variante)
+        ProductVariant original = catalogo.get(1234);
+        ProductVariant renombrada = copiar(original, "Edición Especial");
+        long t = System.nanoTime();
+        indice.put(renombrada.getId(), renombrada, renombrada.getDisplayName(),
+            renombrada.getProductName(), renombrada.getProductCode(), renombrada.getSku(), renombrada.getVariantName());
+        double actualizarMs = (System.nanoTime() - t) / 1_000_000.0;
+        if (indice.search("edicion especial", 10).stream().noneMatch(v -> v.getId() == original.getId())) {
+            throw new AssertionError("La variante actualizada no aparece en el índice");
+        }
+        if (indice.search(original.getVariantName() + " " + original.getSku(), 10).stream()
+                .anyMatch(v -> v.getId() == original.getId())) {
+            throw new AssertionError("El índice conserva el texto anterior de la variante");
+        }
+        indice.remove(original.getId());
+        if (indice.get(original.getId()) != null || indice.size() != VARIANTES - 1) {
+            throw new AssertionError("La variante no se quitó del índice");
+        }
+        System.out.printf("  Actualizar una variante: %.3f ms%n", actualizarMs);
+
+        System.out.println("  ✓ Índice en memoria coincide con la búsqueda lineal\n");
+    }
+
+    /**
+     * Compara el motor de reportes de una pasada con las cuatro consultas de
+     * ReportDAO sobre una base de {@link #VENTAS} ventas repartidas en dos años.
+     */
+    private static void testReporteMensual() throws SQLException {
+        System.out.println("► TEST: Reporte mensual sobre " + VENTAS + " ventas...");
+
+        // Base propia para la medición; se reutiliza entre corridas
+        Path archivo = Path.of(System.getProperty("java.io.tmpdir"), "ferreteria-rendimiento.db");
+        System.setProperty("ferreteria.db.path", archivo.toString());
+        DatabaseConfig config = DatabaseConfig.getInstance();
+        new DatabaseInitializer(config).initialize();
+        generarVentas(config);
+
+        // Sin el log por día de getDailySales, que distorsiona la medición
+        Logger.getLogger(ReportDAO.class.getName()).setLevel(Level.WARNING);
+        ReportDAO reportDAO = new ReportDAO(config);
+        MonthlyReportEngine motor = new MonthlyReportEngine(config);
+        BackgroundTasks tareas = new BackgroundTasks(Runnable::run);
+
+        long[] secuencial = new long[REPETICIONES_REPORTE];
+        long[] paralelo = new long[REPETICIONES_REPORTE];
+        long[] unaPasada = new long[REPETICIONES_REPORTE];
+        MonthlyReportEngine.Report reporte = null;
+        // Una vuelta de calentamiento (caché de páginas de SQLite y JIT) y después las medidas
+        for (int i = -1; i < REPETICIONES_REPORTE; i++) {
+            long t = System.nanoTime();
+            reportDAO.getMonthlyStats(MES_REPORTE);
+            reportDAO.getPaymentMethodTotals(MES_REPORTE);
+            reportDAO.getProductSalesSummary(MES_REPORTE);
+            reportDAO.getDailySales(MES_REPORTE);
+            long tSecuencial = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            CompletableFuture.allOf(
+                tareas.supply("estadisticas", () -> reportDAO.getMonthlyStats(MES_REPORTE)),
+                tareas.supply("pagos", () -> reportDAO.getPaymentMethodTotals(MES_REPORTE)),
+                tareas.supply("productos", () -> reportDAO.getProductSalesSummary(MES_REPORTE)),
+                tareas.supply("diarias", () -> reportDAO.getDailySales(MES_REPORTE))
+            ).join();
+            long tParalelo = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            reporte = motor.generate(MES_REPORTE);
+            long tUnaPasada = System.nanoTime() - t;
+
+            if (i >= 0) {
+                secuencial[i] = tSecuencial;
+                paralelo[i] = tParalelo;
+                unaPasada[i] = tUnaPasada;
+            }
+        }
+        tareas.shutdown();
+
+        verificarReporte(reportDAO, reporte);
+        double msSecuencial = percentil(secuencial, 50);
+        double msUnaPasada = percentil(unaPasada, 50);
+        System.out.printf("  %d ventas en %s, %d productos vendidos%n",
+            reporte.summary().salesCount(), MES_REPORTE, reporte.products().size());
+        System.out.printf("  4 consultas secuenciales p50 %8.1f ms%n", msSecuencial);
+        System.out.printf("  4 consultas en paralelo  p50 %8.1f ms (%d núcleos)%n",
+            percentil(paralelo, 50), Runtime.getRuntime().availableProcessors());
+        System.out.printf("  Motor de una pasada      p50 %8.1f ms (%.1fx)%n", msUnaPasada, msSecuencial / msUnaPasada);
+
+        System.out.println("  ✓ El motor de reportes coincide con las cuatro consultas\n");
+    }
+
+    /**
+     * Mismo reporte desde el historial en columnas, y una agregación sobre los
+     * dos años completos comparada con SQL. Usa la base de {@link #testReporteMensual}.
+     */
+    private static void testHistorialEnColumnas() throws SQLException {
+        System.out.println("► TEST: Historial en columnas sobre " + VENTAS + " ventas...");
+
+        DatabaseConfig config = DatabaseConfig.getInstance();
+        SalesColumnStore columnas = new SalesColumnStore(config);
+        long heapAntes = heapUsado();
+        long t = System.nanoTime();
+        columnas.refresh();
+        double msCarga = (System.nanoTime() - t) / 1e6;
+        long heapDespues = heapUsado();
+        SalesColumnStore.StoreStats stats = columnas.getStats();
+        System.out.printf("  Carga: %.0f ms, %d ventas, %d ítems, %d pagos; arreglos %.1f MB, medido en heap %.1f MB%n",
+            msCarga, stats.sales(), stats.items(), stats.payments(),
+            stats.approxBytes() / (1024.0 * 1024.0), (heapDespues - heapAntes) / (1024.0 * 1024.0));
+
+        ReportDAO enMemoria = new ReportDAO(config, columnas);
+        long[] columnar = new long[REPETICIONES_REPORTE];
+        for (int i = -1; i < REPETICIONES_REPORTE; i++) {
+            t = System.nanoTime();
+            enMemoria.getMonthlyStats(MES_REPORTE);
+            enMemoria.getPaymentMethodTotals(MES_REPORTE);
+            enMemoria.getProductSalesSummary(MES_REPORTE);
+            enMemoria.getDailySales(MES_REPORTE);
+            if (i >= 0) {
+                columnar[i] = System.nanoTime() - t;
+            }
+        }
+        verificarReporte(enMemoria, new MonthlyReportEngine(config).generate(MES_REPORTE));
+        System.out.printf("  4 consultas desde columnas p50 %6.2f ms%n", percentil(columnar, 50));
+
+        // Todo el historial por medio de pago: columnas contra SQL
+        SalePeriod historial = SalePeriod.range(LocalDate.of(2024, 7, 1), LocalDate.of(2026, 7, 1));
+        long[] enColumnas = new long[REPETICIONES_REPORTE];
+        Map<String, Long> pagos = null;
+        for (int i = -1; i < REPETICIONES_REPORTE; i++) {
+            t = System.nanoTime();
+            pagos = columnas.paymentsByMethod(columnas.select(historial));
+            if (i >= 0) {
+                enColumnas[i] = System.nanoTime() - t;
+            }
+        }
+        t = System.nanoTime();
+        Map<String, Long> esperados = new HashMap<>();
+        try (Connection conn = config.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT payment_method, SUM(amount) FROM sale_payments GROUP BY payment_method")) {
+            while (rs.next()) {
+                esperados.put(rs.getString(1), Math.round(rs.getDouble(2) * 100));
+            }
+        }
+        double msSql = (System.nanoTime() - t) / 1e6;
+        if (!esperados.equals(pagos)) {
+            throw new AssertionError("Columnas: pagos del historial " + pagos + " vs " + esperados);
+        }
+        System.out.printf("  Historial por medio de pago: columnas p50 %6.2f ms | SQL %6.1f ms (%d núcleos)%n",
+            percentil(enColumnas, 50), msSql, Runtime.getRuntime().availableProcessors());
+
+        System.out.println("  ✓ Las columnas coinciden con SQL\n");
+    }
+
+    /**
+     * Carga {@link #VENTAS} ventas de prueba (dos ítems y uno o dos pagos cada
+     * una) con SQL, si la base todavía no las tiene.
+     */
+    /**
+     * Primera página de la lista del POS con el catálogo de la base de prueba y
+     * con {@link #VARIANTES_POS} variantes, comparada con cargar todo el
+     * catálogo como antes. Las variantes agregadas se borran al terminar.
+     */
+    private static void testAperturaPOS() throws SQLException {
+        System.out.println("► TEST: Apertura del POS con catálogo chico y grande...");
+
+        DatabaseConfig config = DatabaseConfig.getInstance();
+        ProductVariantDAO dao = new ProductVariantDAO(config);
+        borrarVariantesPOS(config);
+        int base = dao.contar();
+        double[] chico = medirAperturaPOS(dao);
+
+        try (Connection conn = config.getWriteConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < %d)
+                INSERT INTO product_variants (id, product_id, sku, variant_name, sale_price, stock)
+                SELECT 1000000 + i, 1 + i %% 200, 'POS-' || i, 'Medida ' || i, 100 + i %% 500, 10 FROM n
+            """.formatted(VARIANTES_POS - base));
+        }
+        try {
+            double[] grande = medirAperturaPOS(dao);
+            System.out.printf("  %,7d variantes: primera página %6.2f ms | catálogo completo %7.1f ms%n",
+                base, chico[0], chico[1]);
+            System.out.printf("  %,7d variantes: primera página %6.2f ms | catálogo completo %7.1f ms%n",
+                VARIANTES_POS, grande[0], grande[1]);
+            if (grande[0] > Math.max(5 * chico[0], chico[0] + 20)) {
+                throw new AssertionError("La primera página crece con el catálogo: "
+                    + chico[0] + " ms contra " + grande[0] + " ms");
+            }
+        } finally {
+            borrarVariantesPOS(config);
+        }
+
+        System.out.println("  ✓ Abrir el POS no depende del tamaño del catálogo\n");
+    }
+
+    /**
+     * Quita las variantes agregadas por {@link #testAperturaPOS}, también las
+     * que haya dejado una corrida interrumpida. Ninguna venta las referencia:
+     * sin desactivar las claves foráneas, SQLite recorrería sale_items (que no
+     * tiene índice por variante) una vez por cada variante borrada.
+     */
+    private static void borrarVariantesPOS(DatabaseConfig config) throws SQLException {
+        try (Connection conn = config.getWriteConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA foreign_keys = OFF");
+            try {
+                stmt.execute("DELETE FROM product_variants WHERE id > 1000000");
+            } finally {
+                stmt.execute("PRAGMA foreign_keys = ON");
+            }
+        }
+    }
+
+    /**
+     * Mediana de la primera página del POS y de {@code listarDisponibles}, en ms.
+     */
+    private static double[] medirAperturaPOS(ProductVariantDAO dao) {
+        long[] pagina = new long[20];
+        long[] completo = new long[5];
+        for (int i = -3; i < pagina.length; i++) {
+            long t = System.nanoTime();
+            List<ProductVariant> primera = new CatalogPager(dao, PAGINA_POS).nextPage();
+            if (i >= 0) {
+                pagina[i] = System.nanoTime() - t;
+            }
+            if (primera.isEmpty()) {
+                throw new AssertionError("Primera página vacía");
+            }
+        }
+        for (int i = 0; i < completo.length; i++) {
+            long t = System.nanoTime();
+            dao.listarDisponibles();
+            completo[i] = System.nanoTime() - t;
+        }
+        return new double[] {percentil(pagina, 50), percentil(completo, 50)};
+    }
+
+    /**
+     * Compara el recálculo del carrito en cada tecla (total, pagos y diferencia)
+     * con BigDecimal, como se hacía antes, contra Money: bytes asignados y tiempo
+     * por recálculo, medidos con el contador de asignaciones del hilo.
+     */
+    private static void testImportesCarrito() {
+        System.out.println("► TEST: Importes del carrito con " + ITEMS_CARRITO + " ítems...");
+
+        Random random = new Random(7);
+        List<CartItem> carrito = new ArrayList<>();
+        for (ProductVariant v : generarCatalogo(ITEMS_CARRITO, random)) {
+            carrito.add(new CartItem(v, 1 + random.nextInt(12)));
+        }
+        String[] pagos = {"$ 1,250.50", "3000", ""};
+
+        com.sun.management.ThreadMXBean hilo = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+
+        // Calentamiento de las dos versiones antes de medir
+        BigDecimal esperado = BigDecimal.ZERO;
+        Money obtenido = Money.ZERO;
+        for (int i = 0; i < RECALCULOS; i++) {
+            esperado = diferenciaBigDecimal(carrito, pagos);
+            obtenido = diferenciaMoney(carrito, pagos);
+        }
+        if (!Money.of(esperado).equals(obtenido)) {
+            throw new AssertionError("Diferencia distinta: BigDecimal " + esperado + ", Money " + obtenido);
+        }
+
+        long bytes = hilo.getThreadAllocatedBytes(id);
+        long inicio = System.nanoTime();
+        for (int i = 0; i < RECALCULOS; i++) {
+            esperado = diferenciaBigDecimal(carrito, pagos);
+        }
+        double nsBigDecimal = (System.nanoTime() - inicio) / (double) RECALCULOS;
+        double bytesBigDecimal = (hilo.getThreadAllocatedBytes(id) - bytes) / (double) RECALCULOS;
+
+        bytes = hilo.getThreadAllocatedBytes(id);
+        inicio = System.nanoTime();
+        for (int i = 0; i < RECALCULOS; i++) {
+            obtenido = diferenciaMoney(carrito, pagos);
+        }
+        double nsMoney = (System.nanoTime() - inicio) / (double) RECALCULOS;
+        double bytesMoney = (hilo.getThreadAllocatedBytes(id) - bytes) / (double) RECALCULOS;
+
+        System.out.printf("  BigDecimal: %8.0f bytes/recálculo  %8.0f ns%n", bytesBigDecimal, nsBigDecimal);
+        System.out.printf("  Money:      %8.0f bytes/recálculo  %8.0f ns%n", bytesMoney, nsMoney);
+        if (bytesMoney >= bytesBigDecimal) {
+            throw new AssertionError("Money no reduce las asignaciones del recálculo");
+        }
+
+        System.out.println("  ✓ Mismos importes con menos asignaciones (diferencia " + obtenido.format() + ")\n");
+    }
+
+    /**
+     * El recálculo anterior: subtotales multiplicados en cada llamada, stream
+     * con reduce y montos leídos con {@code new BigDecimal}.
+     */
+    private static BigDecimal diferenciaBigDecimal(List<CartItem> carrito, String[] pagos) {
+        BigDecimal total = carrito.stream()
+            .map(item -> item.getVariant().getSalePrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal sumaPagos = BigDecimal.ZERO;
+        for (String pago : pagos) {
+            String limpio = pago.replace("$", "").replace(",", "").trim();
+            if (!limpio.isEmpty()) {
+                sumaPagos = sumaPagos.add(new BigDecimal(limpio));
+            }
+        }
+        return total.subtract(sumaPagos);
+    }
+
+    private static Money diferenciaMoney(List<CartItem> carrito, String[] pagos) {
+        long total = 0;
+        for (CartItem item : carrito) {
+            total += item.getSubtotal().cents();
+        }
+        long sumaPagos = 0;
+        for (String pago : pagos) {
+            sumaPagos += Money.parseOrZero(pago).cents();
+        }
+        return Money.ofCents(total - sumaPagos);
+    }
+
+    private static void generarVentas(DatabaseConfig config) throws SQLException {
+        try (Connection conn = config.getWriteConnection();
+             Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sales");
+            if (rs.next() && rs.getInt(1) == VENTAS) {
+                return;
+            }
+            System.out.println("  Generando base de prueba (una sola vez)...");
+            long inicio = System.nanoTime();
+            conn.setAutoCommit(false);
+            try {
+                for (String tabla : new String[] {"sale_payments", "sale_items", "sales", "product_variants", "products"}) {
+                    stmt.execute("DELETE FROM " + tabla);
+                }
+                stmt.execute("""
+                    WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 200)
+                    INSERT INTO products (id, code, name) SELECT i, 'BENCH' || i, 'Producto ' || i FROM n
+                """);
+                stmt.execute("""
+                    WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 1000)
+                    INSERT INTO product_variants (id, product_id, sku, variant_name, sale_price, stock)
+                    SELECT i, 1 + (i - 1) / 5, 'BENCH-' || i, 'Variante ' || i, 100 + (i % 50) * 10, 1000 FROM n
+                """);
+                // Dos años de ventas a intervalos regulares; una de cada veinte anulada
+                stmt.execute("""
+                    WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < %d)
+                    INSERT INTO sales (id, user_id, total, status, created_at)
+                    SELECT i, 1, 0, CASE WHEN i %% 20 = 0 THEN 'cancelled' ELSE 'completed' END,
+                           datetime('2024-07-01', '+' || (i * 63072 / 1000) || ' seconds')
+                    FROM n
+                """.formatted(VENTAS));
+                stmt.execute("""
+                    INSERT INTO sale_items (sale_id, variant_id, quantity, unit_price, subtotal)
+                    SELECT s.id, v.id, 1 + (s.id + k.k) % 3, v.sale_price, v.sale_price * (1 + (s.id + k.k) % 3)
+                    FROM sales s
+                    CROSS JOIN (SELECT 0 AS k UNION ALL SELECT 1) k
+                    JOIN product_variants v ON v.id = 1 + (s.id * 7 + k.k * 13) % 1000
+                """);
+                stmt.execute("""
+                    UPDATE sales SET total = (SELECT SUM(subtotal) FROM sale_items WHERE sale_id = sales.id)
+                """);
+                stmt.execute("""
+                    INSERT INTO sale_payments (sale_id, payment_method, amount)
+                    SELECT id, CASE id % 3 WHEN 0 THEN 'efectivo' WHEN 1 THEN 'tarjeta_debito' ELSE 'transferencia' END,
+                           CASE WHEN id % 10 = 0 THEN total - 100 ELSE total END
+                    FROM sales
+                """);
+                stmt.execute("""
+                    INSERT INTO sale_payments (sale_id, payment_method, amount)
+                    SELECT id, 'efectivo', 100 FROM sales WHERE id % 10 = 0
+                """);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            new SaleDAO(config).rebuildDailyAgg();
+            System.out.printf("  Base generada en %.1f s%n", (System.nanoTime() - inicio) / 1e9);
+        }
+    }
+
+    /**
+     * El reporte del motor debe coincidir con las cuatro consultas de ReportDAO
+     * (los importes de SQLite son REAL: se comparan al centavo).
+     */
+    private static void verificarReporte(ReportDAO reportDAO, MonthlyReportEngine.Report reporte) {
+        Map<String, Object> stats = reportDAO.getMonthlyStats(MES_REPORTE);
+        MonthlyReportEngine.Summary resumen = reporte.summary();
+        if (resumen.salesCount() != (Integer) stats.get("totalVentas")
+                || !igualAlCentavo(resumen.total(), (BigDecimal) stats.get("totalRecaudado"))
+                || !igualAlCentavo(resumen.average(), (BigDecimal) stats.get("promedioVenta"))
+                || !igualAlCentavo(resumen.max(), (BigDecimal) stats.get("ventaMaxima"))
+                || !igualAlCentavo(resumen.min(), (BigDecimal) stats.get("ventaMinima"))) {
+            throw new AssertionError("Reporte: estadísticas distintas " + resumen + " vs " + stats);
+        }
+
+        Map<String, BigDecimal> pagos = reportDAO.getPaymentMethodTotals(MES_REPORTE);
+        if (!pagos.keySet().equals(reporte.paymentTotals().keySet())
+                || pagos.entrySet().stream().anyMatch(e -> !igualAlCentavo(e.getValue(), reporte.paymentTotals().get(e.getKey())))) {
+            throw new AssertionError("Reporte: pagos distintos " + reporte.paymentTotals() + " vs " + pagos);
+        }
+
+        Map<Integer, BigDecimal> diarias = reportDAO.getDailySales(MES_REPORTE);
+        Map<Integer, BigDecimal> porDia = reporte.salesByDayOfMonth();
+        if (!diarias.keySet().equals(porDia.keySet())
+                || diarias.entrySet().stream().anyMatch(e -> !igualAlCentavo(e.getValue(), porDia.get(e.getKey())))) {
+            throw new AssertionError("Reporte: serie diaria distinta");
+        }
+
+        List<Map<String, Object>> productos = reportDAO.getProductSalesSummary(MES_REPORTE);
+        Map<String, MonthlyReportEngine.ProductLine> lineas = new HashMap<>();
+        reporte.products().forEach(l -> lineas.put(l.product() + "|" + l.variant(), l));
+        if (productos.size() != lineas.size()) {
+            throw new AssertionError("Reporte: " + lineas.size() + " productos, se esperaban " + productos.size());
+        }
+        for (Map<String, Object> fila : productos) {
+            MonthlyReportEngine.ProductLine linea = lineas.get(fila.get("producto") + "|" + fila.get("variante"));
+            if (linea == null || linea.quantity() != (Integer) fila.get("cantidad")
+                    || !igualAlCentavo(linea.total(), (BigDecimal) fila.get("total"))) {
+                throw new AssertionError("Reporte: producto distinto " + fila + " vs " + linea);
+            }
+        }
+    }
+
+    private static boolean igualAlCentavo(BigDecimal a, BigDecimal b) {
+        return a.subtract(b).abs().compareTo(new BigDecimal("0.01")) <= 0;
+    }
+
+    /**
+     * Búsqueda equivalente recorriendo la lista (lo que hacía filterProducts):
+     * todas las palabras de 3+ letras como subcadena, las cortas como comienzo de palabra.
+     */
+    private static List<ProductVariant> busquedaLineal(List<ProductVariant> catalogo, String consulta) {
+        String[] palabras = normalizar(consulta).split("[^\\p{L}\\p{N}]+");
+        List<ProductVariant> resultados = new ArrayList<>();
+        for (ProductVariant v : catalogo) {
+            String texto = normalizar(String.join(" ",
+                v.getProductName(), v.getProductCode(), v.getSku(), v.getVariantName()));
+            List<String> palabrasTexto = Arrays.asList(texto.split("[^\\p{L}\\p{N}]+"));
+            boolean coincide = true;
+            for (String palabra : palabras) {
+                if (palabra.isEmpty()) continue;
+                boolean ok = palabra.length() >= 3
+                    ? texto.contains(palabra)
+                    : palabrasTexto.stream().anyMatch(p -> p.startsWith(palabra));
+                if (!ok) {
+                    coincide = false;
+                    break;
+                }
+            }
+            if (coincide) {
+                resultados.add(v);
+            }
+        }
+        return resultados;
+    }
+
+    private static void verificarMismosResultados(String consulta, TextIndex<ProductVariant> indice,
+                                                  List<ProductVariant> esperado) {
+        Set<Integer> idsIndice = new HashSet<>();
+        indice.search(consulta, Integer.MAX_VALUE).forEach(v -> idsIndice.add(v.getId()));
+        Set<Integer> idsEsperados = new HashSet<>();
+        esperado.forEach(v -> idsEsperados.add(v.getId()));
+        if (!idsIndice.equals(idsEsperados)) {
+            throw new AssertionError("Resultados distintos para '" + consulta + "': índice "
+                + idsIndice.size() + ", lineal " + idsEsperados.size());
+        }
+    }
+
+    private static List<ProductVariant> generarCatalogo(int cantidad, Random random) {
+        List<ProductVariant> catalogo = new ArrayList<>(cantidad);
+        for (int id = 1; id <= cantidad; id++) {
+            String nombre = NOMBRES[random.nextInt(NOMBRES.length)] + " "
+                + DETALLES[random.nextInt(DETALLES.length)];
+            String codigo = nombre.substring(0, 4).toUpperCase(Locale.ROOT) + "-" + String.format("%04d", id % 10_000);
+            String medida = MEDIDAS[random.nextInt(MEDIDAS.length)];
+            catalogo.add(new ProductVariant.Builder()
+                .id(id)
+                .productId(id / 3 + 1)
+                .sku(codigo + "-" + id)
+                .variantName(medida)
+                .productName(nombre)
+                .productCode(codigo)
+                .salePrice(BigDecimal.valueOf(100 + random.nextInt(10_000)))
+                .stock(random.nextInt(200))
+                .active(true)
+                .build());
+        }
+        return catalogo;
+    }
+
+    private static ProductVariant copiar(ProductVariant v, String variantName) {
+        return new ProductVariant.Builder()
+            .id(v.getId())
+            .productId(v.getProductId())
+            .sku("ESP-" + v.getId())
+            .variantName(variantName)
+            .productName(v.getProductName())
+            .productCode(v.getProductCode())
+            .salePrice(v.getSalePrice())
+            .stock(v.getStock())
+            .active(true)
+            .build();
+    }
+
+    private static String normalizar(String texto) {
+        return java.text.Normalizer.normalize(texto, java.text.Normalizer.Form.NFD)
+            .replaceAll("\\p{M}+", "")
+            .toLowerCase(Locale.ROOT);
+    }
+
+    private static double percentil(long[] nanos, int p) {
+        long[] copia = nanos.clone();
+        Arrays.sort(copia);
+        int i = Math.min(copia.length - 1, (int) Math.ceil(p / 100.0 * copia.length) - 1);
+        return copia[Math.max(0, i)] / 1_000_000.0;
+    }
+
+    private static long heapUsado() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -2,11 +2,21 @@ package com.ferreteria;
 
 import com.ferreteria.models.*;
 import com.ferreteria.models.dao.*;
+import com.ferreteria.utils.CatalogIndex;
+import com.ferreteria.utils.CatalogPager;
+import com.ferreteria.utils.ScanDetector;
+
+import javafx.collections.ListChangeListener;
 
 import java.math.BigDecimal;
 import java.sql.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Clase de prueba para verificar el módulo de ventas.
@@ -28,13 +38,22 @@ public class TestVentas {
             setup();
 
             // Ejecutar tests
+            testImportes();
+            testCarrito();
             testCrearProductosDemo();
             testListarVariantes();
             testBuscarVariantes();
+            testClavesBusqueda();
             testCrearVenta();
+            testEscrituraAgrupada();
+            testEscrituraAgrupadaConErrorInesperado();
+            testCatalogoPaginado();
             testListarVentas();
+            testPaginacionVentas();
             testAnularVenta();
             testEstadisticas();
+            testCacheReportes();
+            testHistorialEnColumnas();
 
             System.out.println("\n===========================================");
             System.out.println("   TODOS LOS TESTS PASARON ✓");
@@ -67,49 +86,50 @@ public class TestVentas {
     private static void testCrearProductosDemo() throws SQLException {
         System.out.println("► TEST: Crear productos de demo...");
 
-        Connection conn = dbConfig.getConnection();
-
-        // Verificar si ya hay productos
-        Statement stmt = conn.createStatement();
-        ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM products");
-        rs.next();
-        int count = rs.getInt(1);
-
-        if (count == 0) {
-            // Crear categoría
-            stmt.execute("INSERT INTO categories (name, description) VALUES ('Herramientas', 'Herramientas manuales')");
-
-            // Crear productos
-            String[] productos = {
-                "INSERT INTO products (code, name, category_id) VALUES ('MART001', 'Martillo de Carpintero', 1)",
-                "INSERT INTO products (code, name, category_id) VALUES ('DEST002', 'Destornillador Phillips', 1)",
-                "INSERT INTO products (code, name, category_id) VALUES ('LLAV003', 'Llave Francesa 10\"', 1)",
-                "INSERT INTO products (code, name, category_id) VALUES ('TALA004', 'Taladro Percutor', 1)",
-                "INSERT INTO products (code, name, category_id) VALUES ('SIER005', 'Sierra Circular', 1)"
-            };
-
-            for (String sql : productos) {
-                stmt.execute(sql);
-            }
-
-            // Crear variantes con precios y stock
-            String[] variantes = {
-                "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (1, 'MART001-STD', 'Estándar', 1500, 2500, 50, 5)",
-                "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (1, 'MART001-PRO', 'Profesional', 2500, 4500, 25, 3)",
-                "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (2, 'DEST002-PH1', 'PH1', 300, 550, 100, 10)",
-                "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (2, 'DEST002-PH2', 'PH2', 350, 600, 100, 10)",
-                "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (3, 'LLAV003-10', '10 pulgadas', 2000, 3500, 30, 5)",
-                "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (4, 'TALA004-500W', '500W', 15000, 25000, 10, 2)",
-                "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (5, 'SIER005-7', '7 1/4\"', 25000, 42000, 8, 2)"
-            };
-
-            for (String sql : variantes) {
-                stmt.execute(sql);
+        try (Connection conn = dbConfig.getWriteConnection();
+             Statement stmt = conn.createStatement()) {
+            // Verificar si ya hay productos
+            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM products");
+            rs.next();
+            int count = rs.getInt(1);
+
+            if (count == 0) {
+                // Crear categoría
+                stmt.execute("INSERT INTO categories (name, description) VALUES ('Herramientas', 'Herramientas manuales')");
+
+                // Crear productos
+                String[] productos = {
+                    "INSERT INTO products (code, name, category_id) VALUES ('MART001', 'Martillo de Carpintero', 1)",
+                    "INSERT INTO products (code, name, category_id) VALUES ('DEST002', 'Destornillador Phillips', 1)",
+                    "INSERT INTO products (code, name, category_id) VALUES ('LLAV003', 'Llave Francesa 10\"', 1)",
+                    "INSERT INTO products (code, name, category_id) VALUES ('TALA004', 'Taladro Percutor', 1)",
+                    "INSERT INTO products (code, name, category_id) VALUES ('SIER005', 'Sierra Circular', 1)"
+                };
+
+                for (String sql : productos) {
+                    stmt.execute(sql);
+                }
+
+                // Crear variantes con precios y stock
+                String[] variantes = {
+                    "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (1, 'MART001-STD', 'Estándar', 1500, 2500, 50, 5)",
+                    "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (1, 'MART001-PRO', 'Profesional', 2500, 4500, 25, 3)",
+                    "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (2, 'DEST002-PH1', 'PH1', 300, 550, 100, 10)",
+                    "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (2, 'DEST002-PH2', 'PH2', 350, 600, 100, 10)",
+                    "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (3, 'LLAV003-10', '10 pulgadas', 2000, 3500, 30, 5)",
+                    "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (4, 'TALA004-500W', '500W', 15000, 25000, 10, 2)",
+                    "INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock) VALUES (5, 'SIER005-7', '7 1/4\"', 25000, 42000, 8, 2)"
+                };
+
+                for (String sql : variantes) {
+                    stmt.execute(sql);
+                }
+                SearchKey.fillMissing(conn);
+
+                System.out.println("  ✓ Productos de demo creados");
+            } else {
+                System.out.println("  ✓ Ya existen " + count + " productos");
             }
-
-            System.out.println("  ✓ Productos de demo creados");
-        } else {
-            System.out.println("  ✓ Ya existen " + count + " productos");
         }
         System.out.println();
     }
@@ -133,7 +153,7 @@ public class TestVentas {
         System.out.println("  ✓ Test pasado\n");
     }
 
-    private static void testBuscarVariantes() {
+    private static void testBuscarVariantes() throws SQLException {
         System.out.println("► TEST: Buscar variantes...");
 
         // Buscar por nombre
@@ -148,10 +168,171 @@ public class TestVentas {
         var variante = variantDAO.buscarPorId(1);
         System.out.println("  Buscar ID 1: " + (variante.isPresent() ? variante.get().getDisplayName() : "No encontrado"));
 
+        // Índice de texto completo: prefijos, varias palabras, acentos y SKU
+        verificarPrimero("mart prof", "MART001-PRO");
+        verificarPrimero("estandar", "MART001-STD");
+        verificarPrimero("MART001-STD", "MART001-STD");
+        verificarPrimero("dest ph2", "DEST002-PH2");
+
+        // Los triggers mantienen el índice al renombrar una variante
+        ProductVariant ph1 = variantDAO.buscarPorSku("DEST002-PH1").orElseThrow();
+        try (Connection conn = dbConfig.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE product_variants SET variant_name = ? WHERE id = ?")) {
+            pstmt.setString(1, "Punta Zeta");
+            pstmt.setInt(2, ph1.getId());
+            pstmt.executeUpdate();
+            verificarPrimero("zeta", "DEST002-PH1");
+            pstmt.setString(1, ph1.getVariantName());
+            pstmt.executeUpdate();
+        }
+        if (!variantDAO.buscarTexto("zeta", 10).isEmpty()) {
+            throw new AssertionError("El índice conserva el nombre anterior");
+        }
+
+        variantDAO.reconstruirIndiceBusqueda();
+        verificarPrimero("martillo estandar", "MART001-STD");
+        System.out.println("  Búsqueda FTS: prefijos, acentos, SKU y triggers OK");
+
+        // Catálogo en memoria del POS
+        CatalogIndex catalogo = CatalogIndex.getInstance();
+        catalogo.load();
+        List<ProductVariant> enMemoria = catalogo.search("mart prof", 10);
+        if (enMemoria.isEmpty() || !"MART001-PRO".equals(enMemoria.get(0).getSku())) {
+            throw new AssertionError("Catálogo en memoria: 'mart prof' no encontró MART001-PRO");
+        }
+        catalogo.refreshVariants(List.of(ph1.getId()));
+        if (catalogo.get(ph1.getId()) == null) {
+            throw new AssertionError("Catálogo en memoria: la variante actualizada desapareció");
+        }
+        System.out.println("  Catálogo en memoria: " + catalogo.memoryStats().documents() + " variantes OK");
+
+        // Lectura de código de barras: SKU exacto, sin distinguir mayúsculas
+        ProductVariant escaneada = catalogo.findByCode(" mart001-pro ");
+        if (escaneada == null || !"MART001-PRO".equals(escaneada.getSku())) {
+            throw new AssertionError("Escáner: MART001-PRO no se resolvió por SKU");
+        }
+        // Código de producto con varias variantes: ambiguo, no se resuelve
+        if (catalogo.findByCode("MART001") != null) {
+            throw new AssertionError("Escáner: MART001 tiene dos variantes y no debería resolverse");
+        }
+        if (catalogo.findByCode("NO-EXISTE") != null) {
+            throw new AssertionError("Escáner: un código inexistente no debería resolverse");
+        }
+
+        // Ráfaga del lector (2 ms entre teclas) contra tipeo humano (150 ms)
+        ScanDetector detector = new ScanDetector();
+        long t = 0;
+        for (int i = 0; i < "busco".length(); i++) {
+            detector.keyTyped(t += 150_000_000L);
+        }
+        if (detector.isBurst(t + 150_000_000L)) {
+            throw new AssertionError("Escáner: el tipeo humano se tomó como lectura");
+        }
+        t += 500_000_000L;
+        for (int i = 0; i < "MART001-PRO".length(); i++) {
+            detector.keyTyped(t += 2_000_000L);
+        }
+        if (!detector.isBurst(t + 2_000_000L)
+                || !"MART001-PRO".equals(detector.code("buscoMART001-PRO"))) {
+            throw new AssertionError("Escáner: la ráfaga del lector no se detectó");
+        }
+        System.out.println("  Escáner: SKU por mapa y detección de ráfagas OK");
+
         System.out.println("  ✓ Test pasado\n");
     }
 
-    private static void testCrearVenta() {
+    private static void testClavesBusqueda() throws SQLException {
+        System.out.println("► TEST: Claves de búsqueda y orden en español...");
+
+        if (!"tornilleria cano 1 2".equals(SearchKey.of("Tornillería Caño 1/2\""))) {
+            throw new AssertionError("Clave mal normalizada: " + SearchKey.of("Tornillería Caño 1/2\""));
+        }
+
+        // Productos con acentos y "ñ", sin stock para no cambiar el catálogo del POS
+        String[][] productos = {
+            {"CLAVE-TORN", "Tornillería Fina", "Caja x100"},
+            {"CLAVE-CANO", "Caño Galvanizado", "1/2 pulgada"},
+            {"CLAVE-ARAN", "Árbol de Levas", "Único"}
+        };
+        try (Connection conn = dbConfig.getWriteConnection()) {
+            for (String[] producto : productos) {
+                if (variantDAO.buscarPorSku(producto[0] + "-1").isPresent()) {
+                    continue;
+                }
+                int productId;
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO products (code, name, search_key) VALUES (?, ?, ?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setString(1, producto[0]);
+                    pstmt.setString(2, producto[1]);
+                    pstmt.setString(3, SearchKey.of(producto[1], producto[0]));
+                    pstmt.executeUpdate();
+                    ResultSet keys = pstmt.getGeneratedKeys();
+                    keys.next();
+                    productId = keys.getInt(1);
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement("""
+                        INSERT INTO product_variants (product_id, sku, variant_name, cost_price, sale_price, stock, min_stock, search_key)
+                        VALUES (?, ?, ?, 100, 200, 0, 0, ?)
+                        """)) {
+                    pstmt.setInt(1, productId);
+                    pstmt.setString(2, producto[0] + "-1");
+                    pstmt.setString(3, producto[2]);
+                    pstmt.setString(4, SearchKey.of(producto[2], producto[0] + "-1"));
+                    pstmt.executeUpdate();
+                }
+            }
+        }
+
+        verificarClave("tornilleria", "CLAVE-TORN-1");
+        verificarClave("cano galv", "CLAVE-CANO-1");
+        verificarClave("ARBOL", "CLAVE-ARAN-1");
+        verificarClave("unico", "CLAVE-ARAN-1");
+
+        // El orden de la base es el del Collator en español
+        List<String> nombres = variantDAO.listarTodas().stream().map(ProductVariant::getProductName).toList();
+        java.text.Collator collator = java.text.Collator.getInstance(java.util.Locale.forLanguageTag("es"));
+        List<String> esperado = new ArrayList<>(nombres);
+        esperado.sort(collator);
+        if (!nombres.equals(esperado)) {
+            throw new AssertionError("Orden distinto al alfabético español: " + nombres);
+        }
+        if (nombres.indexOf("Árbol de Levas") > nombres.indexOf("Caño Galvanizado")) {
+            throw new AssertionError("'Árbol' debería ir antes que 'Caño'");
+        }
+
+        // El orden por nombre sale del índice, sin ordenar en memoria
+        try (Connection conn = dbConfig.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "EXPLAIN QUERY PLAN SELECT id FROM products ORDER BY name COLLATE ES LIMIT 10")) {
+            StringBuilder plan = new StringBuilder();
+            while (rs.next()) {
+                plan.append(rs.getString("detail")).append('\n');
+            }
+            if (!plan.toString().contains("idx_products_name_es") || plan.toString().contains("TEMP B-TREE")) {
+                throw new AssertionError("El orden por nombre no usa idx_products_name_es:\n" + plan);
+            }
+        }
+        System.out.println("  ✓ Claves sin acentos ni mayúsculas y orden en español OK\n");
+    }
+
+    private static void verificarClave(String query, String skuEsperado) {
+        List<String> skus = variantDAO.buscarPorClave(query, 10).stream().map(ProductVariant::getSku).toList();
+        if (!skus.contains(skuEsperado)) {
+            throw new AssertionError("Búsqueda por clave '" + query + "': se esperaba " + skuEsperado + ", hubo " + skus);
+        }
+    }
+
+    private static void verificarPrimero(String query, String skuEsperado) {
+        List<ProductVariant> resultados = variantDAO.buscarTexto(query, 10);
+        if (resultados.isEmpty() || !skuEsperado.equals(resultados.get(0).getSku())) {
+            throw new AssertionError("Búsqueda '" + query + "': se esperaba " + skuEsperado + " primero, hubo "
+                + resultados.stream().map(ProductVariant::getSku).toList());
+        }
+    }
+
+    private static void testCrearVenta() throws SQLException {
         System.out.println("► TEST: Crear venta...");
 
         // Obtener variantes para la venta
@@ -175,8 +356,8 @@ public class TestVentas {
         SaleItem item1 = new SaleItem.Builder()
             .variantId(v1.getId())
             .quantity(2)
-            .unitPrice(v1.getSalePrice())
-            .subtotal(v1.getSalePrice().multiply(BigDecimal.valueOf(2)))
+            .unitPrice(Money.of(v1.getSalePrice()))
+            .subtotal(Money.of(v1.getSalePrice()).times(2))
             .productName(v1.getProductName())
             .variantName(v1.getVariantName())
             .build();
@@ -184,13 +365,13 @@ public class TestVentas {
         SaleItem item2 = new SaleItem.Builder()
             .variantId(v2.getId())
             .quantity(3)
-            .unitPrice(v2.getSalePrice())
-            .subtotal(v2.getSalePrice().multiply(BigDecimal.valueOf(3)))
+            .unitPrice(Money.of(v2.getSalePrice()))
+            .subtotal(Money.of(v2.getSalePrice()).times(3))
             .productName(v2.getProductName())
             .variantName(v2.getVariantName())
             .build();
 
-        BigDecimal total = item1.getSubtotal().add(item2.getSubtotal());
+        Money total = item1.getSubtotal().plus(item2.getSubtotal());
 
         // Crear pago
         SalePayment payment = new SalePayment.Builder()
@@ -209,12 +390,25 @@ public class TestVentas {
             .addPayment(payment)
             .build();
 
-        System.out.printf("  Creando venta por $%.2f...%n", total);
+        System.out.printf("  Creando venta por $%s...%n", total.format());
 
         Sale createdSale = saleDAO.create(sale);
 
         System.out.println("  ✓ Venta creada con ID: " + createdSale.getId());
 
+        // La venta devuelta (armada sin releer) coincide con la guardada
+        Sale leida = saleDAO.findById(createdSale.getId()).orElseThrow();
+        if (!leida.getCreatedAt().equals(createdSale.getCreatedAt())
+                || !leida.getItems().stream().map(SaleItem::getId).toList()
+                    .equals(createdSale.getItems().stream().map(SaleItem::getId).toList())
+                || !leida.getPayments().stream().map(SalePayment::getId).toList()
+                    .equals(createdSale.getPayments().stream().map(SalePayment::getId).toList())) {
+            throw new AssertionError("La venta devuelta por create no coincide con la guardada");
+        }
+
+        // La venta ya cuenta en el resumen diario (misma transacción)
+        verificarResumen(createdSale.getCreatedAt().toLocalDate());
+
         // Verificar stock actualizado
         ProductVariant v1Despues = variantDAO.buscarPorId(v1.getId()).orElseThrow();
         ProductVariant v2Despues = variantDAO.buscarPorId(v2.getId()).orElseThrow();
@@ -229,6 +423,143 @@ public class TestVentas {
         System.out.println("  ✓ Stock actualizado correctamente\n");
     }
 
+    private static void testEscrituraAgrupada() {
+        System.out.println("► TEST: Escritura agrupada de ventas...");
+
+        ProductVariant variante = variantDAO.listarDisponibles().get(0);
+        int stockAntes = variante.getStock();
+        SaleWriter writer = dbConfig.getSaleWriter();
+        long lotesAntes = writer.getStats().batches();
+
+        // 20 ventas de 1 unidad encoladas sin esperar, y una sin stock suficiente en el medio
+        List<CompletableFuture<Sale>> futuros = new ArrayList<>();
+        CompletableFuture<Sale> sinStock = null;
+        for (int i = 0; i < 20; i++) {
+            futuros.add(writer.submit(ventaDePrueba(variante, 1)));
+            if (i == 10) {
+                // Como la confirmación del POS: sin esperar el resultado
+                sinStock = saleDAO.createAsync(ventaDePrueba(variante, stockAntes + 1));
+            }
+        }
+
+        List<Sale> creadas = futuros.stream().map(CompletableFuture::join).toList();
+        sinStock.handle((v, e) -> null).join();
+        if (!sinStock.isCompletedExceptionally()) {
+            throw new AssertionError("Escritura agrupada: la venta sin stock no falló");
+        }
+        Throwable causa = sinStock.handle((v, e) -> e).join();
+        if (!(causa instanceof RuntimeException) || causa.getMessage() == null) {
+            throw new AssertionError("Escritura agrupada: la venta sin stock no informa el error: " + causa);
+        }
+        if (creadas.stream().anyMatch(v -> v.getId() <= 0 || v.getItems().size() != 1)) {
+            throw new AssertionError("Escritura agrupada: ventas sin ID o sin items");
+        }
+        int stockDespues = variantDAO.buscarPorId(variante.getId()).orElseThrow().getStock();
+        if (stockDespues != stockAntes - 20) {
+            throw new AssertionError("Escritura agrupada: stock " + stockDespues + ", esperado " + (stockAntes - 20));
+        }
+
+        SaleWriter.WriterStats stats = writer.getStats();
+        System.out.printf("  21 ventas en %d transacciones (máximo %d por lote, %.2f ms promedio)%n",
+            stats.batches() - lotesAntes, stats.maxBatchSize(), stats.avgCommitMs());
+        if (stats.batches() - lotesAntes >= 21) {
+            throw new AssertionError("Escritura agrupada: no se agrupó ninguna venta");
+        }
+
+        // Dejar el stock como estaba
+        for (Sale venta : creadas) {
+            saleDAO.cancel(venta.getId());
+            saleDAO.delete(venta.getId());
+        }
+        System.out.println("  ✓ Ventas agrupadas, la fallida aislada y stock correcto\n");
+    }
+
+    /**
+     * Una venta que lanza una RuntimeException a mitad de la inserción (un
+     * pago null, después de insertar cabecera e items) se deshace sola; las
+     * demás del lote se confirman.
+     */
+    private static void testEscrituraAgrupadaConErrorInesperado() throws SQLException {
+        System.out.println("► TEST: Escritura agrupada con error inesperado...");
+
+        ProductVariant variante = variantDAO.listarDisponibles().get(0);
+        int stockAntes = variante.getStock();
+        SaleWriter writer = dbConfig.getSaleWriter();
+
+        Sale base = ventaDePrueba(variante, 1);
+        Sale rota = new Sale.Builder()
+            .userId(base.getUserId())
+            .total(base.getTotal())
+            .status(base.getStatus())
+            .notes("Venta de prueba rota")
+            .items(base.getItems())
+            .addPayment(null)
+            .build();
+
+        int rotasAntes = contarVentasRotas();
+        List<CompletableFuture<Sale>> futuros = new ArrayList<>();
+        CompletableFuture<Sale> fallida = null;
+        for (int i = 0; i < 6; i++) {
+            futuros.add(writer.submit(ventaDePrueba(variante, 1)));
+            if (i == 2) {
+                fallida = writer.submit(rota);
+            }
+        }
+
+        List<Sale> creadas = futuros.stream().map(CompletableFuture::join).toList();
+        Throwable causa = fallida.handle((v, e) -> e).join();
+        if (causa == null) {
+            throw new AssertionError("Error inesperado: la venta rota no falló");
+        }
+        if (creadas.stream().anyMatch(v -> v.getId() <= 0)) {
+            throw new AssertionError("Error inesperado: ventas buenas sin confirmar");
+        }
+        int stockDespues = variantDAO.buscarPorId(variante.getId()).orElseThrow().getStock();
+        if (stockDespues != stockAntes - 6) {
+            throw new AssertionError("Error inesperado: stock " + stockDespues + ", esperado " + (stockAntes - 6));
+        }
+        if (contarVentasRotas() != rotasAntes) {
+            throw new AssertionError("Error inesperado: quedó guardada la cabecera de la venta rota");
+        }
+
+        for (Sale venta : creadas) {
+            saleDAO.cancel(venta.getId());
+            saleDAO.delete(venta.getId());
+        }
+        System.out.println("  ✓ Venta rota deshecha y las demás del lote confirmadas\n");
+    }
+
+    private static int contarVentasRotas() throws SQLException {
+        try (Connection conn = dbConfig.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sales WHERE notes = 'Venta de prueba rota'")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static Sale ventaDePrueba(ProductVariant variante, int cantidad) {
+        Money precio = Money.of(variante.getSalePrice());
+        Money subtotal = precio.times(cantidad);
+        return new Sale.Builder()
+            .userId(1)
+            .total(subtotal)
+            .status("completed")
+            .notes("Venta de prueba agrupada")
+            .addItem(new SaleItem.Builder()
+                .variantId(variante.getId())
+                .quantity(cantidad)
+                .unitPrice(precio)
+                .subtotal(subtotal)
+                .productName(variante.getProductName())
+                .variantName(variante.getVariantName())
+                .build())
+            .addPayment(new SalePayment.Builder()
+                .paymentMethod(SalePayment.PaymentMethod.CASH)
+                .amount(subtotal)
+                .build())
+            .build();
+    }
+
     private static void testListarVentas() {
         System.out.println("► TEST: Listar ventas...");
 
@@ -248,25 +579,120 @@ public class TestVentas {
         if (!todas.isEmpty()) {
             Sale ultima = saleDAO.findById(todas.get(0).getId()).orElseThrow();
             System.out.println("\n  Última venta (#" + ultima.getId() + "):");
-            System.out.printf("    Total: $%.2f%n", ultima.getTotal());
+            System.out.printf("    Total: $%s%n", ultima.getTotal());
             System.out.println("    Items: " + ultima.getItems().size());
             for (SaleItem item : ultima.getItems()) {
-                System.out.printf("      - %s x%d = $%.2f%n",
+                System.out.printf("      - %s x%d = $%s%n",
                     item.getDisplayName(),
                     item.getQuantity(),
                     item.getSubtotal());
             }
             System.out.println("    Pagos: " + ultima.getPayments().size());
             for (SalePayment payment : ultima.getPayments()) {
-                System.out.printf("      - %s: $%.2f%n",
+                System.out.printf("      - %s: $%s%n",
                     payment.getPaymentMethodDisplayName(),
                     payment.getAmount());
             }
         }
 
+        // Carga en lote: mismo resultado que findById venta por venta
+        List<Integer> ids = todas.stream().map(Sale::getId).toList();
+        List<Sale> conDetalle = saleDAO.findWithDetails(ids);
+        if (conDetalle.size() != todas.size()) {
+            throw new AssertionError("findWithDetails devolvió " + conDetalle.size() + " de " + todas.size());
+        }
+        for (int i = 0; i < conDetalle.size(); i++) {
+            Sale enLote = conDetalle.get(i);
+            Sale individual = saleDAO.findById(ids.get(i)).orElseThrow();
+            if (enLote.getId() != individual.getId()
+                    || enLote.getItems().size() != individual.getItems().size()
+                    || enLote.getPayments().size() != individual.getPayments().size()
+                    || !java.util.Objects.equals(enLote.getUserName(), individual.getUserName())) {
+                throw new AssertionError("Detalle distinto para la venta #" + individual.getId());
+            }
+        }
+        System.out.println("  Carga en lote: " + conDetalle.size() + " ventas con detalle");
+
         System.out.println("  ✓ Test pasado\n");
     }
 
+    private static void testPaginacionVentas() throws SQLException {
+        System.out.println("► TEST: Paginación por cursor...");
+
+        // Recorrer todas las páginas de a 2 debe dar el mismo orden que la consulta completa
+        List<Integer> esperado = new java.util.ArrayList<>();
+        try (Connection conn = dbConfig.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT id FROM sales ORDER BY created_at DESC, id DESC")) {
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                esperado.add(rs.getInt("id"));
+            }
+        }
+
+        SaleFilter todas = SaleFilter.all();
+        List<Integer> recorrido = new java.util.ArrayList<>();
+        SaleDAO.SaleCursor cursor = null;
+        int paginas = 0;
+        do {
+            SaleDAO.SalePage pagina = saleDAO.findPage(todas, cursor, 2);
+            pagina.sales().forEach(s -> recorrido.add(s.getId()));
+            cursor = pagina.next();
+            paginas++;
+        } while (cursor != null);
+
+        if (!recorrido.equals(esperado) || saleDAO.count(todas) != esperado.size()) {
+            throw new AssertionError("Paginación inconsistente: " + recorrido + " vs " + esperado);
+        }
+        System.out.println("  " + esperado.size() + " ventas en " + paginas + " páginas");
+
+        // Los filtros se resuelven en SQL
+        SaleFilter anuladas = new SaleFilter.Builder()
+            .status("cancelled")
+            .period(SalePeriod.day(LocalDate.now()))
+            .product("destornillador")
+            .build();
+        int anuladasHoy = saleDAO.count(anuladas);
+        for (Sale sale : saleDAO.findPage(anuladas, null, 50).sales()) {
+            boolean contieneProducto = sale.getItems().stream()
+                .anyMatch(i -> i.getDisplayName().toLowerCase().contains("destornillador"));
+            if (!sale.isCancelled() || !contieneProducto) {
+                throw new AssertionError("La venta #" + sale.getId() + " no cumple el filtro");
+            }
+        }
+        System.out.println("  Anuladas hoy con 'destornillador': " + anuladasHoy);
+
+        // Ninguna forma de página debe ordenar en memoria
+        SaleFilter[] filtros = {
+            todas,
+            new SaleFilter.Builder().status("completed").build(),
+            new SaleFilter.Builder().period(SalePeriod.month(java.time.YearMonth.now())).build(),
+            anuladas
+        };
+        try (Connection conn = dbConfig.getReadConnection()) {
+            for (SaleFilter filtro : filtros) {
+                String sql = "EXPLAIN QUERY PLAN SELECT s.id, s.created_at FROM sales s WHERE " + filtro.predicate()
+                    + " AND (s.created_at, s.id) < (?, ?) ORDER BY s.created_at DESC, s.id DESC LIMIT ?";
+                StringBuilder plan = new StringBuilder();
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    int index = filtro.bind(pstmt, 1);
+                    pstmt.setString(index++, "9999-12-31");
+                    pstmt.setInt(index++, Integer.MAX_VALUE);
+                    pstmt.setInt(index, 15);
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        plan.append(rs.getString("detail")).append('\n');
+                    }
+                }
+                if (plan.toString().contains("TEMP B-TREE")) {
+                    throw new AssertionError("La página ordena en memoria (" + filtro + "):\n" + plan);
+                }
+            }
+        }
+
+        System.out.println("  ✓ Páginas por cursor consistentes y sin ordenar en memoria\n");
+    }
+
     private static void testAnularVenta() {
         System.out.println("► TEST: Anular venta...");
 
@@ -303,7 +729,7 @@ public class TestVentas {
         System.out.println("  ✓ Venta anulada y stock revertido\n");
     }
 
-    private static void testEstadisticas() {
+    private static void testEstadisticas() throws SQLException {
         System.out.println("► TEST: Estadísticas...");
 
         LocalDate hoy = LocalDate.now();
@@ -329,6 +755,405 @@ public class TestVentas {
             stats.totalSales(),
             stats.averageSale());
 
+        // El resumen diario coincide con agregar las ventas directamente
+        verificarResumen(hoy);
+        SaleStatsDAO.PeriodTotals totales = saleDAO.getStatsDAO().overallTotals();
+        if (totales.salesCount() != completadas || totales.cancelledCount() != totalVentas - completadas) {
+            throw new AssertionError("Resumen diario: cantidades históricas distintas de sales");
+        }
+
+        // Mover una venta de día la saca de hoy y la suma al día nuevo
+        Sale movida = saleDAO.findAll().get(0);
+        LocalDate ayer = movida.getCreatedAt().toLocalDate().minusDays(1);
+        saleDAO.updateDateTime(movida.getId(), ayer.atTime(10, 0));
+        verificarResumen(movida.getCreatedAt().toLocalDate());
+        verificarResumen(ayer);
+        saleDAO.updateDateTime(movida.getId(), movida.getCreatedAt());
+        verificarResumen(ayer);
+
+        // Cambiar el total y reconstruir dejan el mismo resultado
+        saleDAO.updateTotal(movida.getId(), movida.getTotal().plus(Money.ofCents(1000)));
+        verificarResumen(movida.getCreatedAt().toLocalDate());
+        saleDAO.updateTotal(movida.getId(), movida.getTotal());
+        saleDAO.rebuildDailyAgg();
+        verificarResumen(movida.getCreatedAt().toLocalDate());
+        System.out.println("  Resumen diario: alta, anulación, cambio de fecha y total OK");
+
+        System.out.println("  ✓ Test pasado\n");
+    }
+
+    private static void testCacheReportes() throws Exception {
+        System.out.println("► TEST: Caché de reportes...");
+
+        ReportCache cache = dbConfig.getReportCache();
+        MonthlyReportEngine motor = new MonthlyReportEngine(dbConfig);
+        YearMonth mesCerrado = YearMonth.now().minusMonths(1);
+        Path carpeta = Path.of(dbConfig.getDbPath() + ".reports");
+        Path archivo = carpeta.resolve(mesCerrado + ".bin");
+        cache.clear();
+
+        // Una venta en el mes cerrado para que el reporte tenga datos
+        Sale movida = saleDAO.findAll().get(0);
+        saleDAO.updateDateTime(movida.getId(), mesCerrado.atDay(15).atTime(10, 0));
+
+        ReportCache.CacheStats antes = cache.getStats();
+        MonthlyReportEngine.Report primero = cache.get(mesCerrado);
+        if (!primero.equals(motor.generate(mesCerrado))) {
+            throw new AssertionError("Caché: el reporte generado difiere del motor");
+        }
+        if (cache.get(mesCerrado) != primero || cache.getStats().memoryHits() != antes.memoryHits() + 1) {
+            throw new AssertionError("Caché: el segundo pedido no salió de memoria");
+        }
+        if (!Files.exists(archivo)) {
+            throw new AssertionError("Caché: el mes cerrado no se guardó en disco");
+        }
+
+        // Una caché nueva (como después de reiniciar) lo lee de disco
+        ReportCache reiniciada = new ReportCache(dbConfig, carpeta);
+        if (!reiniciada.get(mesCerrado).equals(primero) || reiniciada.getStats().diskHits() != 1) {
+            throw new AssertionError("Caché: el reporte leído de disco difiere");
+        }
+        System.out.printf("  Mes %s: %d ventas, %d bytes en disco%n",
+            mesCerrado, primero.summary().salesCount(), Files.size(archivo));
+
+        // Cambiar el total invalida el mes en memoria y en disco
+        byte[] guardado = Files.readAllBytes(archivo);
+        saleDAO.updateTotal(movida.getId(), movida.getTotal().plus(Money.ofCents(1000)));
+        if (Files.exists(archivo)) {
+            throw new AssertionError("Caché: el cambio no borró el archivo del mes");
+        }
+        MonthlyReportEngine.Report cambiado = cache.get(mesCerrado);
+        if (cambiado.summary().total().compareTo(primero.summary().total().add(BigDecimal.TEN)) != 0) {
+            throw new AssertionError("Caché: el reporte no refleja el nuevo total");
+        }
+
+        // Un archivo viejo (por ejemplo, la base cambió con otra copia) no se usa
+        Files.write(archivo, guardado);
+        ReportCache otra = new ReportCache(dbConfig, carpeta);
+        if (!otra.get(mesCerrado).equals(cambiado) || otra.getStats().diskHits() != 0) {
+            throw new AssertionError("Caché: se usó un archivo con huella vieja");
+        }
+
+        // Los meses abiertos y los rangos sólo quedan en memoria
+        cache.get(YearMonth.now());
+        if (Files.exists(carpeta.resolve(YearMonth.now() + ".bin"))) {
+            throw new AssertionError("Caché: se guardó en disco el mes actual");
+        }
+
+        saleDAO.updateTotal(movida.getId(), movida.getTotal());
+        saleDAO.updateDateTime(movida.getId(), movida.getCreatedAt());
+        if (!cache.get(mesCerrado).equals(motor.generate(mesCerrado))) {
+            throw new AssertionError("Caché: quedó un reporte viejo después de restaurar la venta");
+        }
+        cache.clear();
         System.out.println("  ✓ Test pasado\n");
     }
+
+    private static void testHistorialEnColumnas() {
+        System.out.println("► TEST: Historial de ventas en columnas...");
+
+        SalesColumnStore columnas = dbConfig.getSalesColumns();
+        ReportDAO sql = new ReportDAO(dbConfig);
+        ReportDAO memoria = new ReportDAO(dbConfig, columnas);
+        YearMonth mes = YearMonth.now();
+        YearMonth mesAnterior = mes.minusMonths(1);
+
+        verificarColumnas(sql, memoria, mes);
+        long recargas = columnas.getStats().reloads();
+
+        // Una venta nueva se agrega al final, sin recargar
+        ProductVariant variante = variantDAO.listarDisponibles().get(0);
+        Sale nueva = saleDAO.create(ventaDePrueba(variante, 1));
+        verificarColumnas(sql, memoria, mes);
+
+        // Anularla y moverla de mes se corrige en su lugar
+        saleDAO.cancel(nueva.getId());
+        verificarColumnas(sql, memoria, mes);
+        saleDAO.updateDateTime(nueva.getId(), mesAnterior.atDay(3).atTime(9, 30));
+        verificarColumnas(sql, memoria, mes);
+        verificarColumnas(sql, memoria, mesAnterior);
+
+        SalesColumnStore.StoreStats stats = columnas.getStats();
+        if (stats.reloads() != recargas || stats.appends() < 1) {
+            throw new AssertionError("Columnas: se recargó todo en vez de agregar o corregir " + stats);
+        }
+
+        // Eliminarla obliga a recargar
+        saleDAO.delete(nueva.getId());
+        verificarColumnas(sql, memoria, mesAnterior);
+        if (columnas.getStats().reloads() != recargas + 1) {
+            throw new AssertionError("Columnas: eliminar una venta no recargó el historial");
+        }
+
+        stats = columnas.getStats();
+        System.out.printf("  %d ventas, %d ítems, %d pagos en %.1f KB (última carga %.1f ms)%n",
+            stats.sales(), stats.items(), stats.payments(), stats.approxBytes() / 1024.0, stats.lastLoadMs());
+        System.out.println("  ✓ Test pasado\n");
+    }
+
+    /**
+     * Los agregados desde columnas deben coincidir al centavo con las consultas SQL.
+     */
+    private static void verificarColumnas(ReportDAO sql, ReportDAO memoria, YearMonth mes) {
+        var esperadas = sql.getMonthlyStats(mes);
+        var obtenidas = memoria.getMonthlyStats(mes);
+        if (!esperadas.get("totalVentas").equals(obtenidas.get("totalVentas"))) {
+            throw new AssertionError("Columnas " + mes + ": estadísticas " + obtenidas + " vs " + esperadas);
+        }
+        for (String clave : List.of("totalRecaudado", "promedioVenta", "ventaMaxima", "ventaMinima")) {
+            if (!igualAlCentavo((BigDecimal) esperadas.get(clave), (BigDecimal) obtenidas.get(clave))) {
+                throw new AssertionError("Columnas " + mes + ": " + clave + " " + obtenidas + " vs " + esperadas);
+            }
+        }
+        if (!igualAlCentavo(sql.getMonthlyTotal(mes), memoria.getMonthlyTotal(mes))) {
+            throw new AssertionError("Columnas " + mes + ": total mensual distinto");
+        }
+
+        var pagos = sql.getPaymentMethodTotals(mes);
+        var pagosMemoria = memoria.getPaymentMethodTotals(mes);
+        if (!pagos.keySet().equals(pagosMemoria.keySet())
+                || pagos.entrySet().stream().anyMatch(e -> !igualAlCentavo(e.getValue(), pagosMemoria.get(e.getKey())))) {
+            throw new AssertionError("Columnas " + mes + ": pagos " + pagosMemoria + " vs " + pagos);
+        }
+
+        var diarias = sql.getDailySales(mes);
+        var diariasMemoria = memoria.getDailySales(mes);
+        if (!diarias.keySet().equals(diariasMemoria.keySet())
+                || diarias.entrySet().stream().anyMatch(e -> !igualAlCentavo(e.getValue(), diariasMemoria.get(e.getKey())))) {
+            throw new AssertionError("Columnas " + mes + ": serie diaria " + diariasMemoria + " vs " + diarias);
+        }
+
+        var productos = sql.getProductSalesSummary(mes);
+        var productosMemoria = memoria.getProductSalesSummary(mes);
+        if (productos.size() != productosMemoria.size()) {
+            throw new AssertionError("Columnas " + mes + ": " + productosMemoria.size() + " productos, se esperaban " + productos.size());
+        }
+        for (var fila : productos) {
+            boolean encontrada = productosMemoria.stream().anyMatch(otra ->
+                otra.get("producto").equals(fila.get("producto")) && otra.get("variante").equals(fila.get("variante"))
+                    && otra.get("cantidad").equals(fila.get("cantidad"))
+                    && igualAlCentavo((BigDecimal) otra.get("total"), (BigDecimal) fila.get("total")));
+            if (!encontrada) {
+                throw new AssertionError("Columnas " + mes + ": falta " + fila);
+            }
+        }
+    }
+
+    private static void testCatalogoPaginado() {
+        System.out.println("► TEST: Catálogo del POS por páginas...");
+
+        List<ProductVariant> masVendidas = variantDAO.listarMasVendidas(
+            LocalDate.now().minusDays(CatalogPager.TOP_SELLERS_DAYS), CatalogPager.TOP_SELLERS_LIMIT);
+        if (masVendidas.isEmpty()) {
+            throw new AssertionError("No hay más vendidos después de registrar ventas");
+        }
+
+        // Páginas chicas para recorrer varias
+        CatalogPager pager = new CatalogPager(variantDAO, 3);
+        List<ProductVariant> recorridas = new ArrayList<>();
+        List<ProductVariant> primera = pager.nextPage();
+        recorridas.addAll(primera);
+        int paginas = 1;
+        while (pager.hasMore()) {
+            recorridas.addAll(pager.nextPage());
+            paginas++;
+        }
+
+        if (!ids(primera).equals(ids(masVendidas))) {
+            throw new AssertionError("La primera página no son los más vendidos");
+        }
+        List<Integer> idsRecorridos = ids(recorridas);
+        if (idsRecorridos.size() != new java.util.HashSet<>(idsRecorridos).size()) {
+            throw new AssertionError("Variantes repetidas entre páginas");
+        }
+        List<Integer> esperados = ids(variantDAO.listarDisponibles());
+        if (!new java.util.HashSet<>(idsRecorridos).equals(new java.util.HashSet<>(esperados))) {
+            throw new AssertionError("Las páginas no cubren el catálogo disponible: "
+                + idsRecorridos.size() + " de " + esperados.size());
+        }
+        // Fuera de los más vendidos, el orden es el de listarDisponibles
+        List<Integer> resto = new ArrayList<>(esperados);
+        resto.removeAll(ids(masVendidas));
+        if (!idsRecorridos.subList(primera.size(), idsRecorridos.size()).equals(resto)) {
+            throw new AssertionError("El resto del catálogo no sigue el orden por nombre");
+        }
+
+        System.out.println("  ✓ " + primera.size() + " más vendidos y " + resto.size()
+            + " variantes más en " + paginas + " páginas\n");
+    }
+
+    private static List<Integer> ids(List<ProductVariant> variantes) {
+        return variantes.stream().map(ProductVariant::getId).toList();
+    }
+
+    private static void testImportes() {
+        System.out.println("► TEST: Importes en centavos...");
+
+        // Redondeo HALF_UP al entrar, desde la base o desde un campo de texto
+        verificarImporte(Money.of(new BigDecimal("10.005")), 1001, "10.01");
+        verificarImporte(Money.of(new BigDecimal("10.004")), 1000, "10.00");
+        verificarImporte(Money.of(null), 0, "0.00");
+        verificarImporte(Money.parse("$ 1,234.5"), 123450, "1234.50");
+        verificarImporte(Money.parse("0.125"), 13, "0.13");
+        verificarImporte(Money.parse("-7"), -700, "-7.00");
+        verificarImporte(Money.parseOrZero("  $ "), 0, "0.00");
+        verificarImporte(Money.parseOrZero("12a"), 0, "0.00");
+        try {
+            Money.parse("1.2.3");
+            throw new AssertionError("Se aceptó un importe inválido");
+        } catch (NumberFormatException expected) {
+            // correcto
+        }
+
+        // Aritmética exacta: 0.10 sumado diez veces es exactamente 1.00
+        Money suma = Money.ZERO;
+        for (int i = 0; i < 10; i++) {
+            suma = suma.plus(Money.ofCents(10));
+        }
+        verificarImporte(suma, 100, "1.00");
+        verificarImporte(Money.ofCents(1999).times(3).minus(Money.ofCents(5997)), 0, "0.00");
+        try {
+            Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1));
+            throw new AssertionError("La suma desbordó sin error");
+        } catch (ArithmeticException expected) {
+            // correcto
+        }
+
+        // El formato coincide con el que usaba la interfaz
+        BigDecimal referencia = new BigDecimal("-1234567.89");
+        if (!Money.of(referencia).format().equals(String.format("%,.2f", referencia))) {
+            throw new AssertionError("Formato distinto de %,.2f: " + Money.of(referencia).format());
+        }
+        if (Money.of(new BigDecimal("99.9")).toBigDecimal().compareTo(new BigDecimal("99.90")) != 0) {
+            throw new AssertionError("toBigDecimal no conserva el importe");
+        }
+
+        System.out.println("  ✓ Redondeo, aritmética y formato correctos\n");
+    }
+
+    private static void testCarrito() {
+        System.out.println("► TEST: Carrito con totales incrementales...");
+
+        Cart carrito = new Cart();
+        int[] agregados = {0};
+        int[] reemplazados = {0};
+        int[] quitados = {0};
+        carrito.getItems().addListener((ListChangeListener<CartItem>) c -> {
+            while (c.next()) {
+                if (c.wasReplaced()) {
+                    reemplazados[0]++;
+                } else if (c.wasAdded()) {
+                    agregados[0]++;
+                } else if (c.wasRemoved()) {
+                    quitados[0]++;
+                }
+            }
+        });
+
+        // Pedido grande de 150 líneas
+        List<ProductVariant> variantes = new ArrayList<>();
+        for (int id = 1; id <= 150; id++) {
+            variantes.add(new ProductVariant.Builder()
+                .id(id)
+                .productName("Producto " + id)
+                .variantName("Unidad")
+                .salePrice(new BigDecimal(id + ".25"))
+                .stock(1000)
+                .build());
+        }
+        for (ProductVariant v : variantes) {
+            carrito.add(v, 2);
+        }
+        // Repetir una variante suma a su línea, no agrega otra
+        carrito.add(variantes.get(9), 3);
+        carrito.setQuantity(carrito.find(20), 1);
+        carrito.setQuantity(carrito.find(20), 1);
+        carrito.remove(carrito.find(150));
+        carrito.setQuantity(carrito.find(149), 0);
+
+        if (carrito.size() != 148 || agregados[0] != 150 || reemplazados[0] != 2 || quitados[0] != 2) {
+            throw new AssertionError("Eventos inesperados: " + carrito.size() + " líneas, " + agregados[0]
+                + " altas, " + reemplazados[0] + " reemplazos, " + quitados[0] + " bajas");
+        }
+        if (carrito.quantityOf(10) != 5 || carrito.quantityOf(150) != 0 || carrito.find(149) != null) {
+            throw new AssertionError("Cantidades por variante incorrectas");
+        }
+        verificarTotalesCarrito(carrito);
+
+        // Pagos por método: lo que falta y lo que le toca a cada uno
+        Money total = carrito.getTotal();
+        carrito.setPayment(SalePayment.PaymentMethod.CASH, Money.ofCents(10_000));
+        carrito.setPayment(SalePayment.PaymentMethod.DEBIT_CARD, Money.ofCents(5_000));
+        carrito.setPayment(SalePayment.PaymentMethod.CASH, Money.ofCents(12_000));
+        if (!carrito.getPaid().equals(Money.ofCents(17_000))
+                || !carrito.getRemaining().equals(total.minus(Money.ofCents(17_000)))
+                || !carrito.getRemainingFor(SalePayment.PaymentMethod.TRANSFER).equals(carrito.getRemaining())
+                || !carrito.getRemainingFor(SalePayment.PaymentMethod.CASH).equals(total.minus(Money.ofCents(5_000)))) {
+            throw new AssertionError("Pagos del carrito incorrectos: pagado " + carrito.getPaid()
+                + ", falta " + carrito.getRemaining());
+        }
+        carrito.setPayment(SalePayment.PaymentMethod.DEBIT_CARD, Money.ZERO);
+        if (!carrito.getPaid().equals(Money.ofCents(12_000))) {
+            throw new AssertionError("Quitar un pago no actualizó la suma");
+        }
+
+        carrito.clear();
+        if (!carrito.isEmpty() || !carrito.getTotal().isZero() || carrito.getUnitCount() != 0
+                || !carrito.getRemaining().equals(Money.ofCents(-12_000))) {
+            throw new AssertionError("Vaciar el carrito no reinició los totales");
+        }
+
+        System.out.println("  ✓ Totales, cantidades y pagos coinciden con recalcular todo\n");
+    }
+
+    private static void verificarTotalesCarrito(Cart carrito) {
+        Money total = Money.ZERO;
+        int unidades = 0;
+        for (CartItem item : carrito.getItems()) {
+            total = total.plus(item.getUnitPrice().times(item.getQuantity()));
+            unidades += item.getQuantity();
+        }
+        if (!carrito.getTotal().equals(total) || carrito.getUnitCount() != unidades) {
+            throw new AssertionError("Totales incrementales " + carrito.getTotal() + "/" + carrito.getUnitCount()
+                + ", recalculados " + total + "/" + unidades);
+        }
+    }
+
+    private static void verificarImporte(Money importe, long centavos, String texto) {
+        if (importe.cents() != centavos || !importe.toString().equals(texto)) {
+            throw new AssertionError("Importe " + importe + " (" + importe.cents() + " centavos), se esperaba " + texto);
+        }
+    }
+
+    private static boolean igualAlCentavo(BigDecimal a, BigDecimal b) {
+        return a.subtract(b).abs().compareTo(new BigDecimal("0.01")) <= 0;
+    }
+
+    /**
+     * Compara el resumen diario de un día con la suma directa sobre sales y sale_payments.
+     */
+    private static void verificarResumen(LocalDate dia) throws SQLException {
+        SaleStatsDAO.PeriodTotals resumen = saleDAO.getStatsDAO().totals(SalePeriod.day(dia));
+        SalePeriod periodo = SalePeriod.day(dia);
+        String sql = """
+            SELECT SUM(status = 'completed'), COALESCE(SUM(CASE WHEN status = 'completed' THEN total END), 0),
+                   SUM(status = 'cancelled'), COALESCE(SUM(CASE WHEN status = 'cancelled' THEN total END), 0),
+                   (SELECT COALESCE(SUM(sp.amount), 0) FROM sale_payments sp JOIN sales s2 ON s2.id = sp.sale_id
+                    WHERE s2.status = 'completed' AND sp.payment_method = 'efectivo' AND s2.created_at >= ? AND s2.created_at < ?)
+            FROM sales WHERE created_at >= ? AND created_at < ?
+        """;
+        try (Connection conn = dbConfig.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            periodo.bind(pstmt, periodo.bind(pstmt, 1));
+            ResultSet rs = pstmt.executeQuery();
+            rs.next();
+            if (resumen.salesCount() != rs.getInt(1)
+                    || resumen.grossTotal().compareTo(rs.getBigDecimal(2)) != 0
+                    || resumen.cancelledCount() != rs.getInt(3)
+                    || resumen.cancelledTotal().compareTo(rs.getBigDecimal(4)) != 0
+                    || resumen.paymentTotal(SalePayment.PaymentMethod.CASH).compareTo(rs.getBigDecimal(5)) != 0) {
+                throw new AssertionError("Resumen diario de " + dia + " distinto de sales: " + resumen);
+            }
+        }
+    }
 }
@@ -2,19 +2,25 @@ package com.ferreteria.controllers;
 
 import com.ferreteria.Main;
 import com.ferreteria.models.dao.DatabaseConfig;
+import com.ferreteria.models.dao.SaleStatsDAO;
+import com.ferreteria.utils.TaskSlot;
+import com.ferreteria.utils.ViewLifecycle;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
 
+import java.math.BigDecimal;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 /**
  * Controlador del Dashboard principal.
  */
-public class DashboardController {
+public class DashboardController implements ViewLifecycle {
 
     @FXML private NavbarController navbarController;
     @FXML private Label dateLabel;
@@ -23,11 +29,17 @@ public class DashboardController {
     @FXML private Label todaySalesLabel;
     @FXML private Label totalUsersLabel;
 
+    private final TaskSlot stats = new TaskSlot();
+
     @FXML
     public void initialize() {
         if (navbarController != null) {
             navbarController.setActiveView("dashboard");
         }
+    }
+
+    @Override
+    public void onShow() {
         loadDate();
         loadStats();
     }
@@ -38,39 +50,48 @@ public class DashboardController {
     }
 
     private void loadStats() {
-        try {
-            var conn = DatabaseConfig.getInstance().getConnection();
-            Statement stmt = conn.createStatement();
+        stats.submit("dashboard.estadisticas", this::queryStats, this::showStats,
+            e -> System.err.println("Error cargando estadísticas: " + e.getMessage()));
+    }
+
+    /**
+     * Consultas del tablero; corre en segundo plano.
+     */
+    private DashboardStats queryStats() throws SQLException {
+        try (var conn = DatabaseConfig.getInstance().getReadConnection();
+             Statement stmt = conn.createStatement()) {
 
             // Total productos
-            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM products WHERE active = 1");
-            if (rs.next()) {
-                totalProductsLabel.setText(String.valueOf(rs.getInt(1)));
-            }
+            int products = count(stmt, "SELECT COUNT(*) FROM products WHERE active = 1");
 
             // Variantes con stock bajo
-            rs = stmt.executeQuery("SELECT COUNT(*) FROM product_variants WHERE active = 1 AND stock <= min_stock");
-            if (rs.next()) {
-                lowStockLabel.setText(String.valueOf(rs.getInt(1)));
-            }
+            int lowStock = count(stmt, "SELECT COUNT(*) FROM product_variants WHERE active = 1 AND stock <= min_stock");
 
-            // Ventas de hoy
-            rs = stmt.executeQuery("SELECT COALESCE(SUM(total), 0) FROM sales WHERE date(created_at) = date('now')");
-            if (rs.next()) {
-                todaySalesLabel.setText("$" + String.format("%.2f", rs.getDouble(1)));
-            }
+            // Ventas de hoy (del resumen diario)
+            BigDecimal today = new SaleStatsDAO(DatabaseConfig.getInstance()).dailyTotal(LocalDate.now());
 
             // Total usuarios
-            rs = stmt.executeQuery("SELECT COUNT(*) FROM users WHERE active = 1");
-            if (rs.next()) {
-                totalUsersLabel.setText(String.valueOf(rs.getInt(1)));
-            }
+            int users = count(stmt, "SELECT COUNT(*) FROM users WHERE active = 1");
 
-        } catch (Exception e) {
-            System.err.println("Error cargando estadísticas: " + e.getMessage());
+            return new DashboardStats(products, lowStock, today, users);
         }
     }
 
+    private void showStats(DashboardStats result) {
+        totalProductsLabel.setText(String.valueOf(result.products()));
+        lowStockLabel.setText(String.valueOf(result.lowStock()));
+        todaySalesLabel.setText("$" + String.format("%.2f", result.todaySales()));
+        totalUsersLabel.setText(String.valueOf(result.users()));
+    }
+
+    private static int count(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private record DashboardStats(int products, int lowStock, BigDecimal todaySales, int users) {}
+
     // Acciones rápidas
     @FXML
     public void handleNewSale() {
@@ -3,13 +3,20 @@ package com.ferreteria.controllers;
 import com.ferreteria.Main;
 import com.ferreteria.models.*;
 import com.ferreteria.models.dao.*;
+import com.ferreteria.utils.BackgroundTasks;
+import com.ferreteria.utils.CatalogIndex;
+import com.ferreteria.utils.Startup;
+import com.ferreteria.utils.TaskSlot;
 
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
+import javafx.util.Duration;
 
 import java.math.BigDecimal;
 import java.sql.*;
@@ -42,6 +49,8 @@ public class DebugController {
     private Map<String, List<MetodoInfo>> metodosPorModulo;
     private MetodoInfo metodoSeleccionado;
     private Map<String, TextField> camposParametros = new HashMap<>();
+    private Timeline migracionesTimeline;
+    private final TaskSlot analisisTask = new TaskSlot();
 
     @FXML
     public void initialize() {
@@ -106,6 +115,10 @@ public class DebugController {
         metodosVentas.add(new MetodoInfo("count", "Cantidad total de ventas", List.of(), () -> {
             return "Total de ventas en el sistema: " + saleDAO.count();
         }));
+        metodosVentas.add(new MetodoInfo("rebuildDailyAgg", "Regenera el resumen diario de ventas", List.of(), () -> {
+            saleDAO.rebuildDailyAgg();
+            return "Resumen diario de ventas reconstruido";
+        }));
         metodosVentas.add(new MetodoInfo("cancel", "Anula una venta (revierte stock)", List.of("id (int)"), () -> {
             int id = getIntParam("id (int)");
             saleDAO.cancel(id);
@@ -130,6 +143,17 @@ public class DebugController {
             var variantes = variantDAO.buscar(query, limite);
             return formatVariantes(variantes);
         }));
+        metodosProductos.add(new MetodoInfo("buscarTexto", "Busca en el índice FTS, por relevancia", List.of("query (texto)", "limite (int)"), () -> {
+            String query = getStringParam("query (texto)");
+            int limite = getIntParam("limite (int)");
+            var variantes = variantDAO.buscarTexto(query, limite);
+            if (variantes.isEmpty()) return "Sin coincidencias en el índice para: " + query;
+            return formatVariantes(variantes);
+        }));
+        metodosProductos.add(new MetodoInfo("reconstruirIndiceBusqueda", "Regenera el índice de búsqueda FTS", List.of(), () -> {
+            variantDAO.reconstruirIndiceBusqueda();
+            return "Índice de búsqueda reconstruido";
+        }));
         metodosProductos.add(new MetodoInfo("buscarPorId", "Busca variante por ID", List.of("id (int)"), () -> {
             int id = getIntParam("id (int)");
             var variante = variantDAO.buscarPorId(id);
@@ -319,7 +343,7 @@ public class DebugController {
             return;
         }
 
-        try (Connection conn = dbConfig.getConnection();
+        try (Connection conn = dbConfig.getWriteConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -359,7 +383,7 @@ public class DebugController {
 
     @FXML
     public void handleVerTablas() {
-        try (Connection conn = dbConfig.getConnection();
+        try (Connection conn = dbConfig.getReadConnection();
              ResultSet rs = conn.getMetaData().getTables(null, null, "%", new String[]{"TABLE"})) {
 
             StringBuilder sb = new StringBuilder("TABLAS EN LA BASE DE DATOS:\n");
@@ -379,7 +403,7 @@ public class DebugController {
 
     @FXML
     public void handleVerEstructura() {
-        try (Connection conn = dbConfig.getConnection();
+        try (Connection conn = dbConfig.getReadConnection();
              ResultSet rs = conn.getMetaData().getTables(null, null, "%", new String[]{"TABLE"})) {
 
             StringBuilder sb = new StringBuilder("ESTRUCTURA DE LA BASE DE DATOS:\n");
@@ -413,7 +437,7 @@ public class DebugController {
         datosOutput.clear();
         logDatos("Creando productos de demo...\n");
 
-        try (Connection conn = dbConfig.getConnection();
+        try (Connection conn = dbConfig.getWriteConnection();
              Statement stmt = conn.createStatement()) {
 
             // Verificar si ya hay productos
@@ -458,6 +482,7 @@ public class DebugController {
             for (String sql : variantes) {
                 stmt.execute(sql);
             }
+            SearchKey.fillMissing(conn);
             logDatos("✓ 7 variantes creadas con precios y stock\n");
             logDatos("Productos de demo creados exitosamente!");
 
@@ -482,14 +507,16 @@ public class DebugController {
             ProductVariant v2 = variantes.get(1);
 
             logDatos("Productos seleccionados:");
-            logDatos("  - " + v1.getDisplayName() + " x2 = $" + v1.getSalePrice().multiply(BigDecimal.valueOf(2)));
-            logDatos("  - " + v2.getDisplayName() + " x1 = $" + v2.getSalePrice());
+            Money precio1 = Money.of(v1.getSalePrice());
+            Money precio2 = Money.of(v2.getSalePrice());
+            logDatos("  - " + v1.getDisplayName() + " x2 = $" + precio1.times(2));
+            logDatos("  - " + v2.getDisplayName() + " x1 = $" + precio2);
 
             SaleItem item1 = new SaleItem.Builder()
                 .variantId(v1.getId())
                 .quantity(2)
-                .unitPrice(v1.getSalePrice())
-                .subtotal(v1.getSalePrice().multiply(BigDecimal.valueOf(2)))
+                .unitPrice(precio1)
+                .subtotal(precio1.times(2))
                 .productName(v1.getProductName())
                 .variantName(v1.getVariantName())
                 .build();
@@ -497,13 +524,13 @@ public class DebugController {
             SaleItem item2 = new SaleItem.Builder()
                 .variantId(v2.getId())
                 .quantity(1)
-                .unitPrice(v2.getSalePrice())
-                .subtotal(v2.getSalePrice())
+                .unitPrice(precio2)
+                .subtotal(precio2)
                 .productName(v2.getProductName())
                 .variantName(v2.getVariantName())
                 .build();
 
-            BigDecimal total = item1.getSubtotal().add(item2.getSubtotal());
+            Money total = item1.getSubtotal().plus(item2.getSubtotal());
 
             SalePayment payment = new SalePayment.Builder()
                 .paymentMethod(SalePayment.PaymentMethod.CASH)
@@ -560,10 +587,121 @@ public class DebugController {
         logDatos("  Total usuarios: " + userDAO.findAll().size());
         logDatos("  Usuarios activos: " + userDAO.count());
 
+        ConnectionPool.PoolStats pool = dbConfig.getPoolStats();
+        logDatos("\nCONEXIONES:");
+        logDatos("  Lectores abiertos: " + pool.openReaders() + "/" + pool.maxReaders()
+            + " (libres: " + pool.idleReaders() + ")");
+        logDatos("  En uso: " + pool.activeLeases());
+        logDatos("  Préstamos: " + pool.checkouts() + " (anidados: " + pool.nestedCheckouts() + ")");
+        logDatos("  Espera promedio: " + String.format("%.2f ms", pool.avgWaitMs())
+            + " | máxima: " + String.format("%.2f ms", pool.maxWaitMs()));
+        logDatos("  Timeouts: " + pool.timeouts() + " | Posibles fugas: " + pool.leaksDetected());
+        logDatos("  Sentencias cacheadas: " + pool.statementHits() + " aciertos / "
+            + pool.statementMisses() + " fallos (" + String.format("%.1f%%", pool.statementHitRatio() * 100)
+            + "), " + pool.statementEvictions() + " desalojadas");
+
+        SaleWriter.WriterStats escritor = dbConfig.getSaleWriter().getStats();
+        logDatos("\nESCRITURA DE VENTAS:");
+        logDatos("  Lotes: " + escritor.batches() + " | Ventas: " + escritor.written()
+            + " | Rechazadas: " + escritor.failed() + " | En cola: " + escritor.queued());
+        logDatos("  Tamaño de lote: " + String.format("%.1f", escritor.avgBatchSize())
+            + " promedio, " + escritor.maxBatchSize() + " máximo, " + escritor.lastBatchSize() + " último");
+        logDatos("  Transacción: " + String.format("%.2f ms", escritor.avgCommitMs())
+            + " promedio | última: " + String.format("%.2f ms", escritor.lastCommitMs())
+            + " | Espera en cola: " + String.format("%.2f ms", escritor.avgQueueWaitMs()));
+
+        ReportCache.CacheStats reportes = dbConfig.getReportCache().getStats();
+        logDatos("\nCACHÉ DE REPORTES:");
+        logDatos("  En memoria: " + reportes.entries() + " | Aciertos: " + reportes.memoryHits()
+            + " memoria, " + reportes.diskHits() + " disco | Generados: " + reportes.misses()
+            + " | Invalidaciones: " + reportes.invalidations());
+
+        SalesColumnStore.StoreStats columnas = dbConfig.getSalesColumns().getStats();
+        logDatos("\nHISTORIAL EN COLUMNAS:");
+        logDatos("  Ventas: " + columnas.sales() + " | Ítems: " + columnas.items() + " | Pagos: " + columnas.payments()
+            + " | " + String.format("%.1f MB", columnas.approxBytes() / (1024.0 * 1024.0)));
+        logDatos("  Cargas completas: " + columnas.reloads() + " | Agregados: " + columnas.appends()
+            + " | Última: " + String.format("%.1f ms", columnas.lastLoadMs()));
+
+        BackgroundTasks tareas = BackgroundTasks.getInstance();
+        logDatos("\nTAREAS EN SEGUNDO PLANO (" + (tareas.usesVirtualThreads() ? "hilos virtuales" : "pool acotado") + "):");
+        for (BackgroundTasks.TaskStats tarea : tareas.getStats()) {
+            logDatos(String.format("  %-24s %d ejec. | %d errores | %d descartadas | %.2f ms prom. | %.2f ms máx. | cola %.2f ms",
+                tarea.name(), tarea.runs(), tarea.failed(), tarea.dropped(),
+                tarea.avgMs(), tarea.maxMs(), tarea.avgQueueMs()));
+        }
+
+        CatalogIndex catalogo = CatalogIndex.getInstance();
+        if (catalogo.isLoaded()) {
+            var memoria = catalogo.memoryStats();
+            logDatos("\nCATÁLOGO EN MEMORIA:");
+            logDatos("  Variantes: " + memoria.documents() + " | Gramas: " + memoria.grams()
+                + " | Entradas: " + memoria.postings()
+                + " | Memoria estimada: " + String.format("%.1f MB", memoria.estimatedMb()));
+        }
+
+        Startup.StartupStats inicio = Startup.getInstance().getStats();
+        logDatos("\nARRANQUE (ms desde el inicio de la JVM):");
+        logDatos("  Ventana de login: " + inicio.loginWindowMs() + " | Base lista: " + inicio.databaseMs()
+            + " | Precarga: " + inicio.warmupMs());
+
+        MigrationEngine migraciones = dbConfig.getMigrationEngine();
+        logDatos("\nMIGRACIONES:");
+        logDatos("  Esquema: versión " + migraciones.latestVersion());
+        for (MigrationEngine.BackfillProgress relleno : migraciones.getProgress()) {
+            logDatos("  " + formatRelleno(relleno));
+        }
+
+        logDatos("\nSQLITE (perfil " + dbConfig.getProfile().getName() + "):");
+        try {
+            dbConfig.getEffectivePragmas().forEach((pragma, valor) ->
+                logDatos(String.format("  %-14s %s", pragma, valor)));
+        } catch (SQLException e) {
+            logDatos("  Error leyendo PRAGMA: " + e.getMessage());
+        }
+        logDatos("  Reintentos por SQLITE_BUSY: " + dbConfig.getRetryPolicy().getRetries());
+
         logDatos("\n" + "═".repeat(40));
         logDatos("Generado: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
     }
 
+    /**
+     * Historial de migraciones y avance de los rellenos. Mientras haya
+     * rellenos en curso se actualiza cada segundo.
+     */
+    @FXML
+    public void handleVerMigraciones() {
+        if (migracionesTimeline != null) {
+            migracionesTimeline.stop();
+        }
+        mostrarMigraciones();
+        if (hayRellenosEnCurso()) {
+            migracionesTimeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> {
+                mostrarMigraciones();
+                if (!hayRellenosEnCurso()) {
+                    migracionesTimeline.stop();
+                }
+            }));
+            migracionesTimeline.setCycleCount(Timeline.INDEFINITE);
+            migracionesTimeline.play();
+        }
+    }
+
+    /**
+     * Análisis de todo el historial de ventas desde el almacén por columnas:
+     * totales por año, los últimos 12 meses contra los 12 anteriores, medios
+     * de pago y variantes más vendidas. La primera vez carga el historial.
+     */
+    @FXML
+    public void handleAnalisisHistorico() {
+        datosOutput.clear();
+        logDatos("Analizando el historial de ventas...");
+        analisisTask.submit("debug.analisis", this::analizarHistorial, texto -> {
+            datosOutput.clear();
+            logDatos(texto);
+        }, e -> logDatos("Error en el análisis: " + e.getMessage()));
+    }
+
     @FXML
     public void handleLimpiarConsola() {
         consolaOutput.clear();
@@ -572,11 +710,132 @@ public class DebugController {
 
     @FXML
     public void handleCerrar() {
+        if (migracionesTimeline != null) {
+            migracionesTimeline.stop();
+        }
         Main.navigateTo("/views/Dashboard.fxml", "Sistema Ferreteria - Dashboard");
     }
 
     // === Helpers ===
 
+    private void mostrarMigraciones() {
+        MigrationEngine migraciones = dbConfig.getMigrationEngine();
+        datosOutput.clear();
+        logDatos("MIGRACIONES DEL ESQUEMA");
+        logDatos("═".repeat(40) + "\n");
+
+        try (Connection conn = dbConfig.getReadConnection()) {
+            logDatos("Versión de la base: " + DatabaseInitializer.schemaVersion(conn)
+                + " | de la aplicación: " + migraciones.latestVersion() + "\n");
+        } catch (SQLException e) {
+            logDatos("Error leyendo la versión: " + e.getMessage());
+        }
+
+        logDatos("APLICADAS:");
+        try {
+            for (MigrationEngine.AppliedMigration m : migraciones.getHistory()) {
+                logDatos(String.format("  V%-3d %-32s %s | %d ms%s", m.version(), m.description(),
+                    m.appliedAt(), m.durationMs(), m.backfillDone() ? "" : " | relleno pendiente"));
+            }
+        } catch (SQLException e) {
+            logDatos("  Error leyendo el historial: " + e.getMessage());
+        }
+
+        logDatos("\nRELLENOS EN SEGUNDO PLANO:");
+        List<MigrationEngine.BackfillProgress> rellenos = migraciones.getProgress();
+        if (rellenos.isEmpty()) {
+            logDatos("  Ninguno desde que arrancó la aplicación");
+        }
+        for (MigrationEngine.BackfillProgress relleno : rellenos) {
+            logDatos("  " + formatRelleno(relleno));
+        }
+
+        logDatos("\n" + "═".repeat(40));
+        logDatos("Actualizado: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")));
+    }
+
+    /**
+     * Arma el texto del análisis histórico; corre en segundo plano.
+     */
+    private String analizarHistorial() {
+        SalesColumnStore columnas = dbConfig.getSalesColumns();
+        LocalDate hoy = LocalDate.now();
+        StringBuilder sb = new StringBuilder();
+        sb.append("ANÁLISIS HISTÓRICO (ventas completadas)\n");
+        sb.append("═".repeat(40)).append("\n\n");
+
+        long inicio = System.nanoTime();
+        SalesColumnStore.Selection todas = columnas.select(SalePeriod.range(LocalDate.of(1970, 1, 1), hoy), "completed");
+        Map<LocalDate, Long> porDia = columnas.totalsByDay(todas);
+        if (porDia.isEmpty()) {
+            return sb.append("No hay ventas completadas").toString();
+        }
+        int primerAnio = Collections.min(porDia.keySet()).getYear();
+
+        sb.append("POR AÑO:\n");
+        for (int anio = primerAnio; anio <= hoy.getYear(); anio++) {
+            SalesColumnStore.Totals t = columnas.totals(columnas.select(
+                SalePeriod.range(LocalDate.of(anio, 1, 1), LocalDate.of(anio, 12, 31)), "completed"));
+            sb.append(String.format("  %d: %,d ventas | %s | promedio %s | máxima %s%n", anio, t.count(),
+                pesos(t.sumCents()), pesos(t.count() == 0 ? 0 : t.sumCents() / t.count()), pesos(t.maxCents())));
+        }
+
+        SalesColumnStore.Totals ultimos = columnas.totals(columnas.select(
+            SalePeriod.range(hoy.minusMonths(12).plusDays(1), hoy), "completed"));
+        SalesColumnStore.Totals anteriores = columnas.totals(columnas.select(
+            SalePeriod.range(hoy.minusMonths(24).plusDays(1), hoy.minusMonths(12)), "completed"));
+        sb.append("\nÚLTIMOS 12 MESES: ").append(pesos(ultimos.sumCents()))
+          .append(" en ").append(String.format("%,d", ultimos.count())).append(" ventas");
+        if (anteriores.sumCents() > 0) {
+            sb.append(String.format(" (%+.1f%% contra los 12 anteriores)",
+                (ultimos.sumCents() - anteriores.sumCents()) * 100.0 / anteriores.sumCents()));
+        }
+        sb.append("\n");
+
+        sb.append("\nMEDIOS DE PAGO:\n");
+        columnas.paymentsByMethod(todas).forEach((medio, centavos) ->
+            sb.append(String.format("  %-16s %s%n", medio, pesos(centavos))));
+
+        sb.append("\nVARIANTES MÁS VENDIDAS:\n");
+        List<SalesColumnStore.VariantTotals> variantes = columnas.itemsByVariant(todas);
+        for (SalesColumnStore.VariantTotals v : variantes.subList(0, Math.min(10, variantes.size()))) {
+            sb.append(String.format("  %-40s x%,d = %s%n", v.product() + " (" + v.variant() + ")",
+                v.quantity(), pesos(v.totalCents())));
+        }
+
+        SalesColumnStore.StoreStats stats = columnas.getStats();
+        sb.append("\n").append("═".repeat(40)).append("\n");
+        sb.append(String.format("%,d ventas en memoria | análisis en %.1f ms%n", stats.sales(),
+            (System.nanoTime() - inicio) / 1_000_000.0));
+        return sb.toString();
+    }
+
+    private static String pesos(long centavos) {
+        return String.format("$%,.2f", centavos / 100.0);
+    }
+
+    private boolean hayRellenosEnCurso() {
+        for (MigrationEngine.BackfillProgress relleno : dbConfig.getMigrationEngine().getProgress()) {
+            if (relleno.state() == MigrationEngine.BackfillProgress.State.PENDING
+                    || relleno.state() == MigrationEngine.BackfillProgress.State.RUNNING) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String formatRelleno(MigrationEngine.BackfillProgress relleno) {
+        String estado = switch (relleno.state()) {
+            case PENDING -> "en espera";
+            case RUNNING -> "en curso";
+            case DONE -> "terminado";
+            case FAILED -> "falló: " + relleno.error();
+        };
+        String total = relleno.total() < 0 ? "?" : String.valueOf(relleno.total());
+        return String.format("V%d %s: %d/%s filas (%.0f%%) %s", relleno.version(), relleno.description(),
+            relleno.processed(), total, relleno.percent(), estado);
+    }
+
     private void log(String message) {
         consolaOutput.appendText(message + "\n");
     }
@@ -608,7 +867,7 @@ public class DebugController {
             sb.append(String.format("%-8d %-20s $%-14s %-12d %-10s\n",
                 s.getId(),
                 s.getCreatedAt() != null ? s.getCreatedAt().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")) : "-",
-                String.format("%,.2f", s.getTotal()),
+                s.getTotal().format(),
                 s.getTotalItems(),
                 s.isCompleted() ? "OK" : "ANULADA"
             ));
@@ -630,18 +889,18 @@ public class DebugController {
 
         sb.append("ITEMS:\n");
         for (SaleItem item : s.getItems()) {
-            sb.append(String.format("  • %s x%d = $%,.2f\n",
-                item.getDisplayName(), item.getQuantity(), item.getSubtotal()));
+            sb.append(String.format("  • %s x%d = $%s\n",
+                item.getDisplayName(), item.getQuantity(), item.getSubtotal().format()));
         }
 
         sb.append("\nPAGOS:\n");
         for (SalePayment payment : s.getPayments()) {
-            sb.append(String.format("  • %s: $%,.2f\n",
-                payment.getPaymentMethodDisplayName(), payment.getAmount()));
+            sb.append(String.format("  • %s: $%s\n",
+                payment.getPaymentMethodDisplayName(), payment.getAmount().format()));
         }
 
         sb.append("\n").append("─".repeat(40)).append("\n");
-        sb.append("TOTAL: $").append(String.format("%,.2f", s.getTotal()));
+        sb.append("TOTAL: $").append(s.getTotal().format());
         return sb.toString();
     }
 
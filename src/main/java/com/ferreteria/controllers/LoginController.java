@@ -6,11 +6,13 @@ import com.ferreteria.models.dao.DatabaseConfig;
 import com.ferreteria.models.dao.UserDAO;
 import com.ferreteria.utils.AuthenticationException;
 import com.ferreteria.utils.SessionManager;
+import com.ferreteria.utils.Startup;
 
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
 import javafx.animation.ParallelTransition;
 import javafx.animation.TranslateTransition;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.effect.GaussianBlur;
@@ -53,6 +55,26 @@ public class LoginController {
         setupShowPassword();
         setupBackground();
         playEntryAnimations();
+        waitForDatabase();
+    }
+
+    /**
+     * La ventana se muestra mientras se verifica la base en segundo plano;
+     * hasta que esté lista no se puede ingresar.
+     */
+    private void waitForDatabase() {
+        var database = Startup.getInstance().database();
+        if (database.isDone() && !database.isCompletedExceptionally()) {
+            return;
+        }
+        loginButton.setDisable(true);
+        database.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                showError("No se pudo abrir la base de datos");
+            } else {
+                loginButton.setDisable(false);
+            }
+        }));
     }
 
     private void setupShowPassword() {
@@ -126,6 +148,10 @@ public class LoginController {
 
     @FXML
     public void handleLogin() {
+        // Enter en la contraseña llega aunque el botón esté deshabilitado
+        if (loginButton.isDisabled()) {
+            return;
+        }
         String username = usernameField.getText().trim();
         String password = passwordField.getText();
 
@@ -177,5 +203,6 @@ public class LoginController {
 
     private void navigateToDashboard() {
         Main.navigateTo("/views/Dashboard.fxml", "Sistema Ferreteria - Dashboard");
+        Main.preloadViews();
     }
 }
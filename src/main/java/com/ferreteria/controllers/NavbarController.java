@@ -102,5 +102,6 @@ public class NavbarController {
     public void handleLogout() {
         SessionManager.getInstance().logout();
         Main.navigateTo("/views/Login.fxml", "Ferreteria - Sistema de Gestion");
+        Main.clearViews();
     }
 }
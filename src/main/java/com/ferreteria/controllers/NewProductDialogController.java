@@ -2,6 +2,8 @@ package com.ferreteria.controllers;
 
 import com.ferreteria.models.Product;
 import com.ferreteria.models.dao.DatabaseConfig;
+import com.ferreteria.models.dao.SearchKey;
+import com.ferreteria.utils.CatalogIndex;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -53,9 +55,8 @@ public class NewProductDialogController {
         System.out.println("Cargando categorías...");
         categoryComboBox.getItems().clear();
         
-        try {
-            var conn = DatabaseConfig.getInstance().getConnection();
-            Statement stmt = conn.createStatement();
+        try (var conn = DatabaseConfig.getInstance().getReadConnection();
+             Statement stmt = conn.createStatement()) {
             ResultSet rs = stmt.executeQuery("SELECT name FROM categories WHERE active = 1 ORDER BY name");
             
             List<String> categories = new ArrayList<>();
@@ -228,107 +229,112 @@ public class NewProductDialogController {
     }
 
     private void createProduct() throws Exception {
-        var conn = DatabaseConfig.getInstance().getConnection();
-        
-        // Primero, obtener o crear la categoría
-        int categoryId = getOrCreateCategory(categoryComboBox.getValue());
+        try (var conn = DatabaseConfig.getInstance().getWriteConnection()) {
+            // Primero, obtener o crear la categoría
+            int categoryId = getOrCreateCategory(categoryComboBox.getValue());
         
-        // Insertar producto
-        String productSql = """
-            INSERT INTO products (code, name, description, category_id, location, active, created_at)
-            VALUES (?, ?, ?, ?, ?, 1, datetime('now', 'localtime'))
-            """;
+            // Insertar producto
+            String productSql = """
+                INSERT INTO products (code, name, description, category_id, location, search_key, active, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, 1, datetime('now', 'localtime'))
+                """;
         
-        try (PreparedStatement pstmt = conn.prepareStatement(productSql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, codeField.getText().trim());
-            pstmt.setString(2, nameField.getText().trim());
-            pstmt.setString(3, descriptionArea.getText().trim());
-            pstmt.setInt(4, categoryId);
-            pstmt.setString(5, locationField.getText().trim());
+            try (PreparedStatement pstmt = conn.prepareStatement(productSql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, codeField.getText().trim());
+                pstmt.setString(2, nameField.getText().trim());
+                pstmt.setString(3, descriptionArea.getText().trim());
+                pstmt.setInt(4, categoryId);
+                pstmt.setString(5, locationField.getText().trim());
+                pstmt.setString(6, SearchKey.of(nameField.getText(), codeField.getText()));
             
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new Exception("No se pudo crear el producto");
-            }
+                int affectedRows = pstmt.executeUpdate();
+                if (affectedRows == 0) {
+                    throw new Exception("No se pudo crear el producto");
+                }
             
-            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    int productId = generatedKeys.getInt(1);
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        int productId = generatedKeys.getInt(1);
                     
-                    // Insertar variante del producto
-                    String code = codeField.getText().trim();
-                    String sku = code.isEmpty() ? "SKU-" + productId : code + "-STD";
+                        // Insertar variante del producto
+                        String code = codeField.getText().trim();
+                        String sku = code.isEmpty() ? "SKU-" + productId : code + "-STD";
 
-                    String variantSql = """
-                        INSERT INTO product_variants (product_id, sku, variant_name, sale_price, cost_price, stock, min_stock, active, created_at)
-                        VALUES (?, ?, ?, ?, ?, ?, ?, 1, datetime('now', 'localtime'))
-                        """;
+                        String variantSql = """
+                            INSERT INTO product_variants (product_id, sku, variant_name, sale_price, cost_price, stock, min_stock, search_key, active, created_at)
+                            VALUES (?, ?, ?, ?, ?, ?, ?, ?, 1, datetime('now', 'localtime'))
+                            """;
 
-                    try (PreparedStatement variantStmt = conn.prepareStatement(variantSql)) {
-                        variantStmt.setInt(1, productId);
-                        variantStmt.setString(2, sku);
-                        variantStmt.setString(3, "Estándar");
-                        variantStmt.setBigDecimal(4, new BigDecimal(priceField.getText()));
-                        variantStmt.setBigDecimal(5, costField.getText().trim().isEmpty() ?
-                            BigDecimal.ZERO : new BigDecimal(costField.getText()));
-                        variantStmt.setInt(6, Integer.parseInt(stockField.getText()));
-                        variantStmt.setInt(7, minStockField.getText().trim().isEmpty() ?
-                            5 : Integer.parseInt(minStockField.getText()));
+                        try (PreparedStatement variantStmt = conn.prepareStatement(variantSql)) {
+                            variantStmt.setInt(1, productId);
+                            variantStmt.setString(2, sku);
+                            variantStmt.setString(3, "Estándar");
+                            variantStmt.setBigDecimal(4, new BigDecimal(priceField.getText()));
+                            variantStmt.setBigDecimal(5, costField.getText().trim().isEmpty() ?
+                                BigDecimal.ZERO : new BigDecimal(costField.getText()));
+                            variantStmt.setInt(6, Integer.parseInt(stockField.getText()));
+                            variantStmt.setInt(7, minStockField.getText().trim().isEmpty() ?
+                                5 : Integer.parseInt(minStockField.getText()));
+                            variantStmt.setString(8, SearchKey.of("Estándar", sku));
 
-                        variantStmt.executeUpdate();
+                            variantStmt.executeUpdate();
+                        }
+                        CatalogIndex.getInstance().refreshProduct(productId);
                     }
                 }
             }
-        }
         
-        showAlert("Éxito", "Producto creado correctamente");
+            showAlert("Éxito", "Producto creado correctamente");
+        }
     }
 
     private void updateProduct() throws Exception {
-        var conn = DatabaseConfig.getInstance().getConnection();
-        
-        // Actualizar producto
-        String productSql = """
-            UPDATE products SET 
-                code = ?, name = ?, description = ?, 
-                category_id = ?, location = ?
-            WHERE id = ?
-            """;
+        try (var conn = DatabaseConfig.getInstance().getWriteConnection()) {
+            // Actualizar producto
+            String productSql = """
+                UPDATE products SET 
+                    code = ?, name = ?, description = ?, 
+                    category_id = ?, location = ?, search_key = ?
+                WHERE id = ?
+                """;
         
-        int categoryId = getOrCreateCategory(categoryComboBox.getValue());
+            int categoryId = getOrCreateCategory(categoryComboBox.getValue());
         
-        try (PreparedStatement pstmt = conn.prepareStatement(productSql)) {
-            pstmt.setString(1, codeField.getText().trim());
-            pstmt.setString(2, nameField.getText().trim());
-            pstmt.setString(3, descriptionArea.getText().trim());
-            pstmt.setInt(4, categoryId);
-            pstmt.setString(5, locationField.getText().trim());
-            pstmt.setInt(6, editingProduct.getId());
+            try (PreparedStatement pstmt = conn.prepareStatement(productSql)) {
+                pstmt.setString(1, codeField.getText().trim());
+                pstmt.setString(2, nameField.getText().trim());
+                pstmt.setString(3, descriptionArea.getText().trim());
+                pstmt.setInt(4, categoryId);
+                pstmt.setString(5, locationField.getText().trim());
+                pstmt.setString(6, SearchKey.of(nameField.getText(), codeField.getText()));
+                pstmt.setInt(7, editingProduct.getId());
             
-            pstmt.executeUpdate();
-        }
+                pstmt.executeUpdate();
+            }
         
-        // Actualizar variante del producto
-        String variantSql = """
-            UPDATE product_variants SET 
-                sale_price = ?, cost_price = ?, 
-                stock = ?, min_stock = ?
-            WHERE product_id = ?
-            """;
+            // Actualizar variante del producto
+            String variantSql = """
+                UPDATE product_variants SET 
+                    sale_price = ?, cost_price = ?, 
+                    stock = ?, min_stock = ?
+                WHERE product_id = ?
+                """;
         
-        try (PreparedStatement pstmt = conn.prepareStatement(variantSql)) {
-            pstmt.setBigDecimal(1, new BigDecimal(priceField.getText()));
-            pstmt.setBigDecimal(2, costField.getText().trim().isEmpty() ? 
-                BigDecimal.ZERO : new BigDecimal(costField.getText()));
-            pstmt.setInt(3, Integer.parseInt(stockField.getText()));
-            pstmt.setInt(4, minStockField.getText().trim().isEmpty() ? 
-                5 : Integer.parseInt(minStockField.getText()));
-            pstmt.setInt(5, editingProduct.getId());
+            try (PreparedStatement pstmt = conn.prepareStatement(variantSql)) {
+                pstmt.setBigDecimal(1, new BigDecimal(priceField.getText()));
+                pstmt.setBigDecimal(2, costField.getText().trim().isEmpty() ? 
+                    BigDecimal.ZERO : new BigDecimal(costField.getText()));
+                pstmt.setInt(3, Integer.parseInt(stockField.getText()));
+                pstmt.setInt(4, minStockField.getText().trim().isEmpty() ? 
+                    5 : Integer.parseInt(minStockField.getText()));
+                pstmt.setInt(5, editingProduct.getId());
             
-            pstmt.executeUpdate();
-        }
+                pstmt.executeUpdate();
+            }
+            CatalogIndex.getInstance().refreshProduct(editingProduct.getId());
         
-        showAlert("Éxito", "Producto actualizado correctamente");
+            showAlert("Éxito", "Producto actualizado correctamente");
+        }
     }
 
     private int getOrCreateCategory(String categoryName) throws Exception {
@@ -336,33 +342,33 @@ public class NewProductDialogController {
             return 1; // Categoría por defecto
         }
         
-        var conn = DatabaseConfig.getInstance().getConnection();
-        
-        // Buscar categoría existente
-        String selectSql = "SELECT id FROM categories WHERE name = ? AND active = 1";
-        try (PreparedStatement pstmt = conn.prepareStatement(selectSql)) {
-            pstmt.setString(1, categoryName.trim());
-            ResultSet rs = pstmt.executeQuery();
+        try (var conn = DatabaseConfig.getInstance().getWriteConnection()) {
+            // Buscar categoría existente
+            String selectSql = "SELECT id FROM categories WHERE name = ? AND active = 1";
+            try (PreparedStatement pstmt = conn.prepareStatement(selectSql)) {
+                pstmt.setString(1, categoryName.trim());
+                ResultSet rs = pstmt.executeQuery();
             
-            if (rs.next()) {
-                return rs.getInt("id");
+                if (rs.next()) {
+                    return rs.getInt("id");
+                }
             }
-        }
         
-        // Crear nueva categoría si no existe
-        String insertSql = "INSERT INTO categories (name, active, created_at) VALUES (?, 1, datetime('now', 'localtime'))";
-        try (PreparedStatement pstmt = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, categoryName.trim());
-            pstmt.executeUpdate();
+            // Crear nueva categoría si no existe
+            String insertSql = "INSERT INTO categories (name, active, created_at) VALUES (?, 1, datetime('now', 'localtime'))";
+            try (PreparedStatement pstmt = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, categoryName.trim());
+                pstmt.executeUpdate();
             
-            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    return generatedKeys.getInt(1);
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        return generatedKeys.getInt(1);
+                    }
                 }
             }
-        }
         
-        return 1; // Categoría por defecto si todo falla
+            return 1; // Categoría por defecto si todo falla
+        }
     }
 
     private void showAlert(String title, String message) {
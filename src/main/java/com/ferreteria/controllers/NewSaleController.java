@@ -3,24 +3,33 @@ package com.ferreteria.controllers;
 import com.ferreteria.Main;
 import com.ferreteria.models.*;
 import com.ferreteria.models.dao.*;
+import com.ferreteria.utils.BackgroundTasks;
+import com.ferreteria.utils.CatalogIndex;
+import com.ferreteria.utils.CatalogPager;
 import com.ferreteria.utils.DateTimePickerDialog;
+import com.ferreteria.utils.ScanDetector;
 import com.ferreteria.utils.SessionManager;
+import com.ferreteria.utils.TaskSlot;
 import com.ferreteria.utils.TicketGenerator;
 
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.*;
+import javafx.stage.Window;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.collections.FXCollections;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionException;
 
 /**
  * Controller for the Point of Sale (POS).
@@ -28,11 +37,16 @@ import java.util.List;
  */
 public class NewSaleController {
 
+    private static final int PAGINA_CATALOGO = 100;
+    // Filas antes del final de la lista a las que se pide la página siguiente
+    private static final int MARGEN_PAGINA = 20;
+
     @FXML private Label fechaLabel;
     @FXML private Label vendedorLabel;
     @FXML private Label turnoLabel;
 
     @FXML private TextField searchField;
+    @FXML private ToggleButton modoEscanerBtn;
     @FXML private ListView<ProductVariant> productosListView;
 
     @FXML private VBox productoSeleccionadoBox;
@@ -41,7 +55,7 @@ public class NewSaleController {
     @FXML private Label productoStockLabel;
     @FXML private TextField cantidadField;
 
-    @FXML private VBox carritoContainer;
+    @FXML private ListView<CartItem> carritoListView;
     @FXML private Label subtotalLabel;
     @FXML private Label itemsCountLabel;
     @FXML private Label totalLabel;
@@ -64,8 +78,13 @@ public class NewSaleController {
     private SaleDAO saleDAO;
 
     private ProductVariant productoSeleccionado;
-    private List<CartItem> carrito = new ArrayList<>();
+    private final Cart carrito = new Cart();
     private LocalDateTime fechaVentaPersonalizada = null;
+    private final ScanDetector scanDetector = new ScanDetector();
+    private final TaskSlot busqueda = new TaskSlot();
+    private final TaskSlot paginas = new TaskSlot();
+    private CatalogPager catalogo;
+    private boolean cargandoPagina = false;
 
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("EEEE dd/MM/yyyy - HH:mm");
     private final ZoneId sanJuanZone = ZoneId.of("America/Argentina/San_Juan");
@@ -77,6 +96,8 @@ public class NewSaleController {
 
         setupUI();
         setupProductList();
+        setupCarrito();
+        setupScanner();
         setupPaymentToggle();
     }
 
@@ -94,8 +115,7 @@ public class NewSaleController {
         }
 
         // Cargar productos iniciales (últimos agregados o más vendidos)
-        List<ProductVariant> productos = variantDAO.listarDisponibles();
-        productosListView.setItems(FXCollections.observableArrayList(productos));
+        handleBuscar();
     }
 
     private void actualizarFechaLabel() {
@@ -114,40 +134,7 @@ public class NewSaleController {
     }
 
     private void setupProductList() {
-        productosListView.setCellFactory(lv -> new ListCell<>() {
-            @Override
-            protected void updateItem(ProductVariant item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText(null);
-                    setGraphic(null);
-                } else {
-                    HBox container = new HBox(12);
-                    container.setAlignment(Pos.CENTER_LEFT);
-                    container.setPadding(new Insets(8, 12, 8, 12));
-
-                    VBox info = new VBox(2);
-                    Label nombre = new Label(item.getDisplayName());
-                    nombre.setStyle("-fx-font-weight: bold; -fx-font-size: 13px;");
-
-                    Label detalles = new Label(String.format("SKU: %s | Stock: %d",
-                        item.getSku() != null ? item.getSku() : "N/A",
-                        item.getStock()));
-                    detalles.setStyle("-fx-text-fill: #64748b; -fx-font-size: 11px;");
-
-                    info.getChildren().addAll(nombre, detalles);
-
-                    Region spacer = new Region();
-                    HBox.setHgrow(spacer, Priority.ALWAYS);
-
-                    Label precio = new Label("$" + String.format("%,.2f", item.getSalePrice()));
-                    precio.setStyle("-fx-font-weight: bold; -fx-font-size: 14px; -fx-text-fill: #0ea5e9;");
-
-                    container.getChildren().addAll(info, spacer, precio);
-                    setGraphic(container);
-                }
-            }
-        });
+        productosListView.setCellFactory(lv -> new ProductoCell());
 
         productosListView.setOnMouseClicked(e -> {
             if (e.getClickCount() == 1) {
@@ -165,21 +152,90 @@ public class NewSaleController {
         });
     }
 
+    /**
+     * Fila de la lista de productos. Los nodos se crean una vez por celda y se
+     * reutilizan; al mostrar una de las últimas filas se pide la página siguiente.
+     */
+    private class ProductoCell extends ListCell<ProductVariant> {
+
+        private final HBox container = new HBox(12);
+        private final Label nombre = new Label();
+        private final Label detalles = new Label();
+        private final Label precio = new Label();
+
+        ProductoCell() {
+            container.setAlignment(Pos.CENTER_LEFT);
+            container.setPadding(new Insets(8, 12, 8, 12));
+
+            nombre.setStyle("-fx-font-weight: bold; -fx-font-size: 13px;");
+            detalles.setStyle("-fx-text-fill: #64748b; -fx-font-size: 11px;");
+            VBox info = new VBox(2, nombre, detalles);
+
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+
+            precio.setStyle("-fx-font-weight: bold; -fx-font-size: 14px; -fx-text-fill: #0ea5e9;");
+
+            container.getChildren().addAll(info, spacer, precio);
+        }
+
+        @Override
+        protected void updateItem(ProductVariant item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setText(null);
+                setGraphic(null);
+                return;
+            }
+            nombre.setText(item.getDisplayName());
+            detalles.setText("SKU: " + (item.getSku() != null ? item.getSku() : "N/A") + " | Stock: " + item.getStock());
+            precio.setText("$" + Money.of(item.getSalePrice()).format());
+            setGraphic(container);
+
+            if (getIndex() >= getListView().getItems().size() - MARGEN_PAGINA) {
+                cargarPaginaCatalogo();
+            }
+        }
+    }
+
+    private void setupScanner() {
+        // Registrar el ritmo de tipeo para distinguir al lector de código de barras
+        searchField.addEventFilter(KeyEvent.KEY_TYPED, e -> {
+            String ch = e.getCharacter();
+            if (!ch.isEmpty() && ch.charAt(0) >= ' ') {
+                scanDetector.keyTyped(System.nanoTime());
+            }
+        });
+    }
+
     private void setupPaymentToggle() {
         // Cuando cambia cualquier checkbox, actualizar UI
         chkEfectivo.selectedProperty().addListener((obs, old, selected) -> actualizarUIPagos());
         chkTarjeta.selectedProperty().addListener((obs, old, selected) -> actualizarUIPagos());
         chkTransferencia.selectedProperty().addListener((obs, old, selected) -> actualizarUIPagos());
 
-        // Validar cuando cambian los montos (solo si hay múltiples métodos)
-        montoEfectivo.textProperty().addListener((obs, old, newVal) -> validarPagosMultiples());
-        montoTarjeta.textProperty().addListener((obs, old, newVal) -> validarPagosMultiples());
-        montoTransferencia.textProperty().addListener((obs, old, newVal) -> validarPagosMultiples());
+        // Cada monto se lee sólo cuando cambia su campo; el carrito lleva la suma
+        montoEfectivo.textProperty().addListener((obs, old, newVal) -> {
+            registrarPago(SalePayment.PaymentMethod.CASH, chkEfectivo, montoEfectivo);
+            validarPagosMultiples();
+        });
+        montoTarjeta.textProperty().addListener((obs, old, newVal) -> {
+            registrarPago(SalePayment.PaymentMethod.DEBIT_CARD, chkTarjeta, montoTarjeta);
+            validarPagosMultiples();
+        });
+        montoTransferencia.textProperty().addListener((obs, old, newVal) -> {
+            registrarPago(SalePayment.PaymentMethod.TRANSFER, chkTransferencia, montoTransferencia);
+            validarPagosMultiples();
+        });
 
         // Estado inicial
         actualizarUIPagos();
     }
 
+    private void registrarPago(SalePayment.PaymentMethod metodo, CheckBox check, TextField monto) {
+        carrito.setPayment(metodo, check.isSelected() ? parseMonto(monto.getText()) : Money.ZERO);
+    }
+
     private int contarMetodosSeleccionados() {
         int count = 0;
         if (chkEfectivo.isSelected()) count++;
@@ -190,8 +246,7 @@ public class NewSaleController {
 
     private void actualizarUIPagos() {
         int metodosSeleccionados = contarMetodosSeleccionados();
-        BigDecimal total = calcularTotal();
-        String totalStr = String.format("%.2f", total);
+        String totalStr = carrito.getTotal().toString();
 
         // Mostrar campos de monto para los métodos seleccionados
         montoEfectivo.setVisible(chkEfectivo.isSelected());
@@ -221,15 +276,20 @@ public class NewSaleController {
         if (!chkTarjeta.isSelected()) montoTarjeta.clear();
         if (!chkTransferencia.isSelected()) montoTransferencia.clear();
 
+        // Un método recién marcado puede tener texto que todavía no se contó
+        registrarPago(SalePayment.PaymentMethod.CASH, chkEfectivo, montoEfectivo);
+        registrarPago(SalePayment.PaymentMethod.DEBIT_CARD, chkTarjeta, montoTarjeta);
+        registrarPago(SalePayment.PaymentMethod.TRANSFER, chkTransferencia, montoTransferencia);
         validarPagosMultiples();
     }
 
     private void validarPagosMultiples() {
-        BigDecimal total = calcularTotal();
+        // Se llama en cada tecla: total y pagos ya están sumados en el carrito
+        Money total = carrito.getTotal();
         int metodosSeleccionados = contarMetodosSeleccionados();
 
         // Si el carrito está vacío, no mostrar validación
-        if (total.compareTo(BigDecimal.ZERO) == 0) {
+        if (total.isZero()) {
             pagoValidacionLabel.setText("");
             return;
         }
@@ -247,24 +307,18 @@ public class NewSaleController {
         }
 
         // Múltiples métodos: validar que la suma sea igual al total
-        BigDecimal sumaPagos = BigDecimal.ZERO;
-        if (chkEfectivo.isSelected()) {
-            sumaPagos = sumaPagos.add(parseMonto(montoEfectivo.getText()));
-        }
-        if (chkTarjeta.isSelected()) {
-            sumaPagos = sumaPagos.add(parseMonto(montoTarjeta.getText()));
-        }
-        if (chkTransferencia.isSelected()) {
-            sumaPagos = sumaPagos.add(parseMonto(montoTransferencia.getText()));
-        }
+        Money diferencia = carrito.getRemaining();
 
-        BigDecimal diferencia = total.subtract(sumaPagos);
+        // Sugerir en cada campo lo que le falta cubrir a ese método
+        sugerirMonto(SalePayment.PaymentMethod.CASH, montoEfectivo, "Efectivo $");
+        sugerirMonto(SalePayment.PaymentMethod.DEBIT_CARD, montoTarjeta, "Tarjeta $");
+        sugerirMonto(SalePayment.PaymentMethod.TRANSFER, montoTransferencia, "Transfer $");
 
-        if (diferencia.compareTo(BigDecimal.ZERO) > 0) {
-            pagoValidacionLabel.setText("Faltan: $" + String.format("%.2f", diferencia));
+        if (diferencia.isPositive()) {
+            pagoValidacionLabel.setText("Faltan: $" + diferencia);
             pagoValidacionLabel.setStyle("-fx-text-fill: #dc2626;");
-        } else if (diferencia.compareTo(BigDecimal.ZERO) < 0) {
-            pagoValidacionLabel.setText("Sobran: $" + String.format("%.2f", diferencia.abs()));
+        } else if (diferencia.isNegative()) {
+            pagoValidacionLabel.setText("Sobran: $" + diferencia.abs());
             pagoValidacionLabel.setStyle("-fx-text-fill: #f59e0b;");
         } else {
             pagoValidacionLabel.setText("OK");
@@ -272,14 +326,13 @@ public class NewSaleController {
         }
     }
 
-    private BigDecimal parseMonto(String text) {
-        try {
-            String clean = text.replace("$", "").replace(",", "").trim();
-            if (clean.isEmpty()) return BigDecimal.ZERO;
-            return new BigDecimal(clean);
-        } catch (NumberFormatException e) {
-            return BigDecimal.ZERO;
-        }
+    private void sugerirMonto(SalePayment.PaymentMethod metodo, TextField monto, String etiqueta) {
+        Money resto = carrito.getRemainingFor(metodo);
+        monto.setPromptText(etiqueta + (resto.isPositive() ? resto.toString() : "0.00"));
+    }
+
+    private Money parseMonto(String text) {
+        return Money.parseOrZero(text);
     }
 
     private void seleccionarProducto(ProductVariant producto) {
@@ -293,18 +346,128 @@ public class NewSaleController {
         productoSeleccionadoBox.setManaged(true);
     }
 
+    /**
+     * Enter en el buscador. Si el texto llegó como ráfaga del lector (o está activo
+     * el modo escáner) se resuelve como código y va directo al carrito; si no hay
+     * coincidencia exacta, se avisa.
+     */
+    @FXML
+    public void handleEnterBusqueda() {
+        long now = System.nanoTime();
+        boolean rafaga = scanDetector.isBurst(now);
+        String codigo = rafaga ? scanDetector.code(searchField.getText()) : searchField.getText().trim();
+        scanDetector.reset();
+
+        if ((rafaga || modoEscanerBtn.isSelected()) && !codigo.isEmpty()) {
+            handleScan(codigo);
+            return;
+        }
+        handleBuscar();
+    }
+
+    /**
+     * Agrega una unidad del código leído sin pasar por la lista de resultados.
+     * Resuelve con el catálogo en memoria y, si no está cargado o no lo tiene,
+     * con una consulta por SKU en segundo plano.
+     *
+     * Cada consulta es independiente (no usa un {@link TaskSlot}): el lector
+     * escribe el código siguiente en el mismo buscador y ese escaneo no puede
+     * descartar al anterior. Por eso el buscador se limpia enseguida y la
+     * variante encontrada se agrega al carrito cuando llega, sin mirar el
+     * buscador. Un código que no existe se avisa.
+     */
+    private void handleScan(String codigo) {
+        CatalogIndex catalogo = CatalogIndex.getInstance();
+        ProductVariant variante = catalogo.isLoaded() ? catalogo.findByCode(codigo) : null;
+        if (variante != null) {
+            agregarEscaneado(variante);
+            return;
+        }
+
+        searchField.clear();
+        BackgroundTasks.getInstance()
+            .supply("pos.escanear", () -> variantDAO.buscarPorSku(codigo).orElse(null))
+            .whenComplete((encontrada, error) -> Platform.runLater(() -> {
+                if (error != null) {
+                    System.err.println("Error buscando el código " + codigo + ": " + error.getMessage());
+                    showAlert("Código no leído",
+                        "No se pudo buscar el código " + codigo + ": " + error.getMessage()
+                            + "\n\nEl producto no se agregó al carrito.",
+                        Alert.AlertType.WARNING);
+                } else if (encontrada == null) {
+                    showAlert("Código no encontrado",
+                        "Ningún producto tiene el código " + codigo + ".\n\nNo se agregó al carrito.",
+                        Alert.AlertType.WARNING);
+                } else {
+                    agregarAlCarrito(encontrada, 1);
+                }
+            }));
+    }
+
+    private void agregarEscaneado(ProductVariant variante) {
+        if (agregarAlCarrito(variante, 1)) {
+            searchField.clear();
+        } else {
+            handleBuscar();
+        }
+    }
+
     @FXML
     public void handleBuscar() {
         String query = searchField.getText().trim();
-        List<ProductVariant> resultados;
 
         if (query.isEmpty()) {
-            resultados = variantDAO.listarDisponibles();
-        } else {
-            resultados = variantDAO.buscar(query, 50);
+            mostrarCatalogo();
+            return;
         }
 
-        productosListView.setItems(FXCollections.observableArrayList(resultados));
+        // Una búsqueda reemplaza a la lista paginada
+        paginas.cancel();
+        catalogo = null;
+        cargandoPagina = false;
+
+        if (CatalogIndex.getInstance().isLoaded()) {
+            // En memoria: se responde en el momento y se descarta cualquier consulta pendiente
+            busqueda.cancel();
+            productosListView.setItems(FXCollections.observableArrayList(
+                CatalogIndex.getInstance().search(query, 50)));
+            return;
+        }
+
+        busqueda.submit("pos.buscar",
+            () -> variantDAO.buscar(query, 50),
+            resultados -> productosListView.setItems(FXCollections.observableArrayList(resultados)),
+            e -> System.err.println("Error buscando productos: " + e.getMessage()));
+    }
+
+    /**
+     * Lista sin búsqueda: más vendidos y después el catálogo por nombre, leído
+     * de a páginas a medida que se desplaza la lista.
+     */
+    private void mostrarCatalogo() {
+        busqueda.cancel();
+        paginas.cancel();
+        catalogo = new CatalogPager(variantDAO, PAGINA_CATALOGO);
+        cargandoPagina = false;
+        productosListView.setItems(FXCollections.observableArrayList());
+        cargarPaginaCatalogo();
+    }
+
+    private void cargarPaginaCatalogo() {
+        CatalogPager pager = catalogo;
+        if (pager == null || cargandoPagina || !pager.hasMore()) {
+            return;
+        }
+        cargandoPagina = true;
+        paginas.submit("pos.catalogo", pager::nextPage,
+            pagina -> {
+                cargandoPagina = false;
+                productosListView.getItems().addAll(pagina);
+            },
+            e -> {
+                cargandoPagina = false;
+                System.err.println("Error cargando productos: " + e.getMessage());
+            });
     }
 
     @FXML
@@ -341,34 +504,30 @@ public class NewSaleController {
             return;
         }
 
-        // Verificar stock disponible considerando lo que ya está en el carrito
-        int enCarrito = carrito.stream()
-            .filter(i -> i.getVariant().getId() == productoSeleccionado.getId())
-            .mapToInt(i -> i.getQuantity())
-            .sum();
+        if (agregarAlCarrito(productoSeleccionado, cantidad)) {
+            limpiarSeleccion();
+        }
+    }
+
+    private boolean agregarAlCarrito(ProductVariant variante, int cantidad) {
+        // La variante de la lista puede ser de antes de la última venta: el catálogo
+        // en memoria se actualiza al confirmar cada una
+        CatalogIndex indice = CatalogIndex.getInstance();
+        ProductVariant actual = indice.isLoaded() ? indice.get(variante.getId()) : null;
+        int stock = actual != null ? actual.getStock() : variante.getStock();
 
-        if (cantidad + enCarrito > productoSeleccionado.getStock()) {
+        // Verificar stock disponible considerando lo que ya está en el carrito
+        int enCarrito = carrito.quantityOf(variante.getId());
+        if (cantidad + enCarrito > stock) {
             showAlert("Stock Insuficiente",
                 String.format("Solo hay %d unidades disponibles (%d ya en carrito)",
-                    productoSeleccionado.getStock(), enCarrito),
+                    stock, enCarrito),
                 Alert.AlertType.WARNING);
-            return;
-        }
-
-        // Buscar si ya existe en el carrito
-        CartItem existente = carrito.stream()
-            .filter(i -> i.getVariant().getId() == productoSeleccionado.getId())
-            .findFirst()
-            .orElse(null);
-
-        if (existente != null) {
-            existente.incrementQuantity(cantidad);
-        } else {
-            carrito.add(new CartItem(productoSeleccionado, cantidad));
+            return false;
         }
 
-        actualizarCarritoUI();
-        limpiarSeleccion();
+        carrito.add(actual != null ? actual : variante, cantidad);
+        return true;
     }
 
     private void limpiarSeleccion() {
@@ -376,33 +535,30 @@ public class NewSaleController {
         productoSeleccionadoBox.setVisible(false);
         productoSeleccionadoBox.setManaged(false);
         productosListView.getSelectionModel().clearSelection();
-        searchField.clear();
-        handleBuscar();
+        // La lista sin búsqueda ya está cargada: sólo se vuelve a ella si había una búsqueda
+        if (!searchField.getText().isBlank()) {
+            searchField.clear();
+            handleBuscar();
+        }
     }
 
-    private void actualizarCarritoUI() {
-        carritoContainer.getChildren().clear();
+    private void setupCarrito() {
+        Label vacio = new Label("El carrito está vacío");
+        vacio.setStyle("-fx-text-fill: #94a3b8; -fx-font-size: 14px;");
+        carritoListView.setPlaceholder(vacio);
+        carritoListView.setCellFactory(lv -> new CarritoCell());
+        carritoListView.setItems(carrito.getItems());
 
-        if (carrito.isEmpty()) {
-            Label empty = new Label("El carrito está vacío");
-            empty.setStyle("-fx-text-fill: #94a3b8; -fx-font-size: 14px;");
-            empty.setPadding(new Insets(40, 0, 40, 0));
-            carritoContainer.getChildren().add(empty);
-            carritoContainer.setAlignment(Pos.CENTER);
-        } else {
-            carritoContainer.setAlignment(Pos.TOP_LEFT);
-            for (CartItem item : carrito) {
-                carritoContainer.getChildren().add(crearItemCarritoUI(item));
-            }
-        }
-
-        // Actualizar totales
-        BigDecimal subtotal = calcularTotal();
-        int totalItems = carrito.stream().mapToInt(i -> i.getQuantity()).sum();
+        // Cualquier cambio del carrito llega como cambio de la lista, con los totales ya al día
+        carritoListView.getItems().addListener((ListChangeListener<CartItem>) c -> actualizarTotalesUI());
+        actualizarTotalesUI();
+    }
 
-        subtotalLabel.setText("$" + String.format("%,.2f", subtotal));
-        itemsCountLabel.setText(String.valueOf(totalItems));
-        totalLabel.setText("$" + String.format("%,.2f", subtotal));
+    private void actualizarTotalesUI() {
+        Money total = carrito.getTotal();
+        subtotalLabel.setText("$" + total.format());
+        itemsCountLabel.setText(String.valueOf(carrito.getUnitCount()));
+        totalLabel.setText("$" + total.format());
 
         // Actualizar montos de pago (autocompleta si hay un solo método)
         actualizarUIPagos();
@@ -411,71 +567,87 @@ public class NewSaleController {
         confirmarBtn.setDisable(carrito.isEmpty());
     }
 
-    private HBox crearItemCarritoUI(CartItem item) {
-        HBox container = new HBox(8);
-        container.setAlignment(Pos.CENTER_LEFT);
-        container.setPadding(new Insets(12));
-        container.setStyle("-fx-background-color: white; -fx-background-radius: 8; -fx-border-color: #e2e8f0; -fx-border-radius: 8;");
-
-        VBox info = new VBox(2);
-        Label nombre = new Label(item.getVariant().getDisplayName());
-        nombre.setStyle("-fx-font-weight: bold; -fx-font-size: 12px;");
-        nombre.setWrapText(true);
-        nombre.setMaxWidth(180);
-
-        Label precio = new Label("$" + String.format("%,.2f", item.getVariant().getSalePrice()) + " c/u");
-        precio.setStyle("-fx-text-fill: #64748b; -fx-font-size: 11px;");
-
-        info.getChildren().addAll(nombre, precio);
-        HBox.setHgrow(info, Priority.ALWAYS);
-
-        // Controles de cantidad
-        Button btnMenos = new Button("-");
-        btnMenos.setStyle("-fx-background-color: #f1f5f9; -fx-background-radius: 4; -fx-min-width: 28; -fx-min-height: 28;");
-        btnMenos.setOnAction(e -> {
-            if (item.getQuantity() > 1) {
-                item.decrementQuantity();
-                actualizarCarritoUI();
-            }
-        });
+    /**
+     * Fila del carrito. Los controles se crean una vez por celda visible y se
+     * reutilizan al desplazarse o al cambiar la cantidad; los botones actúan
+     * sobre el ítem que la celda muestra en ese momento.
+     */
+    private class CarritoCell extends ListCell<CartItem> {
+
+        private final HBox container = new HBox(8);
+        private final Label nombre = new Label();
+        private final Label precio = new Label();
+        private final Label cantLabel = new Label();
+        private final Label subtotalLbl = new Label();
+
+        CarritoCell() {
+            container.setAlignment(Pos.CENTER_LEFT);
+            container.setPadding(new Insets(12));
+            container.setStyle("-fx-background-color: white; -fx-background-radius: 8; -fx-border-color: #e2e8f0; -fx-border-radius: 8;");
+
+            nombre.setStyle("-fx-font-weight: bold; -fx-font-size: 12px;");
+            nombre.setWrapText(true);
+            nombre.setMaxWidth(180);
+            precio.setStyle("-fx-text-fill: #64748b; -fx-font-size: 11px;");
+
+            VBox info = new VBox(2, nombre, precio);
+            HBox.setHgrow(info, Priority.ALWAYS);
+
+            // Controles de cantidad
+            Button btnMenos = new Button("-");
+            btnMenos.setStyle("-fx-background-color: #f1f5f9; -fx-background-radius: 4; -fx-min-width: 28; -fx-min-height: 28;");
+            btnMenos.setOnAction(e -> {
+                CartItem item = getItem();
+                if (item != null && item.getQuantity() > 1) {
+                    carrito.setQuantity(item, item.getQuantity() - 1);
+                }
+            });
 
-        Label cantLabel = new Label(String.valueOf(item.getQuantity()));
-        cantLabel.setStyle("-fx-font-weight: bold; -fx-min-width: 30; -fx-alignment: center;");
-        cantLabel.setAlignment(Pos.CENTER);
+            cantLabel.setStyle("-fx-font-weight: bold; -fx-min-width: 30; -fx-alignment: center;");
+            cantLabel.setAlignment(Pos.CENTER);
 
-        Button btnMas = new Button("+");
-        btnMas.setStyle("-fx-background-color: #f1f5f9; -fx-background-radius: 4; -fx-min-width: 28; -fx-min-height: 28;");
-        btnMas.setOnAction(e -> {
-            if (item.getQuantity() < item.getVariant().getStock()) {
-                item.incrementQuantity(1);
-                actualizarCarritoUI();
-            }
-        });
+            Button btnMas = new Button("+");
+            btnMas.setStyle("-fx-background-color: #f1f5f9; -fx-background-radius: 4; -fx-min-width: 28; -fx-min-height: 28;");
+            btnMas.setOnAction(e -> {
+                CartItem item = getItem();
+                if (item != null && item.getQuantity() < item.getStock()) {
+                    carrito.setQuantity(item, item.getQuantity() + 1);
+                }
+            });
 
-        HBox qtyBox = new HBox(4, btnMenos, cantLabel, btnMas);
-        qtyBox.setAlignment(Pos.CENTER);
+            HBox qtyBox = new HBox(4, btnMenos, cantLabel, btnMas);
+            qtyBox.setAlignment(Pos.CENTER);
 
-        // Subtotal
-        BigDecimal subtotal = item.getSubtotal();
-        Label subtotalLbl = new Label("$" + String.format("%,.2f", subtotal));
-        subtotalLbl.setStyle("-fx-font-weight: bold; -fx-font-size: 13px; -fx-text-fill: #0f172a; -fx-min-width: 70; -fx-alignment: center-right;");
+            // Subtotal
+            subtotalLbl.setStyle("-fx-font-weight: bold; -fx-font-size: 13px; -fx-text-fill: #0f172a; -fx-min-width: 70; -fx-alignment: center-right;");
 
-        // Eliminar
-        Button btnEliminar = new Button("×");
-        btnEliminar.setStyle("-fx-background-color: #fef2f2; -fx-text-fill: #dc2626; -fx-background-radius: 4; -fx-font-weight: bold;");
-        btnEliminar.setOnAction(e -> {
-            carrito.remove(item);
-            actualizarCarritoUI();
-        });
+            // Eliminar
+            Button btnEliminar = new Button("×");
+            btnEliminar.setStyle("-fx-background-color: #fef2f2; -fx-text-fill: #dc2626; -fx-background-radius: 4; -fx-font-weight: bold;");
+            btnEliminar.setOnAction(e -> {
+                CartItem item = getItem();
+                if (item != null) {
+                    carrito.remove(item);
+                }
+            });
 
-        container.getChildren().addAll(info, qtyBox, subtotalLbl, btnEliminar);
-        return container;
-    }
+            container.getChildren().addAll(info, qtyBox, subtotalLbl, btnEliminar);
+            setStyle("-fx-background-color: transparent; -fx-padding: 3 10 3 10;");
+        }
 
-    private BigDecimal calcularTotal() {
-        return carrito.stream()
-            .map(CartItem::getSubtotal)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        @Override
+        protected void updateItem(CartItem item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setGraphic(null);
+            } else {
+                nombre.setText(item.getVariant().getDisplayName());
+                precio.setText("$" + item.getUnitPrice().format() + " c/u");
+                cantLabel.setText(String.valueOf(item.getQuantity()));
+                subtotalLbl.setText("$" + item.getSubtotal().format());
+                setGraphic(container);
+            }
+        }
     }
 
     @FXML
@@ -489,7 +661,6 @@ public class NewSaleController {
 
         if (confirm.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
             carrito.clear();
-            actualizarCarritoUI();
         }
     }
 
@@ -502,15 +673,14 @@ public class NewSaleController {
                 return;
             }
 
-            BigDecimal recibido = new BigDecimal(text);
-            BigDecimal total = calcularTotal();
-            BigDecimal cambio = recibido.subtract(total);
+            Money recibido = Money.parse(text);
+            Money cambio = recibido.minus(carrito.getTotal());
 
-            if (cambio.compareTo(BigDecimal.ZERO) >= 0) {
-                cambioLabel.setText("$" + String.format("%,.2f", cambio));
+            if (!cambio.isNegative()) {
+                cambioLabel.setText("$" + cambio.format());
                 cambioLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: #15803d;");
             } else {
-                cambioLabel.setText("Falta: $" + String.format("%,.2f", cambio.abs()));
+                cambioLabel.setText("Falta: $" + cambio.abs().format());
                 cambioLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: #dc2626;");
             }
         } catch (NumberFormatException e) {
@@ -525,7 +695,7 @@ public class NewSaleController {
             return;
         }
 
-        BigDecimal total = calcularTotal();
+        Money total = carrito.getTotal();
         int metodosSeleccionados = contarMetodosSeleccionados();
 
         // Validar que al menos un método de pago esté seleccionado
@@ -536,12 +706,12 @@ public class NewSaleController {
 
         // Crear pagos usando los montos ingresados
         List<SalePayment> pagos = new ArrayList<>();
-        BigDecimal sumaPagos = BigDecimal.ZERO;
+        Money sumaPagos = Money.ZERO;
 
         if (chkEfectivo.isSelected()) {
-            BigDecimal montoEf = parseMonto(montoEfectivo.getText());
-            if (montoEf.compareTo(BigDecimal.ZERO) > 0) {
-                sumaPagos = sumaPagos.add(montoEf);
+            Money montoEf = carrito.getPayment(SalePayment.PaymentMethod.CASH);
+            if (montoEf.isPositive()) {
+                sumaPagos = sumaPagos.plus(montoEf);
                 pagos.add(new SalePayment.Builder()
                     .paymentMethod(SalePayment.PaymentMethod.CASH)
                     .amount(montoEf)
@@ -550,9 +720,9 @@ public class NewSaleController {
         }
 
         if (chkTarjeta.isSelected()) {
-            BigDecimal montoTj = parseMonto(montoTarjeta.getText());
-            if (montoTj.compareTo(BigDecimal.ZERO) > 0) {
-                sumaPagos = sumaPagos.add(montoTj);
+            Money montoTj = carrito.getPayment(SalePayment.PaymentMethod.DEBIT_CARD);
+            if (montoTj.isPositive()) {
+                sumaPagos = sumaPagos.plus(montoTj);
                 pagos.add(new SalePayment.Builder()
                     .paymentMethod(SalePayment.PaymentMethod.DEBIT_CARD)
                     .amount(montoTj)
@@ -561,9 +731,9 @@ public class NewSaleController {
         }
 
         if (chkTransferencia.isSelected()) {
-            BigDecimal montoTr = parseMonto(montoTransferencia.getText());
-            if (montoTr.compareTo(BigDecimal.ZERO) > 0) {
-                sumaPagos = sumaPagos.add(montoTr);
+            Money montoTr = carrito.getPayment(SalePayment.PaymentMethod.TRANSFER);
+            if (montoTr.isPositive()) {
+                sumaPagos = sumaPagos.plus(montoTr);
                 pagos.add(new SalePayment.Builder()
                     .paymentMethod(SalePayment.PaymentMethod.TRANSFER)
                     .amount(montoTr)
@@ -572,9 +742,9 @@ public class NewSaleController {
         }
 
         // Validar que la suma de pagos cubra el total
-        if (sumaPagos.compareTo(total) < 0) {
+        if (sumaPagos.isLessThan(total)) {
             showAlert("Pago Insuficiente",
-                String.format("Faltan $%.2f para completar el pago", total.subtract(sumaPagos)),
+                "Faltan $" + total.minus(sumaPagos) + " para completar el pago",
                 Alert.AlertType.WARNING);
             return;
         }
@@ -582,9 +752,9 @@ public class NewSaleController {
         // Confirmar
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
         confirm.setTitle("Confirmar Venta");
-        confirm.setHeaderText("Total: $" + String.format("%,.2f", total));
+        confirm.setHeaderText("Total: $" + total.format());
         String detallesPago = pagos.stream()
-            .map(p -> p.getPaymentMethod().getDisplayName() + ": $" + String.format("%.2f", p.getAmount()))
+            .map(p -> p.getPaymentMethod().getDisplayName() + ": $" + p.getAmount())
             .reduce((a, b) -> a + " + " + b)
             .orElse("");
         confirm.setContentText("Pagos: " + detallesPago + "\n¿Confirmar la venta?");
@@ -593,69 +763,96 @@ public class NewSaleController {
             return;
         }
 
-        try {
-            // Crear items de venta
-            List<SaleItem> items = new ArrayList<>();
-            for (CartItem item : carrito) {
-                items.add(new SaleItem.Builder()
-                    .variantId(item.getVariantId())
-                    .quantity(item.getQuantity())
-                    .unitPrice(item.getVariant().getSalePrice())
-                    .subtotal(item.getSubtotal())
-                    .productName(item.getVariant().getProductName())
-                    .variantName(item.getVariant().getVariantName())
-                    .build());
-            }
-
-            // Crear venta con múltiples pagos
-            User user = SessionManager.getInstance().getCurrentUser();
-            Sale.Builder saleBuilder = new Sale.Builder()
-                .userId(user.getId())
-                .total(total)
-                .status("completed")
-                .notes(notasField.getText())
-                .createdAt(fechaVentaPersonalizada)
-                .items(items);
-
-            for (SalePayment pago : pagos) {
-                saleBuilder.addPayment(pago);
-            }
-
-            Sale sale = saleBuilder.build();
+        // Crear items de venta
+        List<SaleItem> items = new ArrayList<>();
+        for (CartItem item : carrito.getItems()) {
+            items.add(new SaleItem.Builder()
+                .variantId(item.getVariantId())
+                .quantity(item.getQuantity())
+                .unitPrice(item.getUnitPrice())
+                .subtotal(item.getSubtotal())
+                .productName(item.getVariant().getProductName())
+                .variantName(item.getVariant().getVariantName())
+                .build());
+        }
 
-            // Guardar
-            Sale createdSale = saleDAO.create(sale);
+        // Crear venta con múltiples pagos
+        User user = SessionManager.getInstance().getCurrentUser();
+        Sale.Builder saleBuilder = new Sale.Builder()
+            .userId(user.getId())
+            .total(total)
+            .status("completed")
+            .notes(notasField.getText())
+            .createdAt(fechaVentaPersonalizada)
+            .items(items);
+
+        for (SalePayment pago : pagos) {
+            saleBuilder.addPayment(pago);
+        }
 
-            // Actualizar fecha si es personalizada
-            if (fechaVentaPersonalizada != null) {
-                saleDAO.updateDateTime(createdSale.getId(), fechaVentaPersonalizada);
+        Sale sale = saleBuilder.build();
+
+        // Copia del carrito por si la venta falla y hay que devolverlo
+        List<CartItem> vendido = carrito.getItems().stream()
+            .map(i -> new CartItem(i.getVariant(), i.getQuantity()))
+            .toList();
+        String notas = notasField.getText();
+        String vendedor = user.getFullName();
+        Window ventana = confirmarBtn.getScene().getWindow();
+
+        // Guardar en segundo plano (la fecha elegida se graba en el mismo INSERT)
+        saleDAO.createAsync(sale).whenCompleteAsync((createdSale, error) -> {
+            if (error == null) {
+                // Stock vendido: actualizar el catálogo en memoria, fuera del hilo de la UI
+                CatalogIndex.getInstance().refreshVariants(
+                    vendido.stream().map(CartItem::getVariantId).toList());
             }
+            Platform.runLater(() -> {
+                if (error == null) {
+                    TicketGenerator.showTicketNotification(ventana, createdSale, vendedor);
+                    // La lista sin búsqueda muestra el stock de antes de la venta
+                    if (searchField.getText().isBlank()) {
+                        mostrarCatalogo();
+                    }
+                } else {
+                    restaurarCarrito(vendido, notas, error);
+                }
+            });
+        }, BackgroundTasks.getInstance().executor());
 
-            // Mostrar ticket con la fecha personalizada
-            createdSale = new Sale.Builder()
-                .id(createdSale.getId())
-                .userId(createdSale.getUserId())
-                .total(createdSale.getTotal())
-                .status(createdSale.getStatus())
-                .notes(createdSale.getNotes())
-                .createdAt(fechaVentaPersonalizada)
-                .items(createdSale.getItems())
-                .build();
-            mostrarTicket(createdSale);
-
-            // Limpiar para nueva venta
-            carrito.clear();
-            actualizarCarritoUI();
-            limpiarFormularioPago();
+        // Limpiar para nueva venta sin esperar a que se grabe
+        carrito.clear();
+        limpiarFormularioPago();
 
-            // Resetear fecha a la hora actual
-            fechaVentaPersonalizada = ZonedDateTime.now(sanJuanZone).toLocalDateTime();
-            actualizarFechaLabel();
+        // Resetear fecha a la hora actual
+        fechaVentaPersonalizada = ZonedDateTime.now(sanJuanZone).toLocalDateTime();
+        actualizarFechaLabel();
+    }
 
-        } catch (Exception e) {
-            showAlert("Error", "No se pudo crear la venta: " + e.getMessage(), Alert.AlertType.ERROR);
-            e.printStackTrace();
+    /**
+     * Devuelve al carrito los productos de una venta que no se pudo grabar.
+     * Si el cajero ya empezó otra venta, se suman a lo que haya.
+     */
+    private void restaurarCarrito(List<CartItem> items, String notas, Throwable error) {
+        Throwable causa = error instanceof CompletionException && error.getCause() != null
+            ? error.getCause() : error;
+        causa.printStackTrace();
+
+        for (CartItem item : items) {
+            carrito.add(item.getVariant(), item.getQuantity());
+        }
+        if (notasField.getText() == null || notasField.getText().isBlank()) {
+            notasField.setText(notas);
         }
+
+        String detalle = items.stream()
+            .map(i -> i.getQuantity() + " x " + i.getVariant().getDisplayName())
+            .reduce((a, b) -> a + "\n" + b)
+            .orElse("");
+        showAlert("Venta no registrada",
+            "No se pudo crear la venta: " + causa.getMessage()
+                + "\n\nLos productos volvieron al carrito:\n" + detalle,
+            Alert.AlertType.ERROR);
     }
 
     private void limpiarFormularioPago() {
@@ -671,11 +868,6 @@ public class NewSaleController {
         pagoValidacionLabel.setText("");
     }
 
-    private void mostrarTicket(Sale sale) {
-        String vendorName = SessionManager.getInstance().getCurrentUser().getFullName();
-        TicketGenerator.showTicketDialog(sale, vendorName);
-    }
-
     @FXML
     public void handleVolver() {
         if (!carrito.isEmpty()) {
@@ -2,7 +2,11 @@ package com.ferreteria.controllers;
 
 import com.ferreteria.models.Product;
 import com.ferreteria.models.dao.DatabaseConfig;
+import com.ferreteria.utils.CatalogIndex;
 import com.ferreteria.utils.SessionManager;
+import com.ferreteria.utils.TaskSlot;
+import com.ferreteria.utils.ViewLifecycle;
+import com.ferreteria.utils.TextIndex;
 
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -17,6 +21,7 @@ import javafx.util.Callback;
 
 import java.math.BigDecimal;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -28,7 +33,7 @@ import java.util.List;
 /**
  * Controlador de la vista de Productos.
  */
-public class ProductsController {
+public class ProductsController implements ViewLifecycle {
 
     @FXML private TableView<Product> productsTable;
     @FXML private TextField searchField;
@@ -42,6 +47,9 @@ public class ProductsController {
     @FXML private Label dateLabel;
     @FXML private NavbarController navbarController;
 
+    private final TextIndex<Product> productIndex = new TextIndex<>();
+    private final TaskSlot carga = new TaskSlot();
+
     @FXML
     public void initialize() {
         System.out.println("=== INICIALIZANDO PRODUCTSCONTROLLER ===");
@@ -51,10 +59,14 @@ public class ProductsController {
         setupDateLabel();
         setupTableColumns();
         setupSearchField();
-        loadProducts();
         System.out.println("=== PRODUCTSCONTROLLER INICIALIZADO ===");
     }
 
+    @Override
+    public void onShow() {
+        loadProducts();
+    }
+
     private void setupDateLabel() {
         if (dateLabel != null) {
             try {
@@ -118,21 +130,21 @@ public class ProductsController {
             return;
         }
         
-        String lowerSearchText = searchText.toLowerCase().trim();
-        List<Product> filteredProducts = new ArrayList<>();
-        
-        for (Product product : allProducts) {
-            boolean matches = 
-                (product.getCode() != null && product.getCode().toLowerCase().contains(lowerSearchText)) ||
-                (product.getName() != null && product.getName().toLowerCase().contains(lowerSearchText)) ||
-                (product.getCategory() != null && product.getCategory().toLowerCase().contains(lowerSearchText));
-                
-            if (matches) {
-                filteredProducts.add(product);
-            }
+        // El índice ya tiene los textos normalizados: no se recorre la lista en cada tecla
+        productsTable.getItems().setAll(productIndex.search(searchText, allProducts.size()));
+    }
+
+    /**
+     * Indexa código, nombre y categoría de los productos cargados en la tabla.
+     */
+    private void indexProducts(List<Product> products) {
+        productIndex.clear();
+        // Por posición: un producto con varias variantes aparece en varias filas
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            productIndex.put(i, product, product.getName(),
+                product.getCode(), product.getName(), product.getCategory());
         }
-        
-        productsTable.getItems().setAll(filteredProducts);
     }
 
     private Callback<TableColumn<Product, Void>, TableCell<Product, Void>> createActionsCellFactory() {
@@ -179,12 +191,62 @@ public class ProductsController {
     @FXML
     public void loadProducts() {
         System.out.println("Cargando productos iniciales...");
+        carga.submit("productos.cargar", this::queryProducts, products -> {
+            showProducts(products);
+            System.out.println("Productos iniciales cargados: " + products.size());
+        }, e -> {
+            System.err.println("Error cargando productos iniciales: " + e.getMessage());
+            e.printStackTrace();
+        });
+    }
+
+    @FXML
+    public void handleRefresh() {
+        System.out.println("=== BOTÓN REFRESH PRESIONADO ===");
+
+        // Mostrar mensaje inmediato en la tabla
+        productsTable.setPlaceholder(new javafx.scene.control.Label("🔄 Refrescando..."));
+
+        // Forzar un refresh inmediato de la UI
+        productsTable.refresh();
+
+        // La consulta corre en segundo plano; el resultado llega en el hilo de JavaFX
+        carga.submit("productos.recargar", this::queryProducts, products -> {
+            System.out.println("Se encontraron " + products.size() + " productos");
+            showProducts(products);
+
+            // Quitar el placeholder
+            productsTable.setPlaceholder(null);
+
+            // MOVER LA TABLA AL INICIO
+            productsTable.scrollTo(0);
+
+            // También hacer scroll del contenedor si es un ScrollPane
+            if (productsTable.getParent() instanceof javafx.scene.control.ScrollPane) {
+                ((javafx.scene.control.ScrollPane) productsTable.getParent()).setVvalue(0);
+            }
+
+            // Mostrar alerta para confirmar visualmente
+            showAlert("Recarga Completada", "Se recargaron " + products.size() + " productos correctamente");
+        }, e -> {
+            System.err.println("Error en handleRefresh: " + e.getMessage());
+            e.printStackTrace();
+            productsTable.setPlaceholder(new javafx.scene.control.Label("❌ Error al recargar"));
+            showAlert("Error", "No se pudieron recargar los productos: " + e.getMessage());
+        });
+
+        System.out.println("=== FIN HANDLE REFRESH ===");
+    }
+
+    /**
+     * Consulta los productos activos; corre en segundo plano.
+     */
+    private List<Product> queryProducts() throws SQLException {
         List<Product> products = new ArrayList<>();
-        
-        try {
-            var conn = DatabaseConfig.getInstance().getConnection();
-            Statement stmt = conn.createStatement();
-            
+
+        try (var conn = DatabaseConfig.getInstance().getReadConnection();
+             Statement stmt = conn.createStatement()) {
+
             ResultSet rs = stmt.executeQuery("""
                 SELECT p.id, p.code, p.name, p.description, p.category_id, c.name as category,
                        COALESCE(pv.sale_price, 0) as price, COALESCE(pv.cost_price, 0) as cost, 
@@ -194,9 +256,9 @@ public class ProductsController {
                 LEFT JOIN categories c ON p.category_id = c.id
                 LEFT JOIN product_variants pv ON p.id = pv.product_id AND pv.active = 1
                 WHERE p.active = 1
-                ORDER BY p.name
+                ORDER BY p.name COLLATE ES
                 """);
-            
+
             while (rs.next()) {
                 Product product = new Product.Builder()
                     .id(rs.getInt("id"))
@@ -212,123 +274,19 @@ public class ProductsController {
                     .active(rs.getBoolean("active"))
                     .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
                     .build();
-                
+
                 products.add(product);
             }
-            
-            productsTable.setUserData(products);
-            productsTable.getItems().setAll(products);
-            System.out.println("Productos iniciales cargados: " + products.size());
-            
-        } catch (Exception e) {
-            System.err.println("Error cargando productos iniciales: " + e.getMessage());
-            e.printStackTrace();
         }
+        return products;
     }
 
-    @FXML
-    public void handleRefresh() {
-        System.out.println("=== BOTÓN REFRESH PRESIONADO ===");
-        
-        // Mostrar mensaje inmediato en la tabla
-        productsTable.setPlaceholder(new javafx.scene.control.Label("🔄 Refrescando..."));
-        
-        // Forzar un refresh inmediato de la UI
+    private void showProducts(List<Product> products) {
+        // Actualizar userData para el filtrado
+        productsTable.setUserData(products);
+        indexProducts(products);
+        productsTable.getItems().setAll(products);
         productsTable.refresh();
-        
-        // Ejecutar en un hilo separado para no bloquear la UI
-        new Thread(() -> {
-            try {
-                System.out.println("Iniciando carga de productos...");
-                
-                var conn = DatabaseConfig.getInstance().getConnection();
-                Statement stmt = conn.createStatement();
-                
-                ResultSet rs = stmt.executeQuery("""
-                    SELECT p.id, p.code, p.name, p.description, p.category_id, c.name as category,
-                           COALESCE(pv.sale_price, 0) as price, COALESCE(pv.cost_price, 0) as cost, 
-                           COALESCE(pv.stock, 0) as stock, COALESCE(pv.min_stock, 5) as min_stock,
-                           p.location, p.active, p.created_at 
-                    FROM products p
-                    LEFT JOIN categories c ON p.category_id = c.id
-                    LEFT JOIN product_variants pv ON p.id = pv.product_id AND pv.active = 1
-                    WHERE p.active = 1
-                    ORDER BY p.name
-                    """);
-                
-                List<Product> products = new ArrayList<>();
-                while (rs.next()) {
-                    Product product = new Product.Builder()
-                        .id(rs.getInt("id"))
-                        .code(rs.getString("code"))
-                        .name(rs.getString("name"))
-                        .description(rs.getString("description"))
-                        .category(rs.getString("category"))
-                        .price(rs.getBigDecimal("price"))
-                        .cost(rs.getBigDecimal("cost"))
-                        .stock(rs.getInt("stock"))
-                        .minStock(rs.getInt("min_stock"))
-                        .location(rs.getString("location"))
-                        .active(rs.getBoolean("active"))
-                        .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
-                        .build();
-                    
-                    products.add(product);
-                }
-                
-                System.out.println("Se encontraron " + products.size() + " productos");
-                
-                // Actualizar la UI en el hilo de JavaFX
-                javafx.application.Platform.runLater(() -> {
-                    try {
-                        System.out.println("Actualizando UI en hilo JavaFX...");
-                        
-                        // Limpiar completamente la tabla
-                        productsTable.getItems().clear();
-                        
-                        // Agregar los nuevos productos
-                        productsTable.getItems().setAll(products);
-                        
-                        // Actualizar userData para el filtrado
-                        productsTable.setUserData(products);
-                        
-                        // Quitar el placeholder
-                        productsTable.setPlaceholder(null);
-                        
-                        // Forzar refresh de la tabla
-                        productsTable.refresh();
-                        
-                        // MOVER LA TABLA AL INICIO
-                        productsTable.scrollTo(0);
-                        
-                        // También hacer scroll del contenedor si es un ScrollPane
-                        if (productsTable.getParent() instanceof javafx.scene.control.ScrollPane) {
-                            ((javafx.scene.control.ScrollPane) productsTable.getParent()).setVvalue(0);
-                        }
-                        
-                        System.out.println("Tabla actualizada con " + productsTable.getItems().size() + " productos y movida al inicio");
-                        
-                        // Mostrar alerta para confirmar visualmente
-                        showAlert("Recarga Completada", "Se recargaron " + products.size() + " productos correctamente");
-                        
-                    } catch (Exception e) {
-                        System.err.println("Error actualizando UI: " + e.getMessage());
-                        e.printStackTrace();
-                    }
-                });
-                
-            } catch (Exception e) {
-                System.err.println("Error en handleRefresh: " + e.getMessage());
-                e.printStackTrace();
-                
-                javafx.application.Platform.runLater(() -> {
-                    productsTable.setPlaceholder(new javafx.scene.control.Label("❌ Error al recargar"));
-                    showAlert("Error", "No se pudieron recargar los productos: " + e.getMessage());
-                });
-            }
-        }).start();
-        
-        System.out.println("=== FIN HANDLE REFRESH ===");
     }
 
     @FXML
@@ -390,9 +348,8 @@ public class ProductsController {
         confirmDialog.setContentText("Producto: " + product.getName() + "\n\nEsta acción no se puede deshacer.");
         
         if (confirmDialog.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
-            try {
-                var conn = DatabaseConfig.getInstance().getConnection();
-                Statement stmt = conn.createStatement();
+            try (var conn = DatabaseConfig.getInstance().getWriteConnection();
+                 Statement stmt = conn.createStatement()) {
                 
                 // Marcar como inactivo en ambas tablas
                 String sql = "UPDATE products SET active = 0 WHERE id = " + product.getId();
@@ -402,6 +359,7 @@ public class ProductsController {
                 int rowsAffected2 = stmt.executeUpdate(sql);
                 
                 if (rowsAffected1 > 0 || rowsAffected2 > 0) {
+                    CatalogIndex.getInstance().refreshProduct(product.getId());
                     showAlert("Éxito", "Producto eliminado correctamente");
                     loadProducts(); // Recargar la tabla
                 } else {
@@ -1,8 +1,14 @@
 package com.ferreteria.controllers;
 
-import com.ferreteria.models.dao.ReportDAO;
+import com.ferreteria.models.dao.DatabaseConfig;
+import com.ferreteria.models.dao.ReportCache;
+import com.ferreteria.models.dao.MonthlyReportEngine.ProductLine;
+import com.ferreteria.models.dao.MonthlyReportEngine.Report;
+import com.ferreteria.models.dao.MonthlyReportEngine.Summary;
+import com.ferreteria.utils.BackgroundTasks;
 import com.ferreteria.utils.SessionManager;
-import javafx.application.Platform;
+import com.ferreteria.utils.TaskSlot;
+import com.ferreteria.utils.ViewLifecycle;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -28,6 +34,9 @@ import java.time.Month;
 import java.time.YearMonth;
 import java.time.format.TextStyle;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,11 +47,13 @@ import java.util.logging.Logger;
  * @author Sistema Ferretería
  * @version 1.0
  */
-public class ReportsController {
+public class ReportsController implements ViewLifecycle {
     private static final Logger LOGGER = Logger.getLogger(ReportsController.class.getName());
-    private final ReportDAO reportDAO;
+    private static final long REPORT_TIMEOUT_SECONDS = 30;
+    private final ReportCache reportCache;
     private final NumberFormat currencyFormat;
     private YearMonth selectedPeriod;
+    private final TaskSlot reportTask = new TaskSlot();
 
     // FXML - Filtros
     @FXML private ComboBox<String> monthCombo;
@@ -83,7 +94,7 @@ public class ReportsController {
     @FXML private VBox emptyStateContainer;
 
     public ReportsController() {
-        this.reportDAO = new ReportDAO();
+        this.reportCache = DatabaseConfig.getInstance().getReportCache();
         this.currencyFormat = NumberFormat.getCurrencyInstance(new Locale("es", "AR"));
     }
 
@@ -100,6 +111,17 @@ public class ReportsController {
         LOGGER.info("ReportsController inicializado correctamente");
     }
 
+    /**
+     * Al volver a la pantalla se actualiza el reporte que se estaba viendo
+     * (los meses cerrados salen de la caché; el actual suma las ventas nuevas)
+     */
+    @Override
+    public void onShow() {
+        if (selectedPeriod != null) {
+            loadReport(selectedPeriod);
+        }
+    }
+
     /**
      * Configura los ComboBox de filtros (mes y año)
      */
@@ -180,29 +202,7 @@ public class ReportsController {
 
             // Mostrar indicador de carga
             showLoadingState();
-
-            // Ejecutar consultas en background
-            new Thread(() -> {
-                try {
-                    Map<String, Object> stats = reportDAO.getMonthlyStats(selectedPeriod);
-                    Map<String, BigDecimal> paymentTotals = reportDAO.getPaymentMethodTotals(selectedPeriod);
-                    List<Map<String, Object>> productsSummary = reportDAO.getProductSalesSummary(selectedPeriod);
-
-                    // Actualizar UI en JavaFX thread
-                    Platform.runLater(() -> {
-                        updateStatistics(stats);
-                        updatePaymentMethods(paymentTotals);
-                        updateProductsTable(productsSummary);
-                        updateChart(reportDAO.getDailySales(selectedPeriod));
-                        showReportSections();
-                        enableExportButtons();
-                    });
-
-                } catch (Exception e) {
-                    LOGGER.log(Level.SEVERE, "Error al generar reporte", e);
-                    Platform.runLater(() -> showError("Error al generar el reporte: " + e.getMessage()));
-                }
-            }).start();
+            loadReport(selectedPeriod);
 
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error en handleGenerateReport", e);
@@ -210,6 +210,37 @@ public class ReportsController {
         }
     }
 
+    /**
+     * Genera y muestra el reporte de un período. Sale de la caché o de una
+     * pasada por tabla, en segundo plano; un reporte pedido después reemplaza
+     * a este
+     */
+    private void loadReport(YearMonth period) {
+        reportTask.submitAsync("reportes.mensual", () -> queryReport(period), report -> {
+            updateStatistics(report.summary());
+            updatePaymentMethods(report.paymentTotals());
+            updateProductsTable(report.products());
+            updateChart(report.salesByDayOfMonth());
+            showReportSections();
+            enableExportButtons();
+        }, e -> {
+            LOGGER.log(Level.SEVERE, "Error al generar reporte", e);
+            showError(e instanceof TimeoutException
+                ? "El reporte tardó demasiado. Intente nuevamente."
+                : "Error al generar el reporte: " + e.getMessage());
+        });
+    }
+
+    /**
+     * Obtiene el reporte en segundo plano, de la caché si está vigente.
+     * Falla con TimeoutException si no termina en {@link #REPORT_TIMEOUT_SECONDS}.
+     */
+    private CompletableFuture<Report> queryReport(YearMonth period) {
+        return BackgroundTasks.getInstance()
+            .supply("reportes.generar", () -> reportCache.get(period))
+            .orTimeout(REPORT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
     /**
      * Valida que se hayan seleccionado mes y año
      */
@@ -224,16 +255,11 @@ public class ReportsController {
     /**
      * Actualiza las tarjetas de estadísticas
      */
-    private void updateStatistics(Map<String, Object> stats) {
-        BigDecimal total = (BigDecimal) stats.get("totalRecaudado");
-        int transactions = (Integer) stats.get("totalVentas");
-        BigDecimal average = (BigDecimal) stats.get("promedioVenta");
-        BigDecimal max = (BigDecimal) stats.get("ventaMaxima");
-
-        totalSalesLabel.setText(currencyFormat.format(total));
-        totalTransactionsLabel.setText(String.valueOf(transactions));
-        avgSaleLabel.setText(currencyFormat.format(average));
-        maxSaleLabel.setText(currencyFormat.format(max));
+    private void updateStatistics(Summary stats) {
+        totalSalesLabel.setText(currencyFormat.format(stats.total()));
+        totalTransactionsLabel.setText(String.valueOf(stats.salesCount()));
+        avgSaleLabel.setText(currencyFormat.format(stats.average()));
+        maxSaleLabel.setText(currencyFormat.format(stats.max()));
     }
 
     /**
@@ -283,16 +309,16 @@ public class ReportsController {
     /**
      * Actualiza la tabla de productos vendidos
      */
-    private void updateProductsTable(List<Map<String, Object>> summary) {
+    private void updateProductsTable(List<ProductLine> summary) {
         ObservableList<ProductSaleRow> rows = FXCollections.observableArrayList();
 
-        for (Map<String, Object> item : summary) {
+        for (ProductLine item : summary) {
             ProductSaleRow row = new ProductSaleRow(
-                (String) item.get("producto"),
-                (String) item.get("variante"),
-                (Integer) item.get("cantidad"),
-                (BigDecimal) item.get("precio"),
-                (BigDecimal) item.get("total")
+                item.product(),
+                item.variant(),
+                item.quantity(),
+                item.unitPrice(),
+                item.total()
             );
             rows.add(row);
         }
@@ -2,10 +2,23 @@ package com.ferreteria.controllers;
 
 import com.ferreteria.Main;
 import com.ferreteria.models.Sale;
+import com.ferreteria.models.SaleItem;
+import com.ferreteria.models.User;
 import com.ferreteria.models.dao.DatabaseConfig;
 import com.ferreteria.models.dao.SaleDAO;
+import com.ferreteria.models.dao.SaleDAO.SaleCursor;
+import com.ferreteria.models.dao.SaleDAO.SalePage;
+import com.ferreteria.models.dao.SaleFilter;
+import com.ferreteria.models.dao.SalePeriod;
+import com.ferreteria.models.dao.SaleStatsDAO.PeriodTotals;
+import com.ferreteria.models.dao.UserDAO;
+import com.ferreteria.utils.BackgroundTasks;
+import com.ferreteria.utils.CatalogIndex;
 import com.ferreteria.utils.SaleEditDialog;
+import com.ferreteria.utils.TaskSlot;
+import com.ferreteria.utils.ViewLifecycle;
 
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -18,13 +31,17 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 
 /**
  * Controller for the sales management view.
  */
-public class SalesController {
+public class SalesController implements ViewLifecycle {
 
     @FXML private NavbarController navbarController;
 
@@ -36,6 +53,7 @@ public class SalesController {
     @FXML private DatePicker fechaDesde;
     @FXML private DatePicker fechaHasta;
     @FXML private ComboBox<String> statusFilter;
+    @FXML private ComboBox<String> vendedorFilter;
     @FXML private TextField searchField;
 
     @FXML private TableView<Sale> ventasTable;
@@ -57,6 +75,18 @@ public class SalesController {
     private int totalPaginas = 1;
     private static final int ITEMS_POR_PAGINA = 15;
 
+    // Paginación por cursor: inicio de cada página visitada (null = primera)
+    private SaleFilter filtroActual = SaleFilter.all();
+    private final List<SaleCursor> inicioPaginas = new ArrayList<>();
+    private SaleCursor siguienteCursor;
+    private final Map<String, Integer> vendedores = new HashMap<>();
+
+    // Consultas en segundo plano: un filtro nuevo descarta el resultado del anterior
+    private final TaskSlot statsTask = new TaskSlot();
+    private final TaskSlot ventasTask = new TaskSlot();
+    private final TaskSlot vendedoresTask = new TaskSlot();
+    private final TaskSlot detalleTask = new TaskSlot();
+
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
     @FXML
@@ -69,7 +99,17 @@ public class SalesController {
         salesList = FXCollections.observableArrayList();
 
         setupStatusFilter();
+        setupVendedorFilter();
         setupTable();
+    }
+
+    /**
+     * Al volver a la pantalla se recargan los totales y la página actual con
+     * los filtros que ya estaban.
+     */
+    @Override
+    public void onShow() {
+        loadVendedores();
         loadStats();
         loadSales();
     }
@@ -81,6 +121,30 @@ public class SalesController {
         statusFilter.setValue("Todos");
     }
 
+    private void setupVendedorFilter() {
+        vendedorFilter.setItems(FXCollections.observableArrayList("Todos"));
+        vendedorFilter.setValue("Todos");
+    }
+
+    private void loadVendedores() {
+        vendedoresTask.submit("ventas.vendedores",
+            () -> new UserDAO(DatabaseConfig.getInstance()).findAll(),
+            users -> {
+                String seleccionado = vendedorFilter.getValue();
+                List<String> nombres = new ArrayList<>();
+                nombres.add("Todos");
+                vendedores.clear();
+                for (User user : users) {
+                    String nombre = user.getFullName() != null ? user.getFullName() : user.getUsername();
+                    vendedores.put(nombre, user.getId());
+                    nombres.add(nombre);
+                }
+                vendedorFilter.getItems().setAll(nombres);
+                vendedorFilter.setValue(nombres.contains(seleccionado) ? seleccionado : "Todos");
+            },
+            e -> System.err.println("Error cargando vendedores: " + e.getMessage()));
+    }
+
     private void setupTable() {
         // Columna # (ID formateado)
         colId.setCellValueFactory(cellData -> {
@@ -116,8 +180,7 @@ public class SalesController {
         });
 
         colTotal.setCellValueFactory(cellData -> {
-            BigDecimal total = cellData.getValue().getTotal();
-            return new SimpleStringProperty("$" + String.format("%,.2f", total));
+            return new SimpleStringProperty("$" + cellData.getValue().getTotal().format());
         });
 
         colEstado.setCellValueFactory(cellData -> {
@@ -203,89 +266,116 @@ public class SalesController {
 
     private void loadStats() {
         LocalDate hoy = LocalDate.now();
-        int year = hoy.getYear();
-        int month = hoy.getMonthValue();
-
-        BigDecimal totalHoy = saleDAO.dailyTotal(hoy);
-        BigDecimal totalMes = saleDAO.monthlyTotal(year, month);
-        int cantidadHoy = saleDAO.dailyCount(hoy);
-
-        ventasHoyLabel.setText("$" + String.format("%,.2f", totalHoy));
-        ventasMesLabel.setText("$" + String.format("%,.2f", totalMes));
-        cantidadHoyLabel.setText(String.valueOf(cantidadHoy));
-
-        if (cantidadHoy > 0) {
-            BigDecimal promedio = totalHoy.divide(BigDecimal.valueOf(cantidadHoy), 2, java.math.RoundingMode.HALF_UP);
-            promedioLabel.setText("$" + String.format("%,.2f", promedio));
-        } else {
-            promedioLabel.setText("$0.00");
-        }
+
+        // Ambos salen del resumen diario: una fila por día, no por venta
+        statsTask.submit("ventas.estadisticas", () -> new ResumenVentas(
+            saleDAO.getStatsDAO().totals(SalePeriod.day(hoy)),
+            saleDAO.monthlyTotal(hoy.getYear(), hoy.getMonthValue())
+        ), resumen -> {
+            PeriodTotals totalesHoy = resumen.hoy();
+            ventasHoyLabel.setText("$" + String.format("%,.2f", totalesHoy.grossTotal()));
+            ventasMesLabel.setText("$" + String.format("%,.2f", resumen.totalMes()));
+            cantidadHoyLabel.setText(String.valueOf(totalesHoy.salesCount()));
+            promedioLabel.setText("$" + String.format("%,.2f", totalesHoy.averageSale()));
+        }, e -> System.err.println("Error cargando estadísticas: " + e.getMessage()));
     }
 
+    /**
+     * Recalcula el total con los filtros actuales y recarga la página actual.
+     */
     private void loadSales() {
-        List<Sale> sales;
+        filtroActual = buildFilter();
+        if (inicioPaginas.isEmpty()) {
+            inicioPaginas.add(null);
+        }
 
-        // Aplicar filtros
-        String status = statusFilter.getValue();
-        LocalDate desde = fechaDesde.getValue();
-        LocalDate hasta = fechaHasta.getValue();
-        String busquedaProducto = searchField.getText().trim().toLowerCase();
+        SaleFilter filtro = filtroActual;
+        int pagina = paginaActual;
+        SaleCursor inicio = inicioPaginas.get(pagina);
+        bloquearPaginacion();
+
+        ventasTask.submit("ventas.listar", () -> {
+            int total = saleDAO.count(filtro);
+            int paginas = Math.max(1, (int) Math.ceil((double) total / ITEMS_POR_PAGINA));
+            // Si la página actual ya no existe con el filtro nuevo, se vuelve a la primera
+            boolean reinicio = pagina >= paginas;
+            SalePage page = saleDAO.findPage(filtro, reinicio ? null : inicio, ITEMS_POR_PAGINA);
+            return new ResultadoVentas(paginas, reinicio, page);
+        }, resultado -> {
+            totalPaginas = resultado.paginas();
+            if (resultado.reinicio()) {
+                paginaActual = 0;
+            }
+            mostrarPagina(resultado.page());
+        }, this::errorCargandoVentas);
+    }
 
-        if (desde != null && hasta != null) {
-            sales = saleDAO.findByDateRange(desde, hasta);
-        } else if ("Completadas".equals(status)) {
-            sales = saleDAO.findCompleted();
-        } else if ("Anuladas".equals(status)) {
-            sales = saleDAO.findCancelled();
-        } else {
-            sales = saleDAO.findAll();
-        }
+    /**
+     * Carga la página actual desde su cursor; cuesta lo mismo en cualquier página.
+     */
+    private void loadPage() {
+        SaleFilter filtro = filtroActual;
+        SaleCursor inicio = inicioPaginas.get(paginaActual);
+        bloquearPaginacion();
+
+        ventasTask.submit("ventas.pagina",
+            () -> saleDAO.findPage(filtro, inicio, ITEMS_POR_PAGINA),
+            this::mostrarPagina,
+            this::errorCargandoVentas);
+    }
 
-        // Filtrar por status si hay rango de fechas
-        if (desde != null && hasta != null && !"Todos".equals(status)) {
-            String statusVal = "Completadas".equals(status) ? "completed" : "cancelled";
-            sales = sales.stream()
-                .filter(s -> s.getStatus().equals(statusVal))
-                .toList();
-        }
+    private void mostrarPagina(SalePage page) {
+        siguienteCursor = page.next();
+        salesList.setAll(page.sales());
 
-        // Cargar items para cada venta (para mostrar cantidad y para filtrar)
-        sales = sales.stream()
-            .map(s -> saleDAO.findById(s.getId()).orElse(s))
-            .toList();
-
-        // Filtrar por producto si hay búsqueda
-        if (!busquedaProducto.isEmpty()) {
-            sales = sales.stream()
-                .filter(s -> s.getItems().stream()
-                    .anyMatch(item ->
-                        (item.getProductName() != null && item.getProductName().toLowerCase().contains(busquedaProducto)) ||
-                        (item.getVariantName() != null && item.getVariantName().toLowerCase().contains(busquedaProducto)) ||
-                        (item.getDisplayName() != null && item.getDisplayName().toLowerCase().contains(busquedaProducto))
-                    ))
-                .toList();
-        }
+        updatePagination();
+    }
 
-        // Paginación
-        int total = sales.size();
-        totalPaginas = (int) Math.ceil((double) total / ITEMS_POR_PAGINA);
-        if (totalPaginas == 0) totalPaginas = 1;
+    private void errorCargandoVentas(Throwable e) {
+        updatePagination();
+        showAlert("Error", "No se pudieron cargar las ventas: " + e.getMessage(), Alert.AlertType.ERROR);
+    }
+
+    /**
+     * Evita cambiar de página mientras se espera la consulta anterior.
+     */
+    private void bloquearPaginacion() {
+        btnAnterior.setDisable(true);
+        btnSiguiente.setDisable(true);
+    }
 
-        int desde_idx = paginaActual * ITEMS_POR_PAGINA;
-        int hasta_idx = Math.min(desde_idx + ITEMS_POR_PAGINA, total);
+    private record ResumenVentas(PeriodTotals hoy, BigDecimal totalMes) {}
+
+    private record ResultadoVentas(int paginas, boolean reinicio, SalePage page) {}
+
+    private SaleFilter buildFilter() {
+        String status = statusFilter.getValue();
+        LocalDate desde = fechaDesde.getValue();
+        LocalDate hasta = fechaHasta.getValue();
 
-        salesList.clear();
-        if (desde_idx < total) {
-            salesList.addAll(sales.subList(desde_idx, hasta_idx));
+        SaleFilter.Builder filter = new SaleFilter.Builder()
+            .product(searchField.getText());
+        if ("Completadas".equals(status)) {
+            filter.status("completed");
+        } else if ("Anuladas".equals(status)) {
+            filter.status("cancelled");
         }
+        if (desde != null && hasta != null) {
+            filter.period(SalePeriod.range(desde, hasta));
+        }
+        filter.userId(vendedores.get(vendedorFilter.getValue()));
+        return filter.build();
+    }
 
-        updatePagination();
+    private void resetPagination() {
+        paginaActual = 0;
+        inicioPaginas.clear();
     }
 
     private void updatePagination() {
         paginaLabel.setText("Pagina " + (paginaActual + 1) + " de " + totalPaginas);
         btnAnterior.setDisable(paginaActual == 0);
-        btnSiguiente.setDisable(paginaActual >= totalPaginas - 1);
+        btnSiguiente.setDisable(siguienteCursor == null);
     }
 
     @FXML
@@ -295,13 +385,13 @@ public class SalesController {
 
     @FXML
     public void handleFiltrar() {
-        paginaActual = 0;
+        resetPagination();
         loadSales();
     }
 
     @FXML
     public void handleBuscarProducto() {
-        paginaActual = 0;
+        resetPagination();
         loadSales();
     }
 
@@ -310,8 +400,9 @@ public class SalesController {
         fechaDesde.setValue(null);
         fechaHasta.setValue(null);
         statusFilter.setValue("Todos");
+        vendedorFilter.setValue("Todos");
         searchField.clear();
-        paginaActual = 0;
+        resetPagination();
         loadSales();
     }
 
@@ -319,33 +410,35 @@ public class SalesController {
     public void handlePaginaAnterior() {
         if (paginaActual > 0) {
             paginaActual--;
-            loadSales();
+            loadPage();
         }
     }
 
     @FXML
     public void handlePaginaSiguiente() {
-        if (paginaActual < totalPaginas - 1) {
+        if (siguienteCursor != null) {
             paginaActual++;
-            loadSales();
+            // Descartar cursores de un recorrido anterior desde esta página
+            inicioPaginas.subList(paginaActual, inicioPaginas.size()).clear();
+            inicioPaginas.add(siguienteCursor);
+            loadPage();
         }
     }
 
     private void handleViewDetail(Sale sale) {
-        Optional<Sale> saleCompleta = saleDAO.findById(sale.getId());
-        if (saleCompleta.isEmpty()) {
-            showAlert("Error", "No se pudo cargar la venta", Alert.AlertType.ERROR);
-            return;
-        }
-
-        Sale s = saleCompleta.get();
-        SaleEditDialog editDialog = new SaleEditDialog(s, saleDAO);
+        detalleTask.submit("ventas.detalle", () -> saleDAO.findById(sale.getId()), saleCompleta -> {
+            if (saleCompleta.isEmpty()) {
+                showAlert("Error", "No se pudo cargar la venta", Alert.AlertType.ERROR);
+                return;
+            }
 
-        if (editDialog.showAndWait()) {
-            showAlert("Éxito", "Venta actualizada correctamente", Alert.AlertType.INFORMATION);
-            loadStats();
-            loadSales();
-        }
+            SaleEditDialog editDialog = new SaleEditDialog(saleCompleta.get(), saleDAO);
+            if (editDialog.showAndWait()) {
+                showAlert("Éxito", "Venta actualizada correctamente", Alert.AlertType.INFORMATION);
+                loadStats();
+                loadSales();
+            }
+        }, e -> showAlert("Error", "No se pudo cargar la venta: " + e.getMessage(), Alert.AlertType.ERROR));
     }
 
     private void handleCancelSale(Sale sale) {
@@ -361,14 +454,13 @@ public class SalesController {
 
         Optional<ButtonType> result = confirm.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            try {
+            modificarVenta("ventas.anular", () -> {
                 saleDAO.cancel(sale.getId());
-                showAlert("Éxito", "Venta anulada correctamente", Alert.AlertType.INFORMATION);
-                loadStats();
-                loadSales();
-            } catch (Exception e) {
-                showAlert("Error", "No se pudo anular la venta: " + e.getMessage(), Alert.AlertType.ERROR);
-            }
+                // El stock vuelve a las variantes vendidas
+                CatalogIndex.getInstance().refreshVariants(
+                    sale.getItems().stream().map(SaleItem::getVariantId).toList());
+                return null;
+            }, "Venta anulada correctamente", "No se pudo anular la venta: ");
         }
     }
 
@@ -385,17 +477,30 @@ public class SalesController {
 
         Optional<ButtonType> result = confirm.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            try {
+            modificarVenta("ventas.eliminar", () -> {
                 saleDAO.delete(sale.getId());
-                showAlert("Éxito", "Venta eliminada correctamente", Alert.AlertType.INFORMATION);
-                loadStats();
-                loadSales();
-            } catch (Exception e) {
-                showAlert("Error", "No se pudo eliminar la venta: " + e.getMessage(), Alert.AlertType.ERROR);
-            }
+                return null;
+            }, "Venta eliminada correctamente", "No se pudo eliminar la venta: ");
         }
     }
 
+    /**
+     * Corre un cambio de una venta en segundo plano y, al terminar, avisa y
+     * recarga la pantalla. No usa un {@link TaskSlot}: un cambio no se
+     * descarta porque el usuario haga otro.
+     */
+    private void modificarVenta(String nombre, Callable<Void> cambio, String exito, String error) {
+        BackgroundTasks.getInstance().supply(nombre, cambio).whenComplete((r, e) -> Platform.runLater(() -> {
+            if (e != null) {
+                showAlert("Error", error + e.getMessage(), Alert.AlertType.ERROR);
+                return;
+            }
+            showAlert("Éxito", exito, Alert.AlertType.INFORMATION);
+            loadStats();
+            loadSales();
+        }));
+    }
+
     private void showAlert(String title, String message, Alert.AlertType type) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
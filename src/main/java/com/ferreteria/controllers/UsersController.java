@@ -5,6 +5,8 @@ import com.ferreteria.models.UserRole;
 import com.ferreteria.models.dao.DatabaseConfig;
 import com.ferreteria.models.dao.UserDAO;
 import com.ferreteria.utils.SessionManager;
+import com.ferreteria.utils.TaskSlot;
+import com.ferreteria.utils.ViewLifecycle;
 
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -22,7 +24,7 @@ import java.util.Optional;
  * Controller for user management screen.
  * Only accessible by administrators.
  */
-public class UsersController {
+public class UsersController implements ViewLifecycle {
 
     @FXML private NavbarController navbarController;
 
@@ -50,6 +52,7 @@ public class UsersController {
     private UserDAO userDAO;
     private ObservableList<User> usersList;
     private User selectedUser;
+    private final TaskSlot carga = new TaskSlot();
 
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
@@ -70,7 +73,23 @@ public class UsersController {
         setupRoleCombo();
         setupShowPassword();
         setupTable();
-        loadUsers();
+    }
+
+    @Override
+    public void onShow() {
+        if (userDAO != null) {
+            loadUsers();
+        }
+    }
+
+    /**
+     * La pantalla queda cargada: no se deja en el formulario una contraseña escrita.
+     */
+    @Override
+    public void onHide() {
+        if (userDAO != null) {
+            handleClear();
+        }
     }
 
     private void setupShowPassword() {
@@ -144,8 +163,8 @@ public class UsersController {
     }
 
     private void loadUsers() {
-        usersList.clear();
-        usersList.addAll(userDAO.findAll());
+        carga.submit("usuarios.listar", userDAO::findAll, usersList::setAll,
+            e -> showMessage("Error cargando usuarios: " + e.getMessage(), true));
     }
 
     private void loadUserToForm(User user) {
@@ -372,13 +391,14 @@ public class UsersController {
             return;
         }
 
-        List<User> filtered = userDAO.findAll().stream()
-            .filter(u -> u.getUsername().toLowerCase().contains(search) ||
-                        (u.getFullName() != null && u.getFullName().toLowerCase().contains(search)))
-            .toList();
-
-        usersList.clear();
-        usersList.addAll(filtered);
+        // Mismo slot que loadUsers(): una carga completa pendiente no pisa el filtro
+        carga.submit("usuarios.buscar",
+            () -> userDAO.findAll().stream()
+                .filter(u -> u.getUsername().toLowerCase().contains(search) ||
+                            (u.getFullName() != null && u.getFullName().toLowerCase().contains(search)))
+                .toList(),
+            usersList::setAll,
+            e -> showMessage("Error buscando usuarios: " + e.getMessage(), true));
     }
 
     @FXML
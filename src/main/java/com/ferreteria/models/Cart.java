@@ -0,0 +1,200 @@
+package com.ferreteria.models;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shopping cart of the point of sale.
+ *
+ * Lines are keyed by variant id, so adding a product that is already in the
+ * cart finds its line without scanning. The subtotal, the number of units and
+ * the amounts typed for each payment method are kept as running totals: every
+ * change adjusts them by the difference instead of walking the cart again.
+ *
+ * {@link #getItems()} is observable. A quantity change is published as the
+ * replacement of that single line, so a list view only redraws that row, and
+ * totals are already up to date when listeners run. Quantities must be changed
+ * through the cart, never on the {@link CartItem} directly.
+ */
+public class Cart {
+
+    private final ObservableList<CartItem> items = FXCollections.observableArrayList();
+    private final ObservableList<CartItem> readOnlyItems = FXCollections.unmodifiableObservableList(items);
+    private final Map<Integer, CartItem> byVariant = new HashMap<>();
+    private final Map<SalePayment.PaymentMethod, Money> payments = new EnumMap<>(SalePayment.PaymentMethod.class);
+
+    private long subtotalCents;
+    private int unitCount;
+    private long paidCents;
+
+    /**
+     * Lines of the cart, in the order they were added. Read-only; use the
+     * cart methods to change it.
+     */
+    public ObservableList<CartItem> getItems() {
+        return readOnlyItems;
+    }
+
+    /**
+     * Line of a variant, or null if it is not in the cart.
+     */
+    public CartItem find(int variantId) {
+        return byVariant.get(variantId);
+    }
+
+    /**
+     * Units of a variant already in the cart (0 if none).
+     */
+    public int quantityOf(int variantId) {
+        CartItem item = byVariant.get(variantId);
+        return item != null ? item.getQuantity() : 0;
+    }
+
+    /**
+     * Adds units of a variant: joins the existing line or appends a new one.
+     * Stock is not checked here.
+     *
+     * @return the line of the variant
+     */
+    public CartItem add(ProductVariant variant, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        CartItem existing = byVariant.get(variant.getId());
+        if (existing != null) {
+            setQuantity(existing, existing.getQuantity() + quantity);
+            return existing;
+        }
+
+        CartItem item = new CartItem(variant, quantity);
+        byVariant.put(variant.getId(), item);
+        subtotalCents = Math.addExact(subtotalCents, item.getSubtotal().cents());
+        unitCount += quantity;
+        items.add(item);
+        return item;
+    }
+
+    /**
+     * Changes the quantity of a line. Zero or less removes it.
+     */
+    public void setQuantity(CartItem item, int quantity) {
+        if (quantity <= 0) {
+            remove(item);
+            return;
+        }
+        int index = indexOf(item);
+        if (quantity == item.getQuantity()) {
+            return;
+        }
+
+        long before = item.getSubtotal().cents();
+        unitCount += quantity - item.getQuantity();
+        item.setQuantity(quantity);
+        subtotalCents = Math.addExact(subtotalCents, item.getSubtotal().cents() - before);
+        items.set(index, item);
+    }
+
+    /**
+     * Removes a line from the cart.
+     */
+    public void remove(CartItem item) {
+        int index = indexOf(item);
+        byVariant.remove(item.getVariantId());
+        subtotalCents -= item.getSubtotal().cents();
+        unitCount -= item.getQuantity();
+        items.remove(index);
+    }
+
+    /**
+     * Removes every line. Payment amounts are kept.
+     */
+    public void clear() {
+        byVariant.clear();
+        subtotalCents = 0;
+        unitCount = 0;
+        items.clear();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    /**
+     * Number of lines (different variants).
+     */
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Number of units across all lines.
+     */
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    public Money getTotal() {
+        return Money.ofCents(subtotalCents);
+    }
+
+    /**
+     * Sets the amount entered for a payment method. Null or zero removes it.
+     */
+    public void setPayment(SalePayment.PaymentMethod method, Money amount) {
+        Money previous = payments.getOrDefault(method, Money.ZERO);
+        Money current = amount != null ? amount : Money.ZERO;
+        paidCents = Math.addExact(paidCents, current.cents() - previous.cents());
+        if (current.isZero()) {
+            payments.remove(method);
+        } else {
+            payments.put(method, current);
+        }
+    }
+
+    public Money getPayment(SalePayment.PaymentMethod method) {
+        return payments.getOrDefault(method, Money.ZERO);
+    }
+
+    public void clearPayments() {
+        payments.clear();
+        paidCents = 0;
+    }
+
+    /**
+     * Sum of the amounts entered for all payment methods.
+     */
+    public Money getPaid() {
+        return Money.ofCents(paidCents);
+    }
+
+    /**
+     * Total minus payments: positive if something is still missing, negative
+     * if the payments exceed the total.
+     */
+    public Money getRemaining() {
+        return Money.ofCents(Math.subtractExact(subtotalCents, paidCents));
+    }
+
+    /**
+     * Amount a payment method has to cover so that, together with the other
+     * methods, the total is exactly paid.
+     */
+    public Money getRemainingFor(SalePayment.PaymentMethod method) {
+        long others = paidCents - getPayment(method).cents();
+        return Money.ofCents(Math.subtractExact(subtotalCents, others));
+    }
+
+    // Helper methods
+
+    private int indexOf(CartItem item) {
+        if (byVariant.get(item.getVariantId()) != item) {
+            throw new IllegalArgumentException("Item is not in the cart: " + item.getVariantId());
+        }
+        // Identity search: lines don't override equals
+        return items.indexOf(item);
+    }
+}
@@ -1,17 +1,21 @@
 package com.ferreteria.models;
 
-import java.math.BigDecimal;
-
 /**
  * Represents an item in the shopping cart.
+ * The unit price is converted to {@link Money} once, and the subtotal is only
+ * recalculated when the quantity changes. Quantities are changed through
+ * {@link Cart}, which keeps the cart totals in step.
  */
 public class CartItem {
     private ProductVariant variant;
+    private final Money unitPrice;
     private int quantity;
+    private Money subtotal;
 
     public CartItem(ProductVariant variant, int quantity) {
         this.variant = variant;
-        this.quantity = quantity;
+        this.unitPrice = Money.of(variant.getSalePrice());
+        setQuantity(quantity);
     }
 
     public ProductVariant getVariant() {
@@ -22,22 +26,17 @@ public class CartItem {
         return quantity;
     }
 
-    public void setQuantity(int quantity) {
+    void setQuantity(int quantity) {
         this.quantity = quantity;
+        this.subtotal = unitPrice.times(quantity);
     }
 
-    public void incrementQuantity(int amount) {
-        this.quantity += amount;
-    }
-
-    public void decrementQuantity() {
-        if (this.quantity > 1) {
-            this.quantity--;
-        }
+    public Money getUnitPrice() {
+        return unitPrice;
     }
 
-    public BigDecimal getSubtotal() {
-        return variant.getSalePrice().multiply(BigDecimal.valueOf(quantity));
+    public Money getSubtotal() {
+        return subtotal;
     }
 
     public int getVariantId() {
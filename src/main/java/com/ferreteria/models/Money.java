@@ -0,0 +1,221 @@
+package com.ferreteria.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Immutable amount of money stored as a whole number of cents.
+ *
+ * Arithmetic is exact: sums and multiplications by a quantity never round, and
+ * they throw {@link ArithmeticException} on overflow instead of wrapping. Amounts
+ * only get rounded when they come in with more than two decimals (from the
+ * database or from user input), always to the nearest cent with ties away
+ * from zero (HALF_UP). {@link BigDecimal} is only used at the JDBC boundary
+ * ({@link #of(BigDecimal)} and {@link #toBigDecimal()}).
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    /**
+     * Amount from a number of cents.
+     */
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Amount from a database value, rounded to cents (HALF_UP). Null is zero.
+     */
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            return ZERO;
+        }
+        return ofCents(amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Parses an amount typed by the user: ignores "$", spaces and "," (thousands
+     * separators) and uses "." as the decimal point. Extra decimals are rounded
+     * to cents (HALF_UP).
+     *
+     * @throws NumberFormatException if the text is empty or not a number
+     */
+    public static Money parse(String text) {
+        long whole = 0;
+        int decimals = -1;
+        long fraction = 0;
+        boolean roundUp = false;
+        boolean negative = false;
+        boolean digits = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '$' || c == ',' || Character.isWhitespace(c)) {
+                continue;
+            }
+            if (c == '-' && !digits && decimals < 0 && !negative) {
+                negative = true;
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits = true;
+                int digit = c - '0';
+                if (decimals < 0) {
+                    whole = Math.addExact(Math.multiplyExact(whole, 10), digit);
+                } else if (decimals < 2) {
+                    fraction = fraction * 10 + digit;
+                    decimals++;
+                } else if (decimals == 2) {
+                    roundUp = digit >= 5;
+                    decimals++;
+                }
+            } else {
+                throw new NumberFormatException("Invalid amount: " + text);
+            }
+        }
+        if (!digits) {
+            throw new NumberFormatException("Invalid amount: " + text);
+        }
+
+        if (decimals == 1) {
+            fraction *= 10;
+        }
+        long cents = Math.addExact(Math.multiplyExact(whole, 100), fraction + (roundUp ? 1 : 0));
+        return ofCents(negative ? -cents : cents);
+    }
+
+    /**
+     * Like {@link #parse}, but empty or invalid text is zero (for fields that
+     * are validated as the user types). Empty fields are the common case, so
+     * they are answered without going through an exception.
+     */
+    public static Money parseOrZero(String text) {
+        if (text == null || isBlank(text)) {
+            return ZERO;
+        }
+        try {
+            return parse(text);
+        } catch (NumberFormatException | ArithmeticException e) {
+            return ZERO;
+        }
+    }
+
+    public long cents() {
+        return cents;
+    }
+
+    public Money plus(Money other) {
+        return other.cents == 0 ? this : ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return other.cents == 0 ? this : ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    /**
+     * Amount times a quantity (line subtotal).
+     */
+    public Money times(int quantity) {
+        return quantity == 1 ? this : ofCents(Math.multiplyExact(cents, quantity));
+    }
+
+    public Money abs() {
+        return cents >= 0 ? this : ofCents(Math.negateExact(cents));
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public boolean isNegative() {
+        return cents < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return cents < other.cents;
+    }
+
+    /**
+     * Value for JDBC, with two decimals.
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Amount with thousands grouping and two decimals in the default locale,
+     * the same text as {@code String.format("%,.2f", amount)}.
+     */
+    public String format() {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+        return appendDigits(new StringBuilder(16), symbols.getGroupingSeparator(), symbols.getDecimalSeparator())
+            .toString();
+    }
+
+    /**
+     * Plain amount with "." and two decimals (for editable fields; {@link #parse} reads it back).
+     */
+    @Override
+    public String toString() {
+        return appendDigits(new StringBuilder(16), '\0', '.').toString();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && cents == other.cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    // Helper methods
+
+    private static boolean isBlank(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '$' && c != ',' && !Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private StringBuilder appendDigits(StringBuilder sb, char grouping, char decimalPoint) {
+        if (cents < 0) {
+            sb.append('-');
+        }
+        long abs = cents < 0 ? Math.negateExact(cents) : cents;
+        String whole = Long.toString(abs / 100);
+        long fraction = abs % 100;
+        for (int i = 0; i < whole.length(); i++) {
+            if (grouping != '\0' && i > 0 && (whole.length() - i) % 3 == 0) {
+                sb.append(grouping);
+            }
+            sb.append(whole.charAt(i));
+        }
+        sb.append(decimalPoint);
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+}
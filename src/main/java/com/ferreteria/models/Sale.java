@@ -1,6 +1,5 @@
 package com.ferreteria.models;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -15,7 +14,7 @@ public class Sale {
 
     private final int id;
     private final int userId;
-    private final BigDecimal total;
+    private final Money total;
     private final String status;
     private final String notes;
     private final LocalDateTime createdAt;
@@ -40,7 +39,7 @@ public class Sale {
     // Getters
     public int getId() { return id; }
     public int getUserId() { return userId; }
-    public BigDecimal getTotal() { return total; }
+    public Money getTotal() { return total; }
     public String getStatus() { return status; }
     public String getNotes() { return notes; }
     public LocalDateTime getCreatedAt() { return createdAt; }
@@ -68,10 +67,12 @@ public class Sale {
      * Calculates total based on items.
      * @return sum of subtotals of all items
      */
-    public BigDecimal calculateTotal() {
-        return items.stream()
-            .map(SaleItem::getSubtotal)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public Money calculateTotal() {
+        long cents = 0;
+        for (SaleItem item : items) {
+            cents = Math.addExact(cents, item.getSubtotal().cents());
+        }
+        return Money.ofCents(cents);
     }
 
     /**
@@ -88,10 +89,12 @@ public class Sale {
      * Calculates total paid amount.
      * @return sum of all payments
      */
-    public BigDecimal getTotalPaid() {
-        return payments.stream()
-            .map(SalePayment::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public Money getTotalPaid() {
+        long cents = 0;
+        for (SalePayment payment : payments) {
+            cents = Math.addExact(cents, payment.getAmount().cents());
+        }
+        return Money.ofCents(cents);
     }
 
     /**
@@ -99,24 +102,23 @@ public class Sale {
      * @return true if total paid >= sale total
      */
     public boolean isPaid() {
-        return getTotalPaid().compareTo(total) >= 0;
+        return !getTotalPaid().isLessThan(total);
     }
 
     /**
      * Gets pending balance.
      * @return total - totalPaid
      */
-    public BigDecimal getPendingBalance() {
-        BigDecimal paid = getTotalPaid();
-        BigDecimal pending = total.subtract(paid);
-        return pending.compareTo(BigDecimal.ZERO) < 0 ? BigDecimal.ZERO : pending;
+    public Money getPendingBalance() {
+        Money pending = total.minus(getTotalPaid());
+        return pending.isNegative() ? Money.ZERO : pending;
     }
 
     // Builder Pattern
     public static class Builder {
         private int id;
         private int userId;
-        private BigDecimal total = BigDecimal.ZERO;
+        private Money total = Money.ZERO;
         private String status = "completed";
         private String notes;
         private LocalDateTime createdAt = LocalDateTime.now();
@@ -134,7 +136,7 @@ public class Sale {
             return this;
         }
 
-        public Builder total(BigDecimal total) {
+        public Builder total(Money total) {
             this.total = total;
             return this;
         }
@@ -188,7 +190,7 @@ public class Sale {
             if (userId <= 0) {
                 throw new IllegalArgumentException("User is required");
             }
-            if (total.compareTo(BigDecimal.ZERO) < 0) {
+            if (total.isNegative()) {
                 throw new IllegalArgumentException("Total cannot be negative");
             }
         }
@@ -1,6 +1,5 @@
 package com.ferreteria.models;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 /**
@@ -13,8 +12,8 @@ public class SaleItem {
     private final int saleId;
     private final int variantId;
     private final int quantity;
-    private final BigDecimal unitPrice;
-    private final BigDecimal subtotal;
+    private final Money unitPrice;
+    private final Money subtotal;
     private final LocalDateTime createdAt;
 
     // Additional fields to display product info (not persisted)
@@ -38,8 +37,8 @@ public class SaleItem {
     public int getSaleId() { return saleId; }
     public int getVariantId() { return variantId; }
     public int getQuantity() { return quantity; }
-    public BigDecimal getUnitPrice() { return unitPrice; }
-    public BigDecimal getSubtotal() { return subtotal; }
+    public Money getUnitPrice() { return unitPrice; }
+    public Money getSubtotal() { return subtotal; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public String getProductName() { return productName; }
     public String getVariantName() { return variantName; }
@@ -59,8 +58,8 @@ public class SaleItem {
      * Calculates subtotal based on quantity and unit price.
      * @return quantity * unitPrice
      */
-    public BigDecimal calculateSubtotal() {
-        return unitPrice.multiply(BigDecimal.valueOf(quantity));
+    public Money calculateSubtotal() {
+        return unitPrice.times(quantity);
     }
 
     // Builder Pattern
@@ -69,8 +68,8 @@ public class SaleItem {
         private int saleId;
         private int variantId;
         private int quantity = 1;
-        private BigDecimal unitPrice = BigDecimal.ZERO;
-        private BigDecimal subtotal = BigDecimal.ZERO;
+        private Money unitPrice = Money.ZERO;
+        private Money subtotal = Money.ZERO;
         private LocalDateTime createdAt = LocalDateTime.now();
         private String productName;
         private String variantName;
@@ -95,12 +94,12 @@ public class SaleItem {
             return this;
         }
 
-        public Builder unitPrice(BigDecimal unitPrice) {
+        public Builder unitPrice(Money unitPrice) {
             this.unitPrice = unitPrice;
             return this;
         }
 
-        public Builder subtotal(BigDecimal subtotal) {
+        public Builder subtotal(Money subtotal) {
             this.subtotal = subtotal;
             return this;
         }
@@ -125,7 +124,7 @@ public class SaleItem {
          * @return this builder with calculated subtotal
          */
         public Builder calculateSubtotal() {
-            this.subtotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
+            this.subtotal = unitPrice.times(quantity);
             return this;
         }
 
@@ -141,7 +140,7 @@ public class SaleItem {
             if (quantity <= 0) {
                 throw new IllegalArgumentException("Quantity must be greater than 0");
             }
-            if (unitPrice.compareTo(BigDecimal.ZERO) < 0) {
+            if (unitPrice.isNegative()) {
                 throw new IllegalArgumentException("Unit price cannot be negative");
             }
         }
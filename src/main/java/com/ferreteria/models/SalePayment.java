@@ -1,6 +1,5 @@
 package com.ferreteria.models;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 /**
@@ -13,7 +12,7 @@ public class SalePayment {
     private final int id;
     private final int saleId;
     private final PaymentMethod paymentMethod;
-    private final BigDecimal amount;
+    private final Money amount;
     private final String reference;
     private final LocalDateTime createdAt;
 
@@ -30,7 +29,7 @@ public class SalePayment {
     public int getId() { return id; }
     public int getSaleId() { return saleId; }
     public PaymentMethod getPaymentMethod() { return paymentMethod; }
-    public BigDecimal getAmount() { return amount; }
+    public Money getAmount() { return amount; }
     public String getReference() { return reference; }
     public LocalDateTime getCreatedAt() { return createdAt; }
 
@@ -80,7 +79,7 @@ public class SalePayment {
         private int id;
         private int saleId;
         private PaymentMethod paymentMethod = PaymentMethod.CASH;
-        private BigDecimal amount = BigDecimal.ZERO;
+        private Money amount = Money.ZERO;
         private String reference;
         private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -104,7 +103,7 @@ public class SalePayment {
             return this;
         }
 
-        public Builder amount(BigDecimal amount) {
+        public Builder amount(Money amount) {
             this.amount = amount;
             return this;
         }
@@ -125,7 +124,7 @@ public class SalePayment {
         }
 
         private void validate() {
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            if (!amount.isPositive()) {
                 throw new IllegalArgumentException("Amount must be greater than 0");
             }
             if (paymentMethod == null) {
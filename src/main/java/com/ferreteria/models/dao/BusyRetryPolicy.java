@@ -0,0 +1,95 @@
+package com.ferreteria.models.dao;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reintenta operaciones de escritura cuando SQLite responde SQLITE_BUSY o
+ * SQLITE_LOCKED después de agotar el busy_timeout (por ejemplo, durante un
+ * checkpoint o si otro proceso tiene la base abierta).
+ *
+ * La operación debe ser una transacción completa: en cada intento se vuelve
+ * a ejecutar desde el principio.
+ */
+public class BusyRetryPolicy {
+
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+
+    /**
+     * Unidad de trabajo que puede fallar con SQLException.
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run() throws SQLException;
+    }
+
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final AtomicLong retries = new AtomicLong();
+
+    /**
+     * @param maxAttempts cantidad total de intentos (1 = sin reintentos)
+     * @param backoffMs espera antes del primer reintento; se duplica en cada uno
+     */
+    public BusyRetryPolicy(int maxAttempts, long backoffMs) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = Math.max(0, backoffMs);
+    }
+
+    /**
+     * Ejecuta la operación reintentando mientras la base esté ocupada.
+     *
+     * @param work transacción a ejecutar
+     * @return resultado de la operación
+     * @throws SQLException el último error si se agotan los intentos, o cualquier otro error
+     */
+    public <T> T execute(SqlWork<T> work) throws SQLException {
+        long wait = backoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.run();
+            } catch (SQLException e) {
+                if (attempt >= maxAttempts || !isBusy(e)) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                System.err.println("Base de datos ocupada, reintento " + attempt + "/" + (maxAttempts - 1)
+                    + " en " + wait + " ms");
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                wait *= 2;
+            }
+        }
+    }
+
+    /**
+     * Total de reintentos realizados desde el inicio.
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Indica si el error (o alguna de sus causas) es SQLITE_BUSY/SQLITE_LOCKED.
+     */
+    public static boolean isBusy(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql) {
+                int code = sql.getErrorCode() & 0xFF;
+                if (code == SQLITE_BUSY || code == SQLITE_LOCKED) {
+                    return true;
+                }
+                String message = sql.getMessage();
+                if (message != null && (message.contains("SQLITE_BUSY") || message.contains("SQLITE_LOCKED"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
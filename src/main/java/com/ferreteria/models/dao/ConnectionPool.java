@@ -0,0 +1,466 @@
+package com.ferreteria.models.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool de conexiones SQLite.
+ *
+ * SQLite admite un único escritor a la vez, así que el pool mantiene una sola
+ * conexión de escritura (serializada con un lock justo) y un conjunto acotado
+ * de conexiones de lectura. Las conexiones entregadas son envoltorios: cerrarlas
+ * las devuelve al pool en lugar de cerrar el archivo.
+ *
+ * Un mismo hilo puede pedir conexiones anidadas (por ejemplo, un DAO que llama
+ * a otro dentro de una transacción): recibe la conexión que ya tiene, y si tiene
+ * la de escritura, las lecturas también usan esa para ver sus propios cambios.
+ */
+public class ConnectionPool {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    /**
+     * Abre una conexión física nueva ya configurada.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private enum Kind { READ, WRITE }
+
+    private final ConnectionFactory factory;
+    private final int maxReaders;
+    private final int statementCacheSize;
+    private final long checkoutTimeoutMs;
+    private final long leakThresholdMs;
+
+    private final ReentrantLock writerLock = new ReentrantLock(true);
+    private PhysicalConnection writer;
+
+    private final BlockingQueue<PhysicalConnection> idleReaders;
+    private final AtomicInteger openReaders = new AtomicInteger();
+
+    private final ThreadLocal<Lease> writeLease = new ThreadLocal<>();
+    private final ThreadLocal<Lease> readLease = new ThreadLocal<>();
+    private final Set<Lease> activeLeases = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService leakDetector;
+    private volatile boolean shutdown = false;
+
+    // Métricas
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong nestedCheckouts = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    /**
+     * @param factory crea conexiones físicas
+     * @param maxReaders máximo de conexiones de lectura abiertas
+     * @param checkoutTimeoutMs tiempo máximo de espera por una conexión
+     * @param leakThresholdMs tiempo tras el cual una conexión no devuelta se reporta como fuga
+     * @param statementCacheSize sentencias preparadas cacheadas por conexión (0 = sin caché)
+     */
+    public ConnectionPool(ConnectionFactory factory, int maxReaders, long checkoutTimeoutMs,
+                          long leakThresholdMs, int statementCacheSize) {
+        if (maxReaders < 1) {
+            throw new IllegalArgumentException("Se requiere al menos una conexión de lectura");
+        }
+        this.factory = factory;
+        this.maxReaders = maxReaders;
+        this.checkoutTimeoutMs = checkoutTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.statementCacheSize = statementCacheSize;
+        this.idleReaders = new ArrayBlockingQueue<>(maxReaders);
+
+        this.leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-leak-detector");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, leakThresholdMs / 2);
+        leakDetector.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtiene la conexión de escritura. Bloquea hasta que ningún otro hilo la tenga.
+     *
+     * @return conexión que debe cerrarse para liberarla
+     * @throws SQLException si se agota el tiempo de espera
+     */
+    public Connection getWriteConnection() throws SQLException {
+        Lease lease = writeLease.get();
+        if (lease != null) {
+            return nested(lease);
+        }
+        ensureOpen();
+
+        long start = System.nanoTime();
+        boolean locked;
+        try {
+            locked = writerLock.tryLock(checkoutTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando la conexión de escritura", e);
+        }
+        if (!locked) {
+            timeouts.incrementAndGet();
+            throw new SQLException("Tiempo de espera agotado (" + checkoutTimeoutMs
+                + " ms) esperando la conexión de escritura");
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            if (writer == null || writer.raw().isClosed()) {
+                writer = openPhysical();
+            }
+        } catch (SQLException | RuntimeException e) {
+            writerLock.unlock();
+            throw e;
+        }
+
+        lease = new Lease(Kind.WRITE, writer);
+        writeLease.set(lease);
+        activeLeases.add(lease);
+        return lease.newHandle();
+    }
+
+    /**
+     * Obtiene una conexión de lectura del pool.
+     * Si el hilo ya tiene la conexión de escritura, se reutiliza esa.
+     *
+     * @return conexión que debe cerrarse para devolverla al pool
+     * @throws SQLException si se agota el tiempo de espera
+     */
+    public Connection getReadConnection() throws SQLException {
+        Lease lease = writeLease.get();
+        if (lease == null) {
+            lease = readLease.get();
+        }
+        if (lease != null) {
+            return nested(lease);
+        }
+        ensureOpen();
+
+        long start = System.nanoTime();
+        PhysicalConnection physical = idleReaders.poll();
+        if (physical == null) {
+            physical = openReaderIfAllowed();
+        }
+        if (physical == null) {
+            try {
+                physical = idleReaders.poll(checkoutTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrumpido esperando una conexión de lectura", e);
+            }
+            if (physical == null) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Tiempo de espera agotado (" + checkoutTimeoutMs
+                    + " ms) esperando una conexión de lectura");
+            }
+        }
+        recordWait(System.nanoTime() - start);
+
+        if (physical.raw().isClosed()) {
+            openReaders.decrementAndGet();
+            physical = openReaderIfAllowed();
+            if (physical == null) {
+                throw new SQLException("No se pudo reabrir la conexión de lectura");
+            }
+        }
+
+        lease = new Lease(Kind.READ, physical);
+        readLease.set(lease);
+        activeLeases.add(lease);
+        return lease.newHandle();
+    }
+
+    /**
+     * Devuelve una foto de las métricas del pool.
+     */
+    public PoolStats getStats() {
+        long count = checkouts.get();
+        double avgWaitMs = count == 0 ? 0 : totalWaitNanos.get() / (double) count / 1_000_000.0;
+        return new PoolStats(
+            maxReaders,
+            openReaders.get(),
+            idleReaders.size(),
+            activeLeases.size(),
+            count,
+            nestedCheckouts.get(),
+            timeouts.get(),
+            leaksDetected.get(),
+            avgWaitMs,
+            maxWaitNanos.get() / 1_000_000.0,
+            statementCounters.hits.sum(),
+            statementCounters.misses.sum(),
+            statementCounters.evictions.sum()
+        );
+    }
+
+    /**
+     * Cierra todas las conexiones físicas. Las conexiones prestadas se cierran
+     * cuando sus dueños las devuelven.
+     */
+    public void shutdown() {
+        shutdown = true;
+        leakDetector.shutdownNow();
+
+        PhysicalConnection physical;
+        while ((physical = idleReaders.poll()) != null) {
+            closeQuietly(physical);
+        }
+
+        boolean locked = false;
+        try {
+            locked = writerLock.tryLock(checkoutTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (writer != null) {
+                closeQuietly(writer);
+                writer = null;
+            }
+        } finally {
+            if (locked) {
+                writerLock.unlock();
+            }
+        }
+    }
+
+    // Métodos privados
+
+    private void ensureOpen() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+    }
+
+    private Connection nested(Lease lease) {
+        nestedCheckouts.incrementAndGet();
+        return lease.newHandle();
+    }
+
+    private PhysicalConnection openPhysical() throws SQLException {
+        Connection raw = factory.open();
+        return new PhysicalConnection(raw, new StatementCache(raw, statementCacheSize, statementCounters));
+    }
+
+    private PhysicalConnection openReaderIfAllowed() throws SQLException {
+        while (true) {
+            int current = openReaders.get();
+            if (current >= maxReaders) {
+                return null;
+            }
+            if (openReaders.compareAndSet(current, current + 1)) {
+                try {
+                    return openPhysical();
+                } catch (SQLException | RuntimeException e) {
+                    openReaders.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void recordWait(long nanos) {
+        checkouts.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void release(Lease lease) {
+        activeLeases.remove(lease);
+        lease.physical.statements().releaseAll();
+        resetConnection(lease.physical.raw());
+
+        if (lease.kind == Kind.WRITE) {
+            writeLease.remove();
+            if (shutdown) {
+                closeQuietly(lease.physical);
+            }
+            writerLock.unlock();
+        } else {
+            readLease.remove();
+            if (shutdown || !idleReaders.offer(lease.physical)) {
+                openReaders.decrementAndGet();
+                closeQuietly(lease.physical);
+            }
+        }
+    }
+
+    /**
+     * Deja la conexión lista para el próximo uso: sin transacción abierta.
+     */
+    private void resetConnection(Connection raw) {
+        try {
+            if (!raw.isClosed() && !raw.getAutoCommit()) {
+                LOGGER.warning("Conexión devuelta con una transacción abierta; se revierte");
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Error restableciendo conexión devuelta al pool", e);
+        }
+    }
+
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+        for (Lease lease : activeLeases) {
+            if (!lease.leakReported && now - lease.checkedOutAt > leakThresholdMs) {
+                lease.leakReported = true;
+                leaksDetected.incrementAndGet();
+                LOGGER.log(Level.WARNING,
+                    "Posible fuga: conexión de " + (lease.kind == Kind.WRITE ? "escritura" : "lectura")
+                        + " retenida " + (now - lease.checkedOutAt) + " ms por el hilo '" + lease.ownerName + "'",
+                    lease.origin);
+            }
+        }
+    }
+
+    private static void closeQuietly(PhysicalConnection physical) {
+        physical.statements().closeAll();
+        try {
+            physical.raw().close();
+        } catch (SQLException e) {
+            System.err.println("Error cerrando conexión: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Préstamo de una conexión física a un hilo. Se libera cuando se cierran
+     * todos los envoltorios entregados (incluidos los anidados).
+     */
+    private final class Lease {
+        final Kind kind;
+        final PhysicalConnection physical;
+        final long checkedOutAt = System.currentTimeMillis();
+        final String ownerName = Thread.currentThread().getName();
+        final Throwable origin = new Throwable("Conexión obtenida aquí");
+        final Deque<Handle> handles = new ArrayDeque<>();
+        volatile boolean leakReported = false;
+
+        Lease(Kind kind, PhysicalConnection physical) {
+            this.kind = kind;
+            this.physical = physical;
+        }
+
+        Connection newHandle() {
+            Handle handle = new Handle(this);
+            handles.push(handle);
+            return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                handle);
+        }
+
+        void closeHandle(Handle handle) {
+            handles.remove(handle);
+            if (handles.isEmpty()) {
+                release(this);
+            }
+        }
+    }
+
+    /**
+     * Conexión física junto con su caché de sentencias.
+     */
+    private record PhysicalConnection(Connection raw, StatementCache statements) {}
+
+    /**
+     * Envoltorio entregado al llamador: intercepta close() para devolver la
+     * conexión al pool, prepareStatement() para usar la caché, y delega todo
+     * lo demás en la conexión física.
+     */
+    private static final class Handle implements InvocationHandler {
+        private final Lease lease;
+        private boolean closed = false;
+
+        Handle(Lease lease) {
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        lease.closeHandle(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || lease.physical.raw().isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + lease.kind + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("La conexión ya fue devuelta al pool");
+            }
+            if (method.getName().equals("prepareStatement") && args.length <= 2
+                    && (args.length == 1 || args[1] instanceof Integer)) {
+                int keys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                return lease.physical.statements().prepare((Connection) proxy, (String) args[0], keys);
+            }
+            try {
+                return method.invoke(lease.physical.raw(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Métricas del pool.
+     */
+    public record PoolStats(
+        int maxReaders,
+        int openReaders,
+        int idleReaders,
+        int activeLeases,
+        long checkouts,
+        long nestedCheckouts,
+        long timeouts,
+        long leaksDetected,
+        double avgWaitMs,
+        double maxWaitMs,
+        long statementHits,
+        long statementMisses,
+        long statementEvictions
+    ) {
+        public double statementHitRatio() {
+            long total = statementHits + statementMisses;
+            return total == 0 ? 0 : statementHits / (double) total;
+        }
+    }
+}
@@ -1,20 +1,35 @@
 package com.ferreteria.models.dao;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Map;
 
 /**
  * Configuración de conexión a la base de datos.
- * Singleton para gestionar la conexión.
+ * Singleton que administra el pool de conexiones: una de escritura y
+ * varias de lectura. Toda conexión obtenida debe cerrarse (try-with-resources)
+ * para devolverla al pool.
+ *
+ * Cada conexión se abre con los PRAGMA del {@link DatabaseProfile} configurado.
  */
 public class DatabaseConfig {
 
+    private static final long CHECKOUT_TIMEOUT_MS = 10_000;
+    private static final long LEAK_THRESHOLD_MS = 30_000;
+
     private static DatabaseConfig instance;
-    private Connection connection;
+    private ConnectionPool pool;
+    private SaleWriter saleWriter;
+    private ReportCache reportCache;
+    private SalesColumnStore salesColumns;
+    private MigrationEngine migrationEngine;
     private final String dbPath;
+    private final DatabaseProfile profile;
+    private final BusyRetryPolicy retryPolicy;
 
     private DatabaseConfig() {
         String userHome = System.getProperty("user.home");
@@ -25,7 +40,17 @@ public class DatabaseConfig {
             dir.mkdirs();
         }
 
-        this.dbPath = appDataDir + File.separator + "ferreteria.db";
+        this.profile = DatabaseProfile.load(dir.toPath());
+        if (profile.getDbPath() != null) {
+            this.dbPath = profile.getDbPath();
+            File parent = new File(dbPath).getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+        } else {
+            this.dbPath = appDataDir + File.separator + "ferreteria.db";
+        }
+        this.retryPolicy = new BusyRetryPolicy(profile.getRetryAttempts(), profile.getRetryBackoffMs());
     }
 
     public static synchronized DatabaseConfig getInstance() {
@@ -35,27 +60,152 @@ public class DatabaseConfig {
         return instance;
     }
 
+    /**
+     * Conexión de lectura del pool.
+     * Si el hilo actual ya tiene la conexión de escritura, se devuelve esa.
+     */
+    public Connection getReadConnection() throws SQLException {
+        return getPool().getReadConnection();
+    }
+
+    /**
+     * Conexión de escritura. Sólo un hilo a la vez puede tenerla.
+     */
+    public Connection getWriteConnection() throws SQLException {
+        return getPool().getWriteConnection();
+    }
+
+    /**
+     * Equivale a {@link #getWriteConnection()}; se mantiene para código que
+     * no distingue entre lectura y escritura.
+     */
     public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-            // Activar foreign keys en SQLite
-            Statement stmt = connection.createStatement();
-            stmt.execute("PRAGMA foreign_keys = ON");
-        }
-        return connection;
+        return getWriteConnection();
+    }
+
+    public ConnectionPool.PoolStats getPoolStats() {
+        return getPool().getStats();
     }
 
     public String getDbPath() {
         return dbPath;
     }
 
+    public DatabaseProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Política de reintentos ante SQLITE_BUSY para transacciones de escritura.
+     */
+    public BusyRetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Valores de los PRAGMA tal como los reporta SQLite en una conexión del pool.
+     */
+    public Map<String, String> getEffectivePragmas() throws SQLException {
+        try (Connection conn = getReadConnection()) {
+            return DatabaseProfile.readEffective(conn);
+        }
+    }
+
+    /**
+     * Vuelca el WAL al archivo principal y lo trunca.
+     * Se llama al cerrar la aplicación para no dejar un -wal grande en disco.
+     */
+    public void checkpoint() {
+        if (!profile.isWal()) {
+            return;
+        }
+        try (Connection conn = getWriteConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+        } catch (SQLException e) {
+            System.err.println("Error en checkpoint del WAL: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Escritor agrupado de ventas; se crea (y arranca su hilo) al primer uso.
+     */
+    public synchronized SaleWriter getSaleWriter() {
+        if (saleWriter == null) {
+            saleWriter = new SaleWriter(this);
+        }
+        return saleWriter;
+    }
+
+    /**
+     * Caché de reportes; los meses cerrados se guardan junto a la base, en
+     * {@code <base>.reports}.
+     */
+    public synchronized ReportCache getReportCache() {
+        if (reportCache == null) {
+            reportCache = new ReportCache(this, Path.of(dbPath + ".reports"));
+        }
+        return reportCache;
+    }
+
+    /**
+     * Historial de ventas por columnas; se crea al primer uso y se carga en
+     * la primera consulta.
+     */
+    public synchronized SalesColumnStore getSalesColumns() {
+        if (salesColumns == null) {
+            salesColumns = new SalesColumnStore(this);
+        }
+        return salesColumns;
+    }
+
+    /**
+     * Motor de migraciones del esquema, con las de {@link DatabaseInitializer}.
+     */
+    public synchronized MigrationEngine getMigrationEngine() {
+        if (migrationEngine == null) {
+            migrationEngine = new MigrationEngine(this, new DatabaseInitializer(this).migrations());
+        }
+        return migrationEngine;
+    }
+
     public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+        // El escritor necesita el pool para confirmar lo encolado: se cierra antes
+        // y fuera del lock, porque su hilo también pide conexiones
+        SaleWriter writer;
+        synchronized (this) {
+            writer = saleWriter;
+            saleWriter = null;
+        }
+        if (writer != null) {
+            writer.close();
+        }
+        synchronized (this) {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
             }
-        } catch (SQLException e) {
-            System.err.println("Error cerrando conexión: " + e.getMessage());
         }
     }
+
+    private synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            int readers = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+            pool = new ConnectionPool(this::openConnection, readers, CHECKOUT_TIMEOUT_MS,
+                LEAK_THRESHOLD_MS, profile.getStatementCacheSize());
+        }
+        return pool;
+    }
+
+    private Connection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+        // Activar foreign keys en SQLite
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA foreign_keys = ON");
+        }
+        // Los índices por nombre usan esta intercalación: sin ella no se pueden escribir
+        SpanishCollation.register(connection);
+        profile.apply(connection);
+        return connection;
+    }
 }
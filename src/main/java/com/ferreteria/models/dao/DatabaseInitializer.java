@@ -2,12 +2,27 @@ package com.ferreteria.models.dao;
 
 import org.mindrot.jbcrypt.BCrypt;
 import java.sql.*;
+import java.util.List;
 
 /**
  * Inicializa la base de datos con las tablas necesarias.
+ *
+ * El esquema se arma con las migraciones de {@link #migrations()}, que aplica
+ * {@link MigrationEngine}: la versión se guarda en {@code PRAGMA user_version}
+ * y, con la base al día, arrancar cuesta una lectura. Un cambio de esquema se
+ * agrega como migración nueva al final de la lista, nunca editando una vieja.
  */
 public class DatabaseInitializer {
 
+    /**
+     * Columna e índices de la migración 2; también son su huella.
+     */
+    private static final String SEARCH_KEY_COLUMN = "search_key TEXT";
+    private static final List<String> SEARCH_KEY_INDEXES = List.of(
+        "CREATE INDEX IF NOT EXISTS idx_products_search_key ON products(search_key)",
+        "CREATE INDEX IF NOT EXISTS idx_variants_search_key ON product_variants(search_key)"
+    );
+
     private final DatabaseConfig config;
 
     public DatabaseInitializer(DatabaseConfig config) {
@@ -15,190 +30,283 @@ public class DatabaseInitializer {
     }
 
     public void initialize() {
+        MigrationEngine engine = config.getMigrationEngine();
         try {
-            Connection conn = config.getConnection();
-
-            // Activar foreign keys en SQLite
-            Statement pragma = conn.createStatement();
-            pragma.execute("PRAGMA foreign_keys = ON");
-
-            createTables(conn);
-            createIndexes(conn);
-            createDefaultAdmin(conn);
-            System.out.println("Base de datos inicializada: " + config.getDbPath());
+            int applied = engine.migrate();
+            if (applied == 0) {
+                System.out.println("Base de datos al día (esquema " + engine.latestVersion() + "): " + config.getDbPath());
+            } else {
+                System.out.println("Base de datos inicializada (esquema " + engine.latestVersion() + "): " + config.getDbPath());
+            }
         } catch (SQLException e) {
             throw new RuntimeException("Error inicializando base de datos", e);
         }
+        engine.startBackfills();
+    }
+
+    /**
+     * Migraciones del esquema, en orden.
+     *
+     * V1 es el esquema con el que se empezó a versionar: en una base que ya
+     * estaba en la versión 1 no se vuelve a ejecutar, sólo se registra. Su
+     * paso reparte el DDL en varios métodos, así que su huella es una marca.
+     */
+    public List<Migration> migrations() {
+        return List.of(
+            Migration.java(1, "Esquema inicial", "esquema-inicial-1", conn -> {
+                createTables(conn);
+                createIndexes(conn);
+                SalesDailyAgg.create(conn);
+                createSearchIndex(conn);
+                createDefaultAdmin(conn);
+            }),
+            Migration.java(2, "Claves de búsqueda",
+                    "ADD COLUMN " + SEARCH_KEY_COLUMN + ";" + String.join(";", SEARCH_KEY_INDEXES),
+                    this::addSearchKeys)
+                .withBackfill(new Migration.Backfill() {
+                    @Override
+                    public long remaining(Connection conn) throws SQLException {
+                        return SearchKey.countMissing(conn);
+                    }
+
+                    @Override
+                    public int runChunk(Connection conn, int limit) throws SQLException {
+                        return SearchKey.fillChunk(conn, limit);
+                    }
+                }),
+            Migration.sql(3, "Índice de ítems por variante",
+                "/db/migrations/V003__indice_items_por_variante.sql")
+        );
+    }
+
+    /**
+     * Versión del esquema guardada en la base (0 si nunca se inicializó con
+     * versión).
+     */
+    public static int schemaVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
     }
 
     private void createTables(Connection conn) throws SQLException {
-        Statement stmt = conn.createStatement();
-
-        // =============================================
-        // CONFIGURACIÓN DEL NEGOCIO
-        // =============================================
-        stmt.execute("""
-            CREATE TABLE IF NOT EXISTS business_config (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                business_name VARCHAR(200),
-                address VARCHAR(300),
-                phone VARCHAR(50),
-                cuit VARCHAR(20),
-                logo_path VARCHAR(500),
-                created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
-                updated_at DATETIME DEFAULT CURRENT_TIMESTAMP
-            )
-        """);
-
-        // =============================================
-        // USUARIOS
-        // =============================================
-        stmt.execute("""
-            CREATE TABLE IF NOT EXISTS users (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                username VARCHAR(50) UNIQUE NOT NULL,
-                password VARCHAR(255) NOT NULL,
-                role VARCHAR(20) DEFAULT 'vendedor',
-                full_name VARCHAR(100),
-                active BOOLEAN DEFAULT 1,
-                created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
-                updated_at DATETIME DEFAULT CURRENT_TIMESTAMP
-            )
-        """);
-
-        // =============================================
-        // CATEGORÍAS (con subcategorías)
-        // =============================================
-        stmt.execute("""
-            CREATE TABLE IF NOT EXISTS categories (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                name VARCHAR(100) NOT NULL,
-                description TEXT,
-                parent_id INTEGER,
-                active BOOLEAN DEFAULT 1,
-                created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
-                FOREIGN KEY (parent_id) REFERENCES categories(id),
-                UNIQUE(name, parent_id)
-            )
-        """);
-
-        // =============================================
-        // PRODUCTOS (producto base)
-        // =============================================
-        stmt.execute("""
-            CREATE TABLE IF NOT EXISTS products (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                code VARCHAR(50) UNIQUE,
-                name VARCHAR(200) NOT NULL,
-                description TEXT,
-                category_id INTEGER,
-                brand VARCHAR(100),
-                location VARCHAR(100),
-                image_path VARCHAR(500),
-                active BOOLEAN DEFAULT 1,
-                created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
-                updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
-                FOREIGN KEY (category_id) REFERENCES categories(id)
-            )
-        """);
-
-        // =============================================
-        // VARIANTES DE PRODUCTO (precio y stock aquí)
-        // =============================================
-        stmt.execute("""
-            CREATE TABLE IF NOT EXISTS product_variants (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                product_id INTEGER NOT NULL,
-                sku VARCHAR(50) UNIQUE,
-                variant_name VARCHAR(100) NOT NULL,
-                cost_price DECIMAL(10,2) DEFAULT 0,
-                sale_price DECIMAL(10,2) NOT NULL DEFAULT 0,
-                stock INTEGER DEFAULT 0 CHECK(stock >= 0),
-                min_stock INTEGER DEFAULT 5,
-                active BOOLEAN DEFAULT 1,
-                created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
-                updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
-                FOREIGN KEY (product_id) REFERENCES products(id)
-            )
-        """);
-
-        // =============================================
-        // VENTAS (cabecera)
-        // =============================================
-        stmt.execute("""
-            CREATE TABLE IF NOT EXISTS sales (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                user_id INTEGER NOT NULL,
-                total DECIMAL(10,2) NOT NULL DEFAULT 0,
-                status VARCHAR(20) DEFAULT 'completed',
-                notes TEXT,
-                created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
-                FOREIGN KEY (user_id) REFERENCES users(id)
-            )
-        """);
-
-        // =============================================
-        // DETALLE DE VENTA (items)
-        // =============================================
-        stmt.execute("""
-            CREATE TABLE IF NOT EXISTS sale_items (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                sale_id INTEGER NOT NULL,
-                variant_id INTEGER NOT NULL,
-                quantity INTEGER NOT NULL DEFAULT 1,
-                unit_price DECIMAL(10,2) NOT NULL,
-                subtotal DECIMAL(10,2) NOT NULL,
-                created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
-                FOREIGN KEY (sale_id) REFERENCES sales(id),
-                FOREIGN KEY (variant_id) REFERENCES product_variants(id)
-            )
-        """);
-
-        // =============================================
-        // PAGOS DE VENTA (permite pago combinado)
-        // =============================================
-        stmt.execute("""
-            CREATE TABLE IF NOT EXISTS sale_payments (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                sale_id INTEGER NOT NULL,
-                payment_method VARCHAR(50) NOT NULL,
-                amount DECIMAL(10,2) NOT NULL,
-                reference VARCHAR(100),
-                created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
-                FOREIGN KEY (sale_id) REFERENCES sales(id)
-            )
-        """);
+        try (Statement stmt = conn.createStatement()) {
+
+            // =============================================
+            // CONFIGURACIÓN DEL NEGOCIO
+            // =============================================
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS business_config (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    business_name VARCHAR(200),
+                    address VARCHAR(300),
+                    phone VARCHAR(50),
+                    cuit VARCHAR(20),
+                    logo_path VARCHAR(500),
+                    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+
+            // =============================================
+            // USUARIOS
+            // =============================================
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS users (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    username VARCHAR(50) UNIQUE NOT NULL,
+                    password VARCHAR(255) NOT NULL,
+                    role VARCHAR(20) DEFAULT 'vendedor',
+                    full_name VARCHAR(100),
+                    active BOOLEAN DEFAULT 1,
+                    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+
+            // =============================================
+            // CATEGORÍAS (con subcategorías)
+            // =============================================
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS categories (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    name VARCHAR(100) NOT NULL,
+                    description TEXT,
+                    parent_id INTEGER,
+                    active BOOLEAN DEFAULT 1,
+                    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (parent_id) REFERENCES categories(id),
+                    UNIQUE(name, parent_id)
+                )
+            """);
+
+            // =============================================
+            // PRODUCTOS (producto base)
+            // =============================================
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS products (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    code VARCHAR(50) UNIQUE,
+                    name VARCHAR(200) NOT NULL,
+                    description TEXT,
+                    category_id INTEGER,
+                    brand VARCHAR(100),
+                    location VARCHAR(100),
+                    image_path VARCHAR(500),
+                    search_key TEXT,
+                    active BOOLEAN DEFAULT 1,
+                    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (category_id) REFERENCES categories(id)
+                )
+            """);
+
+            // =============================================
+            // VARIANTES DE PRODUCTO (precio y stock aquí)
+            // =============================================
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS product_variants (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    product_id INTEGER NOT NULL,
+                    sku VARCHAR(50) UNIQUE,
+                    variant_name VARCHAR(100) NOT NULL,
+                    cost_price DECIMAL(10,2) DEFAULT 0,
+                    sale_price DECIMAL(10,2) NOT NULL DEFAULT 0,
+                    stock INTEGER DEFAULT 0 CHECK(stock >= 0),
+                    min_stock INTEGER DEFAULT 5,
+                    search_key TEXT,
+                    active BOOLEAN DEFAULT 1,
+                    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (product_id) REFERENCES products(id)
+                )
+            """);
+
+            // =============================================
+            // VENTAS (cabecera)
+            // =============================================
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS sales (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    user_id INTEGER NOT NULL,
+                    total DECIMAL(10,2) NOT NULL DEFAULT 0,
+                    status VARCHAR(20) DEFAULT 'completed',
+                    notes TEXT,
+                    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (user_id) REFERENCES users(id)
+                )
+            """);
+
+            // =============================================
+            // DETALLE DE VENTA (items)
+            // =============================================
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS sale_items (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    sale_id INTEGER NOT NULL,
+                    variant_id INTEGER NOT NULL,
+                    quantity INTEGER NOT NULL DEFAULT 1,
+                    unit_price DECIMAL(10,2) NOT NULL,
+                    subtotal DECIMAL(10,2) NOT NULL,
+                    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (sale_id) REFERENCES sales(id),
+                    FOREIGN KEY (variant_id) REFERENCES product_variants(id)
+                )
+            """);
+
+            // =============================================
+            // PAGOS DE VENTA (permite pago combinado)
+            // =============================================
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS sale_payments (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    sale_id INTEGER NOT NULL,
+                    payment_method VARCHAR(50) NOT NULL,
+                    amount DECIMAL(10,2) NOT NULL,
+                    reference VARCHAR(100),
+                    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (sale_id) REFERENCES sales(id)
+                )
+            """);
+        }
     }
 
     private void createIndexes(Connection conn) throws SQLException {
-        Statement stmt = conn.createStatement();
-
-        // Índices para búsquedas rápidas
-        stmt.execute("CREATE INDEX IF NOT EXISTS idx_products_name ON products(name)");
-        stmt.execute("CREATE INDEX IF NOT EXISTS idx_products_category ON products(category_id)");
-        stmt.execute("CREATE INDEX IF NOT EXISTS idx_variants_product ON product_variants(product_id)");
-        stmt.execute("CREATE INDEX IF NOT EXISTS idx_variants_sku ON product_variants(sku)");
-        stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_date ON sales(created_at)");
-        stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_user ON sales(user_id)");
-        stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_status ON sales(status)");
-        stmt.execute("CREATE INDEX IF NOT EXISTS idx_sale_items_sale ON sale_items(sale_id)");
-        stmt.execute("CREATE INDEX IF NOT EXISTS idx_sale_payments_sale ON sale_payments(sale_id)");
+        try (Statement stmt = conn.createStatement()) {
+
+            // Índices para búsquedas rápidas
+            // Nombre en orden alfabético español: ORDER BY p.name COLLATE ES sale del índice
+            stmt.execute("DROP INDEX IF EXISTS idx_products_name");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_products_name_es ON products(name COLLATE ES)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_products_category ON products(category_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_variants_product ON product_variants(product_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_variants_sku ON product_variants(sku)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_date ON sales(created_at)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_user ON sales(user_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_status ON sales(status)");
+            // Filtros por estado + rango de fechas (reportes y estadísticas)
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sales_status_date ON sales(status, created_at)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sale_items_sale ON sale_items(sale_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sale_payments_sale ON sale_payments(sale_id)");
+        }
+    }
+
+    /**
+     * Agrega la columna search_key a productos y variantes en bases creadas
+     * antes de que existiera, con sus índices. Las claves las calcula el
+     * relleno de la migración.
+     */
+    private void addSearchKeys(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String table : new String[] {"products", "product_variants"}) {
+                if (!hasColumn(conn, table, "search_key")) {
+                    stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + SEARCH_KEY_COLUMN);
+                }
+            }
+            for (String index : SEARCH_KEY_INDEXES) {
+                stmt.execute(index);
+            }
+        }
+    }
+
+    private boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void createSearchIndex(Connection conn) {
+        try {
+            ProductSearchIndex.create(conn);
+        } catch (SQLException e) {
+            // Sin FTS5 la búsqueda de productos sigue funcionando con LIKE
+            System.err.println("Índice de búsqueda no disponible: " + e.getMessage());
+        }
     }
 
     private void createDefaultAdmin(Connection conn) throws SQLException {
         String checkSql = "SELECT COUNT(*) FROM users WHERE username = 'admin'";
-        Statement stmt = conn.createStatement();
-        ResultSet rs = stmt.executeQuery(checkSql);
-
-        if (rs.next() && rs.getInt(1) == 0) {
-            String insertSql = "INSERT INTO users (username, password, role, full_name) VALUES (?, ?, ?, ?)";
-            PreparedStatement pstmt = conn.prepareStatement(insertSql);
-            pstmt.setString(1, "admin");
-            pstmt.setString(2, BCrypt.hashpw("admin123", BCrypt.gensalt(10)));
-            pstmt.setString(3, "administrador");
-            pstmt.setString(4, "Administrador");
-            pstmt.executeUpdate();
-            System.out.println("Usuario admin creado");
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery(checkSql);
+
+            if (rs.next() && rs.getInt(1) == 0) {
+                String insertSql = "INSERT INTO users (username, password, role, full_name) VALUES (?, ?, ?, ?)";
+                try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+                    pstmt.setString(1, "admin");
+                    pstmt.setString(2, BCrypt.hashpw("admin123", BCrypt.gensalt(10)));
+                    pstmt.setString(3, "administrador");
+                    pstmt.setString(4, "Administrador");
+                    pstmt.executeUpdate();
+                }
+                System.out.println("Usuario admin creado");
+            }
         }
     }
 }
@@ -0,0 +1,218 @@
+package com.ferreteria.models.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Perfil de rendimiento de SQLite que se aplica al abrir cada conexión.
+ *
+ * Los valores se toman, en orden de prioridad, de:
+ * <ol>
+ *   <li>propiedades del sistema ({@code -Dferreteria.db.synchronous=FULL})</li>
+ *   <li>{@code database.properties} en la carpeta de datos de la aplicación</li>
+ *   <li>{@code database.properties} incluido en el classpath</li>
+ *   <li>el perfil base elegido con {@code db.profile} ({@code performance} o {@code safe})</li>
+ * </ol>
+ */
+public class DatabaseProfile {
+
+    public static final String FILE_NAME = "database.properties";
+    private static final String SYSTEM_PREFIX = "ferreteria.";
+
+    private final String name;
+    private final String dbPath;
+    private final String journalMode;
+    private final String synchronous;
+    private final long mmapSize;
+    private final int cacheSize;
+    private final String tempStore;
+    private final int busyTimeoutMs;
+    private final int retryAttempts;
+    private final long retryBackoffMs;
+    private final int statementCacheSize;
+    private final int saleWriterMaxBatch;
+    private final long saleWriterMaxWaitMs;
+    private final int saleWriterQueueCapacity;
+
+    private DatabaseProfile(Properties props) {
+        this.name = props.getProperty("db.profile", "performance").trim();
+        String path = props.getProperty("db.path", "").trim();
+        this.dbPath = path.isEmpty() ? null : path;
+        this.journalMode = word(props, "db.journal_mode");
+        this.synchronous = word(props, "db.synchronous");
+        this.mmapSize = Long.parseLong(props.getProperty("db.mmap_size").trim());
+        this.cacheSize = Integer.parseInt(props.getProperty("db.cache_size").trim());
+        this.tempStore = word(props, "db.temp_store");
+        this.busyTimeoutMs = Integer.parseInt(props.getProperty("db.busy_timeout").trim());
+        this.retryAttempts = Integer.parseInt(props.getProperty("db.retry.attempts").trim());
+        this.retryBackoffMs = Long.parseLong(props.getProperty("db.retry.backoff_ms").trim());
+        this.statementCacheSize = Integer.parseInt(props.getProperty("db.statement_cache_size").trim());
+        this.saleWriterMaxBatch = Integer.parseInt(props.getProperty("db.sale_writer.max_batch").trim());
+        this.saleWriterMaxWaitMs = Long.parseLong(props.getProperty("db.sale_writer.max_wait_ms").trim());
+        this.saleWriterQueueCapacity = Integer.parseInt(props.getProperty("db.sale_writer.queue_capacity").trim());
+    }
+
+    /**
+     * Carga el perfil combinando las distintas fuentes de configuración.
+     *
+     * @param appDataDir carpeta de datos de la aplicación
+     * @return perfil efectivo
+     */
+    public static DatabaseProfile load(Path appDataDir) {
+        Properties overrides = new Properties();
+        loadClasspath(overrides);
+        loadFile(overrides, appDataDir.resolve(FILE_NAME));
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith(SYSTEM_PREFIX + "db.")) {
+                overrides.setProperty(key.substring(SYSTEM_PREFIX.length()), System.getProperty(key));
+            }
+        }
+
+        Properties props = defaults(overrides.getProperty("db.profile", "performance"));
+        props.putAll(overrides);
+        return new DatabaseProfile(props);
+    }
+
+    /**
+     * Perfil con los valores base, sin leer archivos.
+     *
+     * @param profile {@code performance} o {@code safe}
+     */
+    public static DatabaseProfile of(String profile) {
+        return new DatabaseProfile(defaults(profile));
+    }
+
+    /**
+     * Aplica los PRAGMA del perfil a una conexión recién abierta.
+     */
+    public void apply(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // busy_timeout primero: cambiar journal_mode puede necesitar esperar un lock
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMs);
+            stmt.execute("PRAGMA journal_mode = " + journalMode);
+            stmt.execute("PRAGMA synchronous = " + synchronous);
+            stmt.execute("PRAGMA mmap_size = " + mmapSize);
+            stmt.execute("PRAGMA cache_size = " + cacheSize);
+            stmt.execute("PRAGMA temp_store = " + tempStore);
+        }
+    }
+
+    /**
+     * Lee de la conexión los valores efectivos de los PRAGMA del perfil.
+     *
+     * @return nombre del PRAGMA y valor reportado por SQLite
+     */
+    public static Map<String, String> readEffective(Connection conn) throws SQLException {
+        Map<String, String> values = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement()) {
+            for (String pragma : new String[]{"journal_mode", "synchronous", "mmap_size",
+                    "cache_size", "temp_store", "busy_timeout", "foreign_keys"}) {
+                try (ResultSet rs = stmt.executeQuery("PRAGMA " + pragma)) {
+                    values.put(pragma, rs.next() ? rs.getString(1) : "-");
+                }
+            }
+        }
+        return values;
+    }
+
+    public String getName() { return name; }
+    public String getDbPath() { return dbPath; }
+    public String getJournalMode() { return journalMode; }
+    public String getSynchronous() { return synchronous; }
+    public long getMmapSize() { return mmapSize; }
+    public int getCacheSize() { return cacheSize; }
+    public String getTempStore() { return tempStore; }
+    public int getBusyTimeoutMs() { return busyTimeoutMs; }
+    public int getRetryAttempts() { return retryAttempts; }
+    public long getRetryBackoffMs() { return retryBackoffMs; }
+    public int getStatementCacheSize() { return statementCacheSize; }
+    public int getSaleWriterMaxBatch() { return saleWriterMaxBatch; }
+    public long getSaleWriterMaxWaitMs() { return saleWriterMaxWaitMs; }
+    public int getSaleWriterQueueCapacity() { return saleWriterQueueCapacity; }
+
+    public boolean isWal() {
+        return "WAL".equals(journalMode);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (journal=" + journalMode + ", synchronous=" + synchronous
+            + ", mmap=" + mmapSize + ", cache=" + cacheSize + ", temp_store=" + tempStore
+            + ", busy_timeout=" + busyTimeoutMs + "ms)";
+    }
+
+    // Métodos privados
+
+    private static Properties defaults(String profile) {
+        Properties props = new Properties();
+        props.setProperty("db.profile", profile);
+        props.setProperty("db.busy_timeout", "5000");
+        props.setProperty("db.retry.attempts", "3");
+        props.setProperty("db.retry.backoff_ms", "50");
+        props.setProperty("db.temp_store", "MEMORY");
+        props.setProperty("db.statement_cache_size", "64");
+        props.setProperty("db.sale_writer.max_batch", "64");
+        props.setProperty("db.sale_writer.max_wait_ms", "2");
+        props.setProperty("db.sale_writer.queue_capacity", "256");
+
+        if ("safe".equalsIgnoreCase(profile)) {
+            // Comportamiento original de SQLite: journal de rollback y fsync completo
+            props.setProperty("db.journal_mode", "DELETE");
+            props.setProperty("db.synchronous", "FULL");
+            props.setProperty("db.mmap_size", "0");
+            props.setProperty("db.cache_size", "-2000");
+        } else {
+            props.setProperty("db.journal_mode", "WAL");
+            props.setProperty("db.synchronous", "NORMAL");
+            props.setProperty("db.mmap_size", String.valueOf(256L * 1024 * 1024));
+            props.setProperty("db.cache_size", "-16000");
+        }
+        return props;
+    }
+
+    /**
+     * Valores que se concatenan en un PRAGMA: sólo se aceptan palabras simples.
+     */
+    private static String word(Properties props, String key) {
+        String value = props.getProperty(key).trim().toUpperCase();
+        if (!value.matches("[A-Z0-9_]+")) {
+            throw new IllegalArgumentException("Valor inválido para " + key + ": " + value);
+        }
+        return value;
+    }
+
+    private static void loadClasspath(Properties target) {
+        try (InputStream in = DatabaseProfile.class.getResourceAsStream("/" + FILE_NAME)) {
+            if (in != null) {
+                try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                    target.load(reader);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error leyendo " + FILE_NAME + " del classpath: " + e.getMessage());
+        }
+    }
+
+    private static void loadFile(Properties target, Path file) {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            target.load(reader);
+        } catch (IOException e) {
+            System.err.println("Error leyendo " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ferreteria.models.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * IDs generados por un INSERT en lote (executeBatch).
+ *
+ * El driver de SQLite sólo informa la última clave de un lote. Dentro de una
+ * transacción de escritura nadie más inserta en la tabla, y con AUTOINCREMENT
+ * cada fila recibe el id siguiente, así que las {@code count} filas del lote
+ * son las consecutivas que terminan en {@code last_insert_rowid()}.
+ */
+final class GeneratedKeys {
+
+    private GeneratedKeys() {
+    }
+
+    /**
+     * IDs de las últimas {@code count} filas insertadas en esta conexión, en orden.
+     */
+    static int[] lastInserted(Connection conn, int count) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+            if (!rs.next()) {
+                throw new SQLException("Could not get generated IDs");
+            }
+            int last = rs.getInt(1);
+            int[] ids = new int[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = last - count + 1 + i;
+            }
+            return ids;
+        }
+    }
+}
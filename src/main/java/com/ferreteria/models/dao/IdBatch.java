@@ -0,0 +1,63 @@
+package com.ferreteria.models.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Lote de IDs para consultas {@code WHERE col IN (?, ?, ...)}.
+ *
+ * Los IDs se deduplican y se parten en lotes de hasta {@link #MAX_SIZE}. Cada
+ * lote se rellena hasta la siguiente potencia de dos repitiendo el último ID,
+ * así solo existen unas pocas formas distintas de SQL y la caché de sentencias
+ * las reutiliza en vez de compilar una por cada tamaño de lista.
+ */
+final class IdBatch {
+
+    /** Parámetros por lote; muy por debajo del límite de variables de SQLite. */
+    static final int MAX_SIZE = 512;
+
+    private final List<Integer> ids;
+    private final int size;
+
+    private IdBatch(List<Integer> ids) {
+        this.ids = ids;
+        this.size = Math.min(MAX_SIZE, Integer.highestOneBit(ids.size() * 2 - 1));
+    }
+
+    /**
+     * Parte los IDs en lotes, sin duplicados y en el orden recibido.
+     */
+    static List<IdBatch> of(Collection<Integer> ids) {
+        List<Integer> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<IdBatch> batches = new ArrayList<>();
+        for (int from = 0; from < unique.size(); from += MAX_SIZE) {
+            batches.add(new IdBatch(unique.subList(from, Math.min(from + MAX_SIZE, unique.size()))));
+        }
+        return batches;
+    }
+
+    /**
+     * Marcadores para la cláusula IN, por ejemplo "?, ?, ?, ?".
+     */
+    String placeholders() {
+        return String.join(", ", Collections.nCopies(size, "?"));
+    }
+
+    /**
+     * Vincula los IDs (y el relleno) a partir del índice dado.
+     *
+     * @return el siguiente índice libre
+     */
+    int bind(PreparedStatement pstmt, int index) throws SQLException {
+        int last = ids.get(ids.size() - 1);
+        for (int i = 0; i < size; i++) {
+            pstmt.setInt(index + i, i < ids.size() ? ids.get(i) : last);
+        }
+        return index + size;
+    }
+}
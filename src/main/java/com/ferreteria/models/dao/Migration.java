@@ -0,0 +1,164 @@
+package com.ferreteria.models.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HexFormat;
+
+/**
+ * Un cambio de esquema con número de versión, aplicado una sola vez por
+ * {@link MigrationEngine}.
+ *
+ * Puede ser un archivo SQL de {@code /db/migrations} o código Java. La suma
+ * de verificación se guarda al aplicarla y se compara en cada arranque: en
+ * las SQL es la del archivo, en las Java la de su huella, un texto que
+ * describe lo que hace el paso (por ejemplo, las sentencias DDL que ejecuta)
+ * y que cambia con él. Una migración ya publicada no se edita; se agrega otra.
+ *
+ * El paso de esquema corre dentro de la transacción que sube la versión, así
+ * que debe ser rápido. Lo que recorre tablas grandes (calcular una columna
+ * nueva, por ejemplo) va en un {@link Backfill}, que se ejecuta después, en
+ * segundo plano y de a tandas.
+ */
+public final class Migration {
+
+    private final int version;
+    private final String description;
+    private final String checksum;
+    private final Step step;
+    private final Backfill backfill;
+
+    private Migration(int version, String description, String checksum, Step step, Backfill backfill) {
+        if (version <= 0) {
+            throw new IllegalArgumentException("La versión debe ser positiva: " + version);
+        }
+        this.version = version;
+        this.description = description;
+        this.checksum = checksum;
+        this.step = step;
+        this.backfill = backfill;
+    }
+
+    /**
+     * Migración en un archivo SQL del classpath; puede tener varias sentencias.
+     *
+     * @param resource ruta del archivo, por ejemplo {@code /db/migrations/V003__indice.sql}
+     */
+    public static Migration sql(int version, String description, String resource) {
+        String script = readResource(resource);
+        return new Migration(version, description, sha256(script), conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(script);
+            }
+        }, null);
+    }
+
+    /**
+     * Migración en código.
+     *
+     * @param fingerprint huella del paso: las sentencias que ejecuta o, si no
+     *                    se pueden enumerar, una marca que se cambia cada vez
+     *                    que se toca el paso; entra en la suma de verificación
+     */
+    public static Migration java(int version, String description, String fingerprint, Step step) {
+        if (fingerprint == null || fingerprint.isBlank()) {
+            throw new IllegalArgumentException("La migración " + version + " necesita una huella");
+        }
+        return new Migration(version, description, sha256(version + ":" + description + ":" + fingerprint), step, null);
+    }
+
+    /**
+     * La misma migración, con un relleno que corre en segundo plano después
+     * de aplicarla.
+     */
+    public Migration withBackfill(Backfill backfill) {
+        return new Migration(version, description, checksum, step, backfill);
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public Backfill getBackfill() {
+        return backfill;
+    }
+
+    public boolean hasBackfill() {
+        return backfill != null;
+    }
+
+    void apply(Connection conn) throws SQLException {
+        step.apply(conn);
+    }
+
+    @Override
+    public String toString() {
+        return "V" + version + " " + description;
+    }
+
+    /**
+     * Cambio de esquema; corre dentro de la transacción de la migración.
+     */
+    @FunctionalInterface
+    public interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Relleno de datos de a tandas. Cada tanda corre en su propia transacción
+     * corta, con la conexión de escritura, así las ventas del POS se
+     * intercalan. Debe poder cortarse en cualquier tanda y retomarse en el
+     * próximo arranque: cada una procesa lo que todavía falta.
+     */
+    public interface Backfill {
+
+        /**
+         * Filas que faltan procesar (para mostrar el avance).
+         */
+        long remaining(Connection conn) throws SQLException;
+
+        /**
+         * Procesa hasta {@code limit} filas.
+         *
+         * @return filas procesadas; 0 cuando ya no queda nada
+         */
+        int runChunk(Connection conn, int limit) throws SQLException;
+    }
+
+    // Métodos auxiliares privados
+
+    private static String readResource(String resource) {
+        try (InputStream in = Migration.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No existe la migración " + resource);
+            }
+            // Sin \r: la suma no cambia si el archivo se guardó con finales de Windows
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error leyendo la migración " + resource, e);
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.ferreteria.models.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aplica las {@link Migration} pendientes de la base, en orden de versión.
+ *
+ * La versión actual se guarda en {@code PRAGMA user_version} y cada migración
+ * aplicada en {@code schema_migrations}, con su suma de verificación. Cada una
+ * corre en su propia transacción junto con el registro y la nueva versión: si
+ * falla, la base queda en la versión anterior y se reintenta en el próximo
+ * arranque. Si la suma de una migración ya aplicada no coincide con la del
+ * código, o la base es de una versión más nueva de la aplicación, no se
+ * arranca.
+ *
+ * Los rellenos ({@link Migration.Backfill}) corren después, en un hilo propio,
+ * de a {@link #CHUNK_SIZE} filas por transacción con una pausa entre tandas;
+ * {@link #getProgress()} informa el avance. Un relleno interrumpido se retoma
+ * en el próximo arranque.
+ */
+public class MigrationEngine {
+
+    public static final int CHUNK_SIZE = 500;
+    private static final long CHUNK_PAUSE_MS = 20;
+
+    private final DatabaseConfig config;
+    private final List<Migration> migrations;
+    private final Map<Integer, BackfillProgress> progress = new ConcurrentHashMap<>();
+    private Thread backfillThread;
+
+    /**
+     * @param migrations migraciones con versiones distintas; se ordenan por versión
+     */
+    public MigrationEngine(DatabaseConfig config, List<Migration> migrations) {
+        this.config = config;
+        List<Migration> sorted = new ArrayList<>(migrations);
+        sorted.sort((a, b) -> Integer.compare(a.getVersion(), b.getVersion()));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).getVersion() == sorted.get(i - 1).getVersion()) {
+                throw new IllegalArgumentException("Versión de migración repetida: " + sorted.get(i).getVersion());
+            }
+        }
+        this.migrations = List.copyOf(sorted);
+    }
+
+    /**
+     * Versión del esquema que dejan las migraciones conocidas.
+     */
+    public int latestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+    }
+
+    /**
+     * Aplica las migraciones pendientes. Con la base al día sólo lee la
+     * versión y las sumas de verificación.
+     *
+     * @return cantidad de migraciones aplicadas
+     */
+    public int migrate() throws SQLException {
+        try (Connection conn = config.getWriteConnection()) {
+            createHistoryTable(conn);
+            int current = DatabaseInitializer.schemaVersion(conn);
+            if (current > latestVersion()) {
+                throw new IllegalStateException("La base está en la versión " + current
+                    + " del esquema y esta aplicación conoce hasta la " + latestVersion());
+            }
+            Map<Integer, String> applied = readChecksums(conn);
+            if (applied.isEmpty() && current > 0) {
+                // Base versionada antes de existir el historial: se registran sus migraciones
+                adopt(conn, current);
+                applied = readChecksums(conn);
+            }
+            verify(applied, current);
+
+            int count = 0;
+            for (Migration migration : migrations) {
+                if (migration.getVersion() > current) {
+                    apply(conn, migration);
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Lanza en segundo plano los rellenos que quedaron pendientes. Si ya están
+     * corriendo no hace nada.
+     */
+    public synchronized void startBackfills() {
+        if (backfillThread != null && backfillThread.isAlive()) {
+            return;
+        }
+        List<Migration> pending;
+        try {
+            pending = pendingBackfills();
+        } catch (SQLException e) {
+            System.err.println("Error leyendo rellenos pendientes: " + e.getMessage());
+            return;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (Migration migration : pending) {
+            progress.put(migration.getVersion(), BackfillProgress.pending(migration));
+        }
+
+        // Hilo propio y de baja prioridad: puede tardar minutos y no debe ocupar el pool de tareas
+        backfillThread = new Thread(() -> {
+            for (Migration migration : pending) {
+                runBackfill(migration);
+            }
+        }, "migraciones-relleno");
+        backfillThread.setDaemon(true);
+        backfillThread.setPriority(Thread.MIN_PRIORITY);
+        backfillThread.start();
+    }
+
+    /**
+     * Espera a que terminen los rellenos en curso.
+     *
+     * @return true si terminaron antes del tiempo indicado
+     */
+    public boolean awaitBackfills(long timeout, TimeUnit unit) throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = backfillThread;
+        }
+        if (thread == null) {
+            return true;
+        }
+        thread.join(unit.toMillis(timeout));
+        return !thread.isAlive();
+    }
+
+    /**
+     * Avance de los rellenos lanzados desde que arrancó la aplicación, por versión.
+     */
+    public List<BackfillProgress> getProgress() {
+        List<BackfillProgress> list = new ArrayList<>(progress.values());
+        list.sort((a, b) -> Integer.compare(a.version(), b.version()));
+        return list;
+    }
+
+    /**
+     * Migraciones registradas en la base, de la más vieja a la más nueva.
+     */
+    public List<AppliedMigration> getHistory() throws SQLException {
+        List<AppliedMigration> history = new ArrayList<>();
+        try (Connection conn = config.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("""
+                 SELECT version, description, applied_at, duration_ms, backfill_done
+                 FROM schema_migrations ORDER BY version
+             """)) {
+            while (rs.next()) {
+                history.add(new AppliedMigration(rs.getInt("version"), rs.getString("description"),
+                    rs.getString("applied_at"), rs.getLong("duration_ms"), rs.getBoolean("backfill_done")));
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Migración registrada en {@code schema_migrations}.
+     *
+     * @param appliedAt fecha de aplicación (UTC, formato de SQLite)
+     * @param durationMs duración del paso de esquema (sin el relleno)
+     * @param backfillDone false si tiene un relleno que todavía no terminó
+     */
+    public record AppliedMigration(int version, String description, String appliedAt,
+                                   long durationMs, boolean backfillDone) {}
+
+    /**
+     * Estado de un relleno.
+     *
+     * @param total filas que faltaban al empezar (-1 si todavía no se contaron)
+     * @param processed filas procesadas hasta ahora
+     * @param error mensaje si falló, o null
+     */
+    public record BackfillProgress(int version, String description, State state,
+                                   long total, long processed, String error) {
+
+        public enum State { PENDING, RUNNING, DONE, FAILED }
+
+        static BackfillProgress pending(Migration migration) {
+            return new BackfillProgress(migration.getVersion(), migration.getDescription(),
+                State.PENDING, -1, 0, null);
+        }
+
+        /**
+         * Porcentaje completado, entre 0 y 100.
+         */
+        public double percent() {
+            if (state == State.DONE) {
+                return 100;
+            }
+            return total <= 0 ? 0 : Math.min(100, processed * 100.0 / total);
+        }
+
+        BackfillProgress with(State newState, long newTotal, long newProcessed, String newError) {
+            return new BackfillProgress(version, description, newState, newTotal, newProcessed, newError);
+        }
+    }
+
+    // Métodos auxiliares privados
+
+    private void createHistoryTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS schema_migrations (
+                    version INTEGER PRIMARY KEY,
+                    description TEXT NOT NULL,
+                    checksum TEXT NOT NULL,
+                    applied_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+                    duration_ms INTEGER NOT NULL DEFAULT 0,
+                    backfill_done INTEGER NOT NULL DEFAULT 1
+                )
+            """);
+        }
+    }
+
+    private Map<Integer, String> readChecksums(Connection conn) throws SQLException {
+        Map<Integer, String> checksums = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rs.next()) {
+                checksums.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return checksums;
+    }
+
+    private void verify(Map<Integer, String> applied, int current) {
+        for (Migration migration : migrations) {
+            String checksum = applied.get(migration.getVersion());
+            if (migration.getVersion() <= current && checksum != null
+                    && !checksum.equals(migration.getChecksum())) {
+                throw new IllegalStateException("La migración " + migration
+                    + " cambió después de aplicarse (suma de verificación distinta)");
+            }
+        }
+    }
+
+    private void adopt(Connection conn, int current) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("""
+                INSERT INTO schema_migrations (version, description, checksum, backfill_done)
+                VALUES (?, ?, ?, ?)
+                """)) {
+            for (Migration migration : migrations) {
+                if (migration.getVersion() <= current) {
+                    pstmt.setInt(1, migration.getVersion());
+                    pstmt.setString(2, migration.getDescription());
+                    pstmt.setString(3, migration.getChecksum());
+                    // Los rellenos procesan sólo lo que falta: se corren por las dudas
+                    pstmt.setBoolean(4, !migration.hasBackfill());
+                    pstmt.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        long start = System.nanoTime();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            migration.apply(conn);
+            try (PreparedStatement pstmt = conn.prepareStatement("""
+                    INSERT OR REPLACE INTO schema_migrations (version, description, checksum, duration_ms, backfill_done)
+                    VALUES (?, ?, ?, ?, ?)
+                    """)) {
+                pstmt.setInt(1, migration.getVersion());
+                pstmt.setString(2, migration.getDescription());
+                pstmt.setString(3, migration.getChecksum());
+                pstmt.setLong(4, (System.nanoTime() - start) / 1_000_000);
+                pstmt.setBoolean(5, !migration.hasBackfill());
+                pstmt.executeUpdate();
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA user_version = " + migration.getVersion());
+            }
+            conn.commit();
+            System.out.println("Migración aplicada: " + migration
+                + " (" + (System.nanoTime() - start) / 1_000_000 + " ms)");
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw new SQLException("Error aplicando la migración " + migration + ": " + e.getMessage(), e);
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private List<Migration> pendingBackfills() throws SQLException {
+        List<Integer> versions = new ArrayList<>();
+        try (Connection conn = config.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM schema_migrations WHERE backfill_done = 0")) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        }
+        List<Migration> pending = new ArrayList<>();
+        for (Migration migration : migrations) {
+            if (migration.hasBackfill() && versions.contains(migration.getVersion())) {
+                pending.add(migration);
+            }
+        }
+        return pending;
+    }
+
+    private void runBackfill(Migration migration) {
+        Migration.Backfill backfill = migration.getBackfill();
+        int version = migration.getVersion();
+        long processed = 0;
+        long total = -1;
+        try {
+            try (Connection conn = config.getReadConnection()) {
+                total = backfill.remaining(conn);
+            }
+            progress.put(version, progress.get(version).with(BackfillProgress.State.RUNNING, total, 0, null));
+
+            int done;
+            do {
+                done = runChunk(backfill);
+                processed += done;
+                progress.put(version, progress.get(version).with(BackfillProgress.State.RUNNING,
+                    Math.max(total, processed), processed, null));
+                if (done > 0) {
+                    // Deja pasar a las ventas que esperan la conexión de escritura
+                    Thread.sleep(CHUNK_PAUSE_MS);
+                }
+            } while (done > 0);
+
+            try (Connection conn = config.getWriteConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(
+                     "UPDATE schema_migrations SET backfill_done = 1 WHERE version = ?")) {
+                pstmt.setInt(1, version);
+                pstmt.executeUpdate();
+            }
+            progress.put(version, progress.get(version).with(BackfillProgress.State.DONE,
+                Math.max(total, processed), processed, null));
+            System.out.println("Relleno terminado: " + migration + " (" + processed + " filas)");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.put(version, progress.get(version).with(BackfillProgress.State.FAILED,
+                total, processed, "Interrumpido"));
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error en el relleno de " + migration + ": " + e.getMessage());
+            progress.put(version, progress.get(version).with(BackfillProgress.State.FAILED,
+                total, processed, e.getMessage()));
+        }
+    }
+
+    private int runChunk(Migration.Backfill backfill) throws SQLException {
+        try (Connection conn = config.getWriteConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                int done = backfill.runChunk(conn, CHUNK_SIZE);
+                conn.commit();
+                return done;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,240 @@
+package com.ferreteria.models.dao;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Genera el reporte de ventas de un período completo de una vez.
+ *
+ * Reemplaza a las cuatro consultas de {@link ReportDAO}: una sola pasada sobre
+ * {@code sales} agrupada por día da la serie diaria y, sumando los días, las
+ * estadísticas del período; una pasada sobre {@code sale_payments} da los
+ * totales por medio de pago y otra sobre {@code sale_items} el resumen de
+ * productos (los nombres se buscan después de agrupar, una vez por variante).
+ * Las tres lecturas corren en la misma transacción, así que el reporte es una
+ * foto consistente aunque se registren ventas mientras se genera.
+ *
+ * Conserva el criterio de {@link ReportDAO}: estadísticas, pagos y productos
+ * cuentan todas las ventas del período; la serie diaria sólo las completadas.
+ */
+public class MonthlyReportEngine {
+
+    private final DatabaseConfig config;
+
+    public MonthlyReportEngine(DatabaseConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Reporte de un mes.
+     */
+    public Report generate(YearMonth month) {
+        return generate(SalePeriod.month(month));
+    }
+
+    /**
+     * Reporte de un período cualquiera.
+     *
+     * @throws RuntimeException si falla la consulta
+     */
+    public Report generate(SalePeriod period) {
+        Connection conn = null;
+        try {
+            conn = config.getReadConnection();
+            conn.setAutoCommit(false);
+
+            DailyPass daily = readSales(conn, period);
+            Map<String, BigDecimal> payments = readPayments(conn, period);
+            List<ProductLine> products = readProducts(conn, period);
+
+            conn.commit();
+            return new Report(daily.summary(), daily.completedByDay(), payments, products);
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error generating report: " + e.getMessage(), e);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    System.err.println("Error releasing connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reporte completo de un período.
+     *
+     * @param summary estadísticas de todas las ventas del período
+     * @param dailySales total de ventas completadas por día (sólo días con ventas)
+     * @param paymentTotals total por medio de pago, de mayor a menor
+     * @param products productos vendidos, de mayor a menor total
+     */
+    public record Report(
+        Summary summary,
+        Map<LocalDate, BigDecimal> dailySales,
+        Map<String, BigDecimal> paymentTotals,
+        List<ProductLine> products
+    ) {
+        /**
+         * Serie diaria indexada por día del mes, para el gráfico mensual.
+         */
+        public Map<Integer, BigDecimal> salesByDayOfMonth() {
+            Map<Integer, BigDecimal> byDay = new TreeMap<>();
+            dailySales.forEach((day, total) -> byDay.merge(day.getDayOfMonth(), total, BigDecimal::add));
+            return byDay;
+        }
+    }
+
+    /**
+     * Estadísticas de las ventas de un período.
+     */
+    public record Summary(int salesCount, BigDecimal total, BigDecimal average, BigDecimal max, BigDecimal min) {
+
+        static final Summary EMPTY = new Summary(0, money(null), money(null), money(null), money(null));
+    }
+
+    /**
+     * Una variante vendida en el período.
+     *
+     * @param unitPrice precio unitario de la última venta de la variante
+     */
+    public record ProductLine(String product, String variant, int quantity, BigDecimal unitPrice, BigDecimal total) {}
+
+    // Métodos auxiliares privados
+
+    private record DailyPass(Summary summary, Map<LocalDate, BigDecimal> completedByDay) {}
+
+    /**
+     * Pasada sobre {@code sales}: una fila por día con los agregados de todas
+     * las ventas y el total de las completadas. El período se combina sumando días.
+     */
+    private DailyPass readSales(Connection conn, SalePeriod period) throws SQLException {
+        String sql = "SELECT substr(created_at, 1, 10) AS day, " +
+                     "COUNT(*) AS sales, SUM(total) AS total, MIN(total) AS min_total, MAX(total) AS max_total, " +
+                     "SUM(CASE WHEN status = 'completed' THEN total END) AS completed_total " +
+                     "FROM sales " +
+                     "WHERE " + period.predicate("created_at") + " " +
+                     "GROUP BY day " +
+                     "ORDER BY day";
+
+        Map<LocalDate, BigDecimal> completed = new LinkedHashMap<>();
+        int count = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal min = null;
+        BigDecimal max = null;
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            period.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    count += rs.getInt("sales");
+                    total = total.add(rs.getBigDecimal("total"));
+                    BigDecimal dayMin = rs.getBigDecimal("min_total");
+                    BigDecimal dayMax = rs.getBigDecimal("max_total");
+                    min = min == null || dayMin.compareTo(min) < 0 ? dayMin : min;
+                    max = max == null || dayMax.compareTo(max) > 0 ? dayMax : max;
+
+                    BigDecimal dayCompleted = rs.getBigDecimal("completed_total");
+                    if (dayCompleted != null) {
+                        completed.put(LocalDate.parse(rs.getString("day")), money(dayCompleted));
+                    }
+                }
+            }
+        }
+
+        if (count == 0) {
+            return new DailyPass(Summary.EMPTY, Collections.unmodifiableMap(completed));
+        }
+        Summary summary = new Summary(
+            count,
+            money(total),
+            total.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP),
+            money(max),
+            money(min)
+        );
+        return new DailyPass(summary, Collections.unmodifiableMap(completed));
+    }
+
+    /**
+     * Pasada sobre {@code sale_payments}: total por medio de pago.
+     */
+    private Map<String, BigDecimal> readPayments(Connection conn, SalePeriod period) throws SQLException {
+        String sql = "SELECT sp.payment_method, SUM(sp.amount) AS total " +
+                     "FROM sale_payments sp " +
+                     "JOIN sales s ON s.id = sp.sale_id " +
+                     "WHERE " + period.predicate("s.created_at") + " " +
+                     "GROUP BY sp.payment_method " +
+                     "ORDER BY total DESC";
+
+        Map<String, BigDecimal> totals = new LinkedHashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            period.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(rs.getString("payment_method"), money(rs.getBigDecimal("total")));
+                }
+            }
+        }
+        return Collections.unmodifiableMap(totals);
+    }
+
+    /**
+     * Pasada sobre {@code sale_items}: se agrupa por variante y recién después
+     * se buscan los nombres, una vez por variante y no por ítem.
+     */
+    private List<ProductLine> readProducts(Connection conn, SalePeriod period) throws SQLException {
+        // Con MAX(si.id), SQLite toma unit_price de la misma fila: el de la última venta
+        String sql = "SELECT p.name AS product, pv.variant_name AS variant, " +
+                     "x.quantity, x.unit_price, x.total " +
+                     "FROM (" +
+                     "  SELECT si.variant_id, SUM(si.quantity) AS quantity, SUM(si.subtotal) AS total, " +
+                     "         MAX(si.id) AS last_item, si.unit_price " +
+                     "  FROM sale_items si " +
+                     "  JOIN sales s ON s.id = si.sale_id " +
+                     "  WHERE " + period.predicate("s.created_at") + " " +
+                     "  GROUP BY si.variant_id" +
+                     ") x " +
+                     "JOIN product_variants pv ON pv.id = x.variant_id " +
+                     "JOIN products p ON p.id = pv.product_id " +
+                     "ORDER BY x.total DESC";
+
+        List<ProductLine> lines = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            period.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    lines.add(new ProductLine(
+                        rs.getString("product"),
+                        rs.getString("variant"),
+                        rs.getInt("quantity"),
+                        money(rs.getBigDecimal("unit_price")),
+                        money(rs.getBigDecimal("total"))
+                    ));
+                }
+            }
+        }
+        return Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * Los importes de SQLite llegan como REAL; se redondean a centavos.
+     */
+    private static BigDecimal money(BigDecimal value) {
+        return (value == null ? BigDecimal.ZERO : value).setScale(2, RoundingMode.HALF_UP);
+    }
+}
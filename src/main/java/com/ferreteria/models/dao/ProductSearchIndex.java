@@ -0,0 +1,137 @@
+package com.ferreteria.models.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Índice de texto completo (FTS5) para buscar variantes de producto.
+ *
+ * La tabla virtual {@code product_search} guarda una fila por variante
+ * (rowid = id de la variante) con nombre, código y marca del producto, SKU y
+ * nombre de la variante. Los triggers la mantienen sincronizada con
+ * {@code products} y {@code product_variants}; {@link #rebuild} la regenera
+ * completa si hiciera falta.
+ */
+final class ProductSearchIndex {
+
+    static final String TABLE = "product_search";
+
+    /**
+     * Pesos bm25 por columna: name, code, brand, sku, variant_name.
+     */
+    static final String RANK = "bm25(" + TABLE + ", 10.0, 6.0, 2.0, 6.0, 4.0)";
+
+    private static final String SELECT_ROWS = """
+        SELECT pv.id, p.name, p.code, p.brand, pv.sku, pv.variant_name
+        FROM product_variants pv
+        JOIN products p ON pv.product_id = p.id
+        """;
+
+    private static final String INSERT_ROWS =
+        "INSERT INTO " + TABLE + " (rowid, name, code, brand, sku, variant_name) " + SELECT_ROWS;
+
+    private ProductSearchIndex() {
+    }
+
+    /**
+     * Indica si el error (o alguna de sus causas) es porque falta la tabla
+     * del índice o el módulo FTS5, y no un error pasajero (base ocupada,
+     * conexión que no llegó a tiempo).
+     */
+    static boolean isUnavailable(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql && sql.getMessage() != null) {
+                String message = sql.getMessage();
+                if (message.contains("no such table: " + TABLE) || message.contains("no such module: fts5")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Crea la tabla y los triggers si no existen, y la llena si está desfasada
+     * (por ejemplo, en una base creada antes de existir el índice).
+     *
+     * @throws SQLException si SQLite no tiene FTS5 o falla la creación
+     */
+    static void create(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // remove_diacritics: "estandar" encuentra "Estándar"; prefix acelera "torn*"
+            stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE + " USING fts5("
+                + "name, code, brand, sku, variant_name, "
+                + "tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3')");
+
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS trg_search_variant_insert
+                AFTER INSERT ON product_variants BEGIN
+                    %s WHERE pv.id = NEW.id;
+                END
+            """.formatted(INSERT_ROWS));
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS trg_search_variant_update
+                AFTER UPDATE OF product_id, sku, variant_name ON product_variants BEGIN
+                    DELETE FROM %s WHERE rowid = OLD.id;
+                    %s WHERE pv.id = NEW.id;
+                END
+            """.formatted(TABLE, INSERT_ROWS));
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS trg_search_variant_delete
+                AFTER DELETE ON product_variants BEGIN
+                    DELETE FROM %s WHERE rowid = OLD.id;
+                END
+            """.formatted(TABLE));
+            stmt.execute("""
+                CREATE TRIGGER IF NOT EXISTS trg_search_product_update
+                AFTER UPDATE OF name, code, brand ON products BEGIN
+                    DELETE FROM %s WHERE rowid IN (SELECT id FROM product_variants WHERE product_id = NEW.id);
+                    %s WHERE p.id = NEW.id;
+                END
+            """.formatted(TABLE, INSERT_ROWS));
+
+            if (count(stmt, "SELECT COUNT(*) FROM " + TABLE) != count(stmt, "SELECT COUNT(*) FROM product_variants")) {
+                rebuild(conn);
+            }
+        }
+    }
+
+    /**
+     * Regenera el índice completo a partir de las tablas de productos.
+     */
+    static void rebuild(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM " + TABLE);
+            stmt.execute(INSERT_ROWS);
+        }
+    }
+
+    /**
+     * Convierte el texto del usuario en una consulta MATCH: cada palabra es un
+     * prefijo y todas deben aparecer ("torn 8mm" → "torn"* "8mm"*).
+     *
+     * Las palabras se separan igual que en el tokenizador (todo lo que no es
+     * letra ni dígito), así "MART001-STD" busca "mart001"* "std"*.
+     *
+     * @return la consulta, o null si el texto no tiene palabras
+     */
+    static String matchQuery(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                terms.add("\"" + token + "\"*");
+            }
+        }
+        return terms.isEmpty() ? null : String.join(" ", terms);
+    }
+
+    private static int count(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.ferreteria.models.ProductVariant;
 
 import java.math.BigDecimal;
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,6 +18,9 @@ public class ProductVariantDAO {
 
     private final DatabaseConfig config;
 
+    // Se desactiva si el índice FTS falla (p. ej. SQLite sin FTS5)
+    private static volatile boolean ftsDisponible = true;
+
     public ProductVariantDAO(DatabaseConfig config) {
         this.config = config;
     }
@@ -35,8 +39,8 @@ public class ProductVariantDAO {
             LEFT JOIN categories c ON p.category_id = c.id
             WHERE pv.id = ?
         """;
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
 
@@ -63,8 +67,8 @@ public class ProductVariantDAO {
             LEFT JOIN categories c ON p.category_id = c.id
             WHERE pv.sku = ? AND pv.active = 1
         """;
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, sku);
             ResultSet rs = pstmt.executeQuery();
 
@@ -81,41 +85,149 @@ public class ProductVariantDAO {
      * Busca variantes por nombre de producto o variante.
      * Útil para el buscador del POS.
      *
+     * Usa el índice de texto completo ({@link #buscarTexto}); si no hay
+     * coincidencias por prefijo (o el índice no existe) recurre a las claves
+     * normalizadas ({@link #buscarPorClave}), que también encuentran texto en
+     * medio de una palabra.
+     *
      * @param query texto a buscar
      * @param limit máximo de resultados
      * @return lista de variantes que coinciden
      */
     public List<ProductVariant> buscar(String query, int limit) {
+        if (ftsDisponible) {
+            try {
+                List<ProductVariant> results = buscarTexto(query, limit);
+                if (!results.isEmpty()) {
+                    return results;
+                }
+            } catch (RuntimeException e) {
+                // Sólo sin índice se deja de intentar; un error pasajero afecta a esta búsqueda
+                if (ProductSearchIndex.isUnavailable(e)) {
+                    ftsDisponible = false;
+                    System.err.println("Búsqueda FTS no disponible, usando claves: " + e.getMessage());
+                } else {
+                    System.err.println("Error en la búsqueda FTS, usando claves: " + e.getMessage());
+                }
+            }
+        }
+        return buscarPorClave(query, limit);
+    }
+
+    /**
+     * Busca variantes en el índice de texto completo, ordenadas por relevancia (bm25).
+     * Cada palabra se busca como prefijo en nombre, código, marca, SKU y
+     * variante, y todas deben aparecer: "torn 8mm" encuentra "Tornillo ... 8mm".
+     * Ignora mayúsculas y acentos.
+     *
+     * @param query texto a buscar
+     * @param limit máximo de resultados
+     * @return variantes activas, la más relevante primero
+     */
+    public List<ProductVariant> buscarTexto(String query, int limit) {
+        String match = ProductSearchIndex.matchQuery(query);
+        if (match == null) {
+            return new ArrayList<>();
+        }
         String sql = """
             SELECT pv.*, p.name as product_name, p.code as product_code, c.name as category_name
-            FROM product_variants pv
+            FROM %1$s
+            JOIN product_variants pv ON pv.id = %1$s.rowid
             JOIN products p ON pv.product_id = p.id
             LEFT JOIN categories c ON p.category_id = c.id
-            WHERE pv.active = 1 AND p.active = 1
-            AND (
-                p.name LIKE ? OR
-                p.code LIKE ? OR
-                pv.sku LIKE ? OR
-                pv.variant_name LIKE ?
-            )
-            ORDER BY p.name, pv.variant_name
+            WHERE %1$s MATCH ? AND pv.active = 1 AND p.active = 1
+            ORDER BY %2$s, p.name COLLATE ES, pv.variant_name COLLATE ES
             LIMIT ?
-        """;
+        """.formatted(ProductSearchIndex.TABLE, ProductSearchIndex.RANK);
         List<ProductVariant> results = new ArrayList<>();
-        String searchPattern = "%" + query + "%";
 
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setString(1, searchPattern);
-            pstmt.setString(2, searchPattern);
-            pstmt.setString(3, searchPattern);
-            pstmt.setString(4, searchPattern);
-            pstmt.setInt(5, limit);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, match);
+            pstmt.setInt(2, limit);
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
                 results.add(mapResultSetToVariant(rs));
             }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error buscando variantes por texto", e);
+        }
+        return results;
+    }
+
+    /**
+     * Regenera el índice de búsqueda desde las tablas de productos.
+     * Los triggers lo mantienen al día; esto es para reparar un índice dañado
+     * o desfasado.
+     */
+    public void reconstruirIndiceBusqueda() {
+        try (Connection conn = config.getWriteConnection()) {
+            ProductSearchIndex.rebuild(conn);
+            ftsDisponible = true;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reconstruyendo índice de búsqueda", e);
+        }
+    }
+
+    /**
+     * Busca variantes por la clave normalizada ({@link SearchKey}) de producto
+     * y variante, sin importar mayúsculas, acentos ni "ñ": "cano" encuentra
+     * "Caño". Primero los productos cuyo nombre o código empieza con el texto,
+     * por rango sobre idx_products_search_key; si no alcanzan, las variantes
+     * que contienen todas las palabras en cualquier parte.
+     *
+     * @param query texto a buscar
+     * @param limit máximo de resultados
+     * @return variantes activas en orden alfabético, primero las que empiezan con el texto
+     */
+    public List<ProductVariant> buscarPorClave(String query, int limit) {
+        List<String> words = SearchKey.words(query);
+        List<ProductVariant> results = new ArrayList<>();
+        if (words.isEmpty()) {
+            return results;
+        }
+        String key = String.join(" ", words);
+        String allWords = " AND (p.search_key || ' ' || pv.search_key) LIKE ?".repeat(words.size());
+        String sql = """
+            SELECT pv.*, p.name as product_name, p.code as product_code, c.name as category_name
+            FROM product_variants pv
+            JOIN products p ON pv.product_id = p.id
+            LEFT JOIN categories c ON p.category_id = c.id
+            WHERE pv.active = 1 AND p.active = 1 %s
+            ORDER BY p.name COLLATE ES, pv.variant_name COLLATE ES
+            LIMIT ?
+        """;
+
+        try (Connection conn = config.getReadConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    sql.formatted("AND p.search_key >= ? AND p.search_key < ?"))) {
+                pstmt.setString(1, key);
+                pstmt.setString(2, SearchKey.prefixUpperBound(key));
+                pstmt.setInt(3, limit);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    results.add(mapResultSetToVariant(rs));
+                }
+            }
+            if (results.size() == limit) {
+                return results;
+            }
+
+            List<Integer> found = results.stream().map(ProductVariant::getId).toList();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql.formatted(allWords))) {
+                int i = 1;
+                for (String word : words) {
+                    pstmt.setString(i++, SearchKey.containsPattern(word));
+                }
+                pstmt.setInt(i, limit + found.size());
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next() && results.size() < limit) {
+                    if (!found.contains(rs.getInt("id"))) {
+                        results.add(mapResultSetToVariant(rs));
+                    }
+                }
+            }
         } catch (SQLException e) {
             throw new RuntimeException("Error buscando variantes", e);
         }
@@ -134,11 +246,101 @@ public class ProductVariantDAO {
             JOIN products p ON pv.product_id = p.id
             LEFT JOIN categories c ON p.category_id = c.id
             WHERE pv.active = 1 AND p.active = 1 AND pv.stock > 0
-            ORDER BY p.name, pv.variant_name
+            ORDER BY p.name COLLATE ES, pv.variant_name COLLATE ES
         """;
         return executeListQuery(sql);
     }
 
+    /**
+     * Variantes disponibles más vendidas desde una fecha, por unidades vendidas
+     * en ventas completadas. El costo depende de las ventas del período, no
+     * del tamaño del catálogo.
+     *
+     * @param desde primer día que se cuenta
+     * @param limit máximo de variantes
+     * @return variantes activas con stock, la más vendida primero
+     */
+    public List<ProductVariant> listarMasVendidas(LocalDate desde, int limit) {
+        String sql = """
+            SELECT pv.*, p.name as product_name, p.code as product_code, c.name as category_name
+            FROM (
+                SELECT si.variant_id, SUM(si.quantity) AS vendidas
+                FROM sales s
+                JOIN sale_items si ON si.sale_id = s.id
+                WHERE s.status = 'completed' AND s.created_at >= ?
+                GROUP BY si.variant_id
+            ) x
+            JOIN product_variants pv ON pv.id = x.variant_id
+            JOIN products p ON pv.product_id = p.id
+            LEFT JOIN categories c ON p.category_id = c.id
+            WHERE pv.active = 1 AND p.active = 1 AND pv.stock > 0
+            ORDER BY x.vendidas DESC, p.name COLLATE ES, pv.variant_name COLLATE ES
+            LIMIT ?
+        """;
+        List<ProductVariant> results = new ArrayList<>();
+
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, desde.toString());
+            pstmt.setInt(2, limit);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                results.add(mapResultSetToVariant(rs));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error listando variantes más vendidas", e);
+        }
+        return results;
+    }
+
+    /**
+     * Una página de las variantes disponibles, en el orden de
+     * {@link #listarDisponibles()}. Pagina por clave (nombre, variante, id) en
+     * lugar de OFFSET, así cada página cuesta lo mismo sin importar cuántas se
+     * leyeron antes ni cuántas variantes tiene el catálogo. El CROSS JOIN fija
+     * el orden del join en SQLite: recorre productos por idx_products_name_es y
+     * corta al llenar la página, en vez de leer y ordenar todas las variantes.
+     *
+     * @param despuesDe última variante de la página anterior, o null para la primera
+     * @param limit tamaño de la página
+     * @return variantes activas con stock que siguen a {@code despuesDe}
+     */
+    public List<ProductVariant> listarDisponiblesDesde(ProductVariant despuesDe, int limit) {
+        String sql = """
+            SELECT pv.*, p.name as product_name, p.code as product_code, c.name as category_name
+            FROM products p
+            CROSS JOIN product_variants pv ON pv.product_id = p.id
+            LEFT JOIN categories c ON p.category_id = c.id
+            WHERE pv.active = 1 AND p.active = 1 AND pv.stock > 0
+            %s
+            ORDER BY p.name COLLATE ES, pv.variant_name COLLATE ES, pv.id
+            LIMIT ?
+        """.formatted(despuesDe == null ? ""
+            : "AND p.name COLLATE ES >= ? AND (p.name COLLATE ES > ? OR (pv.variant_name COLLATE ES, pv.id) > (?, ?))");
+        List<ProductVariant> results = new ArrayList<>();
+
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (despuesDe != null) {
+                pstmt.setString(i++, despuesDe.getProductName());
+                pstmt.setString(i++, despuesDe.getProductName());
+                pstmt.setString(i++, despuesDe.getVariantName());
+                pstmt.setInt(i++, despuesDe.getId());
+            }
+            pstmt.setInt(i, limit);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                results.add(mapResultSetToVariant(rs));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error listando página de variantes", e);
+        }
+        return results;
+    }
+
     /**
      * Lista variantes de un producto específico.
      *
@@ -152,12 +354,12 @@ public class ProductVariantDAO {
             JOIN products p ON pv.product_id = p.id
             LEFT JOIN categories c ON p.category_id = c.id
             WHERE pv.product_id = ? AND pv.active = 1
-            ORDER BY pv.variant_name
+            ORDER BY pv.variant_name COLLATE ES
         """;
         List<ProductVariant> results = new ArrayList<>();
 
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, productId);
             ResultSet rs = pstmt.executeQuery();
 
@@ -182,7 +384,7 @@ public class ProductVariantDAO {
             JOIN products p ON pv.product_id = p.id
             LEFT JOIN categories c ON p.category_id = c.id
             WHERE pv.active = 1 AND p.active = 1 AND pv.stock <= pv.min_stock
-            ORDER BY pv.stock ASC, p.name
+            ORDER BY pv.stock ASC, p.name COLLATE ES
         """;
         return executeListQuery(sql);
     }
@@ -199,7 +401,7 @@ public class ProductVariantDAO {
             JOIN products p ON pv.product_id = p.id
             LEFT JOIN categories c ON p.category_id = c.id
             WHERE pv.active = 1 AND p.active = 1
-            ORDER BY p.name, pv.variant_name
+            ORDER BY p.name COLLATE ES, pv.variant_name COLLATE ES
         """;
         return executeListQuery(sql);
     }
@@ -212,8 +414,8 @@ public class ProductVariantDAO {
      */
     public void actualizarStock(int variantId, int cantidad) {
         String sql = "UPDATE product_variants SET stock = stock + ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, cantidad);
             pstmt.setInt(2, variantId);
             pstmt.executeUpdate();
@@ -229,9 +431,9 @@ public class ProductVariantDAO {
      */
     public int contar() {
         String sql = "SELECT COUNT(*) FROM product_variants WHERE active = 1";
-        try {
-            Statement stmt = config.getConnection().createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 return rs.getInt(1);
             }
@@ -248,9 +450,9 @@ public class ProductVariantDAO {
      */
     public int contarStockBajo() {
         String sql = "SELECT COUNT(*) FROM product_variants WHERE active = 1 AND stock <= min_stock";
-        try {
-            Statement stmt = config.getConnection().createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 return rs.getInt(1);
             }
@@ -262,9 +464,9 @@ public class ProductVariantDAO {
 
     private List<ProductVariant> executeListQuery(String sql) {
         List<ProductVariant> results = new ArrayList<>();
-        try {
-            Statement stmt = config.getConnection().createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
                 results.add(mapResultSetToVariant(rs));
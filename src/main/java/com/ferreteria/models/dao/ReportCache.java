@@ -0,0 +1,364 @@
+package com.ferreteria.models.dao;
+
+import com.ferreteria.models.dao.MonthlyReportEngine.ProductLine;
+import com.ferreteria.models.dao.MonthlyReportEngine.Report;
+import com.ferreteria.models.dao.MonthlyReportEngine.Summary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de reportes de {@link MonthlyReportEngine} por período.
+ *
+ * Los reportes se guardan en memoria por {@link SalePeriod} (mes o rango
+ * cualquiera). {@link SaleDAO} avisa con {@link #invalidate} qué días tocó cada
+ * cambio (crear, anular, eliminar, cambiar fecha o total) y sólo se descartan
+ * los reportes que incluyen esos días.
+ *
+ * Los meses cerrados (anteriores al actual) también se guardan en disco, en un
+ * archivo binario por mes junto a la base, así un reporte histórico abre al
+ * instante después de reiniciar. Cada archivo lleva la huella del mes en
+ * {@code sales_daily_agg} (cantidades y totales); si no coincide con la base
+ * (por ejemplo, la venta se modificó con la aplicación cerrada) se descarta.
+ */
+public class ReportCache {
+
+    private static final int MAX_ENTRIES = 32;
+    private static final int FILE_MAGIC = 0x46525054; // "FRPT"
+    private static final short FILE_VERSION = 1;
+
+    private final DatabaseConfig config;
+    private final MonthlyReportEngine engine;
+    private final Path directory;
+
+    private final Map<SalePeriod, Report> memory = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SalePeriod, Report> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final AtomicLong version = new AtomicLong();
+
+    // Métricas
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * La aplicación usa {@link DatabaseConfig#getReportCache()}, que recibe los
+     * avisos de {@link SaleDAO}; este constructor es para probar la lectura de
+     * disco con una caché nueva.
+     *
+     * @param directory carpeta para los meses cerrados
+     */
+    public ReportCache(DatabaseConfig config, Path directory) {
+        this.config = config;
+        this.engine = new MonthlyReportEngine(config);
+        this.directory = directory;
+    }
+
+    /**
+     * Reporte de un mes, desde la caché si está vigente.
+     */
+    public Report get(YearMonth month) {
+        return get(SalePeriod.month(month));
+    }
+
+    /**
+     * Reporte de un período, desde la caché si está vigente.
+     *
+     * @throws RuntimeException si falla la consulta
+     */
+    public Report get(SalePeriod period) {
+        Report cached;
+        synchronized (memory) {
+            cached = memory.get(period);
+        }
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            return cached;
+        }
+
+        long seen = version.get();
+        YearMonth closed = closedMonth(period);
+        if (closed != null) {
+            Report stored = readFile(closed, fingerprint(period));
+            if (stored != null) {
+                diskHits.incrementAndGet();
+                remember(period, stored, seen);
+                return stored;
+            }
+        }
+
+        misses.incrementAndGet();
+        Fingerprint before = closed != null ? fingerprint(period) : null;
+        Report report = engine.generate(period);
+        // Sólo se guarda en disco si nada cambió mientras se generaba
+        if (closed != null && version.get() == seen && before.equals(fingerprint(period))) {
+            writeFile(closed, before, report);
+        }
+        remember(period, report, seen);
+        return report;
+    }
+
+    /**
+     * Descarta los reportes que incluyen alguno de los días (en memoria y en
+     * disco). Los nulos se ignoran. Se llama después de confirmar el cambio.
+     */
+    public void invalidate(LocalDate... days) {
+        Set<LocalDate> affected = new LinkedHashSet<>();
+        for (LocalDate day : days) {
+            if (day != null) {
+                affected.add(day);
+            }
+        }
+        if (affected.isEmpty()) {
+            return;
+        }
+        version.incrementAndGet();
+        invalidations.incrementAndGet();
+
+        synchronized (memory) {
+            memory.keySet().removeIf(period -> affected.stream().anyMatch(day -> contains(period, day)));
+        }
+        Set<YearMonth> months = new LinkedHashSet<>();
+        affected.forEach(day -> months.add(YearMonth.from(day)));
+        for (YearMonth month : months) {
+            deleteFile(month);
+        }
+    }
+
+    /**
+     * Vacía la caché en memoria y en disco.
+     */
+    public void clear() {
+        version.incrementAndGet();
+        synchronized (memory) {
+            memory.clear();
+        }
+        try (var files = Files.list(directory)) {
+            files.forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    System.err.println("No se pudo borrar " + file + ": " + e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            // Sin carpeta no hay nada que borrar
+        }
+    }
+
+    /**
+     * Foto de las métricas de la caché.
+     */
+    public CacheStats getStats() {
+        int entries;
+        synchronized (memory) {
+            entries = memory.size();
+        }
+        return new CacheStats(entries, memoryHits.get(), diskHits.get(), misses.get(), invalidations.get());
+    }
+
+    /**
+     * Métricas de la caché.
+     *
+     * @param entries reportes en memoria
+     * @param memoryHits reportes servidos desde memoria
+     * @param diskHits reportes leídos de disco
+     * @param misses reportes generados con el motor
+     * @param invalidations cambios de ventas que descartaron reportes
+     */
+    public record CacheStats(int entries, long memoryHits, long diskHits, long misses, long invalidations) {}
+
+    // Métodos auxiliares privados
+
+    private void remember(SalePeriod period, Report report, long seen) {
+        synchronized (memory) {
+            // Si hubo un cambio mientras se generaba, el reporte puede estar viejo
+            if (version.get() == seen) {
+                memory.put(period, report);
+            }
+        }
+    }
+
+    private static boolean contains(SalePeriod period, LocalDate day) {
+        return !day.isBefore(period.getStart()) && day.isBefore(period.getEndExclusive());
+    }
+
+    /**
+     * El mes del período si es un mes calendario ya terminado; si no, null.
+     */
+    private static YearMonth closedMonth(SalePeriod period) {
+        YearMonth month = YearMonth.from(period.getStart());
+        if (period.equals(SalePeriod.month(month)) && month.isBefore(YearMonth.now())) {
+            return month;
+        }
+        return null;
+    }
+
+    /**
+     * Huella del período en el resumen diario: cambia con cualquier alta, baja,
+     * anulación o cambio de fecha o total de una venta del período.
+     */
+    private record Fingerprint(long days, long salesCount, long cancelledCount, long grossCents, long cancelledCents) {}
+
+    private Fingerprint fingerprint(SalePeriod period) {
+        String sql = "SELECT COUNT(*), COALESCE(SUM(sales_count), 0), COALESCE(SUM(cancelled_count), 0), " +
+                     "COALESCE(SUM(gross_total), 0), COALESCE(SUM(cancelled_total), 0) " +
+                     "FROM " + SalesDailyAgg.TABLE + " WHERE " + period.predicate("day");
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            period.bind(pstmt, 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return new Fingerprint(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                    cents(rs.getBigDecimal(4)), cents(rs.getBigDecimal(5)));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading report fingerprint: " + e.getMessage(), e);
+        }
+    }
+
+    private Path file(YearMonth month) {
+        return directory.resolve(month + ".bin");
+    }
+
+    /**
+     * Formato: cabecera y huella, estadísticas, serie diaria, pagos y
+     * productos. Los importes van en centavos (long) y los días como
+     * desplazamiento desde el inicio del mes.
+     */
+    private void writeFile(YearMonth month, Fingerprint fingerprint, Report report) {
+        Path target = file(month);
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, month.toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeShort(FILE_VERSION);
+                out.writeLong(fingerprint.days());
+                out.writeLong(fingerprint.salesCount());
+                out.writeLong(fingerprint.cancelledCount());
+                out.writeLong(fingerprint.grossCents());
+                out.writeLong(fingerprint.cancelledCents());
+
+                Summary summary = report.summary();
+                out.writeInt(summary.salesCount());
+                out.writeLong(cents(summary.total()));
+                out.writeLong(cents(summary.average()));
+                out.writeLong(cents(summary.max()));
+                out.writeLong(cents(summary.min()));
+
+                out.writeShort(report.dailySales().size());
+                for (Map.Entry<LocalDate, BigDecimal> day : report.dailySales().entrySet()) {
+                    out.writeByte(day.getKey().getDayOfMonth() - 1);
+                    out.writeLong(cents(day.getValue()));
+                }
+
+                out.writeShort(report.paymentTotals().size());
+                for (Map.Entry<String, BigDecimal> payment : report.paymentTotals().entrySet()) {
+                    out.writeUTF(payment.getKey());
+                    out.writeLong(cents(payment.getValue()));
+                }
+
+                out.writeInt(report.products().size());
+                for (ProductLine line : report.products()) {
+                    out.writeUTF(line.product());
+                    out.writeUTF(line.variant());
+                    out.writeInt(line.quantity());
+                    out.writeLong(cents(line.unitPrice()));
+                    out.writeLong(cents(line.total()));
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar el reporte de " + month + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lee el reporte de un mes, o null si no está, está dañado o su huella no
+     * coincide con la base (en esos casos se borra).
+     */
+    private Report readFile(YearMonth month, Fingerprint current) {
+        Path source = file(month);
+        if (!Files.exists(source)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source)))) {
+            if (in.readInt() != FILE_MAGIC || in.readShort() != FILE_VERSION) {
+                throw new IOException("formato desconocido");
+            }
+            Fingerprint stored = new Fingerprint(in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong());
+            if (!stored.equals(current)) {
+                throw new IOException("la base cambió");
+            }
+
+            Summary summary = new Summary(in.readInt(), money(in.readLong()), money(in.readLong()),
+                money(in.readLong()), money(in.readLong()));
+
+            Map<LocalDate, BigDecimal> daily = new TreeMap<>();
+            for (int i = in.readShort(); i > 0; i--) {
+                daily.put(month.atDay(in.readByte() + 1), money(in.readLong()));
+            }
+
+            Map<String, BigDecimal> payments = new LinkedHashMap<>();
+            for (int i = in.readShort(); i > 0; i--) {
+                payments.put(in.readUTF(), money(in.readLong()));
+            }
+
+            List<ProductLine> products = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                products.add(new ProductLine(in.readUTF(), in.readUTF(), in.readInt(),
+                    money(in.readLong()), money(in.readLong())));
+            }
+
+            return new Report(summary, Collections.unmodifiableMap(daily),
+                Collections.unmodifiableMap(payments), Collections.unmodifiableList(products));
+
+        } catch (IOException e) {
+            deleteFile(month);
+            return null;
+        }
+    }
+
+    private void deleteFile(YearMonth month) {
+        try {
+            Files.deleteIfExists(file(month));
+        } catch (IOException e) {
+            System.err.println("No se pudo borrar el reporte de " + month + ": " + e.getMessage());
+        }
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, java.math.RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static BigDecimal money(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
@@ -1,8 +1,10 @@
 package com.ferreteria.models.dao;
 
+import com.ferreteria.models.Money;
 import com.ferreteria.models.Sale;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
@@ -13,6 +15,9 @@ import java.util.logging.Logger;
 /**
  * DAO para consultas de reportes y estadísticas de ventas.
  * Proporciona métodos para obtener datos agregados por período.
+ * Creado con un {@link SalesColumnStore}, responde los agregados desde
+ * memoria sin consultar la base (salvo {@link #getSalesByMonth}, que
+ * necesita los nombres y notas de cada venta).
  *
  * @author Sistema Ferretería
  * @version 1.0
@@ -20,9 +25,22 @@ import java.util.logging.Logger;
 public class ReportDAO {
     private static final Logger LOGGER = Logger.getLogger(ReportDAO.class.getName());
     private final DatabaseConfig dbConfig;
+    private final SalesColumnStore columns;
 
     public ReportDAO() {
-        this.dbConfig = DatabaseConfig.getInstance();
+        this(DatabaseConfig.getInstance());
+    }
+
+    public ReportDAO(DatabaseConfig dbConfig) {
+        this(dbConfig, null);
+    }
+
+    /**
+     * @param columns historial en memoria para los agregados; null para usar SQL
+     */
+    public ReportDAO(DatabaseConfig dbConfig, SalesColumnStore columns) {
+        this.dbConfig = dbConfig;
+        this.columns = columns;
     }
 
     /**
@@ -33,17 +51,18 @@ public class ReportDAO {
      */
     public List<Sale> getSalesByMonth(YearMonth yearMonth) {
         List<Sale> sales = new ArrayList<>();
+        SalePeriod period = SalePeriod.month(yearMonth);
         String query = "SELECT s.id, s.user_id, u.full_name, s.total, s.status, " +
                       "s.notes, s.created_at " +
                       "FROM sales s " +
                       "LEFT JOIN users u ON s.user_id = u.id " +
-                      "WHERE strftime('%Y-%m', s.created_at) = ? " +
+                      "WHERE " + period.predicate("s.created_at") + " " +
                       "ORDER BY s.created_at DESC";
 
-        try (Connection conn = dbConfig.getConnection();
+        try (Connection conn = dbConfig.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
 
-            stmt.setString(1, yearMonth.toString());
+            period.bind(stmt, 1);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -51,7 +70,7 @@ public class ReportDAO {
                         .id(rs.getInt("id"))
                         .userId(rs.getInt("user_id"))
                         .userName(rs.getString("full_name"))
-                        .total(rs.getBigDecimal("total"))
+                        .total(Money.of(rs.getBigDecimal("total")))
                         .status(rs.getString("status"))
                         .notes(rs.getString("notes"))
                         .createdAt(parseDateTime(rs.getString("created_at")))
@@ -87,7 +106,12 @@ public class ReportDAO {
      * @return Mapa con producto como clave y datos como valor
      */
     public List<Map<String, Object>> getProductSalesSummary(YearMonth yearMonth) {
+        if (columns != null) {
+            return productSalesFromColumns(yearMonth);
+        }
+
         List<Map<String, Object>> summary = new ArrayList<>();
+        SalePeriod period = SalePeriod.month(yearMonth);
         String query = "SELECT " +
                       "p.name as producto, " +
                       "pv.variant_name as variante, " +
@@ -98,14 +122,14 @@ public class ReportDAO {
                       "INNER JOIN sales s ON si.sale_id = s.id " +
                       "INNER JOIN product_variants pv ON si.variant_id = pv.id " +
                       "INNER JOIN products p ON pv.product_id = p.id " +
-                      "WHERE strftime('%Y-%m', s.created_at) = ? " +
+                      "WHERE " + period.predicate("s.created_at") + " " +
                       "GROUP BY p.id, pv.id " +
                       "ORDER BY total_vendido DESC";
 
-        try (Connection conn = dbConfig.getConnection();
+        try (Connection conn = dbConfig.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
-            stmt.setString(1, yearMonth.toString());
+            period.bind(stmt, 1);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -134,20 +158,28 @@ public class ReportDAO {
      * @return Mapa con método de pago y total recaudado
      */
     public Map<String, BigDecimal> getPaymentMethodTotals(YearMonth yearMonth) {
+        if (columns != null) {
+            Map<String, BigDecimal> totals = new LinkedHashMap<>();
+            columns.paymentsByMethod(columns.select(SalePeriod.month(yearMonth)))
+                .forEach((method, cents) -> totals.put(method, money(cents)));
+            return totals;
+        }
+
         Map<String, BigDecimal> totals = new LinkedHashMap<>();
+        SalePeriod period = SalePeriod.month(yearMonth);
         String query = "SELECT " +
                       "sp.payment_method, " +
                       "SUM(sp.amount) as total " +
                       "FROM sale_payments sp " +
                       "INNER JOIN sales s ON sp.sale_id = s.id " +
-                      "WHERE strftime('%Y-%m', s.created_at) = ? " +
+                      "WHERE " + period.predicate("s.created_at") + " " +
                       "GROUP BY sp.payment_method " +
                       "ORDER BY total DESC";
 
-        try (Connection conn = dbConfig.getConnection();
+        try (Connection conn = dbConfig.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
-            stmt.setString(1, yearMonth.toString());
+            period.bind(stmt, 1);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -171,26 +203,34 @@ public class ReportDAO {
      * @return Mapa con día del mes y total vendido
      */
     public Map<Integer, BigDecimal> getDailySales(YearMonth yearMonth) {
+        if (columns != null) {
+            Map<Integer, BigDecimal> dailySales = new TreeMap<>();
+            columns.totalsByDay(columns.select(SalePeriod.month(yearMonth), "completed"))
+                .forEach((day, cents) -> dailySales.put(day.getDayOfMonth(), money(cents)));
+            return dailySales;
+        }
+
         Map<Integer, BigDecimal> dailySales = new TreeMap<>();
         
         // Agregar log para debugging
         LOGGER.info("Consultando ventas diarias para: " + yearMonth.toString());
         
+        SalePeriod period = SalePeriod.month(yearMonth);
         String query = "SELECT " +
                       "CAST(strftime('%d', s.created_at) AS INTEGER) as dia, " +
                       "SUM(s.total) as total " +
                       "FROM sales s " +
-                      "WHERE strftime('%Y-%m', s.created_at) = ? " +
+                      "WHERE " + period.predicate("s.created_at") + " " +
                       "AND s.status = 'completed' " +
                       "GROUP BY dia " +
                       "ORDER BY dia";
 
-        try (Connection conn = dbConfig.getConnection();
+        try (Connection conn = dbConfig.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
-            stmt.setString(1, yearMonth.toString());
+            period.bind(stmt, 1);
             
-            LOGGER.info("Ejecutando query con periodo: " + yearMonth.toString());
+            LOGGER.info("Ejecutando query con periodo: " + period);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 int rowCount = 0;
@@ -236,14 +276,19 @@ public class ReportDAO {
      * @return Total en BigDecimal
      */
     public BigDecimal getMonthlyTotal(YearMonth yearMonth) {
+        if (columns != null) {
+            return money(columns.totals(columns.select(SalePeriod.month(yearMonth))).sumCents());
+        }
+
+        SalePeriod period = SalePeriod.month(yearMonth);
         String query = "SELECT COALESCE(SUM(total), 0) as total_mes " +
                       "FROM sales " +
-                      "WHERE strftime('%Y-%m', created_at) = ?";
+                      "WHERE " + period.predicate("created_at");
 
-        try (Connection conn = dbConfig.getConnection();
+        try (Connection conn = dbConfig.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
-            stmt.setString(1, yearMonth.toString());
+            period.bind(stmt, 1);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -265,7 +310,12 @@ public class ReportDAO {
      * @return Mapa con diferentes métricas
      */
     public Map<String, Object> getMonthlyStats(YearMonth yearMonth) {
+        if (columns != null) {
+            return monthlyStatsFromColumns(yearMonth);
+        }
+
         Map<String, Object> stats = new HashMap<>();
+        SalePeriod period = SalePeriod.month(yearMonth);
         String query = "SELECT " +
                       "COUNT(*) as total_ventas, " +
                       "COALESCE(SUM(total), 0) as total_recaudado, " +
@@ -273,12 +323,12 @@ public class ReportDAO {
                       "COALESCE(MAX(total), 0) as venta_maxima, " +
                       "COALESCE(MIN(total), 0) as venta_minima " +
                       "FROM sales " +
-                      "WHERE strftime('%Y-%m', created_at) = ?";
+                      "WHERE " + period.predicate("created_at");
 
-        try (Connection conn = dbConfig.getConnection();
+        try (Connection conn = dbConfig.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
-            stmt.setString(1, yearMonth.toString());
+            period.bind(stmt, 1);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -301,4 +351,43 @@ public class ReportDAO {
 
         return stats;
     }
-}
\ No newline at end of file
+
+    /**
+     * Resumen de productos desde el historial en memoria (mismas claves que la consulta SQL)
+     */
+    private List<Map<String, Object>> productSalesFromColumns(YearMonth yearMonth) {
+        List<Map<String, Object>> summary = new ArrayList<>();
+        for (SalesColumnStore.VariantTotals line : columns.itemsByVariant(columns.select(SalePeriod.month(yearMonth)))) {
+            if (line.product() == null) {
+                continue; // variante o producto eliminado, como el INNER JOIN
+            }
+            Map<String, Object> row = new HashMap<>();
+            row.put("producto", line.product());
+            row.put("variante", line.variant());
+            row.put("cantidad", (int) line.quantity());
+            row.put("precio", money(line.unitPriceCents()));
+            row.put("total", money(line.totalCents()));
+            summary.add(row);
+        }
+        return summary;
+    }
+
+    /**
+     * Estadísticas del mes desde el historial en memoria
+     */
+    private Map<String, Object> monthlyStatsFromColumns(YearMonth yearMonth) {
+        SalesColumnStore.Totals totals = columns.totals(columns.select(SalePeriod.month(yearMonth)));
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalVentas", totals.count());
+        stats.put("totalRecaudado", money(totals.sumCents()));
+        stats.put("promedioVenta", totals.count() == 0 ? money(0)
+            : money(totals.sumCents()).divide(BigDecimal.valueOf(totals.count()), 2, RoundingMode.HALF_UP));
+        stats.put("ventaMaxima", money(totals.maxCents()));
+        stats.put("ventaMinima", money(totals.minCents()));
+        return stats;
+    }
+
+    private static BigDecimal money(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
@@ -1,5 +1,6 @@
 package com.ferreteria.models.dao;
 
+import com.ferreteria.models.Money;
 import com.ferreteria.models.Sale;
 import com.ferreteria.models.SaleItem;
 import com.ferreteria.models.SalePayment;
@@ -8,9 +9,17 @@ import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Data Access Object for sales.
@@ -18,55 +27,53 @@ import java.util.Optional;
  */
 public class SaleDAO {
 
+    private static final DateTimeFormatter DB_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private final DatabaseConfig config;
     private final SaleItemDAO itemDAO;
     private final SalePaymentDAO paymentDAO;
+    private final SaleStatsDAO statsDAO;
 
     public SaleDAO(DatabaseConfig config) {
         this.config = config;
         this.itemDAO = new SaleItemDAO(config);
         this.paymentDAO = new SalePaymentDAO(config);
+        this.statsDAO = new SaleStatsDAO(config);
     }
 
     /**
      * Creates a complete sale with items, payments and updates stock.
-     * Uses transaction to guarantee consistency.
+     * Goes through the shared {@link SaleWriter}, which may commit it in the
+     * same transaction as sales from other terminals; waits for the result.
      *
      * @param sale the sale to create with its items and payments
      * @return the created sale with its assigned ID
      * @throws RuntimeException if transaction error occurs
      */
     public Sale create(Sale sale) {
-        Connection conn = null;
         try {
-            conn = config.getConnection();
-            conn.setAutoCommit(false);
-
-            // 1. Insert sale header
-            int saleId = insertSale(conn, sale);
-
-            // 2. Insert items and update stock
-            for (SaleItem item : sale.getItems()) {
-                itemDAO.create(conn, saleId, item);
-                updateStock(conn, item.getVariantId(), -item.getQuantity());
+            return config.getSaleWriter().submit(sale).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
-
-            // 3. Insert payments
-            for (SalePayment payment : sale.getPayments()) {
-                paymentDAO.create(conn, saleId, payment);
-            }
-
-            conn.commit();
-            return findById(saleId).orElse(sale);
-
-        } catch (SQLException e) {
-            rollback(conn);
-            throw new RuntimeException("Error creating sale: " + e.getMessage(), e);
-        } finally {
-            setAutoCommitTrue(conn);
+            throw new RuntimeException("Error creating sale: " + e.getCause().getMessage(), e.getCause());
         }
     }
 
+    /**
+     * Creates a sale without waiting for it to be written.
+     * Returns as soon as the sale is queued in the {@link SaleWriter}; only
+     * blocks if the queue is full.
+     *
+     * @param sale the sale to create with its items and payments
+     * @return future completed with the created sale, or failed with a
+     *         RuntimeException if it could not be written (for example, not enough stock)
+     */
+    public CompletableFuture<Sale> createAsync(Sale sale) {
+        return config.getSaleWriter().submit(sale);
+    }
+
     /**
      * Cancels a sale and reverts stock for all its items.
      *
@@ -74,38 +81,12 @@ public class SaleDAO {
      * @throws RuntimeException if sale doesn't exist or is already cancelled
      */
     public void cancel(int saleId) {
-        Connection conn = null;
         try {
-            conn = config.getConnection();
-            conn.setAutoCommit(false);
-
-            // Verify it exists and is not cancelled
-            Sale sale = findById(saleId)
-                .orElseThrow(() -> new RuntimeException("Sale not found: " + saleId));
-
-            if (sale.isCancelled()) {
-                throw new RuntimeException("Sale is already cancelled");
-            }
-
-            // 1. Change status to cancelled
-            String sql = "UPDATE sales SET status = 'cancelled' WHERE id = ?";
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-            pstmt.setInt(1, saleId);
-            pstmt.executeUpdate();
-
-            // 2. Revert stock for each item
-            List<SaleItem> items = itemDAO.findBySaleId(saleId);
-            for (SaleItem item : items) {
-                updateStock(conn, item.getVariantId(), item.getQuantity());
-            }
-
-            conn.commit();
-
+            LocalDate[] days = config.getRetryPolicy().execute(() -> cancelTransaction(saleId));
+            config.getReportCache().invalidate(days);
+            config.getSalesColumns().saleCancelled(saleId);
         } catch (SQLException e) {
-            rollback(conn);
             throw new RuntimeException("Error cancelling sale: " + e.getMessage(), e);
-        } finally {
-            setAutoCommitTrue(conn);
         }
     }
 
@@ -117,56 +98,28 @@ public class SaleDAO {
      * @throws RuntimeException if sale doesn't exist or is not cancelled
      */
     public void delete(int saleId) {
-        Connection conn = null;
         try {
-            conn = config.getConnection();
-            conn.setAutoCommit(false);
-
-            // Verify it exists and is cancelled
-            Sale sale = findById(saleId)
-                .orElseThrow(() -> new RuntimeException("Sale not found: " + saleId));
-
-            if (!sale.isCancelled()) {
-                throw new RuntimeException("Only cancelled sales can be deleted");
-            }
-
-            // Delete in order: payments, items, then sale
-            PreparedStatement pstmt = conn.prepareStatement("DELETE FROM sale_payments WHERE sale_id = ?");
-            pstmt.setInt(1, saleId);
-            pstmt.executeUpdate();
-
-            pstmt = conn.prepareStatement("DELETE FROM sale_items WHERE sale_id = ?");
-            pstmt.setInt(1, saleId);
-            pstmt.executeUpdate();
-
-            pstmt = conn.prepareStatement("DELETE FROM sales WHERE id = ?");
-            pstmt.setInt(1, saleId);
-            pstmt.executeUpdate();
-
-            conn.commit();
-
+            LocalDate[] days = config.getRetryPolicy().execute(() -> deleteTransaction(saleId));
+            config.getReportCache().invalidate(days);
+            config.getSalesColumns().invalidate();
         } catch (SQLException e) {
-            rollback(conn);
             throw new RuntimeException("Error deleting sale: " + e.getMessage(), e);
-        } finally {
-            setAutoCommitTrue(conn);
         }
     }
 
     /**
      * Updates a sale's date/time.
+     * Moves the sale between days of the daily rollup in the same transaction.
      *
      * @param saleId ID of the sale to update
      * @param newDateTime new date/time for the sale
      * @throws RuntimeException if sale doesn't exist
      */
     public void updateDateTime(int saleId, LocalDateTime newDateTime) {
-        String sql = "UPDATE sales SET created_at = ? WHERE id = ?";
         try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setString(1, newDateTime.toString().replace("T", " "));
-            pstmt.setInt(2, saleId);
-            pstmt.executeUpdate();
+            LocalDate[] days = config.getRetryPolicy().execute(() -> updateDateTimeTransaction(saleId, newDateTime));
+            config.getReportCache().invalidate(days);
+            config.getSalesColumns().saleMoved(saleId, newDateTime.toLocalDate());
         } catch (SQLException e) {
             throw new RuntimeException("Error updating sale date: " + e.getMessage(), e);
         }
@@ -180,8 +133,8 @@ public class SaleDAO {
      */
     public void updateNotes(int saleId, String notes) {
         String sql = "UPDATE sales SET notes = ? WHERE id = ?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, notes);
             pstmt.setInt(2, saleId);
             pstmt.executeUpdate();
@@ -192,22 +145,29 @@ public class SaleDAO {
 
     /**
      * Updates a sale's total.
+     * Also recalculates the sale's day in the daily rollup, which picks up any
+     * payment changes made before (the edit dialog always saves the total last).
      *
      * @param saleId ID of the sale to update
      * @param newTotal new total amount
      */
-    public void updateTotal(int saleId, BigDecimal newTotal) {
-        String sql = "UPDATE sales SET total = ? WHERE id = ?";
+    public void updateTotal(int saleId, Money newTotal) {
         try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setBigDecimal(1, newTotal);
-            pstmt.setInt(2, saleId);
-            pstmt.executeUpdate();
+            LocalDate[] days = config.getRetryPolicy().execute(() -> updateTotalTransaction(saleId, newTotal));
+            config.getReportCache().invalidate(days);
+            config.getSalesColumns().invalidate();
         } catch (SQLException e) {
             throw new RuntimeException("Error updating sale total: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Rebuilds the daily sales rollup used by the statistics.
+     */
+    public void rebuildDailyAgg() {
+        statsDAO.rebuildDailyAgg();
+    }
+
     /**
      * Gets the SaleItemDAO for direct item operations.
      */
@@ -222,6 +182,13 @@ public class SaleDAO {
         return paymentDAO;
     }
 
+    /**
+     * Gets the SaleStatsDAO for period totals.
+     */
+    public SaleStatsDAO getStatsDAO() {
+        return statsDAO;
+    }
+
     /**
      * Finds a sale by its ID with all its details.
      *
@@ -235,8 +202,8 @@ public class SaleDAO {
             LEFT JOIN users u ON s.user_id = u.id
             WHERE s.id = ?
         """;
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
 
@@ -248,7 +215,7 @@ public class SaleDAO {
                 return Optional.of(new Sale.Builder()
                     .id(rs.getInt("id"))
                     .userId(rs.getInt("user_id"))
-                    .total(rs.getBigDecimal("total"))
+                    .total(Money.of(rs.getBigDecimal("total")))
                     .status(rs.getString("status"))
                     .notes(rs.getString("notes"))
                     .createdAt(parseDateTime(rs.getString("created_at")))
@@ -264,31 +231,75 @@ public class SaleDAO {
     }
 
     /**
-     * Lists sales for a specific date.
+     * Finds several sales with their items, payments and seller name.
      *
-     * @param date the date to search
-     * @return list of sales for that day
+     * Loads headers, items and payments with one query each per
+     * {@link IdBatch} (up to {@value IdBatch#MAX_SIZE} sales) and stitches them
+     * in memory, instead of the three queries per sale that
+     * {@link #findById(int)} would need. All reads share one connection.
+     *
+     * @param ids IDs of the sales; duplicates and unknown IDs are ignored
+     * @return complete sales in the order of {@code ids}
      */
-    public List<Sale> findByDate(LocalDate date) {
-        String sql = """
-            SELECT * FROM sales
-            WHERE DATE(created_at) = ?
-            ORDER BY created_at DESC
-        """;
-        List<Sale> sales = new ArrayList<>();
-
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setString(1, date.toString());
-            ResultSet rs = pstmt.executeQuery();
+    public List<Sale> findWithDetails(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Sale.Builder> headers = new HashMap<>();
+
+        try (Connection conn = config.getReadConnection()) {
+            for (IdBatch batch : IdBatch.of(ids)) {
+                String sql = """
+                    SELECT s.*, u.full_name as user_name
+                    FROM sales s
+                    LEFT JOIN users u ON s.user_id = u.id
+                    WHERE s.id IN (%s)
+                """.formatted(batch.placeholders());
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    batch.bind(pstmt, 1);
+                    ResultSet rs = pstmt.executeQuery();
+
+                    while (rs.next()) {
+                        headers.put(rs.getInt("id"), new Sale.Builder()
+                            .id(rs.getInt("id"))
+                            .userId(rs.getInt("user_id"))
+                            .total(Money.of(rs.getBigDecimal("total")))
+                            .status(rs.getString("status"))
+                            .notes(rs.getString("notes"))
+                            .createdAt(parseDateTime(rs.getString("created_at")))
+                            .userName(rs.getString("user_name")));
+                    }
+                }
+            }
 
-            while (rs.next()) {
-                sales.add(mapResultSet(rs));
+            Map<Integer, List<SaleItem>> items = itemDAO.findBySaleIds(conn, headers.keySet());
+            Map<Integer, List<SalePayment>> payments = paymentDAO.findBySaleIds(conn, headers.keySet());
+
+            List<Sale> sales = new ArrayList<>(headers.size());
+            for (Integer id : new LinkedHashSet<>(ids)) {
+                Sale.Builder builder = headers.get(id);
+                if (builder != null) {
+                    sales.add(builder
+                        .items(items.getOrDefault(id, List.of()))
+                        .payments(payments.getOrDefault(id, List.of()))
+                        .build());
+                }
             }
+            return sales;
         } catch (SQLException e) {
-            throw new RuntimeException("Error listing sales by date", e);
+            throw new RuntimeException("Error finding sales with details", e);
         }
-        return sales;
+    }
+
+    /**
+     * Lists sales for a specific date.
+     *
+     * @param date the date to search
+     * @return list of sales for that day
+     */
+    public List<Sale> findByDate(LocalDate date) {
+        return findByPeriod(SalePeriod.day(date));
     }
 
     /**
@@ -299,25 +310,41 @@ public class SaleDAO {
      * @return list of sales for the month
      */
     public List<Sale> findByMonth(int year, int month) {
-        String sql = """
-            SELECT * FROM sales
-            WHERE strftime('%Y', created_at) = ?
-            AND strftime('%m', created_at) = ?
-            ORDER BY created_at DESC
-        """;
+        return findByPeriod(SalePeriod.month(year, month));
+    }
+
+    /**
+     * Lists sales in a date range.
+     *
+     * @param from start date (inclusive)
+     * @param to end date (inclusive)
+     * @return list of sales in range
+     */
+    public List<Sale> findByDateRange(LocalDate from, LocalDate to) {
+        return findByPeriod(SalePeriod.range(from, to));
+    }
+
+    /**
+     * Lists sales created within a period.
+     *
+     * @param period the period to search
+     * @return list of sales, newest first
+     */
+    public List<Sale> findByPeriod(SalePeriod period) {
+        String sql = "SELECT * FROM sales WHERE " + period.predicate("created_at")
+            + " ORDER BY created_at DESC";
         List<Sale> sales = new ArrayList<>();
 
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setString(1, String.valueOf(year));
-            pstmt.setString(2, String.format("%02d", month));
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            period.bind(pstmt, 1);
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
                 sales.add(mapResultSet(rs));
             }
         } catch (SQLException e) {
-            throw new RuntimeException("Error listing sales by month", e);
+            throw new RuntimeException("Error listing sales by period", e);
         }
         return sales;
     }
@@ -350,8 +377,8 @@ public class SaleDAO {
         String sql = "SELECT * FROM sales WHERE status = ? ORDER BY created_at DESC";
         List<Sale> sales = new ArrayList<>();
 
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, status);
             ResultSet rs = pstmt.executeQuery();
 
@@ -371,23 +398,7 @@ public class SaleDAO {
      * @return sum of completed sales totals
      */
     public BigDecimal dailyTotal(LocalDate date) {
-        String sql = """
-            SELECT COALESCE(SUM(total), 0) as total
-            FROM sales
-            WHERE DATE(created_at) = ? AND status = 'completed'
-        """;
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setString(1, date.toString());
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getBigDecimal("total");
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error calculating daily total", e);
-        }
-        return BigDecimal.ZERO;
+        return statsDAO.dailyTotal(date);
     }
 
     /**
@@ -397,22 +408,7 @@ public class SaleDAO {
      * @return count of completed sales
      */
     public int dailyCount(LocalDate date) {
-        String sql = """
-            SELECT COUNT(*) FROM sales
-            WHERE DATE(created_at) = ? AND status = 'completed'
-        """;
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setString(1, date.toString());
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error counting daily sales", e);
-        }
-        return 0;
+        return statsDAO.dailyCount(date);
     }
 
     /**
@@ -424,9 +420,9 @@ public class SaleDAO {
         String sql = "SELECT * FROM sales ORDER BY created_at DESC";
         List<Sale> sales = new ArrayList<>();
 
-        try {
-            Statement stmt = config.getConnection().createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
                 sales.add(mapResultSet(rs));
@@ -448,8 +444,8 @@ public class SaleDAO {
         String sql = "SELECT * FROM sales ORDER BY created_at DESC LIMIT ? OFFSET ?";
         List<Sale> sales = new ArrayList<>();
 
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, limit);
             pstmt.setInt(2, offset);
             ResultSet rs = pstmt.executeQuery();
@@ -464,55 +460,89 @@ public class SaleDAO {
     }
 
     /**
-     * Lists sales for a specific user.
+     * Lists one page of sales matching a filter, newest first.
      *
-     * @param userId ID of the user/seller
-     * @return list of user's sales
+     * Uses keyset pagination on (created_at, id): the page starts right after
+     * the cursor instead of skipping rows with OFFSET, so every page costs the
+     * same. Items and payments are loaded with {@link #findWithDetails}.
+     *
+     * @param filter criteria, all evaluated in SQL
+     * @param after cursor returned by the previous page, or null for the first page
+     * @param limit maximum number of sales in the page
+     * @return the page and the cursor for the next one
      */
-    public List<Sale> findByUserId(int userId) {
-        String sql = "SELECT * FROM sales WHERE user_id = ? ORDER BY created_at DESC";
-        List<Sale> sales = new ArrayList<>();
-
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setInt(1, userId);
+    public SalePage findPage(SaleFilter filter, SaleCursor after, int limit) {
+        String sql = "SELECT s.id, s.created_at FROM sales s WHERE " + filter.predicate()
+            + (after != null ? " AND (s.created_at, s.id) < (?, ?)" : "")
+            + " ORDER BY s.created_at DESC, s.id DESC LIMIT ?";
+        List<Integer> ids = new ArrayList<>();
+        SaleCursor last = null;
+        boolean hasMore = false;
+
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = filter.bind(pstmt, 1);
+            if (after != null) {
+                pstmt.setString(index++, after.createdAt());
+                pstmt.setInt(index++, after.id());
+            }
+            // One extra row tells whether there is a next page
+            pstmt.setInt(index, limit + 1);
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
-                sales.add(mapResultSet(rs));
+                if (ids.size() == limit) {
+                    hasMore = true;
+                    break;
+                }
+                ids.add(rs.getInt("id"));
+                last = new SaleCursor(rs.getString("created_at"), rs.getInt("id"));
             }
         } catch (SQLException e) {
-            throw new RuntimeException("Error listing sales by user", e);
+            throw new RuntimeException("Error listing sales page", e);
         }
-        return sales;
+        return new SalePage(findWithDetails(ids), hasMore ? last : null);
     }
 
     /**
-     * Lists sales in a date range.
+     * Counts the sales matching a filter (for the pager).
      *
-     * @param from start date (inclusive)
-     * @param to end date (inclusive)
-     * @return list of sales in range
+     * @param filter criteria, all evaluated in SQL
+     * @return number of matching sales
      */
-    public List<Sale> findByDateRange(LocalDate from, LocalDate to) {
-        String sql = """
-            SELECT * FROM sales
-            WHERE DATE(created_at) BETWEEN ? AND ?
-            ORDER BY created_at DESC
-        """;
+    public int count(SaleFilter filter) {
+        String sql = "SELECT COUNT(*) FROM sales s WHERE " + filter.predicate();
+
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            filter.bind(pstmt, 1);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Error counting sales", e);
+        }
+    }
+
+    /**
+     * Lists sales for a specific user.
+     *
+     * @param userId ID of the user/seller
+     * @return list of user's sales
+     */
+    public List<Sale> findByUserId(int userId) {
+        String sql = "SELECT * FROM sales WHERE user_id = ? ORDER BY created_at DESC";
         List<Sale> sales = new ArrayList<>();
 
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setString(1, from.toString());
-            pstmt.setString(2, to.toString());
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
                 sales.add(mapResultSet(rs));
             }
         } catch (SQLException e) {
-            throw new RuntimeException("Error listing sales by date range", e);
+            throw new RuntimeException("Error listing sales by user", e);
         }
         return sales;
     }
@@ -524,9 +554,9 @@ public class SaleDAO {
      */
     public int count() {
         String sql = "SELECT COUNT(*) FROM sales";
-        try {
-            Statement stmt = config.getConnection().createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
                 return rs.getInt(1);
@@ -543,18 +573,7 @@ public class SaleDAO {
      * @return count of completed sales
      */
     public int countCompleted() {
-        String sql = "SELECT COUNT(*) FROM sales WHERE status = 'completed'";
-        try {
-            Statement stmt = config.getConnection().createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
-
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error counting completed sales", e);
-        }
-        return 0;
+        return statsDAO.overallTotals().salesCount();
     }
 
     /**
@@ -565,26 +584,7 @@ public class SaleDAO {
      * @return sum of completed sales totals for the month
      */
     public BigDecimal monthlyTotal(int year, int month) {
-        String sql = """
-            SELECT COALESCE(SUM(total), 0) as total
-            FROM sales
-            WHERE strftime('%Y', created_at) = ?
-            AND strftime('%m', created_at) = ?
-            AND status = 'completed'
-        """;
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setString(1, String.valueOf(year));
-            pstmt.setString(2, String.format("%02d", month));
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getBigDecimal("total");
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error calculating monthly total", e);
-        }
-        return BigDecimal.ZERO;
+        return statsDAO.monthlyTotal(year, month);
     }
 
     /**
@@ -593,18 +593,7 @@ public class SaleDAO {
      * @return sum of all totals
      */
     public BigDecimal overallTotal() {
-        String sql = "SELECT COALESCE(SUM(total), 0) as total FROM sales WHERE status = 'completed'";
-        try {
-            Statement stmt = config.getConnection().createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
-
-            if (rs.next()) {
-                return rs.getBigDecimal("total");
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error calculating overall total", e);
-        }
-        return BigDecimal.ZERO;
+        return statsDAO.overallTotals().grossTotal();
     }
 
     /**
@@ -620,8 +609,8 @@ public class SaleDAO {
             FROM sales
             WHERE user_id = ? AND status = 'completed'
         """;
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, userId);
             ResultSet rs = pstmt.executeQuery();
 
@@ -652,46 +641,250 @@ public class SaleDAO {
         }
     }
 
+    /**
+     * Position after the last sale of a page, in (created_at, id) order.
+     * created_at is kept as stored so comparisons match the database text.
+     */
+    public record SaleCursor(String createdAt, int id) {}
+
+    /**
+     * One page of sales.
+     *
+     * @param sales sales with items and payments, newest first
+     * @param next cursor for the following page, or null if this is the last one
+     */
+    public record SalePage(List<Sale> sales, SaleCursor next) {
+        public boolean hasNext() {
+            return next != null;
+        }
+    }
+
     // Private helper methods
 
-    private int insertSale(Connection conn, Sale sale) throws SQLException {
+    /**
+     * Inserts a sale with its items and payments and discounts stock, using
+     * the caller's transaction. The daily rollup is left to the caller.
+     *
+     * Items, stock updates and payments go as one JDBC batch each, and the
+     * result is built from the input plus the generated IDs (no re-read).
+     *
+     * @return the created sale with its IDs and stored date/time
+     */
+    Sale insert(Connection conn, Sale sale) throws SQLException {
+        LocalDateTime createdAt = (sale.getCreatedAt() != null ? sale.getCreatedAt() : LocalDateTime.now())
+            .truncatedTo(ChronoUnit.SECONDS);
+
+        // 1. Insert sale header, with its date/time
+        int saleId = insertSale(conn, sale, createdAt);
+
+        // 2. Insert items and update stock
+        List<SaleItem> items = itemDAO.createAll(conn, saleId, sale.getItems());
+        updateStock(conn, sale.getItems(), -1);
+
+        // 3. Insert payments
+        List<SalePayment> payments = paymentDAO.createAll(conn, saleId, sale.getPayments());
+
+        return new Sale.Builder()
+            .id(saleId)
+            .userId(sale.getUserId())
+            .total(sale.getTotal())
+            .status(sale.getStatus())
+            .notes(sale.getNotes())
+            .createdAt(createdAt)
+            .userName(sale.getUserName())
+            .items(items)
+            .payments(payments)
+            .build();
+    }
+
+    private LocalDate[] cancelTransaction(int saleId) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = config.getWriteConnection();
+            conn.setAutoCommit(false);
+
+            // Verify it exists and is not cancelled
+            Sale sale = findById(saleId)
+                .orElseThrow(() -> new RuntimeException("Sale not found: " + saleId));
+
+            if (sale.isCancelled()) {
+                throw new RuntimeException("Sale is already cancelled");
+            }
+
+            // 1. Change status to cancelled
+            String sql = "UPDATE sales SET status = 'cancelled' WHERE id = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, saleId);
+                pstmt.executeUpdate();
+            }
+
+            // 2. Revert stock for each item
+            updateStock(conn, sale.getItems(), 1);
+
+            // 3. Move the sale to the cancelled columns of the rollup
+            LocalDate day = SalesDailyAgg.refreshSale(conn, saleId);
+
+            conn.commit();
+            return new LocalDate[]{day};
+
+        } catch (SQLException e) {
+            rollback(conn);
+            throw e;
+        } finally {
+            setAutoCommitTrue(conn);
+            close(conn);
+        }
+    }
+
+    private LocalDate[] deleteTransaction(int saleId) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = config.getWriteConnection();
+            conn.setAutoCommit(false);
+
+            // Verify it exists and is cancelled
+            Sale sale = findById(saleId)
+                .orElseThrow(() -> new RuntimeException("Sale not found: " + saleId));
+
+            if (!sale.isCancelled()) {
+                throw new RuntimeException("Only cancelled sales can be deleted");
+            }
+
+            // Delete in order: payments, items, then sale
+            LocalDate day = SalesDailyAgg.dayOf(conn, saleId);
+            for (String sql : new String[]{
+                    "DELETE FROM sale_payments WHERE sale_id = ?",
+                    "DELETE FROM sale_items WHERE sale_id = ?",
+                    "DELETE FROM sales WHERE id = ?"}) {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, saleId);
+                    pstmt.executeUpdate();
+                }
+            }
+            SalesDailyAgg.refreshDays(conn, day);
+
+            conn.commit();
+            return new LocalDate[]{day};
+
+        } catch (SQLException e) {
+            rollback(conn);
+            throw e;
+        } finally {
+            setAutoCommitTrue(conn);
+            close(conn);
+        }
+    }
+
+    private LocalDate[] updateDateTimeTransaction(int saleId, LocalDateTime newDateTime) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = config.getWriteConnection();
+            conn.setAutoCommit(false);
+
+            LocalDate previousDay = SalesDailyAgg.dayOf(conn, saleId);
+            String sql = "UPDATE sales SET created_at = ? WHERE id = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, formatDateTime(newDateTime));
+                pstmt.setInt(2, saleId);
+                pstmt.executeUpdate();
+            }
+            SalesDailyAgg.refreshDays(conn, previousDay, newDateTime.toLocalDate());
+
+            conn.commit();
+            return new LocalDate[]{previousDay, newDateTime.toLocalDate()};
+
+        } catch (SQLException e) {
+            rollback(conn);
+            throw e;
+        } finally {
+            setAutoCommitTrue(conn);
+            close(conn);
+        }
+    }
+
+    private LocalDate[] updateTotalTransaction(int saleId, Money newTotal) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = config.getWriteConnection();
+            conn.setAutoCommit(false);
+
+            String sql = "UPDATE sales SET total = ? WHERE id = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setBigDecimal(1, newTotal.toBigDecimal());
+                pstmt.setInt(2, saleId);
+                pstmt.executeUpdate();
+            }
+            LocalDate day = SalesDailyAgg.refreshSale(conn, saleId);
+
+            conn.commit();
+            return new LocalDate[]{day};
+
+        } catch (SQLException e) {
+            rollback(conn);
+            throw e;
+        } finally {
+            setAutoCommitTrue(conn);
+            close(conn);
+        }
+    }
+
+    private int insertSale(Connection conn, Sale sale, LocalDateTime createdAt) throws SQLException {
         String sql = """
             INSERT INTO sales (user_id, total, status, notes, created_at)
-            VALUES (?, ?, ?, ?, datetime('now', 'localtime'))
+            VALUES (?, ?, ?, ?, ?)
         """;
-        PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-        pstmt.setInt(1, sale.getUserId());
-        pstmt.setBigDecimal(2, sale.getTotal());
-        pstmt.setString(3, sale.getStatus());
-        pstmt.setString(4, sale.getNotes());
-        pstmt.executeUpdate();
-
-        ResultSet keys = pstmt.getGeneratedKeys();
-        if (keys.next()) {
-            return keys.getInt(1);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, sale.getUserId());
+            pstmt.setBigDecimal(2, sale.getTotal().toBigDecimal());
+            pstmt.setString(3, sale.getStatus());
+            pstmt.setString(4, sale.getNotes());
+            pstmt.setString(5, formatDateTime(createdAt));
+            pstmt.executeUpdate();
+
+            ResultSet keys = pstmt.getGeneratedKeys();
+            if (keys.next()) {
+                return keys.getInt(1);
+            }
+            throw new SQLException("Could not get created sale ID");
         }
-        throw new SQLException("Could not get created sale ID");
     }
 
-    private void updateStock(Connection conn, int variantId, int quantity) throws SQLException {
+    /**
+     * Adds (sign 1) or discounts (sign -1) the quantity of each item, in one batch.
+     */
+    private void updateStock(Connection conn, List<SaleItem> items, int sign) throws SQLException {
+        if (items.isEmpty()) {
+            return;
+        }
         String sql = "UPDATE product_variants SET stock = stock + ? WHERE id = ?";
-        PreparedStatement pstmt = conn.prepareStatement(sql);
-        pstmt.setInt(1, quantity);
-        pstmt.setInt(2, variantId);
-        pstmt.executeUpdate();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (SaleItem item : items) {
+                pstmt.setInt(1, sign * item.getQuantity());
+                pstmt.setInt(2, item.getVariantId());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
     }
 
     private Sale mapResultSet(ResultSet rs) throws SQLException {
         return new Sale.Builder()
             .id(rs.getInt("id"))
             .userId(rs.getInt("user_id"))
-            .total(rs.getBigDecimal("total"))
+            .total(Money.of(rs.getBigDecimal("total")))
             .status(rs.getString("status"))
             .notes(rs.getString("notes"))
             .createdAt(parseDateTime(rs.getString("created_at")))
             .build();
     }
 
+    /**
+     * Date/time as stored in created_at ('YYYY-MM-DD HH:MM:SS').
+     */
+    private String formatDateTime(LocalDateTime dateTime) {
+        return dateTime.format(DB_DATE_TIME);
+    }
+
     private LocalDateTime parseDateTime(String dateStr) {
         if (dateStr == null) return LocalDateTime.now();
         try {
@@ -716,4 +909,12 @@ public class SaleDAO {
             System.err.println("Error restoring autocommit: " + e.getMessage());
         }
     }
+
+    private void close(Connection conn) {
+        try {
+            if (conn != null) conn.close();
+        } catch (SQLException e) {
+            System.err.println("Error releasing connection: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,145 @@
+package com.ferreteria.models.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filter for sale listings, translated to a single SQL predicate.
+ *
+ * Every criterion is optional; an empty filter matches all sales. The
+ * predicate expects the sales table aliased as {@code s}.
+ */
+public final class SaleFilter {
+
+    private final String status;
+    private final SalePeriod period;
+    private final Integer userId;
+    private final String productText;
+    private final List<String> productWords;
+
+    private SaleFilter(Builder builder) {
+        this.status = builder.status;
+        this.period = builder.period;
+        this.userId = builder.userId;
+        this.productText = builder.productText;
+        this.productWords = productText == null ? List.of() : SearchKey.words(productText);
+    }
+
+    /**
+     * A filter that matches every sale.
+     */
+    public static SaleFilter all() {
+        return new Builder().build();
+    }
+
+    /**
+     * SQL predicate over {@code sales s}, with parameters to bind in order.
+     *
+     * @return conditions joined with AND, or "1 = 1" if the filter is empty
+     */
+    public String predicate() {
+        List<String> conditions = new ArrayList<>();
+        if (status != null) {
+            conditions.add("s.status = ?");
+        }
+        if (period != null) {
+            conditions.add(period.predicate("s.created_at"));
+        }
+        if (userId != null) {
+            conditions.add("s.user_id = ?");
+        }
+        if (!productWords.isEmpty()) {
+            conditions.add("""
+                EXISTS (
+                    SELECT 1
+                    FROM sale_items si
+                    JOIN product_variants pv ON si.variant_id = pv.id
+                    JOIN products p ON pv.product_id = p.id
+                    WHERE si.sale_id = s.id%s
+                )""".formatted(" AND (p.search_key || ' ' || pv.search_key) LIKE ?".repeat(productWords.size())));
+        }
+        return conditions.isEmpty() ? "1 = 1" : String.join(" AND ", conditions);
+    }
+
+    /**
+     * Binds the filter parameters starting at the given parameter index.
+     *
+     * @return the next free parameter index
+     */
+    public int bind(PreparedStatement pstmt, int index) throws SQLException {
+        if (status != null) {
+            pstmt.setString(index++, status);
+        }
+        if (period != null) {
+            index = period.bind(pstmt, index);
+        }
+        if (userId != null) {
+            pstmt.setInt(index++, userId);
+        }
+        for (String word : productWords) {
+            pstmt.setString(index++, SearchKey.containsPattern(word));
+        }
+        return index;
+    }
+
+    public String getStatus() { return status; }
+    public SalePeriod getPeriod() { return period; }
+    public Integer getUserId() { return userId; }
+    public String getProductText() { return productText; }
+
+    @Override
+    public String toString() {
+        return "SaleFilter{status=" + status + ", period=" + period
+            + ", userId=" + userId + ", product=" + productText + "}";
+    }
+
+    /**
+     * Builder for SaleFilter.
+     */
+    public static class Builder {
+        private String status;
+        private SalePeriod period;
+        private Integer userId;
+        private String productText;
+
+        /**
+         * Only sales with this status ('completed' or 'cancelled'); null for any.
+         */
+        public Builder status(String status) {
+            this.status = status;
+            return this;
+        }
+
+        /**
+         * Only sales created within the period; null for any date.
+         */
+        public Builder period(SalePeriod period) {
+            this.period = period;
+            return this;
+        }
+
+        /**
+         * Only sales made by this user; null for any seller.
+         */
+        public Builder userId(Integer userId) {
+            this.userId = userId;
+            return this;
+        }
+
+        /**
+         * Only sales containing a product whose name, code, variant or SKU
+         * contain every word of the text, ignoring case and accents ("cano"
+         * matches "Caño"). Text without letters or digits is ignored.
+         */
+        public Builder product(String text) {
+            this.productText = text == null || text.isBlank() ? null : text.trim();
+            return this;
+        }
+
+        public SaleFilter build() {
+            return new SaleFilter(this);
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package com.ferreteria.models.dao;
 
+import com.ferreteria.models.Money;
 import com.ferreteria.models.SaleItem;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for sale items/details.
@@ -34,18 +38,66 @@ public class SaleItemDAO {
             INSERT INTO sale_items (sale_id, variant_id, quantity, unit_price, subtotal, created_at)
             VALUES (?, ?, ?, ?, ?, datetime('now', 'localtime'))
         """;
-        PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-        pstmt.setInt(1, saleId);
-        pstmt.setInt(2, item.getVariantId());
-        pstmt.setInt(3, item.getQuantity());
-        pstmt.setBigDecimal(4, item.getUnitPrice());
-        pstmt.setBigDecimal(5, item.getSubtotal());
-        pstmt.executeUpdate();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, saleId);
+            pstmt.setInt(2, item.getVariantId());
+            pstmt.setInt(3, item.getQuantity());
+            pstmt.setBigDecimal(4, item.getUnitPrice().toBigDecimal());
+            pstmt.setBigDecimal(5, item.getSubtotal().toBigDecimal());
+            pstmt.executeUpdate();
+
+            ResultSet keys = pstmt.getGeneratedKeys();
+            if (keys.next()) {
+                return new SaleItem.Builder()
+                    .id(keys.getInt(1))
+                    .saleId(saleId)
+                    .variantId(item.getVariantId())
+                    .quantity(item.getQuantity())
+                    .unitPrice(item.getUnitPrice())
+                    .subtotal(item.getSubtotal())
+                    .productName(item.getProductName())
+                    .variantName(item.getVariantName())
+                    .build();
+            }
+            return item;
+        }
+    }
+
+    /**
+     * Creates all the items of a sale in one JDBC batch (for transactions).
+     *
+     * @param conn connection with active transaction
+     * @param saleId ID of the sale
+     * @param items the items to create
+     * @return the created items with their IDs, in the same order
+     * @throws SQLException if database error occurs
+     */
+    public List<SaleItem> createAll(Connection conn, int saleId, List<SaleItem> items) throws SQLException {
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = """
+            INSERT INTO sale_items (sale_id, variant_id, quantity, unit_price, subtotal, created_at)
+            VALUES (?, ?, ?, ?, ?, datetime('now', 'localtime'))
+        """;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (SaleItem item : items) {
+                pstmt.setInt(1, saleId);
+                pstmt.setInt(2, item.getVariantId());
+                pstmt.setInt(3, item.getQuantity());
+                pstmt.setBigDecimal(4, item.getUnitPrice().toBigDecimal());
+                pstmt.setBigDecimal(5, item.getSubtotal().toBigDecimal());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
 
-        ResultSet keys = pstmt.getGeneratedKeys();
-        if (keys.next()) {
-            return new SaleItem.Builder()
-                .id(keys.getInt(1))
+        int[] ids = GeneratedKeys.lastInserted(conn, items.size());
+        List<SaleItem> created = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            SaleItem item = items.get(i);
+            created.add(new SaleItem.Builder()
+                .id(ids[i])
                 .saleId(saleId)
                 .variantId(item.getVariantId())
                 .quantity(item.getQuantity())
@@ -53,9 +105,9 @@ public class SaleItemDAO {
                 .subtotal(item.getSubtotal())
                 .productName(item.getProductName())
                 .variantName(item.getVariantName())
-                .build();
+                .build());
         }
-        return item;
+        return created;
     }
 
     /**
@@ -75,8 +127,8 @@ public class SaleItemDAO {
         """;
         List<SaleItem> items = new ArrayList<>();
 
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, saleId);
             ResultSet rs = pstmt.executeQuery();
 
@@ -89,6 +141,41 @@ public class SaleItemDAO {
         return items;
     }
 
+    /**
+     * Lists the items of several sales, grouped by sale ID.
+     * Uses one query per {@link IdBatch} instead of one per sale.
+     *
+     * @param conn connection to read from (keeps headers and details on one snapshot)
+     * @param saleIds IDs of the sales
+     * @return items per sale ID; sales without items are absent
+     * @throws SQLException if database error occurs
+     */
+    public Map<Integer, List<SaleItem>> findBySaleIds(Connection conn, Collection<Integer> saleIds) throws SQLException {
+        Map<Integer, List<SaleItem>> bySale = new HashMap<>();
+
+        for (IdBatch batch : IdBatch.of(saleIds)) {
+            String sql = """
+                SELECT si.*, p.name as product_name, pv.variant_name
+                FROM sale_items si
+                JOIN product_variants pv ON si.variant_id = pv.id
+                JOIN products p ON pv.product_id = p.id
+                WHERE si.sale_id IN (%s)
+                ORDER BY si.sale_id, si.id
+            """.formatted(batch.placeholders());
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                batch.bind(pstmt, 1);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    SaleItem item = mapResultSet(rs);
+                    bySale.computeIfAbsent(item.getSaleId(), k -> new ArrayList<>()).add(item);
+                }
+            }
+        }
+        return bySale;
+    }
+
     /**
      * Finds an item by its ID.
      *
@@ -103,8 +190,8 @@ public class SaleItemDAO {
             JOIN products p ON pv.product_id = p.id
             WHERE si.id = ?
         """;
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
 
@@ -130,8 +217,8 @@ public class SaleItemDAO {
             JOIN sales s ON si.sale_id = s.id
             WHERE si.variant_id = ? AND s.status = 'completed'
         """;
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, variantId);
             ResultSet rs = pstmt.executeQuery();
 
@@ -166,8 +253,8 @@ public class SaleItemDAO {
         """;
         List<SoldProduct> products = new ArrayList<>();
 
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, limit);
             ResultSet rs = pstmt.executeQuery();
 
@@ -193,12 +280,12 @@ public class SaleItemDAO {
      * @param newQuantity new quantity
      * @param newSubtotal new subtotal
      */
-    public void updateQuantity(int itemId, int newQuantity, BigDecimal newSubtotal) {
+    public void updateQuantity(int itemId, int newQuantity, Money newSubtotal) {
         String sql = "UPDATE sale_items SET quantity = ?, subtotal = ? WHERE id = ?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, newQuantity);
-            pstmt.setBigDecimal(2, newSubtotal);
+            pstmt.setBigDecimal(2, newSubtotal.toBigDecimal());
             pstmt.setInt(3, itemId);
             pstmt.executeUpdate();
         } catch (SQLException e) {
@@ -214,14 +301,14 @@ public class SaleItemDAO {
      * @param newUnitPrice new unit price
      * @param quantity current quantity
      */
-    public void updateVariant(int itemId, int newVariantId, BigDecimal newUnitPrice, int quantity) {
-        BigDecimal newSubtotal = newUnitPrice.multiply(BigDecimal.valueOf(quantity));
+    public void updateVariant(int itemId, int newVariantId, Money newUnitPrice, int quantity) {
+        Money newSubtotal = newUnitPrice.times(quantity);
         String sql = "UPDATE sale_items SET variant_id = ?, unit_price = ?, subtotal = ? WHERE id = ?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, newVariantId);
-            pstmt.setBigDecimal(2, newUnitPrice);
-            pstmt.setBigDecimal(3, newSubtotal);
+            pstmt.setBigDecimal(2, newUnitPrice.toBigDecimal());
+            pstmt.setBigDecimal(3, newSubtotal.toBigDecimal());
             pstmt.setInt(4, itemId);
             pstmt.executeUpdate();
         } catch (SQLException e) {
@@ -236,8 +323,8 @@ public class SaleItemDAO {
      */
     public void delete(int itemId) {
         String sql = "DELETE FROM sale_items WHERE id = ?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, itemId);
             pstmt.executeUpdate();
         } catch (SQLException e) {
@@ -251,8 +338,8 @@ public class SaleItemDAO {
             .saleId(rs.getInt("sale_id"))
             .variantId(rs.getInt("variant_id"))
             .quantity(rs.getInt("quantity"))
-            .unitPrice(rs.getBigDecimal("unit_price"))
-            .subtotal(rs.getBigDecimal("subtotal"))
+            .unitPrice(Money.of(rs.getBigDecimal("unit_price")))
+            .subtotal(Money.of(rs.getBigDecimal("subtotal")))
             .productName(rs.getString("product_name"))
             .variantName(rs.getString("variant_name"))
             .createdAt(parseDateTime(rs.getString("created_at")))
@@ -1,5 +1,6 @@
 package com.ferreteria.models.dao;
 
+import com.ferreteria.models.Money;
 import com.ferreteria.models.SalePayment;
 import com.ferreteria.models.SalePayment.PaymentMethod;
 
@@ -7,6 +8,7 @@ import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,24 +39,68 @@ public class SalePaymentDAO {
             INSERT INTO sale_payments (sale_id, payment_method, amount, reference, created_at)
             VALUES (?, ?, ?, ?, datetime('now', 'localtime'))
         """;
-        PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-        pstmt.setInt(1, saleId);
-        pstmt.setString(2, payment.getPaymentMethod().getValue());
-        pstmt.setBigDecimal(3, payment.getAmount());
-        pstmt.setString(4, payment.getReference());
-        pstmt.executeUpdate();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, saleId);
+            pstmt.setString(2, payment.getPaymentMethod().getValue());
+            pstmt.setBigDecimal(3, payment.getAmount().toBigDecimal());
+            pstmt.setString(4, payment.getReference());
+            pstmt.executeUpdate();
+
+            ResultSet keys = pstmt.getGeneratedKeys();
+            if (keys.next()) {
+                return new SalePayment.Builder()
+                    .id(keys.getInt(1))
+                    .saleId(saleId)
+                    .paymentMethod(payment.getPaymentMethod())
+                    .amount(payment.getAmount())
+                    .reference(payment.getReference())
+                    .build();
+            }
+            return payment;
+        }
+    }
+
+    /**
+     * Creates all the payments of a sale in one JDBC batch (for transactions).
+     *
+     * @param conn connection with active transaction
+     * @param saleId ID of the sale
+     * @param payments the payments to create
+     * @return the created payments with their IDs, in the same order
+     * @throws SQLException if database error occurs
+     */
+    public List<SalePayment> createAll(Connection conn, int saleId, List<SalePayment> payments) throws SQLException {
+        if (payments.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = """
+            INSERT INTO sale_payments (sale_id, payment_method, amount, reference, created_at)
+            VALUES (?, ?, ?, ?, datetime('now', 'localtime'))
+        """;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (SalePayment payment : payments) {
+                pstmt.setInt(1, saleId);
+                pstmt.setString(2, payment.getPaymentMethod().getValue());
+                pstmt.setBigDecimal(3, payment.getAmount().toBigDecimal());
+                pstmt.setString(4, payment.getReference());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
 
-        ResultSet keys = pstmt.getGeneratedKeys();
-        if (keys.next()) {
-            return new SalePayment.Builder()
-                .id(keys.getInt(1))
+        int[] ids = GeneratedKeys.lastInserted(conn, payments.size());
+        List<SalePayment> created = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            SalePayment payment = payments.get(i);
+            created.add(new SalePayment.Builder()
+                .id(ids[i])
                 .saleId(saleId)
                 .paymentMethod(payment.getPaymentMethod())
                 .amount(payment.getAmount())
                 .reference(payment.getReference())
-                .build();
+                .build());
         }
-        return payment;
+        return created;
     }
 
     /**
@@ -64,8 +110,8 @@ public class SalePaymentDAO {
      * @return the created payment with its ID
      */
     public SalePayment create(SalePayment payment) {
-        try {
-            return create(config.getConnection(), payment.getSaleId(), payment);
+        try (Connection conn = config.getWriteConnection()) {
+            return create(conn, payment.getSaleId(), payment);
         } catch (SQLException e) {
             throw new RuntimeException("Error creating payment", e);
         }
@@ -81,8 +127,8 @@ public class SalePaymentDAO {
         String sql = "SELECT * FROM sale_payments WHERE sale_id = ? ORDER BY id";
         List<SalePayment> payments = new ArrayList<>();
 
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, saleId);
             ResultSet rs = pstmt.executeQuery();
 
@@ -95,6 +141,35 @@ public class SalePaymentDAO {
         return payments;
     }
 
+    /**
+     * Lists the payments of several sales, grouped by sale ID.
+     * Uses one query per {@link IdBatch} instead of one per sale.
+     *
+     * @param conn connection to read from (keeps headers and details on one snapshot)
+     * @param saleIds IDs of the sales
+     * @return payments per sale ID; sales without payments are absent
+     * @throws SQLException if database error occurs
+     */
+    public Map<Integer, List<SalePayment>> findBySaleIds(Connection conn, Collection<Integer> saleIds) throws SQLException {
+        Map<Integer, List<SalePayment>> bySale = new HashMap<>();
+
+        for (IdBatch batch : IdBatch.of(saleIds)) {
+            String sql = "SELECT * FROM sale_payments WHERE sale_id IN (" + batch.placeholders()
+                + ") ORDER BY sale_id, id";
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                batch.bind(pstmt, 1);
+                ResultSet rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    SalePayment payment = mapResultSet(rs);
+                    bySale.computeIfAbsent(payment.getSaleId(), k -> new ArrayList<>()).add(payment);
+                }
+            }
+        }
+        return bySale;
+    }
+
     /**
      * Gets the total paid for a sale.
      *
@@ -103,8 +178,8 @@ public class SalePaymentDAO {
      */
     public BigDecimal totalPaid(int saleId) {
         String sql = "SELECT COALESCE(SUM(amount), 0) as total FROM sale_payments WHERE sale_id = ?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, saleId);
             ResultSet rs = pstmt.executeQuery();
 
@@ -130,9 +205,9 @@ public class SalePaymentDAO {
         """;
         Map<PaymentMethod, BigDecimal> totals = new HashMap<>();
 
-        try {
-            Statement stmt = config.getConnection().createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
                 PaymentMethod method = PaymentMethod.fromValue(rs.getString("payment_method"));
@@ -152,20 +227,19 @@ public class SalePaymentDAO {
      * @return map with payment method and its total
      */
     public Map<PaymentMethod, BigDecimal> totalsByMethod(java.time.LocalDate from, java.time.LocalDate to) {
+        SalePeriod period = SalePeriod.range(from, to);
         String sql = """
             SELECT sp.payment_method, SUM(sp.amount) as total
             FROM sale_payments sp
             JOIN sales s ON sp.sale_id = s.id
-            WHERE DATE(s.created_at) BETWEEN ? AND ?
-            AND s.status = 'completed'
+            WHERE s.status = 'completed' AND %s
             GROUP BY sp.payment_method
-        """;
+        """.formatted(period.predicate("s.created_at"));
         Map<PaymentMethod, BigDecimal> totals = new HashMap<>();
 
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setString(1, from.toString());
-            pstmt.setString(2, to.toString());
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            period.bind(pstmt, 1);
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
@@ -186,8 +260,8 @@ public class SalePaymentDAO {
      */
     public int countByMethod(PaymentMethod method) {
         String sql = "SELECT COUNT(*) FROM sale_payments WHERE payment_method = ?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, method.getValue());
             ResultSet rs = pstmt.executeQuery();
 
@@ -207,12 +281,12 @@ public class SalePaymentDAO {
      * @param method new payment method
      * @param amount new amount
      */
-    public void update(int paymentId, PaymentMethod method, BigDecimal amount) {
+    public void update(int paymentId, PaymentMethod method, Money amount) {
         String sql = "UPDATE sale_payments SET payment_method = ?, amount = ? WHERE id = ?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, method.getValue());
-            pstmt.setBigDecimal(2, amount);
+            pstmt.setBigDecimal(2, amount.toBigDecimal());
             pstmt.setInt(3, paymentId);
             pstmt.executeUpdate();
         } catch (SQLException e) {
@@ -240,7 +314,7 @@ public class SalePaymentDAO {
             .id(rs.getInt("id"))
             .saleId(rs.getInt("sale_id"))
             .paymentMethod(rs.getString("payment_method"))
-            .amount(rs.getBigDecimal("amount"))
+            .amount(Money.of(rs.getBigDecimal("amount")))
             .reference(rs.getString("reference"))
             .createdAt(parseDateTime(rs.getString("created_at")))
             .build();
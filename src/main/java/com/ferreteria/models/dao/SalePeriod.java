@@ -0,0 +1,111 @@
+package com.ferreteria.models.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Half-open date period used to filter sales by {@code created_at}.
+ *
+ * Dates are stored as text ('YYYY-MM-DD HH:MM:SS'), so a day, month or range
+ * becomes {@code created_at >= 'start' AND created_at < 'end'}. Unlike
+ * {@code DATE(created_at) = ?} or {@code strftime(...) = ?}, this predicate
+ * can be answered from the index on {@code created_at}.
+ */
+public final class SalePeriod {
+
+    private final LocalDate start;
+    private final LocalDate endExclusive;
+
+    private SalePeriod(LocalDate start, LocalDate endExclusive) {
+        if (!endExclusive.isAfter(start)) {
+            throw new IllegalArgumentException("Period end must be after start: " + start + " - " + endExclusive);
+        }
+        this.start = start;
+        this.endExclusive = endExclusive;
+    }
+
+    /**
+     * A single calendar day.
+     */
+    public static SalePeriod day(LocalDate date) {
+        return new SalePeriod(date, date.plusDays(1));
+    }
+
+    /**
+     * A calendar month.
+     */
+    public static SalePeriod month(YearMonth month) {
+        return new SalePeriod(month.atDay(1), month.plusMonths(1).atDay(1));
+    }
+
+    /**
+     * A calendar month.
+     *
+     * @param year year
+     * @param month month (1-12)
+     */
+    public static SalePeriod month(int year, int month) {
+        return month(YearMonth.of(year, month));
+    }
+
+    /**
+     * Days from {@code from} to {@code to}, both inclusive.
+     */
+    public static SalePeriod range(LocalDate from, LocalDate to) {
+        return new SalePeriod(from, to.plusDays(1));
+    }
+
+    /**
+     * SQL predicate for the given column, with two parameters to bind.
+     *
+     * @param column column name, optionally qualified (e.g. "s.created_at")
+     * @return "column >= ? AND column < ?"
+     */
+    public String predicate(String column) {
+        return column + " >= ? AND " + column + " < ?";
+    }
+
+    /**
+     * Binds the period bounds starting at the given parameter index.
+     *
+     * @return the next free parameter index
+     */
+    public int bind(PreparedStatement pstmt, int index) throws SQLException {
+        pstmt.setString(index, start.toString());
+        pstmt.setString(index + 1, endExclusive.toString());
+        return index + 2;
+    }
+
+    /**
+     * First day of the period (inclusive).
+     */
+    public LocalDate getStart() {
+        return start;
+    }
+
+    /**
+     * First day after the period (exclusive).
+     */
+    public LocalDate getEndExclusive() {
+        return endExclusive;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SalePeriod other)) return false;
+        return start.equals(other.start) && endExclusive.equals(other.endExclusive);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * start.hashCode() + endExclusive.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + ", " + endExclusive + ")";
+    }
+}
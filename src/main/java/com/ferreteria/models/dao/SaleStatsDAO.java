@@ -1,11 +1,16 @@
 package com.ferreteria.models.dao;
 
+import com.ferreteria.models.SalePayment.PaymentMethod;
+
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Data Access Object for sale statistics.
@@ -26,22 +31,7 @@ public class SaleStatsDAO {
      * @return total sales amount
      */
     public BigDecimal dailyTotal(LocalDate date) {
-        String sql = """
-            SELECT COALESCE(SUM(total), 0) as total
-            FROM sales
-            WHERE DATE(created_at) = ? AND status = 'completed'
-        """;
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setString(1, date.toString());
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getBigDecimal("total");
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error getting daily total", e);
-        }
-        return BigDecimal.ZERO;
+        return totals(SalePeriod.day(date)).grossTotal();
     }
 
     /**
@@ -51,22 +41,7 @@ public class SaleStatsDAO {
      * @return number of sales
      */
     public int dailyCount(LocalDate date) {
-        String sql = """
-            SELECT COUNT(*) as count
-            FROM sales
-            WHERE DATE(created_at) = ? AND status = 'completed'
-        """;
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setString(1, date.toString());
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("count");
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error getting daily count", e);
-        }
-        return 0;
+        return totals(SalePeriod.day(date)).salesCount();
     }
 
     /**
@@ -77,25 +52,7 @@ public class SaleStatsDAO {
      * @return total sales amount
      */
     public BigDecimal monthlyTotal(int year, int month) {
-        String sql = """
-            SELECT COALESCE(SUM(total), 0) as total
-            FROM sales
-            WHERE strftime('%Y', created_at) = ?
-            AND strftime('%m', created_at) = ?
-            AND status = 'completed'
-        """;
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setString(1, String.valueOf(year));
-            pstmt.setString(2, String.format("%02d", month));
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getBigDecimal("total");
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException("Error getting monthly total", e);
-        }
-        return BigDecimal.ZERO;
+        return totals(SalePeriod.month(year, month)).grossTotal();
     }
 
     /**
@@ -106,29 +63,74 @@ public class SaleStatsDAO {
      * @return number of sales
      */
     public int monthlyCount(int year, int month) {
-        String sql = """
-            SELECT COUNT(*) as count
-            FROM sales
-            WHERE strftime('%Y', created_at) = ?
-            AND strftime('%m', created_at) = ?
-            AND status = 'completed'
-        """;
+        return totals(SalePeriod.month(year, month)).salesCount();
+    }
+
+    /**
+     * Gets the totals for a period from the daily rollup.
+     * Reads one row per day, regardless of how many sales there are.
+     *
+     * @param period the period to query
+     * @return completed and cancelled totals, and amounts per payment method
+     */
+    public PeriodTotals totals(SalePeriod period) {
+        String sql = totalsSql() + " WHERE " + period.predicate("day");
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            period.bind(pstmt, 1);
+            return mapTotals(pstmt.executeQuery());
+        } catch (SQLException e) {
+            throw new RuntimeException("Error getting period totals", e);
+        }
+    }
+
+    /**
+     * Gets the totals of all sales ever recorded, from the daily rollup.
+     *
+     * @return completed and cancelled totals, and amounts per payment method
+     */
+    public PeriodTotals overallTotals() {
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(totalsSql())) {
+            return mapTotals(pstmt.executeQuery());
+        } catch (SQLException e) {
+            throw new RuntimeException("Error getting overall totals", e);
+        }
+    }
+
+    /**
+     * Rebuilds the daily rollup from the sales tables.
+     * Only needed if sales were changed outside {@link SaleDAO}.
+     */
+    public void rebuildDailyAgg() {
+        Connection conn = null;
         try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
-            pstmt.setString(1, String.valueOf(year));
-            pstmt.setString(2, String.format("%02d", month));
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("count");
-            }
+            conn = config.getWriteConnection();
+            conn.setAutoCommit(false);
+            SalesDailyAgg.rebuild(conn);
+            conn.commit();
         } catch (SQLException e) {
-            throw new RuntimeException("Error getting monthly count", e);
+            try {
+                if (conn != null) conn.rollback();
+            } catch (SQLException ignored) {
+                // The original error is more useful
+            }
+            throw new RuntimeException("Error rebuilding daily sales rollup", e);
+        } finally {
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                }
+            } catch (SQLException e) {
+                System.err.println("Error releasing connection: " + e.getMessage());
+            }
         }
-        return 0;
     }
 
     /**
      * Gets statistics for a specific seller.
+     * The rollup has no per-seller breakdown, so this one still reads {@code sales}.
      *
      * @param userId ID of the user
      * @return seller statistics
@@ -140,8 +142,8 @@ public class SaleStatsDAO {
             FROM sales
             WHERE user_id = ? AND status = 'completed'
         """;
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, userId);
             ResultSet rs = pstmt.executeQuery();
 
@@ -171,4 +173,59 @@ public class SaleStatsDAO {
             return totalSales.divide(BigDecimal.valueOf(salesCount), 2, RoundingMode.HALF_UP);
         }
     }
+
+    /**
+     * Totals for a period, as stored in the daily rollup.
+     */
+    public record PeriodTotals(
+        int salesCount,
+        BigDecimal grossTotal,
+        int cancelledCount,
+        BigDecimal cancelledTotal,
+        Map<PaymentMethod, BigDecimal> byPaymentMethod
+    ) {
+        public BigDecimal averageSale() {
+            if (salesCount == 0) return BigDecimal.ZERO;
+            return grossTotal.divide(BigDecimal.valueOf(salesCount), 2, RoundingMode.HALF_UP);
+        }
+
+        public BigDecimal paymentTotal(PaymentMethod method) {
+            return byPaymentMethod.getOrDefault(method, BigDecimal.ZERO);
+        }
+    }
+
+    // Private helper methods
+
+    private String totalsSql() {
+        StringBuilder sql = new StringBuilder("""
+            SELECT COALESCE(SUM(sales_count), 0) AS sales_count,
+                   COALESCE(SUM(gross_total), 0) AS gross_total,
+                   COALESCE(SUM(cancelled_count), 0) AS cancelled_count,
+                   COALESCE(SUM(cancelled_total), 0) AS cancelled_total""");
+        for (PaymentMethod method : PaymentMethod.values()) {
+            String column = SalesDailyAgg.paymentColumn(method);
+            sql.append(",\n       COALESCE(SUM(").append(column).append("), 0) AS ").append(column);
+        }
+        return sql.append("\nFROM ").append(SalesDailyAgg.TABLE).toString();
+    }
+
+    private PeriodTotals mapTotals(ResultSet rs) throws SQLException {
+        if (!rs.next()) {
+            return new PeriodTotals(0, BigDecimal.ZERO, 0, BigDecimal.ZERO, Map.of());
+        }
+        Map<PaymentMethod, BigDecimal> byMethod = new EnumMap<>(PaymentMethod.class);
+        for (PaymentMethod method : PaymentMethod.values()) {
+            BigDecimal amount = rs.getBigDecimal(SalesDailyAgg.paymentColumn(method));
+            if (amount.signum() != 0) {
+                byMethod.put(method, amount);
+            }
+        }
+        return new PeriodTotals(
+            rs.getInt("sales_count"),
+            rs.getBigDecimal("gross_total"),
+            rs.getInt("cancelled_count"),
+            rs.getBigDecimal("cancelled_total"),
+            byMethod
+        );
+    }
 }
@@ -0,0 +1,332 @@
+package com.ferreteria.models.dao;
+
+import com.ferreteria.models.Sale;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escritor único de ventas nuevas (confirmación agrupada).
+ *
+ * Quien registra una venta la encola y recibe un future. Un hilo escritor
+ * toma las ventas encoladas e inserta hasta {@code db.sale_writer.max_batch}
+ * en una sola transacción: las terminales que venden a la vez comparten una
+ * confirmación (un fsync) en lugar de esperar de a una la conexión de
+ * escritura. Después de recibir la primera venta espera como mucho
+ * {@code db.sale_writer.max_wait_ms} a que lleguen más antes de confirmar.
+ *
+ * Cada venta corre en su propio savepoint: si falla (por ejemplo, por falta
+ * de stock, o por un error inesperado) se deshace y falla su future, sin
+ * afectar al resto del lote. Con la base ocupada se reintenta el lote entero
+ * con la {@link BusyRetryPolicy}.
+ *
+ * La cola es acotada: si está llena, {@link #submit} bloquea a quien llama
+ * y falla el future si no se libera lugar a tiempo.
+ *
+ * No se debe usar desde un hilo que tenga la conexión de escritura: el hilo
+ * escritor la necesita para confirmar.
+ */
+public class SaleWriter {
+
+    private static final long SUBMIT_TIMEOUT_MS = 10_000;
+    private static final long CLOSE_TIMEOUT_MS = 10_000;
+
+    private final DatabaseConfig config;
+    private final SaleDAO saleDAO;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Pending> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong commitNanos = new AtomicLong();
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile int maxBatchSize;
+    private volatile long lastCommitNanos;
+
+    private record Pending(Sale sale, CompletableFuture<Sale> result, long enqueuedNanos) {}
+
+    /**
+     * Crea el escritor y arranca su hilo.
+     * La instancia compartida se obtiene con {@link DatabaseConfig#getSaleWriter()}.
+     */
+    SaleWriter(DatabaseConfig config) {
+        DatabaseProfile profile = config.getProfile();
+        this.config = config;
+        this.saleDAO = new SaleDAO(config);
+        this.maxBatch = Math.max(1, profile.getSaleWriterMaxBatch());
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, profile.getSaleWriterMaxWaitMs()));
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, profile.getSaleWriterQueueCapacity()));
+        this.thread = new Thread(this::run, "sale-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Encola una venta para escribirla.
+     *
+     * @param sale venta a crear, con sus items y pagos
+     * @return future que se completa con la venta creada (con ID y detalle), o
+     *         falla con una RuntimeException si no se pudo escribir
+     */
+    public CompletableFuture<Sale> submit(Sale sale) {
+        CompletableFuture<Sale> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new RejectedExecutionException("Sale writer is closed"));
+            return result;
+        }
+        try {
+            if (!queue.offer(new Pending(sale, result, System.nanoTime()), SUBMIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                result.completeExceptionally(new RejectedExecutionException("Sale queue is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Deja de aceptar ventas, escribe las que ya están encoladas y detiene el hilo.
+     */
+    public void close() {
+        running = false;
+        try {
+            thread.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Lo que quede (hilo trabado o interrumpido) se rechaza, no se pierde en silencio
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new RejectedExecutionException("Sale writer is closed"));
+        }
+    }
+
+    /**
+     * Métricas del escritor desde que arrancó.
+     */
+    public WriterStats getStats() {
+        long batchCount = batches.get();
+        return new WriterStats(
+            batchCount,
+            written.get(),
+            failed.get(),
+            queue.size(),
+            lastBatchSize,
+            maxBatchSize,
+            lastCommitNanos / 1_000_000.0,
+            batchCount == 0 ? 0 : commitNanos.get() / 1_000_000.0 / batchCount,
+            written.get() + failed.get() == 0 ? 0
+                : queueWaitNanos.get() / 1_000_000.0 / (written.get() + failed.get())
+        );
+    }
+
+    /**
+     * Métricas del escritor.
+     *
+     * @param batches transacciones confirmadas (o fallidas)
+     * @param written ventas escritas
+     * @param failed ventas rechazadas
+     * @param queued ventas esperando en este momento
+     * @param lastBatchSize ventas del último lote
+     * @param maxBatchSize lote más grande hasta ahora
+     * @param lastCommitMs duración de la transacción del último lote
+     * @param avgCommitMs duración promedio de la transacción de un lote
+     * @param avgQueueWaitMs espera promedio de una venta antes de que empiece su lote
+     */
+    public record WriterStats(
+        long batches,
+        long written,
+        long failed,
+        int queued,
+        int lastBatchSize,
+        int maxBatchSize,
+        double lastCommitMs,
+        double avgCommitMs,
+        double avgQueueWaitMs
+    ) {
+        public double avgBatchSize() {
+            return batches == 0 ? 0 : (double) (written + failed) / batches;
+        }
+    }
+
+    // Métodos auxiliares privados
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // El escritor no puede morir: se falla este lote y se sigue
+                for (Pending pending : batch) {
+                    pending.result().completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Agrega lo que ya está encolado y, dentro de la espera máxima, lo que
+     * llegue después, hasta llenar el lote.
+     */
+    private void collect(List<Pending> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatch) {
+            queue.drainTo(batch, maxBatch - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatch || remaining <= 0) {
+                return;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) {
+        long start = System.nanoTime();
+        for (Pending pending : batch) {
+            queueWaitNanos.addAndGet(start - pending.enqueuedNanos());
+        }
+
+        Map<Pending, Sale> created = new HashMap<>();
+        Map<Pending, Exception> errors = new HashMap<>();
+        try {
+            config.getRetryPolicy().execute(() -> insertBatch(batch, created, errors));
+        } catch (SQLException e) {
+            created.clear();
+            errors.clear();
+            for (Pending pending : batch) {
+                errors.put(pending, e);
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        batches.incrementAndGet();
+        commitNanos.addAndGet(elapsed);
+        lastCommitNanos = elapsed;
+        lastBatchSize = batch.size();
+        maxBatchSize = Math.max(maxBatchSize, batch.size());
+        written.addAndGet(created.size());
+        failed.addAndGet(errors.size());
+
+        // Primero los futures: una venta confirmada nunca se informa como fallida
+        complete(batch, created, errors);
+
+        if (!created.isEmpty()) {
+            try {
+                config.getSalesColumns().salesAppended();
+                config.getReportCache().invalidate(created.values().stream()
+                    .map(sale -> sale.getCreatedAt().toLocalDate())
+                    .toArray(LocalDate[]::new));
+            } catch (RuntimeException e) {
+                System.err.println("Error actualizando cachés después de confirmar ventas: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Una transacción para todo el lote, un savepoint por venta.
+     * Llena {@code created} y {@code errors} desde cero en cada intento.
+     */
+    private Void insertBatch(List<Pending> batch, Map<Pending, Sale> created,
+                             Map<Pending, Exception> errors) throws SQLException {
+        created.clear();
+        errors.clear();
+        Connection conn = null;
+        try {
+            conn = config.getWriteConnection();
+            conn.setAutoCommit(false);
+
+            for (Pending pending : batch) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    created.put(pending, saleDAO.insert(conn, pending.sale()));
+                    conn.releaseSavepoint(savepoint);
+                } catch (SQLException e) {
+                    if (BusyRetryPolicy.isBusy(e)) {
+                        throw e;
+                    }
+                    conn.rollback(savepoint);
+                    errors.put(pending, e);
+                } catch (RuntimeException e) {
+                    // Una venta mal armada (item o pago null) no puede dejar la mitad de sus filas
+                    conn.rollback(savepoint);
+                    errors.put(pending, e);
+                }
+            }
+
+            // Cada día del resumen diario se recalcula una vez por lote
+            SalesDailyAgg.refreshDays(conn, created.values().stream()
+                .map(sale -> sale.getCreatedAt().toLocalDate())
+                .toArray(LocalDate[]::new));
+
+            conn.commit();
+            return null;
+
+        } catch (SQLException | RuntimeException e) {
+            // Deshacer antes del finally: setAutoCommit(true) confirmaría lo pendiente
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackError) {
+                    System.err.println("Rollback error: " + rollbackError.getMessage());
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    System.err.println("Error releasing connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void complete(List<Pending> batch, Map<Pending, Sale> created, Map<Pending, Exception> errors) {
+        for (Pending pending : batch) {
+            Sale sale = created.get(pending);
+            if (sale != null) {
+                pending.result().complete(sale);
+            } else {
+                Exception error = errors.get(pending);
+                pending.result().completeExceptionally(
+                    new RuntimeException("Error creating sale: " + error.getMessage(), error));
+            }
+        }
+    }
+}
@@ -0,0 +1,706 @@
+package com.ferreteria.models.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BinaryOperator;
+
+/**
+ * Historial de ventas en memoria, por columnas, para análisis sobre varios años.
+ *
+ * Guarda {@code sales}, {@code sale_items} y {@code sale_payments} en arreglos
+ * primitivos: ids y días (epoch day) como int, importes en centavos como long,
+ * estado y medio de pago codificados con un diccionario (byte) y las variantes
+ * con un código denso. Los operadores ({@link #select}, {@link #totals},
+ * {@link #totalsByDay}, {@link #paymentsByMethod}, {@link #itemsByVariant})
+ * recorren los arreglos en bloques en paralelo con el pool fork-join.
+ *
+ * Se carga completo en la primera consulta. Después se mantiene al día sin
+ * recargar: las ventas nuevas se agregan al final (sólo se leen las de id
+ * mayor a la última cargada) y anular o cambiar la fecha de una venta se
+ * corrige en su lugar. Eliminar una venta o editar sus ítems y pagos marca el
+ * almacén para recargarlo completo en la próxima consulta. {@link SaleDAO}
+ * avisa cada cambio después de confirmarlo; mientras nadie consulta, esos
+ * avisos sólo marcan el almacén y no leen nada.
+ *
+ * En la aplicación lo consulta el análisis histórico del panel de debug;
+ * {@link ReportDAO} puede usarlo para los agregados mensuales.
+ */
+public class SalesColumnStore {
+
+    /** Filas por subtarea; múltiplo de 64 para que cada bloque escriba sus propias palabras de la selección. */
+    private static final int CHUNK = 1 << 16;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final String CANCELLED = "cancelled";
+
+    private final DatabaseConfig config;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Ventas, ordenadas por id
+    private int sales;
+    private int[] saleId = new int[0];
+    private int[] saleDay = new int[0];
+    private long[] saleTotal = new long[0];
+    private byte[] saleStatus = new byte[0];
+
+    // Ítems, ordenados por id; itemSale es la fila de la venta
+    private int items;
+    private int[] itemSale = new int[0];
+    private int[] itemVariant = new int[0];
+    private int[] itemQuantity = new int[0];
+    private long[] itemUnitPrice = new long[0];
+    private long[] itemSubtotal = new long[0];
+
+    // Pagos; paymentSale es la fila de la venta
+    private int payments;
+    private int[] paymentSale = new int[0];
+    private byte[] paymentMethod = new byte[0];
+    private long[] paymentAmount = new long[0];
+
+    // Diccionarios
+    private final Dictionary statuses = new Dictionary();
+    private final Dictionary methods = new Dictionary();
+    private final Map<Integer, Integer> variantCodes = new HashMap<>();
+    private int[] variantIds = new int[0];
+    private String[] productNames = new String[0];
+    private String[] variantNames = new String[0];
+
+    private volatile boolean reloadPending = true;
+    private volatile boolean appendPending;
+    private int lastSaleId;
+
+    // Métricas
+    private long reloads;
+    private long appends;
+    private double lastLoadMs;
+
+    /**
+     * La aplicación usa {@link DatabaseConfig#getSalesColumns()}, que recibe los
+     * avisos de {@link SaleDAO}.
+     */
+    public SalesColumnStore(DatabaseConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Filas de ventas seleccionadas por un filtro. Es una foto: las ventas
+     * agregadas después de crearla no forman parte de ella.
+     */
+    public static final class Selection {
+        private final long[] bits;
+        private final int rows;
+
+        private Selection(long[] bits, int rows) {
+            this.bits = bits;
+            this.rows = rows;
+        }
+
+        boolean contains(int row) {
+            return row < rows && (bits[row >>> 6] & (1L << row)) != 0;
+        }
+
+        /**
+         * Cantidad de ventas seleccionadas.
+         */
+        public int count() {
+            int count = 0;
+            for (long word : bits) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Totales de un conjunto de ventas, en centavos.
+     */
+    public record Totals(int count, long sumCents, long minCents, long maxCents) {
+
+        static final Totals EMPTY = new Totals(0, 0, 0, 0);
+
+        Totals merge(Totals other) {
+            if (count == 0) return other;
+            if (other.count == 0) return this;
+            return new Totals(count + other.count, sumCents + other.sumCents,
+                Math.min(minCents, other.minCents), Math.max(maxCents, other.maxCents));
+        }
+    }
+
+    /**
+     * Lo vendido de una variante, en centavos.
+     *
+     * @param unitPriceCents precio unitario del último ítem vendido
+     */
+    public record VariantTotals(int variantId, String product, String variant,
+                                long quantity, long unitPriceCents, long totalCents) {}
+
+    /**
+     * Tamaño y costo del almacén.
+     *
+     * @param approxBytes memoria aproximada de los arreglos
+     */
+    public record StoreStats(int sales, int items, int payments, long reloads, long appends,
+                             double lastLoadMs, long approxBytes) {}
+
+    // Operadores
+
+    /**
+     * Ventas de un período, de cualquier estado.
+     */
+    public Selection select(SalePeriod period) {
+        return select(period, null);
+    }
+
+    /**
+     * Ventas de un período con un estado ({@code completed}, {@code cancelled});
+     * null para cualquiera.
+     */
+    public Selection select(SalePeriod period, String status) {
+        ensureCurrent();
+        lock.readLock().lock();
+        try {
+            int from = (int) period.getStart().toEpochDay();
+            int to = (int) period.getEndExclusive().toEpochDay();
+            int code = status == null ? -1 : statuses.codeOf(status);
+            long[] bits = new long[(sales + 63) >>> 6];
+            if (status == null || code >= 0) {
+                parallel(sales, (start, end) -> {
+                    for (int row = start; row < end; row++) {
+                        int day = saleDay[row];
+                        if (day >= from && day < to && (code < 0 || saleStatus[row] == code)) {
+                            bits[row >>> 6] |= 1L << row;
+                        }
+                    }
+                    return null;
+                }, (a, b) -> null);
+            }
+            return new Selection(bits, sales);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad, suma, mínimo y máximo de los totales de las ventas seleccionadas.
+     */
+    public Totals totals(Selection selection) {
+        lock.readLock().lock();
+        try {
+            return parallel(selection.rows, (start, end) -> {
+                int count = 0;
+                long sum = 0;
+                long min = Long.MAX_VALUE;
+                long max = Long.MIN_VALUE;
+                for (int word = start >>> 6; word < (end + 63) >>> 6; word++) {
+                    long bits = selection.bits[word];
+                    while (bits != 0) {
+                        int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        long total = saleTotal[row];
+                        count++;
+                        sum += total;
+                        min = Math.min(min, total);
+                        max = Math.max(max, total);
+                    }
+                }
+                return count == 0 ? Totals.EMPTY : new Totals(count, sum, min, max);
+            }, Totals::merge);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Suma de los totales por día, sólo de los días con ventas seleccionadas.
+     */
+    public Map<LocalDate, Long> totalsByDay(Selection selection) {
+        lock.readLock().lock();
+        try {
+            int firstDay = Integer.MAX_VALUE;
+            int lastDay = Integer.MIN_VALUE;
+            for (int word = 0; word < selection.bits.length; word++) {
+                long bits = selection.bits[word];
+                while (bits != 0) {
+                    int day = saleDay[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                    bits &= bits - 1;
+                    firstDay = Math.min(firstDay, day);
+                    lastDay = Math.max(lastDay, day);
+                }
+            }
+            Map<LocalDate, Long> byDay = new TreeMap<>();
+            if (firstDay > lastDay) {
+                return byDay;
+            }
+            int base = firstDay;
+            int days = lastDay - firstDay + 1;
+            long[][] partial = parallel(selection.rows, (start, end) -> {
+                long[] sums = new long[days];
+                long[] counts = new long[days];
+                for (int word = start >>> 6; word < (end + 63) >>> 6; word++) {
+                    long bits = selection.bits[word];
+                    while (bits != 0) {
+                        int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        sums[saleDay[row] - base] += saleTotal[row];
+                        counts[saleDay[row] - base]++;
+                    }
+                }
+                return new long[][]{sums, counts};
+            }, SalesColumnStore::addColumns);
+            for (int i = 0; i < days; i++) {
+                if (partial[1][i] > 0) {
+                    byDay.put(LocalDate.ofEpochDay(base + i), partial[0][i]);
+                }
+            }
+            return byDay;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Total cobrado por medio de pago en las ventas seleccionadas, de mayor a menor.
+     */
+    public Map<String, Long> paymentsByMethod(Selection selection) {
+        lock.readLock().lock();
+        try {
+            int keys = methods.size();
+            long[][] partial = parallel(payments, (start, end) -> {
+                long[] sums = new long[keys];
+                long[] counts = new long[keys];
+                for (int row = start; row < end; row++) {
+                    if (selection.contains(paymentSale[row])) {
+                        sums[paymentMethod[row]] += paymentAmount[row];
+                        counts[paymentMethod[row]]++;
+                    }
+                }
+                return new long[][]{sums, counts};
+            }, SalesColumnStore::addColumns);
+
+            List<Integer> present = new ArrayList<>();
+            for (int code = 0; code < keys; code++) {
+                if (partial[1][code] > 0) {
+                    present.add(code);
+                }
+            }
+            present.sort(Comparator.comparingLong((Integer code) -> partial[0][code]).reversed());
+            Map<String, Long> totals = new LinkedHashMap<>();
+            for (int code : present) {
+                totals.put(methods.valueOf(code), partial[0][code]);
+            }
+            return totals;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad y total vendidos por variante en las ventas seleccionadas, de
+     * mayor a menor total.
+     */
+    public List<VariantTotals> itemsByVariant(Selection selection) {
+        lock.readLock().lock();
+        try {
+            int keys = variantIds.length;
+            long[][] partial = parallel(items, (start, end) -> {
+                long[] quantities = new long[keys];
+                long[] totals = new long[keys];
+                long[] lastItem = new long[keys];
+                Arrays.fill(lastItem, -1);
+                for (int row = start; row < end; row++) {
+                    if (selection.contains(itemSale[row])) {
+                        int code = itemVariant[row];
+                        quantities[code] += itemQuantity[row];
+                        totals[code] += itemSubtotal[row];
+                        lastItem[code] = row;
+                    }
+                }
+                return new long[][]{quantities, totals, lastItem};
+            }, (a, b) -> {
+                for (int code = 0; code < keys; code++) {
+                    a[0][code] += b[0][code];
+                    a[1][code] += b[1][code];
+                    a[2][code] = Math.max(a[2][code], b[2][code]);
+                }
+                return a;
+            });
+
+            List<VariantTotals> lines = new ArrayList<>();
+            for (int code = 0; code < keys; code++) {
+                if (partial[2][code] >= 0) {
+                    lines.add(new VariantTotals(variantIds[code], productNames[code], variantNames[code],
+                        partial[0][code], itemUnitPrice[(int) partial[2][code]], partial[1][code]));
+                }
+            }
+            lines.sort(Comparator.comparingLong(VariantTotals::totalCents).reversed());
+            return lines;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Incorpora ahora los cambios pendientes (carga inicial, ventas nuevas o recarga).
+     *
+     * @throws RuntimeException si falla la lectura
+     */
+    public void refresh() {
+        ensureCurrent();
+    }
+
+    public StoreStats getStats() {
+        lock.readLock().lock();
+        try {
+            long bytes = (long) saleId.length * (4 + 4 + 8 + 1)
+                + (long) itemSale.length * (4 + 4 + 4 + 8 + 8)
+                + (long) paymentSale.length * (4 + 1 + 8);
+            return new StoreStats(sales, items, payments, reloads, appends, lastLoadMs, bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Avisos de SaleDAO, después de confirmar
+
+    /**
+     * Se registraron ventas nuevas: se leen en la próxima consulta.
+     */
+    void salesAppended() {
+        appendPending = true;
+    }
+
+    /**
+     * Se anuló una venta: se corrige su estado en su lugar.
+     */
+    void saleCancelled(int id) {
+        if (reloadPending) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(saleId, 0, sales, id);
+            if (row >= 0) {
+                saleStatus[row] = statuses.encode(CANCELLED);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Se cambió la fecha de una venta: se corrige su día en su lugar.
+     */
+    void saleMoved(int id, LocalDate day) {
+        if (reloadPending) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(saleId, 0, sales, id);
+            if (row >= 0) {
+                saleDay[row] = (int) day.toEpochDay();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cambió algo que no se corrige en su lugar (venta eliminada, ítems o
+     * pagos editados): se recarga todo en la próxima consulta.
+     */
+    void invalidate() {
+        reloadPending = true;
+    }
+
+    // Métodos auxiliares privados
+
+    private void ensureCurrent() {
+        if (!reloadPending && !appendPending) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (reloadPending) {
+                // Se bajan antes de leer: un aviso que llegue durante la carga la repite
+                reloadPending = false;
+                appendPending = false;
+                load(true);
+            } else if (appendPending) {
+                appendPending = false;
+                load(false);
+            }
+        } catch (RuntimeException e) {
+            reloadPending = true;
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lee todo (o sólo las ventas posteriores a la última cargada) en una
+     * transacción de lectura, así ventas, ítems y pagos son consistentes.
+     */
+    private void load(boolean full) {
+        long start = System.nanoTime();
+        if (full) {
+            sales = 0;
+            items = 0;
+            payments = 0;
+            lastSaleId = 0;
+        }
+        int after = lastSaleId;
+
+        Connection conn = null;
+        try {
+            conn = config.getReadConnection();
+            conn.setAutoCommit(false);
+
+            int before = variantIds.length;
+            readSales(conn, after);
+            readItems(conn, after);
+            readPayments(conn, after);
+            if (full || variantIds.length > before) {
+                readVariantNames(conn);
+            }
+
+            conn.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Error loading sales columns: " + e.getMessage(), e);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    System.err.println("Error releasing connection: " + e.getMessage());
+                }
+            }
+        }
+
+        if (full) {
+            reloads++;
+        } else {
+            appends++;
+        }
+        lastLoadMs = (System.nanoTime() - start) / 1_000_000.0;
+    }
+
+    private void readSales(Connection conn, int after) throws SQLException {
+        String sql = "SELECT id, CAST(julianday(created_at) - 2440587.5 AS INTEGER) AS day, total, status " +
+                     "FROM sales WHERE id > ? ORDER BY id";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, after);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (sales == saleId.length) {
+                        int capacity = grow(sales);
+                        saleId = Arrays.copyOf(saleId, capacity);
+                        saleDay = Arrays.copyOf(saleDay, capacity);
+                        saleTotal = Arrays.copyOf(saleTotal, capacity);
+                        saleStatus = Arrays.copyOf(saleStatus, capacity);
+                    }
+                    saleId[sales] = rs.getInt(1);
+                    saleDay[sales] = rs.getInt(2);
+                    saleTotal[sales] = cents(rs.getDouble(3));
+                    saleStatus[sales] = statuses.encode(rs.getString(4));
+                    lastSaleId = saleId[sales];
+                    sales++;
+                }
+            }
+        }
+    }
+
+    private void readItems(Connection conn, int after) throws SQLException {
+        String sql = "SELECT sale_id, variant_id, quantity, unit_price, subtotal " +
+                     "FROM sale_items WHERE sale_id > ? ORDER BY id";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, after);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int row = Arrays.binarySearch(saleId, 0, sales, rs.getInt(1));
+                    if (row < 0) {
+                        continue;
+                    }
+                    if (items == itemSale.length) {
+                        int capacity = grow(items);
+                        itemSale = Arrays.copyOf(itemSale, capacity);
+                        itemVariant = Arrays.copyOf(itemVariant, capacity);
+                        itemQuantity = Arrays.copyOf(itemQuantity, capacity);
+                        itemUnitPrice = Arrays.copyOf(itemUnitPrice, capacity);
+                        itemSubtotal = Arrays.copyOf(itemSubtotal, capacity);
+                    }
+                    itemSale[items] = row;
+                    itemVariant[items] = variantCode(rs.getInt(2));
+                    itemQuantity[items] = rs.getInt(3);
+                    itemUnitPrice[items] = cents(rs.getDouble(4));
+                    itemSubtotal[items] = cents(rs.getDouble(5));
+                    items++;
+                }
+            }
+        }
+    }
+
+    private void readPayments(Connection conn, int after) throws SQLException {
+        String sql = "SELECT sale_id, payment_method, amount FROM sale_payments WHERE sale_id > ? ORDER BY id";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, after);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int row = Arrays.binarySearch(saleId, 0, sales, rs.getInt(1));
+                    if (row < 0) {
+                        continue;
+                    }
+                    if (payments == paymentSale.length) {
+                        int capacity = grow(payments);
+                        paymentSale = Arrays.copyOf(paymentSale, capacity);
+                        paymentMethod = Arrays.copyOf(paymentMethod, capacity);
+                        paymentAmount = Arrays.copyOf(paymentAmount, capacity);
+                    }
+                    paymentSale[payments] = row;
+                    paymentMethod[payments] = methods.encode(rs.getString(2));
+                    paymentAmount[payments] = cents(rs.getDouble(3));
+                    payments++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Nombres de producto y variante por código; las variantes sin producto
+     * quedan sin nombre.
+     */
+    private void readVariantNames(Connection conn) throws SQLException {
+        String sql = "SELECT pv.id, p.name, pv.variant_name FROM product_variants pv " +
+                     "JOIN products p ON p.id = pv.product_id";
+        productNames = new String[variantIds.length];
+        variantNames = new String[variantIds.length];
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                Integer code = variantCodes.get(rs.getInt(1));
+                if (code != null) {
+                    productNames[code] = rs.getString(2);
+                    variantNames[code] = rs.getString(3);
+                }
+            }
+        }
+    }
+
+    private int variantCode(int variantId) {
+        Integer code = variantCodes.get(variantId);
+        if (code == null) {
+            code = variantIds.length;
+            variantIds = Arrays.copyOf(variantIds, code + 1);
+            productNames = Arrays.copyOf(productNames, code + 1);
+            variantNames = Arrays.copyOf(variantNames, code + 1);
+            variantCodes.put(variantId, code);
+        }
+        return code;
+    }
+
+    private static int grow(int size) {
+        return Math.max(INITIAL_CAPACITY, size + (size >> 1));
+    }
+
+    private static long cents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static long[][] addColumns(long[][] a, long[][] b) {
+        for (int column = 0; column < a.length; column++) {
+            for (int i = 0; i < a[column].length; i++) {
+                a[column][i] += b[column][i];
+            }
+        }
+        return a;
+    }
+
+    @FunctionalInterface
+    private interface ChunkWork<T> {
+        T apply(int start, int end);
+    }
+
+    /**
+     * Procesa [0, rows) en bloques de {@link #CHUNK} filas en el pool
+     * fork-join y combina los resultados parciales.
+     */
+    private static <T> T parallel(int rows, ChunkWork<T> work, BinaryOperator<T> merge) {
+        return ForkJoinPool.commonPool().invoke(new Chunks<>(0, rows, work, merge));
+    }
+
+    private static final class Chunks<T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+        private final ChunkWork<T> work;
+        private final BinaryOperator<T> merge;
+
+        Chunks(int start, int end, ChunkWork<T> work, BinaryOperator<T> merge) {
+            this.start = start;
+            this.end = end;
+            this.work = work;
+            this.merge = merge;
+        }
+
+        @Override
+        protected T compute() {
+            if (end - start <= CHUNK) {
+                return work.apply(start, end);
+            }
+            // Corte alineado a 64 filas: cada mitad escribe palabras distintas de la selección
+            int middle = ((start + end) >>> 1) & ~63;
+            Chunks<T> left = new Chunks<>(start, middle, work, merge);
+            left.fork();
+            T right = new Chunks<>(middle, end, work, merge).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+
+    /**
+     * Diccionario de textos repetidos (estados, medios de pago) a códigos byte.
+     */
+    private static final class Dictionary {
+        private final Map<String, Byte> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        synchronized byte encode(String value) {
+            Byte code = codes.get(value);
+            if (code == null) {
+                code = (byte) values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        synchronized int codeOf(String value) {
+            Byte code = codes.get(value);
+            return code == null ? -1 : code;
+        }
+
+        synchronized String valueOf(int code) {
+            return values.get(code);
+        }
+
+        synchronized int size() {
+            return values.size();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.ferreteria.models.dao;
+
+import com.ferreteria.models.SalePayment.PaymentMethod;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Resumen diario de ventas ({@code sales_daily_agg}).
+ *
+ * Una fila por día con la cantidad y el total de ventas completadas, las
+ * anuladas y lo cobrado por cada medio de pago (solo ventas completadas). Las
+ * estadísticas leen esta tabla, así su costo depende de los días del período
+ * y no de la cantidad de ventas.
+ *
+ * {@link SaleDAO} recalcula los días afectados dentro de la misma transacción
+ * que modifica la venta; {@link #rebuild} la regenera completa.
+ */
+final class SalesDailyAgg {
+
+    static final String TABLE = "sales_daily_agg";
+
+    /**
+     * Columna del resumen con lo cobrado por un medio de pago.
+     */
+    static String paymentColumn(PaymentMethod method) {
+        return switch (method) {
+            case CASH -> "cash_total";
+            case DEBIT_CARD -> "debit_card_total";
+            case CREDIT_CARD -> "credit_card_total";
+            case TRANSFER -> "transfer_total";
+            case MERCADO_PAGO -> "mercado_pago_total";
+            case CREDIT_ACCOUNT -> "credit_account_total";
+            case OTHER -> "other_total";
+        };
+    }
+
+    private SalesDailyAgg() {
+    }
+
+    /**
+     * Crea la tabla si no existe y la regenera si no coincide con {@code sales}
+     * (por ejemplo, en una base creada antes de existir el resumen).
+     */
+    static void create(Connection conn) throws SQLException {
+        StringBuilder payments = new StringBuilder();
+        for (PaymentMethod method : PaymentMethod.values()) {
+            payments.append(",\n    ").append(paymentColumn(method)).append(" DECIMAL(12,2) NOT NULL DEFAULT 0");
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS %s (
+                    day TEXT PRIMARY KEY,
+                    sales_count INTEGER NOT NULL DEFAULT 0,
+                    gross_total DECIMAL(12,2) NOT NULL DEFAULT 0,
+                    cancelled_count INTEGER NOT NULL DEFAULT 0,
+                    cancelled_total DECIMAL(12,2) NOT NULL DEFAULT 0%s
+                )
+            """.formatted(TABLE, payments));
+
+            long rollup = count(stmt, "SELECT COALESCE(SUM(sales_count + cancelled_count), 0) FROM " + TABLE);
+            if (rollup != count(stmt,
+                    "SELECT COUNT(*) FROM sales WHERE status IN ('completed', 'cancelled') AND created_at IS NOT NULL")) {
+                rebuild(conn);
+            }
+        }
+    }
+
+    /**
+     * Regenera todo el resumen a partir de {@code sales} y {@code sale_payments}.
+     */
+    static void rebuild(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM " + TABLE);
+            stmt.execute(insertSql("1 = 1"));
+        }
+    }
+
+    /**
+     * Recalcula los días indicados. Se llama con la transacción de la venta abierta.
+     * Los días que ya no tienen ventas quedan sin fila.
+     */
+    private static void refreshDays(Connection conn, Set<LocalDate> days) throws SQLException {
+        for (LocalDate day : days) {
+            SalePeriod period = SalePeriod.day(day);
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM " + TABLE + " WHERE day = ?")) {
+                delete.setString(1, day.toString());
+                delete.executeUpdate();
+            }
+            try (PreparedStatement insert = conn.prepareStatement(insertSql(period.predicate("s.created_at")))) {
+                period.bind(insert, period.bind(insert, 1));
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Día de una venta según su {@code created_at}, o null si no existe.
+     */
+    static LocalDate dayOf(Connection conn, int saleId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT date(created_at) FROM sales WHERE id = ?")) {
+            pstmt.setInt(1, saleId);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next() && rs.getString(1) != null) {
+                return LocalDate.parse(rs.getString(1));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Recalcula el día de una venta (después de crearla, anularla o cambiar su total).
+     *
+     * @return el día recalculado, o null si la venta no existe
+     */
+    static LocalDate refreshSale(Connection conn, int saleId) throws SQLException {
+        LocalDate day = dayOf(conn, saleId);
+        if (day != null) {
+            refreshDays(conn, Set.of(day));
+        }
+        return day;
+    }
+
+    /**
+     * Recalcula varios días, ignorando los nulos (ventas sin fecha).
+     */
+    static void refreshDays(Connection conn, LocalDate... days) throws SQLException {
+        Set<LocalDate> distinct = new LinkedHashSet<>();
+        for (LocalDate day : days) {
+            if (day != null) {
+                distinct.add(day);
+            }
+        }
+        refreshDays(conn, distinct);
+    }
+
+    /**
+     * INSERT ... SELECT que agrupa por día las ventas que cumplen el filtro.
+     * El filtro se aplica a {@code sales s} dos veces (pagos y cabeceras), así
+     * que sus parámetros se enlazan dos veces.
+     */
+    private static String insertSql(String salesPredicate) {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder paymentSums = new StringBuilder();
+        StringBuilder dailySums = new StringBuilder();
+        for (PaymentMethod method : PaymentMethod.values()) {
+            String column = paymentColumn(method);
+            columns.append(", ").append(column);
+            paymentSums.append(",\n        SUM(CASE WHEN sp.payment_method = '")
+                .append(method.getValue()).append("' THEN sp.amount ELSE 0 END) AS ").append(column);
+            dailySums.append(",\n        COALESCE(SUM(CASE WHEN s.status = 'completed' THEN p.")
+                .append(column).append(" END), 0)");
+        }
+        return """
+            WITH p AS (
+                SELECT sp.sale_id%s
+                FROM sale_payments sp
+                JOIN sales s ON s.id = sp.sale_id
+                WHERE %s
+                GROUP BY sp.sale_id
+            )
+            INSERT INTO %s (day, sales_count, gross_total, cancelled_count, cancelled_total%s)
+            SELECT date(s.created_at),
+                SUM(s.status = 'completed'),
+                COALESCE(SUM(CASE WHEN s.status = 'completed' THEN s.total END), 0),
+                SUM(s.status = 'cancelled'),
+                COALESCE(SUM(CASE WHEN s.status = 'cancelled' THEN s.total END), 0)%s
+            FROM sales s
+            LEFT JOIN p ON p.sale_id = s.id
+            WHERE %s AND s.created_at IS NOT NULL
+            GROUP BY date(s.created_at)
+        """.formatted(paymentSums, salesPredicate, TABLE, columns, dailySums, salesPredicate);
+    }
+
+    private static long count(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.ferreteria.models.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Clave de búsqueda normalizada de productos y variantes.
+ *
+ * La clave es el texto en minúsculas, sin acentos y con la "ñ" como "n", con
+ * las palabras separadas por un espacio: "Tornillería Caño 1/2\"" queda
+ * "tornilleria cano 1 2". Así "tornilleria", "cano" o "ARANDELA" encuentran
+ * lo que está guardado con acentos o mayúsculas. Se guarda en la columna
+ * {@code search_key} de {@code products} (nombre y código) y de
+ * {@code product_variants} (variante y SKU), indexada, y la escribe quien
+ * crea o edita el producto; {@link #fillMissing} y {@link #fillChunk}
+ * completan las que falten.
+ */
+public final class SearchKey {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private SearchKey() {
+    }
+
+    /**
+     * Clave de uno o varios textos (los null se ignoran).
+     */
+    public static String of(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts) {
+            if (part == null) {
+                continue;
+            }
+            for (String word : SEPARATOR.split(fold(part))) {
+                if (!word.isEmpty()) {
+                    if (sb.length() > 0) {
+                        sb.append(' ');
+                    }
+                    sb.append(word);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Palabras de la clave de un texto escrito por el usuario.
+     */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        String key = of(text);
+        if (!key.isEmpty()) {
+            for (String word : key.split(" ")) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Patrón LIKE que encuentra la palabra en cualquier parte de una clave.
+     * La clave sólo tiene letras, dígitos y espacios, así que no hay comodines
+     * que escapar.
+     */
+    public static String containsPattern(String word) {
+        return "%" + word + "%";
+    }
+
+    /**
+     * Límite superior (exclusivo) de las claves que empiezan con {@code prefix},
+     * para buscar por rango sobre el índice: {@code key >= prefix AND key < upper}.
+     */
+    public static String prefixUpperBound(String prefix) {
+        return prefix + Character.MAX_VALUE;
+    }
+
+    /**
+     * Calcula las claves de productos y variantes que no la tienen (creados
+     * antes de existir la columna o insertados sin ella).
+     *
+     * @return filas actualizadas
+     */
+    public static int fillMissing(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            int updated = fillChunk(conn, Integer.MAX_VALUE);
+            conn.commit();
+            return updated;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Productos y variantes sin clave.
+     */
+    public static long countMissing(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("""
+                 SELECT (SELECT COUNT(*) FROM products WHERE search_key IS NULL)
+                      + (SELECT COUNT(*) FROM product_variants WHERE search_key IS NULL)
+             """)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Calcula hasta {@code limit} claves faltantes, primero de productos y
+     * después de variantes. No maneja la transacción: la abre y confirma
+     * quien llama.
+     *
+     * @return filas actualizadas; 0 cuando ya no falta ninguna
+     */
+    public static int fillChunk(Connection conn, int limit) throws SQLException {
+        int updated = fill(conn, "SELECT id, name, code FROM products WHERE search_key IS NULL LIMIT ?",
+                           "UPDATE products SET search_key = ? WHERE id = ?", limit);
+        if (updated < limit) {
+            updated += fill(conn, "SELECT id, variant_name, sku FROM product_variants WHERE search_key IS NULL LIMIT ?",
+                            "UPDATE product_variants SET search_key = ? WHERE id = ?", limit - updated);
+        }
+        return updated;
+    }
+
+    // Métodos auxiliares privados
+
+    private static int fill(Connection conn, String select, String update, int limit) throws SQLException {
+        // Se leen primero: la consulta puede recorrer el mismo índice que se actualiza
+        List<Integer> ids = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        try (PreparedStatement query = conn.prepareStatement(select)) {
+            query.setInt(1, limit);
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                    keys.add(of(rs.getString(2), rs.getString(3)));
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(update)) {
+            for (int i = 0; i < ids.size(); i++) {
+                pstmt.setString(1, keys.get(i));
+                pstmt.setInt(2, ids.get(i));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        return ids.size();
+    }
+
+    /**
+     * Minúsculas y sin marcas diacríticas; la "ñ" se descompone en "n" + tilde.
+     */
+    private static String fold(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+                return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+            }
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
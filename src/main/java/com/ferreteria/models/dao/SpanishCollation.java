@@ -0,0 +1,53 @@
+package com.ferreteria.models.dao;
+
+import org.sqlite.Collation;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.Collator;
+import java.util.Locale;
+
+/**
+ * Intercalación "ES" para SQLite: orden alfabético en español.
+ *
+ * Las mayúsculas y los acentos no separan palabras ("Árbol" va junto a
+ * "arco", no después de la "z") y la "ñ" es una letra entre la "n" y la "o".
+ * Se registra en cada conexión al abrirla, porque SQLite la necesita para
+ * leer y escribir los índices declarados con {@code COLLATE ES}. Cuando el
+ * Collator considera iguales dos textos distintos se desempata por código,
+ * así el orden es total y sirve para paginar por clave.
+ */
+final class SpanishCollation {
+
+    static final String NAME = "ES";
+
+    // Collator no es seguro entre hilos; cada hilo de conexión usa el suyo
+    private static final ThreadLocal<Collator> COLLATOR = ThreadLocal.withInitial(() -> {
+        Collator collator = Collator.getInstance(Locale.forLanguageTag("es"));
+        collator.setStrength(Collator.TERTIARY);
+        return collator;
+    });
+
+    private SpanishCollation() {
+    }
+
+    /**
+     * Compara dos textos en orden alfabético español.
+     */
+    static int compare(String a, String b) {
+        int order = COLLATOR.get().compare(a, b);
+        return order != 0 ? order : a.compareTo(b);
+    }
+
+    /**
+     * Registra la intercalación en una conexión recién abierta.
+     */
+    static void register(Connection conn) throws SQLException {
+        Collation.create(conn, NAME, new Collation() {
+            @Override
+            protected int xCompare(String a, String b) {
+                return SpanishCollation.compare(a, b);
+            }
+        });
+    }
+}
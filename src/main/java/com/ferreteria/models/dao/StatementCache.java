@@ -0,0 +1,236 @@
+package com.ferreteria.models.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché LRU de sentencias preparadas de una conexión física.
+ *
+ * Las sentencias entregadas son envoltorios: cerrarlas limpia parámetros y
+ * resultados y deja la sentencia lista para reutilizarse, sin volver a compilar
+ * el SQL. Al superar la capacidad se cierran las menos usadas.
+ *
+ * No es thread-safe: el pool garantiza que una conexión física la usa un solo
+ * hilo a la vez.
+ */
+class StatementCache {
+
+    /**
+     * Contadores compartidos por todas las cachés del pool.
+     */
+    static final class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    private record Key(String sql, int autoGeneratedKeys) {}
+
+    private final Connection raw;
+    private final int capacity;
+    private final Counters counters;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection raw, int capacity, Counters counters) {
+        this.raw = raw;
+        this.capacity = capacity;
+        this.counters = counters;
+    }
+
+    /**
+     * Devuelve una sentencia preparada para el SQL, reutilizando la cacheada si está libre.
+     *
+     * @param owner conexión (envoltorio) que verá el llamador en getConnection()
+     * @param sql texto SQL
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS o NO_GENERATED_KEYS
+     */
+    PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        if (capacity <= 0) {
+            counters.misses.increment();
+            return raw.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        Key key = new Key(sql, autoGeneratedKeys);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            counters.misses.increment();
+            entry = new Entry(raw.prepareStatement(sql, autoGeneratedKeys));
+            entries.put(key, entry);
+            evictIfNeeded();
+        } else if (entry.inUse) {
+            // Misma sentencia abierta más arriba en la pila: usar una independiente
+            counters.misses.increment();
+            return raw.prepareStatement(sql, autoGeneratedKeys);
+        } else {
+            counters.hits.increment();
+        }
+        return entry.lease(owner);
+    }
+
+    /**
+     * Libera las sentencias que el llamador no cerró. Se invoca al devolver la
+     * conexión al pool.
+     */
+    void releaseAll() {
+        for (Entry entry : entries.values()) {
+            entry.forceRelease();
+        }
+    }
+
+    /**
+     * Cierra todas las sentencias. Se invoca antes de cerrar la conexión física.
+     */
+    void closeAll() {
+        for (Entry entry : entries.values()) {
+            entry.closePhysical();
+        }
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            Entry eldest = it.next();
+            if (eldest.inUse) {
+                continue;
+            }
+            it.remove();
+            eldest.closePhysical();
+            counters.evictions.increment();
+        }
+    }
+
+    /**
+     * Sentencia física cacheada.
+     */
+    private static final class Entry {
+        final PreparedStatement statement;
+        final List<ResultSet> openResults = new ArrayList<>(1);
+        boolean inUse = false;
+        Handle current;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement lease(Connection owner) {
+            inUse = true;
+            current = new Handle(this, owner);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                current);
+        }
+
+        void release(Handle handle) {
+            if (current != handle) {
+                return;
+            }
+            current = null;
+            reset();
+            inUse = false;
+        }
+
+        void forceRelease() {
+            if (current != null) {
+                current.closed = true;
+                release(current);
+            }
+        }
+
+        /**
+         * Cierra resultados abiertos (libera el snapshot de lectura) y limpia parámetros.
+         */
+        private void reset() {
+            for (ResultSet rs : openResults) {
+                try {
+                    rs.close();
+                } catch (SQLException ignored) {
+                    // La sentencia se reutiliza igual; el próximo execute reinicia el cursor
+                }
+            }
+            openResults.clear();
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                System.err.println("Error reiniciando sentencia cacheada: " + e.getMessage());
+            }
+        }
+
+        void closePhysical() {
+            openResults.clear();
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Error cerrando sentencia cacheada: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Envoltorio entregado al llamador para un préstamo de la sentencia.
+     */
+    private static final class Handle implements InvocationHandler {
+        private final Entry entry;
+        private final Connection owner;
+        private boolean closed = false;
+
+        Handle(Entry entry, Connection owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        entry.release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.statement + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("La sentencia ya fue cerrada");
+            }
+            Object result;
+            try {
+                result = method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet rs && !entry.openResults.contains(rs)) {
+                entry.openResults.add(rs);
+            }
+            return result;
+        }
+    }
+}
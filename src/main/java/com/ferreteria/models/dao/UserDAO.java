@@ -20,8 +20,8 @@ public class UserDAO {
 
     public Optional<User> findById(int id) {
         String sql = "SELECT * FROM users WHERE id = ?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
 
@@ -36,8 +36,8 @@ public class UserDAO {
 
     public Optional<User> findByUsername(String username) {
         String sql = "SELECT * FROM users WHERE username = ?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, username);
             ResultSet rs = pstmt.executeQuery();
 
@@ -54,9 +54,9 @@ public class UserDAO {
         String sql = "SELECT * FROM users ORDER BY username";
         List<User> users = new ArrayList<>();
 
-        try {
-            Statement stmt = config.getConnection().createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
                 users.add(mapResultSetToUser(rs));
@@ -71,9 +71,9 @@ public class UserDAO {
         String sql = "SELECT * FROM users WHERE active = 1 ORDER BY username";
         List<User> users = new ArrayList<>();
 
-        try {
-            Statement stmt = config.getConnection().createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
                 users.add(mapResultSetToUser(rs));
@@ -93,8 +93,8 @@ public class UserDAO {
 
     private User insert(User user) {
         String sql = "INSERT INTO users (username, password, role, full_name, active) VALUES (?, ?, ?, ?, ?)";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        try (Connection conn = config.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setString(1, user.getUsername());
             pstmt.setString(2, user.getPasswordHash());
             pstmt.setString(3, user.getRole().getValue());
@@ -114,8 +114,8 @@ public class UserDAO {
 
     private User update(User user) {
         String sql = "UPDATE users SET username=?, role=?, full_name=?, active=? WHERE id=?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, user.getUsername());
             pstmt.setString(2, user.getRole().getValue());
             pstmt.setString(3, user.getFullName());
@@ -130,8 +130,8 @@ public class UserDAO {
 
     public void delete(int id) {
         String sql = "UPDATE users SET active = 0 WHERE id = ?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             pstmt.executeUpdate();
         } catch (SQLException e) {
@@ -141,8 +141,8 @@ public class UserDAO {
 
     public void updatePassword(int userId, String newPasswordHash) {
         String sql = "UPDATE users SET password = ? WHERE id = ?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, newPasswordHash);
             pstmt.setInt(2, userId);
             pstmt.executeUpdate();
@@ -153,8 +153,8 @@ public class UserDAO {
 
     public void deletePermanently(int id) {
         String sql = "DELETE FROM users WHERE id = ?";
-        try {
-            PreparedStatement pstmt = config.getConnection().prepareStatement(sql);
+        try (Connection conn = config.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             pstmt.executeUpdate();
         } catch (SQLException e) {
@@ -168,9 +168,9 @@ public class UserDAO {
 
     public int count() {
         String sql = "SELECT COUNT(*) FROM users WHERE active = 1";
-        try {
-            Statement stmt = config.getConnection().createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
+        try (Connection conn = config.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 return rs.getInt(1);
             }
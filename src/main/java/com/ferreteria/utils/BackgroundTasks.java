@@ -0,0 +1,322 @@
+package com.ferreteria.utils;
+
+import javafx.application.Platform;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Ejecutor compartido para el trabajo en segundo plano de toda la aplicación.
+ *
+ * Usa hilos virtuales si el runtime los tiene (Java 21 o posterior) y, si no,
+ * un pool acotado de hilos daemon {@code bg-task-N}. Las pantallas envían sus
+ * tareas a través de un {@link TaskSlot}: el resultado se entrega en el hilo de
+ * JavaFX sólo si la tarea sigue siendo la última de su slot y el usuario no
+ * cambió de pantalla; si no, se descarta. Cada tarea registra su latencia
+ * bajo su nombre ({@link #getStats()}).
+ */
+public final class BackgroundTasks {
+
+    private static final long SHUTDOWN_TIMEOUT_MS = 5_000;
+
+    private static BackgroundTasks instance;
+
+    private final ExecutorService workers;
+    private final boolean virtualThreads;
+    private final Executor uiThread;
+    private final AtomicLong viewGeneration = new AtomicLong();
+    private final Map<String, Metrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Crea un ejecutor que entrega los resultados con {@code uiThread}.
+     * La aplicación usa {@link #getInstance()}; este constructor es para
+     * probarlo sin JavaFX.
+     */
+    public BackgroundTasks(Executor uiThread) {
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.workers = virtual != null ? virtual : newBoundedPool();
+        this.uiThread = uiThread;
+    }
+
+    public static synchronized BackgroundTasks getInstance() {
+        if (instance == null) {
+            instance = new BackgroundTasks(Platform::runLater);
+        }
+        return instance;
+    }
+
+    /**
+     * Ejecutor para etapas asíncronas (por ejemplo, {@code whenCompleteAsync}).
+     */
+    public Executor executor() {
+        return workers;
+    }
+
+    /**
+     * Corre una tarea suelta, sin resultado para la interfaz. Los errores se
+     * registran en la consola.
+     */
+    public Future<?> run(String name, Runnable work) {
+        long queued = System.nanoTime();
+        return workers.submit(() -> {
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                failed = true;
+                System.err.println("Error en tarea " + name + ": " + e.getMessage());
+            } finally {
+                metricsFor(name).record(start - queued, System.nanoTime() - start, failed);
+            }
+        });
+    }
+
+    /**
+     * Corre una subtarea y devuelve su resultado como future, para lanzar
+     * varias consultas a la vez y combinarlas. Cada una corre en su propio
+     * hilo, así que usa su propia conexión de lectura.
+     */
+    public <T> CompletableFuture<T> supply(String name, Callable<T> work) {
+        long queued = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        workers.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                result.complete(work.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            } finally {
+                metricsFor(name).record(start - queued, System.nanoTime() - start, result.isCompletedExceptionally());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Avisa que se cambió de pantalla: los resultados que todavía no llegaron
+     * a la interfaz se descartan.
+     */
+    public void viewChanged() {
+        viewGeneration.incrementAndGet();
+    }
+
+    /**
+     * Indica si las tareas corren en hilos virtuales.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Métricas por nombre de tarea, ordenadas por nombre.
+     */
+    public List<TaskStats> getStats() {
+        List<TaskStats> stats = new ArrayList<>();
+        metrics.forEach((name, m) -> stats.add(m.snapshot(name)));
+        stats.sort(Comparator.comparing(TaskStats::name));
+        return stats;
+    }
+
+    /**
+     * Deja de aceptar tareas y espera un momento a las que están corriendo.
+     */
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Métricas de un tipo de tarea.
+     *
+     * @param name nombre de la tarea
+     * @param runs ejecuciones terminadas
+     * @param failed ejecuciones que terminaron con error
+     * @param dropped resultados descartados (tarea reemplazada o pantalla cerrada)
+     * @param avgMs duración promedio
+     * @param maxMs duración máxima
+     * @param lastMs duración de la última ejecución
+     * @param avgQueueMs espera promedio antes de empezar
+     */
+    public record TaskStats(
+        String name,
+        long runs,
+        long failed,
+        long dropped,
+        double avgMs,
+        double maxMs,
+        double lastMs,
+        double avgQueueMs
+    ) {}
+
+    /**
+     * Corre una tarea de un slot y entrega su resultado en el hilo de la
+     * interfaz si la tarea sigue vigente. Lo llama {@link TaskSlot#submit}.
+     */
+    <T> void submit(TaskSlot slot, long generation, String name, Callable<T> work,
+                    Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        long view = viewGeneration.get();
+        long queued = System.nanoTime();
+        workers.execute(() -> {
+            if (!isCurrent(slot, generation, view)) {
+                // Reemplazada antes de empezar: ni siquiera se consulta
+                dropped(name);
+                return;
+            }
+            long start = System.nanoTime();
+            T result = null;
+            Exception error = null;
+            try {
+                result = work.call();
+            } catch (Exception e) {
+                error = e;
+            }
+            metricsFor(name).record(start - queued, System.nanoTime() - start, error != null);
+
+            deliver(slot, generation, view, name, result, error, onSuccess, onError);
+        });
+    }
+
+    /**
+     * Como {@link #submit}, pero el trabajo ya es asíncrono (por ejemplo, varias
+     * subtareas de {@link #supply} combinadas): ningún hilo queda bloqueado
+     * esperándolas. La duración registrada es la del conjunto. Lo llama
+     * {@link TaskSlot#submitAsync}.
+     */
+    <T> void submitAsync(TaskSlot slot, long generation, String name, Supplier<CompletableFuture<T>> work,
+                         Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        long view = viewGeneration.get();
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = work.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+            metricsFor(name).record(0, System.nanoTime() - start, cause != null);
+            deliver(slot, generation, view, name, result, cause, onSuccess, onError);
+        });
+    }
+
+    // Métodos auxiliares privados
+
+    private <T> void deliver(TaskSlot slot, long generation, long view, String name, T result,
+                             Throwable error, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        uiThread.execute(() -> {
+            if (!isCurrent(slot, generation, view)) {
+                dropped(name);
+            } else if (error == null) {
+                onSuccess.accept(result);
+            } else if (onError != null) {
+                onError.accept(error);
+            } else {
+                System.err.println("Error en tarea " + name + ": " + error.getMessage());
+            }
+        });
+    }
+
+    private void dropped(String name) {
+        metricsFor(name).dropped();
+    }
+
+    private boolean isCurrent(TaskSlot slot, long generation, long view) {
+        return slot.isCurrent(generation) && viewGeneration.get() == view;
+    }
+
+    private Metrics metricsFor(String name) {
+        return metrics.computeIfAbsent(name, n -> new Metrics());
+    }
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()} si existe; el
+     * proyecto compila para Java 17, así que se busca por reflexión.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newBoundedPool() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "bg-task-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static final class Metrics {
+        private long runs;
+        private long failed;
+        private long dropped;
+        private long totalNanos;
+        private long maxNanos;
+        private long lastNanos;
+        private long queueNanos;
+
+        synchronized void record(long waitNanos, long elapsedNanos, boolean error) {
+            runs++;
+            if (error) {
+                failed++;
+            }
+            totalNanos += elapsedNanos;
+            maxNanos = Math.max(maxNanos, elapsedNanos);
+            lastNanos = elapsedNanos;
+            queueNanos += waitNanos;
+        }
+
+        synchronized void dropped() {
+            dropped++;
+        }
+
+        synchronized TaskStats snapshot(String name) {
+            return new TaskStats(
+                name,
+                runs,
+                failed,
+                dropped,
+                runs == 0 ? 0 : totalNanos / 1_000_000.0 / runs,
+                maxNanos / 1_000_000.0,
+                lastNanos / 1_000_000.0,
+                runs == 0 ? 0 : queueNanos / 1_000_000.0 / runs
+            );
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.ferreteria.utils;
+
+import com.ferreteria.models.ProductVariant;
+import com.ferreteria.models.dao.DatabaseConfig;
+import com.ferreteria.models.dao.ProductVariantDAO;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Catálogo de variantes activas en memoria, con índice de texto para el POS.
+ *
+ * Se carga una vez al iniciar (en segundo plano) y luego se actualiza por
+ * variante o por producto cuando cambian datos o stock, así buscar mientras se
+ * escribe no consulta SQLite. Hasta que termina la carga, {@link #isLoaded()}
+ * devuelve false y los llamadores usan {@link ProductVariantDAO#buscar}.
+ */
+public class CatalogIndex {
+
+    private static CatalogIndex instance;
+
+    private final TextIndex<ProductVariant> index = new TextIndex<>();
+    private final Map<Integer, Set<Integer>> variantsByProduct = new HashMap<>();
+    private final Map<String, ProductVariant> bySku = new HashMap<>();
+    private final Map<String, Set<Integer>> byProductCode = new HashMap<>();
+    private ProductVariantDAO variantDAO;
+    private volatile boolean loaded = false;
+
+    private CatalogIndex() {}
+
+    public static synchronized CatalogIndex getInstance() {
+        if (instance == null) {
+            instance = new CatalogIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * Carga todas las variantes activas, reemplazando el contenido actual.
+     */
+    public void load() {
+        long start = System.nanoTime();
+        List<ProductVariant> variants = dao().listarTodas();
+
+        synchronized (this) {
+            index.clear();
+            variantsByProduct.clear();
+            bySku.clear();
+            byProductCode.clear();
+            for (ProductVariant variant : variants) {
+                add(variant);
+            }
+            loaded = true;
+        }
+        System.out.printf("Catálogo en memoria: %d variantes en %d ms (%.1f MB)%n",
+            variants.size(), (System.nanoTime() - start) / 1_000_000, index.memoryStats().estimatedMb());
+    }
+
+    /**
+     * Carga el catálogo en un hilo de fondo.
+     */
+    public void loadAsync() {
+        BackgroundTasks.getInstance().run("catalogo.cargar", () -> {
+            try {
+                load();
+            } catch (Exception e) {
+                System.err.println("Error cargando catálogo en memoria: " + e.getMessage());
+            }
+        });
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Busca variantes activas por nombre, código, SKU o variante.
+     *
+     * @param query texto escrito por el usuario
+     * @param limit máximo de resultados
+     */
+    public List<ProductVariant> search(String query, int limit) {
+        return index.search(query, limit);
+    }
+
+    /**
+     * Variante indexada con ese id, o null si no está (o está inactiva).
+     */
+    public ProductVariant get(int variantId) {
+        return index.get(variantId);
+    }
+
+    /**
+     * Resuelve un código leído por el lector: primero como SKU y, si no,
+     * como código de producto cuando el producto tiene una sola variante activa.
+     * Sin acceso a la base; devuelve null si no hay coincidencia exacta.
+     */
+    public synchronized ProductVariant findByCode(String code) {
+        String key = codeKey(code);
+        if (key == null) {
+            return null;
+        }
+        ProductVariant variant = bySku.get(key);
+        if (variant != null) {
+            return variant;
+        }
+        Set<Integer> ids = byProductCode.get(key);
+        if (ids != null && ids.size() == 1) {
+            return index.get(ids.iterator().next());
+        }
+        return null;
+    }
+
+    /**
+     * Vuelve a leer variantes cambiadas (stock, precio, nombre) desde la base.
+     * Las inactivas o borradas salen del índice.
+     */
+    public void refreshVariants(Collection<Integer> variantIds) {
+        if (!loaded) {
+            return;
+        }
+        for (int variantId : variantIds) {
+            var variant = dao().buscarPorId(variantId);
+            synchronized (this) {
+                removeVariant(variantId);
+                variant.filter(ProductVariant::isActive).ifPresent(this::add);
+            }
+        }
+    }
+
+    /**
+     * Vuelve a leer todas las variantes de un producto (alta, edición o baja).
+     */
+    public void refreshProduct(int productId) {
+        if (!loaded) {
+            return;
+        }
+        List<ProductVariant> variants = dao().listarPorProducto(productId);
+        synchronized (this) {
+            Set<Integer> previous = variantsByProduct.remove(productId);
+            if (previous != null) {
+                previous.forEach(this::removeVariant);
+            }
+            variants.forEach(this::add);
+        }
+    }
+
+    public TextIndex.MemoryStats memoryStats() {
+        return index.memoryStats();
+    }
+
+    private void add(ProductVariant variant) {
+        index.put(variant.getId(), variant, variant.getDisplayName(),
+            variant.getProductName(), variant.getProductCode(), variant.getSku(), variant.getVariantName());
+        variantsByProduct.computeIfAbsent(variant.getProductId(), k -> new HashSet<>()).add(variant.getId());
+        String sku = codeKey(variant.getSku());
+        if (sku != null) {
+            bySku.put(sku, variant);
+        }
+        String productCode = codeKey(variant.getProductCode());
+        if (productCode != null) {
+            byProductCode.computeIfAbsent(productCode, k -> new HashSet<>()).add(variant.getId());
+        }
+    }
+
+    private void removeVariant(int variantId) {
+        ProductVariant previous = index.get(variantId);
+        if (previous != null) {
+            index.remove(variantId);
+            Set<Integer> ids = variantsByProduct.get(previous.getProductId());
+            if (ids != null) {
+                ids.remove(variantId);
+            }
+            String sku = codeKey(previous.getSku());
+            if (sku != null && bySku.get(sku) == previous) {
+                bySku.remove(sku);
+            }
+            String productCode = codeKey(previous.getProductCode());
+            Set<Integer> sameCode = productCode != null ? byProductCode.get(productCode) : null;
+            if (sameCode != null) {
+                sameCode.remove(variantId);
+                if (sameCode.isEmpty()) {
+                    byProductCode.remove(productCode);
+                }
+            }
+        }
+    }
+
+    /**
+     * Clave de los mapas de códigos: sin espacios en los extremos y en mayúsculas.
+     */
+    private static String codeKey(String code) {
+        if (code == null || code.isBlank()) {
+            return null;
+        }
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private synchronized ProductVariantDAO dao() {
+        if (variantDAO == null) {
+            variantDAO = new ProductVariantDAO(DatabaseConfig.getInstance());
+        }
+        return variantDAO;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ferreteria.utils;
+
+import com.ferreteria.models.ProductVariant;
+import com.ferreteria.models.dao.ProductVariantDAO;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lista de productos del POS cuando no hay búsqueda, leída de a páginas.
+ *
+ * La primera página son los más vendidos de los últimos días; después sigue
+ * el resto del catálogo disponible por nombre, sin repetir los que ya se
+ * mostraron. Cada página es una consulta acotada, así abrir el POS cuesta lo
+ * mismo con 500 que con 50.000 variantes y el resto se lee a medida que se
+ * desplaza la lista.
+ *
+ * {@link #nextPage()} consulta la base: se llama en segundo plano, una página
+ * por vez.
+ */
+public class CatalogPager {
+
+    public static final int TOP_SELLERS_DAYS = 90;
+    public static final int TOP_SELLERS_LIMIT = 100;
+
+    private final ProductVariantDAO dao;
+    private final int pageSize;
+    private final Set<Integer> shown = new HashSet<>();
+
+    private boolean topSellersDone = false;
+    private ProductVariant last = null;
+    private boolean hasMore = true;
+
+    public CatalogPager(ProductVariantDAO dao, int pageSize) {
+        this.dao = dao;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Siguiente página: la primera vez, los más vendidos (si hay); después,
+     * el catálogo por nombre. Vacía cuando ya no quedan variantes.
+     */
+    public synchronized List<ProductVariant> nextPage() {
+        if (!topSellersDone) {
+            topSellersDone = true;
+            List<ProductVariant> top = dao.listarMasVendidas(
+                LocalDate.now().minusDays(TOP_SELLERS_DAYS), TOP_SELLERS_LIMIT);
+            if (!top.isEmpty()) {
+                top.forEach(v -> shown.add(v.getId()));
+                return top;
+            }
+        }
+
+        List<ProductVariant> page = new ArrayList<>();
+        while (hasMore && page.isEmpty()) {
+            List<ProductVariant> rows = dao.listarDisponiblesDesde(last, pageSize);
+            hasMore = rows.size() == pageSize;
+            if (!rows.isEmpty()) {
+                last = rows.get(rows.size() - 1);
+            }
+            for (ProductVariant variant : rows) {
+                // Los más vendidos ya están arriba
+                if (!shown.contains(variant.getId())) {
+                    page.add(variant);
+                }
+            }
+        }
+        return page;
+    }
+
+    public synchronized boolean hasMore() {
+        return hasMore;
+    }
+}
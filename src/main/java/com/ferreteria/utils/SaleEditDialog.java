@@ -9,7 +9,6 @@ import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -66,7 +65,7 @@ public class SaleEditDialog {
         content.getChildren().add(new Separator());
 
         // === TOTAL ===
-        totalLabel = new Label("TOTAL: $" + String.format("%,.2f", sale.getTotal()));
+        totalLabel = new Label("TOTAL: $" + sale.getTotal().format());
         totalLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-text-fill: #0ea5e9;");
         content.getChildren().add(totalLabel);
 
@@ -172,7 +171,7 @@ public class SaleEditDialog {
                 editRow.nuevoVariante = nuevo;
                 nombreLbl.setText(nuevo.getDisplayName());
                 nombreLbl.setStyle("-fx-font-size: 11px; -fx-text-fill: #1d4ed8; -fx-font-weight: bold;");
-                editRow.precioLabel.setText("$" + String.format("%.2f", nuevo.getSalePrice()));
+                editRow.precioLabel.setText("$" + Money.of(nuevo.getSalePrice()));
                 updateItemSubtotal(editRow);
                 updateTotal();
             }
@@ -180,7 +179,7 @@ public class SaleEditDialog {
         editRow.btnCambiar = btnCambiar;
 
         // Precio unitario
-        Label precioLbl = new Label("$" + String.format("%.2f", item.getUnitPrice()));
+        Label precioLbl = new Label("$" + item.getUnitPrice());
         precioLbl.setStyle("-fx-font-size: 10px; -fx-text-fill: #64748b;");
         precioLbl.setPrefWidth(60);
         editRow.precioLabel = precioLbl;
@@ -201,7 +200,7 @@ public class SaleEditDialog {
         editRow.cantidadSpinner = cantSpinner;
 
         // Subtotal
-        Label subtotalLbl = new Label("= $" + String.format("%.2f", item.getSubtotal()));
+        Label subtotalLbl = new Label("= $" + item.getSubtotal());
         subtotalLbl.setStyle("-fx-font-size: 11px; -fx-font-weight: bold;");
         subtotalLbl.setPrefWidth(75);
         editRow.subtotalLabel = subtotalLbl;
@@ -218,12 +217,17 @@ public class SaleEditDialog {
     }
 
     private void updateItemSubtotal(ItemEditRow edit) {
-        BigDecimal precio = edit.nuevoVariante != null
-            ? edit.nuevoVariante.getSalePrice()
+        Money subtotal = unitPrice(edit).times(edit.cantidadSpinner.getValue());
+        edit.subtotalLabel.setText("= $" + subtotal);
+    }
+
+    /**
+     * Price of the new variant if the product was changed, otherwise the price it was sold at.
+     */
+    private Money unitPrice(ItemEditRow edit) {
+        return edit.nuevoVariante != null
+            ? Money.of(edit.nuevoVariante.getSalePrice())
             : edit.item.getUnitPrice();
-        int cantidad = edit.cantidadSpinner.getValue();
-        BigDecimal subtotal = precio.multiply(BigDecimal.valueOf(cantidad));
-        edit.subtotalLabel.setText("= $" + String.format("%.2f", subtotal));
     }
 
     private VBox createPaymentsSection() {
@@ -256,7 +260,7 @@ public class SaleEditDialog {
         editRow.metodoCombo = metodoCombo;
 
         // Monto
-        TextField montoField = new TextField(String.format("%.2f", payment.getAmount()));
+        TextField montoField = new TextField(payment.getAmount().toString());
         montoField.setPrefWidth(100);
         montoField.textProperty().addListener((obs, old, newVal) -> updateTotal());
         editRow.montoField = montoField;
@@ -266,16 +270,13 @@ public class SaleEditDialog {
     }
 
     private void updateTotal() {
-        BigDecimal total = BigDecimal.ZERO;
+        Money total = Money.ZERO;
         for (ItemEditRow edit : itemEdits) {
             if (edit.cantidadSpinner.getValue() > 0) {
-                BigDecimal precio = edit.nuevoVariante != null
-                    ? edit.nuevoVariante.getSalePrice()
-                    : edit.item.getUnitPrice();
-                total = total.add(precio.multiply(BigDecimal.valueOf(edit.cantidadSpinner.getValue())));
+                total = total.plus(unitPrice(edit).times(edit.cantidadSpinner.getValue()));
             }
         }
-        totalLabel.setText("TOTAL: $" + String.format("%,.2f", total));
+        totalLabel.setText("TOTAL: $" + total.format());
     }
 
     private ProductVariant showProductSearchDialog(String busquedaInicial) {
@@ -296,7 +297,7 @@ public class SaleEditDialog {
             protected void updateItem(ProductVariant item, boolean empty) {
                 super.updateItem(item, empty);
                 setText(empty || item == null ? null :
-                    item.getDisplayName() + " - $" + String.format("%.2f", item.getSalePrice()));
+                    item.getDisplayName() + " - $" + Money.of(item.getSalePrice()));
             }
         });
 
@@ -345,31 +346,31 @@ public class SaleEditDialog {
             }
 
             // 3. Actualizar items
-            BigDecimal nuevoTotal = BigDecimal.ZERO;
+            Money nuevoTotal = Money.ZERO;
             for (ItemEditRow edit : itemEdits) {
                 int cantidad = edit.cantidadSpinner.getValue();
 
                 if (cantidad == 0) {
                     itemDAO.delete(edit.item.getId());
                 } else if (edit.nuevoVariante != null) {
-                    itemDAO.updateVariant(edit.item.getId(), edit.nuevoVariante.getId(),
-                        edit.nuevoVariante.getSalePrice(), cantidad);
-                    nuevoTotal = nuevoTotal.add(edit.nuevoVariante.getSalePrice().multiply(BigDecimal.valueOf(cantidad)));
+                    Money precio = unitPrice(edit);
+                    itemDAO.updateVariant(edit.item.getId(), edit.nuevoVariante.getId(), precio, cantidad);
+                    nuevoTotal = nuevoTotal.plus(precio.times(cantidad));
                 } else if (cantidad != edit.item.getQuantity()) {
-                    BigDecimal subtotal = edit.item.getUnitPrice().multiply(BigDecimal.valueOf(cantidad));
+                    Money subtotal = edit.item.getUnitPrice().times(cantidad);
                     itemDAO.updateQuantity(edit.item.getId(), cantidad, subtotal);
-                    nuevoTotal = nuevoTotal.add(subtotal);
+                    nuevoTotal = nuevoTotal.plus(subtotal);
                 } else {
-                    nuevoTotal = nuevoTotal.add(edit.item.getSubtotal());
+                    nuevoTotal = nuevoTotal.plus(edit.item.getSubtotal());
                 }
             }
 
             // 4. Actualizar pagos (por ahora solo el monto)
             var paymentDAO = saleDAO.getPaymentDAO();
             for (PaymentEditRow edit : paymentEdits) {
-                BigDecimal nuevoMonto = parseMonto(edit.montoField.getText());
+                Money nuevoMonto = Money.parseOrZero(edit.montoField.getText());
                 String nuevoMetodo = edit.metodoCombo.getValue();
-                if (nuevoMonto.compareTo(edit.payment.getAmount()) != 0 ||
+                if (!nuevoMonto.equals(edit.payment.getAmount()) ||
                     !nuevoMetodo.equals(edit.payment.getPaymentMethodDisplayName())) {
                     paymentDAO.update(edit.payment.getId(), convertMetodo(nuevoMetodo), nuevoMonto);
                 }
@@ -389,14 +390,6 @@ public class SaleEditDialog {
         }
     }
 
-    private BigDecimal parseMonto(String text) {
-        try {
-            return new BigDecimal(text.replace("$", "").replace(",", "").trim());
-        } catch (Exception e) {
-            return BigDecimal.ZERO;
-        }
-    }
-
     private SalePayment.PaymentMethod convertMetodo(String nombre) {
         return switch (nombre) {
             case "Tarjeta" -> SalePayment.PaymentMethod.DEBIT_CARD;
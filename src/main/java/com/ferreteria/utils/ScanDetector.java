@@ -0,0 +1,66 @@
+package com.ferreteria.utils;
+
+/**
+ * Detecta lecturas de un lector de código de barras tipo "keyboard wedge".
+ *
+ * El lector escribe el código como si fuera un teclado, pero mucho más rápido
+ * que una persona (unos pocos milisegundos entre caracteres) y termina con
+ * Enter. Se registra el instante de cada carácter tipeado; una pausa mayor a
+ * {@link #MAX_GAP_NANOS} corta la ráfaga. Al llegar el Enter, {@link #isBurst(long)}
+ * indica si los últimos {@link #burstLength()} caracteres vinieron del lector.
+ */
+public class ScanDetector {
+
+    /** Separación máxima entre caracteres de una misma lectura. */
+    public static final long MAX_GAP_NANOS = 35_000_000L;
+
+    /** Largo mínimo de un código para considerarlo lectura. */
+    public static final int MIN_LENGTH = 4;
+
+    private long lastKeyNanos = 0;
+    private int burstLength = 0;
+
+    /**
+     * Registra un carácter tipeado en el instante indicado (System.nanoTime()).
+     */
+    public void keyTyped(long nanos) {
+        if (burstLength > 0 && nanos - lastKeyNanos > MAX_GAP_NANOS) {
+            // Pausa humana: lo anterior no era del lector
+            burstLength = 0;
+        }
+        lastKeyNanos = nanos;
+        burstLength++;
+    }
+
+    /**
+     * True si los caracteres desde la última pausa llegaron como ráfaga de lector.
+     *
+     * @param enterNanos instante del Enter; también debe seguir sin pausa
+     */
+    public boolean isBurst(long enterNanos) {
+        return burstLength >= MIN_LENGTH && enterNanos - lastKeyNanos <= MAX_GAP_NANOS;
+    }
+
+    /**
+     * Cantidad de caracteres desde la última pausa.
+     */
+    public int burstLength() {
+        return burstLength;
+    }
+
+    /**
+     * Extrae el código leído: el final del texto que llegó en la ráfaga.
+     */
+    public String code(String text) {
+        int start = Math.max(0, text.length() - burstLength);
+        return text.substring(start).trim();
+    }
+
+    /**
+     * Olvida lo tipeado; se llama después de procesar cada Enter.
+     */
+    public void reset() {
+        burstLength = 0;
+        lastKeyNanos = 0;
+    }
+}
@@ -0,0 +1,133 @@
+package com.ferreteria.utils;
+
+import com.ferreteria.models.dao.DatabaseConfig;
+import com.ferreteria.models.dao.DatabaseInitializer;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Arranque de la aplicación.
+ *
+ * La ventana de login se muestra sin esperar a la base: la verificación del
+ * esquema corre en segundo plano ({@link #database()} avisa cuando termina) y,
+ * con la base lista, se cargan en paralelo el catálogo en memoria del POS y
+ * el reporte del mes en curso. Los tiempos se miden desde que arrancó la JVM
+ * y se informan en la consola ({@link #getStats()}).
+ */
+public final class Startup {
+
+    private static Startup instance;
+
+    private final CompletableFuture<Void> database = new CompletableFuture<>();
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private final long jvmStart = ProcessHandle.current().info().startInstant()
+        .map(Instant::toEpochMilli).orElse(System.currentTimeMillis());
+
+    private volatile long loginWindowMs = -1;
+    private volatile long databaseMs = -1;
+    private volatile long warmupMs = -1;
+    private boolean started = false;
+
+    private Startup() {
+    }
+
+    public static synchronized Startup getInstance() {
+        if (instance == null) {
+            instance = new Startup();
+        }
+        return instance;
+    }
+
+    /**
+     * Lanza la inicialización de la base y, después, la precarga. No bloquea;
+     * las llamadas siguientes no hacen nada.
+     */
+    public synchronized void begin() {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        BackgroundTasks tasks = BackgroundTasks.getInstance();
+        tasks.supply("inicio.base", () -> {
+            new DatabaseInitializer(DatabaseConfig.getInstance()).initialize();
+            return null;
+        }).whenComplete((result, error) -> {
+            databaseMs = elapsedMs();
+            if (error != null) {
+                System.err.println("Error inicializando base de datos: " + error.getMessage());
+                database.completeExceptionally(error);
+                ready.completeExceptionally(error);
+                return;
+            }
+            database.complete(null);
+            warmUp(tasks);
+        });
+    }
+
+    /**
+     * Se completa cuando el esquema de la base está verificado; antes de eso
+     * no se debe consultar (por ejemplo, para el login).
+     */
+    public CompletableFuture<Void> database() {
+        return database;
+    }
+
+    /**
+     * Se completa cuando terminó la precarga (aunque alguna parte haya fallado).
+     */
+    public CompletableFuture<Void> ready() {
+        return ready;
+    }
+
+    /**
+     * Registra que la ventana de login ya está visible. Se llama en el hilo de
+     * JavaFX, justo después de mostrarla.
+     */
+    public void loginShown() {
+        loginWindowMs = elapsedMs();
+        System.out.println("Inicio: ventana de login a los " + loginWindowMs + " ms del arranque de la JVM");
+    }
+
+    public StartupStats getStats() {
+        return new StartupStats(loginWindowMs, databaseMs, warmupMs);
+    }
+
+    /**
+     * Tiempos del arranque en ms desde que arrancó la JVM (-1 si todavía no
+     * ocurrió).
+     *
+     * @param loginWindowMs ventana de login visible
+     * @param databaseMs esquema verificado
+     * @param warmupMs catálogo y reporte del mes cargados
+     */
+    public record StartupStats(long loginWindowMs, long databaseMs, long warmupMs) {}
+
+    // Métodos auxiliares privados
+
+    private void warmUp(BackgroundTasks tasks) {
+        CompletableFuture<Void> catalog = tasks.supply("inicio.catalogo", () -> {
+            CatalogIndex.getInstance().load();
+            return null;
+        });
+        CompletableFuture<Void> report = tasks.supply("inicio.reportes", () -> {
+            DatabaseConfig.getInstance().getReportCache().get(YearMonth.now());
+            return null;
+        });
+        CompletableFuture.allOf(catalog, report).whenComplete((result, error) -> {
+            warmupMs = elapsedMs();
+            if (error != null) {
+                System.err.println("Error en la precarga: " + error.getMessage());
+            }
+            System.out.println("Inicio: base lista a los " + databaseMs + " ms, precarga a los "
+                + warmupMs + " ms");
+            ready.complete(null);
+        });
+    }
+
+    private long elapsedMs() {
+        return System.currentTimeMillis() - jvmStart;
+    }
+}
@@ -0,0 +1,66 @@
+package com.ferreteria.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Lugar para una tarea de fondo de una pantalla (por ejemplo, "cargar la tabla").
+ *
+ * Cada envío reemplaza al anterior del mismo slot: si la tarea anterior todavía
+ * no empezó ya no corre, y si estaba corriendo su resultado se descarta al
+ * llegar. Así, al volver a filtrar sólo se muestra el último resultado. Se usa
+ * desde el hilo de JavaFX.
+ */
+public class TaskSlot {
+
+    private final BackgroundTasks tasks;
+    private final AtomicLong generation = new AtomicLong();
+
+    public TaskSlot() {
+        this(BackgroundTasks.getInstance());
+    }
+
+    public TaskSlot(BackgroundTasks tasks) {
+        this.tasks = tasks;
+    }
+
+    /**
+     * Corre {@code work} en segundo plano y entrega el resultado en el hilo de
+     * la interfaz, salvo que antes se envíe otra tarea o se cambie de pantalla.
+     *
+     * @param name nombre de la tarea para las métricas
+     * @param work trabajo a realizar (consultas, cálculos); no toca la interfaz
+     * @param onSuccess recibe el resultado en el hilo de la interfaz
+     * @param onError recibe el error en el hilo de la interfaz; si es null se
+     *                registra en la consola
+     */
+    public <T> void submit(String name, Callable<T> work, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        tasks.submit(this, generation.incrementAndGet(), name, work, onSuccess, onError);
+    }
+
+    /**
+     * Como {@link #submit}, para trabajo que ya es asíncrono: por ejemplo,
+     * varias consultas lanzadas con {@link BackgroundTasks#supply} y combinadas
+     * con {@code allOf}.
+     *
+     * @param work arma el future; se llama en el hilo actual y no debe bloquear
+     */
+    public <T> void submitAsync(String name, Supplier<CompletableFuture<T>> work,
+                                Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        tasks.submitAsync(this, generation.incrementAndGet(), name, work, onSuccess, onError);
+    }
+
+    /**
+     * Descarta la tarea pendiente, si hay una.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    boolean isCurrent(long taskGeneration) {
+        return generation.get() == taskGeneration;
+    }
+}
@@ -0,0 +1,443 @@
+package com.ferreteria.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria para búsqueda mientras se escribe.
+ *
+ * Cada documento se indexa por los trigramas de sus palabras y por los
+ * prefijos de 1 y 2 letras. Una palabra de la consulta con 3 o más letras
+ * busca como subcadena ("till" encuentra "Martillo"); una de 1 o 2 letras,
+ * como comienzo de palabra. Todas las palabras deben coincidir. Ignora
+ * mayúsculas y acentos.
+ *
+ * Las listas de documentos por grama son arreglos de int ordenados, así el
+ * índice de 100.000 variantes ocupa pocas decenas de MB y se consulta sin
+ * recorrer el catálogo. Se puede actualizar de a un documento.
+ *
+ * @param <T> tipo de los valores indexados
+ */
+public class TextIndex<T> {
+
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    // Los prefijos cortos llevan un marcador para no mezclarse con los trigramas
+    private static final char PREFIX = '\u0001';
+
+    private final Map<String, IntList> postings = new HashMap<>();
+    // Documentos por id en un arreglo: los ids de la base son densos y así la
+    // búsqueda evita el boxing y el hash de un Map<Integer, ...>
+    private Doc<T>[] docs = newDocs(1024);
+    private int docCount;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private record Doc<T>(T value, String text, String sortKey) {}
+
+    // Mayor puntaje primero; a igual puntaje, por clave de orden
+    private final Comparator<Scored<T>> ranking = Comparator.<Scored<T>>comparingInt(s -> -s.score())
+        .thenComparing(s -> s.doc().sortKey());
+
+    /**
+     * Uso de memoria estimado del índice.
+     *
+     * @param documents documentos indexados
+     * @param grams gramas distintos
+     * @param postings entradas en las listas de documentos
+     * @param estimatedBytes bytes aproximados (estructuras, listas y textos normalizados)
+     */
+    public record MemoryStats(int documents, int grams, long postings, long estimatedBytes) {
+        public double estimatedMb() {
+            return estimatedBytes / (1024.0 * 1024.0);
+        }
+    }
+
+    /**
+     * Agrega o reemplaza un documento.
+     *
+     * @param id identificador único (por ejemplo, id de la variante)
+     * @param value valor a devolver en las búsquedas
+     * @param sortKey orden entre resultados de igual relevancia
+     * @param fields textos a indexar; los null se ignoran
+     */
+    public void put(int id, T value, String sortKey, String... fields) {
+        StringBuilder text = new StringBuilder();
+        for (String field : fields) {
+            if (field != null && !field.isBlank()) {
+                text.append(normalize(field)).append(' ');
+            }
+        }
+        Doc<T> doc = new Doc<>(value, text.toString(), sortKey == null ? "" : normalize(sortKey));
+
+        lock.writeLock().lock();
+        try {
+            Doc<T> previous = setDoc(id, doc);
+            if (previous != null) {
+                for (String gram : grams(previous.text())) {
+                    IntList list = postings.get(gram);
+                    if (list != null && list.remove(id) && list.size() == 0) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+            for (String gram : grams(doc.text())) {
+                postings.computeIfAbsent(gram, k -> new IntList()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita un documento del índice.
+     *
+     * @return true si existía
+     */
+    public boolean remove(int id) {
+        lock.writeLock().lock();
+        try {
+            Doc<T> previous = setDoc(id, null);
+            if (previous == null) {
+                return false;
+            }
+            for (String gram : grams(previous.text())) {
+                IntList list = postings.get(gram);
+                if (list != null && list.remove(id) && list.size() == 0) {
+                    postings.remove(gram);
+                }
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Vacía el índice.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docs = newDocs(1024);
+            docCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Valor indexado con ese id, o null.
+     */
+    public T get(int id) {
+        lock.readLock().lock();
+        try {
+            Doc<T> doc = id >= 0 && id < docs.length ? docs[id] : null;
+            return doc != null ? doc.value() : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca documentos que contengan todas las palabras de la consulta.
+     *
+     * Primero los que tienen más palabras coincidiendo al comienzo de una
+     * palabra del documento; a igual relevancia, por sortKey.
+     *
+     * @param query texto escrito por el usuario
+     * @param limit máximo de resultados
+     * @return valores encontrados; vacío si la consulta no tiene palabras
+     */
+    public List<T> search(String query, int limit) {
+        List<String> tokens = tokens(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            // Gramas requeridos; si alguno no existe no hay resultados
+            List<IntList> lists = new ArrayList<>();
+            for (String token : tokens) {
+                for (String gram : queryGrams(token)) {
+                    IntList list = postings.get(gram);
+                    if (list == null) {
+                        return new ArrayList<>();
+                    }
+                    lists.add(list);
+                }
+            }
+            lists.sort(Comparator.comparingInt(IntList::size));
+            List<String> wordStarts = tokens.stream().map(t -> " " + t).toList();
+
+            // Intersectar de la lista más corta a la más larga: los candidatos se achican rápido
+            int[] candidates = lists.get(0).toArray();
+            int count = candidates.length;
+            for (int j = 1; j < lists.size() && count > 0; j++) {
+                count = lists.get(j).retainAll(candidates, count);
+            }
+
+            PriorityQueue<Scored<T>> best = new PriorityQueue<>(Math.min(limit, 1024), ranking.reversed());
+            candidates:
+            for (int i = 0; i < count; i++) {
+                Doc<T> doc = docs[candidates[i]];
+                int score = 0;
+                for (int t = 0; t < tokens.size(); t++) {
+                    String token = tokens.get(t);
+                    // Los trigramas no garantizan que la palabra esté entera y contigua
+                    if (token.length() >= 3 && !doc.text().contains(token)) {
+                        continue candidates;
+                    }
+                    if (doc.text().startsWith(token) || doc.text().contains(wordStarts.get(t))) {
+                        score++;
+                    }
+                }
+                // Conservar solo los "limit" mejores: el peor queda en la cabeza
+                if (best.size() < limit) {
+                    best.add(new Scored<>(doc, score));
+                } else if (isBetter(score, doc, best.peek())) {
+                    best.poll();
+                    best.add(new Scored<>(doc, score));
+                }
+            }
+
+            List<Scored<T>> ordered = new ArrayList<>(best);
+            ordered.sort(ranking);
+            List<T> results = new ArrayList<>(ordered.size());
+            for (Scored<T> scored : ordered) {
+                results.add(scored.doc().value());
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estima la memoria usada por el índice.
+     */
+    public MemoryStats memoryStats() {
+        lock.readLock().lock();
+        try {
+            long entries = 0;
+            long bytes = 0;
+            for (Map.Entry<String, IntList> e : postings.entrySet()) {
+                entries += e.getValue().size();
+                // Nodo del HashMap (32) + String (24 + arreglo 16 + chars) + IntList (16 + arreglo 16 + 4 por entrada)
+                bytes += 32 + 40 + e.getKey().length() + 32 + 4L * e.getValue().capacity();
+            }
+            bytes += 16 + 8L * docs.length;
+            for (Doc<T> doc : docs) {
+                if (doc == null) {
+                    continue;
+                }
+                // Doc (24) + texto y clave de orden
+                bytes += 24 + 40 + doc.text().length() + 40 + doc.sortKey().length();
+            }
+            // Tabla del HashMap de gramas
+            bytes += 8L * Integer.highestOneBit(Math.max(1, postings.size())) * 2L;
+            return new MemoryStats(docCount, postings.size(), entries, bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Minúsculas y sin acentos: "Estándar" → "estandar".
+     */
+    static String normalize(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+                return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+            }
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> tokens(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATOR.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> grams(String normalizedText) {
+        Set<String> grams = new HashSet<>();
+        int length = normalizedText.length();
+        int i = 0;
+        while (i < length) {
+            // Recorrer palabra por palabra (letras y dígitos)
+            while (i < length && !Character.isLetterOrDigit(normalizedText.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(normalizedText.charAt(i))) {
+                i++;
+            }
+            if (start == i) {
+                continue;
+            }
+            grams.add(PREFIX + normalizedText.substring(start, start + 1));
+            if (i - start >= 2) {
+                grams.add(PREFIX + normalizedText.substring(start, start + 2));
+            }
+            for (int g = start; g + 3 <= i; g++) {
+                grams.add(normalizedText.substring(g, g + 3));
+            }
+        }
+        return grams;
+    }
+
+    private static Set<String> queryGrams(String token) {
+        if (token.length() < 3) {
+            return Set.of(PREFIX + token);
+        }
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            grams.add(token.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private record Scored<T>(Doc<T> doc, int score) {}
+
+    private static boolean isBetter(int score, Doc<?> doc, Scored<?> worst) {
+        if (score != worst.score()) {
+            return score > worst.score();
+        }
+        return doc.sortKey().compareTo(worst.doc().sortKey()) < 0;
+    }
+
+    private Doc<T> setDoc(int id, Doc<T> doc) {
+        if (id < 0) {
+            throw new IllegalArgumentException("El id debe ser positivo: " + id);
+        }
+        if (id >= docs.length) {
+            if (doc == null) {
+                return null;
+            }
+            docs = Arrays.copyOf(docs, Math.max(id + 1, docs.length + (docs.length >> 1)));
+        }
+        Doc<T> previous = docs[id];
+        docs[id] = doc;
+        if (previous == null && doc != null) {
+            docCount++;
+        } else if (previous != null && doc == null) {
+            docCount--;
+        }
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Doc<T>[] newDocs(int capacity) {
+        return (Doc<T>[]) new Doc<?>[capacity];
+    }
+
+    /**
+     * Lista ordenada de ids sin duplicados, sobre un int[].
+     */
+    private static final class IntList {
+        private int[] data = new int[2];
+        private int size;
+
+        void add(int value) {
+            // Las cargas llegan en orden de id: agregar al final es lo habitual
+            if (size == 0 || data[size - 1] < value) {
+                ensureCapacity();
+                data[size++] = value;
+                return;
+            }
+            int pos = Arrays.binarySearch(data, 0, size, value);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            ensureCapacity();
+            System.arraycopy(data, pos, data, pos + 1, size - pos);
+            data[pos] = value;
+            size++;
+        }
+
+        boolean remove(int value) {
+            int pos = Arrays.binarySearch(data, 0, size, value);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(data, pos + 1, data, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+
+        /**
+         * Deja en los primeros elementos de {@code ids} solo los que están en
+         * esta lista (ambas ordenadas).
+         *
+         * @return cantidad de ids que quedan
+         */
+        int retainAll(int[] ids, int count) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count && from < size; i++) {
+                int pos = Arrays.binarySearch(data, from, size, ids[i]);
+                if (pos >= 0) {
+                    ids[kept++] = ids[i];
+                    from = pos + 1;
+                } else {
+                    from = -pos - 1;
+                }
+            }
+            return kept;
+        }
+
+        int get(int index) {
+            return data[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return data.length;
+        }
+
+        private void ensureCapacity() {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, data.length + (data.length >> 1) + 1);
+            }
+        }
+    }
+}
@@ -1,8 +1,18 @@
 package com.ferreteria.utils;
 
 import com.ferreteria.models.Sale;
+import javafx.animation.PauseTransition;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.control.TextArea;
+import javafx.scene.layout.HBox;
+import javafx.stage.Modality;
+import javafx.stage.Popup;
+import javafx.stage.Window;
+import javafx.util.Duration;
 
 import java.time.format.DateTimeFormatter;
 
@@ -12,6 +22,8 @@ import java.time.format.DateTimeFormatter;
 public class TicketGenerator {
 
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    private static final Duration NOTIFICATION_DURATION = Duration.seconds(8);
+    private static final double NOTIFICATION_MARGIN = 24;
 
     /**
      * Generates ticket content for a sale.
@@ -31,15 +43,13 @@ public class TicketGenerator {
 
         sb.append("───────────────────────────────\n");
         sale.getItems().forEach(item -> {
-            sb.append(String.format("%s\n  %d x $%,.2f = $%,.2f\n",
-                item.getDisplayName(),
-                item.getQuantity(),
-                item.getUnitPrice(),
-                item.getSubtotal()));
+            sb.append(item.getDisplayName()).append("\n  ")
+                .append(item.getQuantity()).append(" x $").append(item.getUnitPrice().format())
+                .append(" = $").append(item.getSubtotal().format()).append("\n");
         });
 
         sb.append("───────────────────────────────\n");
-        sb.append(String.format("TOTAL: $%,.2f\n", sale.getTotal()));
+        sb.append("TOTAL: $").append(sale.getTotal().format()).append("\n");
         sb.append("───────────────────────────────\n\n");
         sb.append("    ¡Gracias por su compra!\n");
         sb.append("═══════════════════════════════\n");
@@ -54,6 +64,55 @@ public class TicketGenerator {
      * @param vendorName name of the seller
      */
     public static void showTicketDialog(Sale sale, String vendorName) {
+        createTicketAlert(sale, vendorName).showAndWait();
+    }
+
+    /**
+     * Shows a non-blocking notification for a sale that was just registered,
+     * in the bottom-right corner of the window. It hides itself after a few
+     * seconds; "Ver ticket" opens the ticket in a non-modal window.
+     *
+     * @param owner window to anchor the notification to
+     * @param sale the sale
+     * @param vendorName name of the seller
+     */
+    public static void showTicketNotification(Window owner, Sale sale, String vendorName) {
+        Label message = new Label("Venta #" + sale.getId() + " registrada - $" + sale.getTotal().format());
+        message.setStyle("-fx-text-fill: white; -fx-font-weight: bold; -fx-font-size: 13px;");
+
+        Popup popup = new Popup();
+        Button verTicket = new Button("Ver ticket");
+        verTicket.setStyle("-fx-background-color: white; -fx-text-fill: #15803d; -fx-background-radius: 6;");
+        verTicket.setOnAction(e -> {
+            popup.hide();
+            Alert ticket = createTicketAlert(sale, vendorName);
+            ticket.initModality(Modality.NONE);
+            ticket.initOwner(owner);
+            ticket.show();
+        });
+        Button cerrar = new Button("×");
+        cerrar.setStyle("-fx-background-color: transparent; -fx-text-fill: white; -fx-font-weight: bold;");
+        cerrar.setOnAction(e -> popup.hide());
+
+        HBox box = new HBox(12, message, verTicket, cerrar);
+        box.setAlignment(Pos.CENTER_LEFT);
+        box.setPadding(new Insets(12, 16, 12, 16));
+        box.setStyle("-fx-background-color: #16a34a; -fx-background-radius: 10;"
+            + " -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.25), 12, 0, 0, 4);");
+        popup.getContent().add(box);
+
+        popup.setOnShown(e -> {
+            popup.setX(owner.getX() + owner.getWidth() - box.getWidth() - NOTIFICATION_MARGIN);
+            popup.setY(owner.getY() + owner.getHeight() - box.getHeight() - NOTIFICATION_MARGIN);
+        });
+        popup.show(owner);
+
+        PauseTransition autoHide = new PauseTransition(NOTIFICATION_DURATION);
+        autoHide.setOnFinished(e -> popup.hide());
+        autoHide.play();
+    }
+
+    private static Alert createTicketAlert(Sale sale, String vendorName) {
         String ticketContent = generate(sale, vendorName);
 
         Alert ticket = new Alert(Alert.AlertType.INFORMATION);
@@ -68,6 +127,6 @@ public class TicketGenerator {
 
         ticket.getDialogPane().setContent(textArea);
         ticket.getDialogPane().setMinWidth(400);
-        ticket.showAndWait();
+        return ticket;
     }
 }
@@ -0,0 +1,26 @@
+package com.ferreteria.utils;
+
+/**
+ * Controlador de una pantalla que {@link ViewRegistry} conserva entre
+ * navegaciones.
+ *
+ * {@code initialize()} corre una sola vez, al cargar el FXML: arma la pantalla
+ * pero no consulta la base. Los datos se leen en {@link #onShow()}, cada vez
+ * que la pantalla vuelve a mostrarse, y mientras llegan queda a la vista lo
+ * que se mostró la última vez.
+ */
+public interface ViewLifecycle {
+
+    /**
+     * La pantalla pasó a ser la visible. Se llama en el hilo de JavaFX.
+     */
+    default void onShow() {
+    }
+
+    /**
+     * La pantalla dejó de ser la visible (sigue cargada). Se llama en el hilo
+     * de JavaFX.
+     */
+    default void onHide() {
+    }
+}
@@ -0,0 +1,153 @@
+package com.ferreteria.utils;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pantallas de la aplicación, cargadas una sola vez y mostradas en una única
+ * {@link Scene}.
+ *
+ * Las pantallas conservables (las del navbar) se guardan con su controlador:
+ * volver a una es cambiar la raíz de la escena, sin leer el FXML, sin armar
+ * otra escena y sin volver a correr {@code initialize()}. Si el controlador
+ * implementa {@link ViewLifecycle} se le avisa al mostrarla y al ocultarla,
+ * para que refresque sus datos. Las demás (login, POS, debug) se cargan de
+ * nuevo cada vez, porque su estado es de una sola visita.
+ *
+ * {@link #preload} carga pantallas en segundo plano: armar nodos fuera del
+ * hilo de JavaFX está permitido mientras no estén en una escena visible. Si
+ * una precarga falla, la pantalla se carga en el hilo de JavaFX al pedirla.
+ * El resto de los métodos se usan desde el hilo de JavaFX.
+ */
+public class ViewRegistry {
+
+    private final Set<String> cacheable;
+    private final Map<String, CompletableFuture<View>> views = new ConcurrentHashMap<>();
+    private View current;
+
+    /**
+     * @param cacheable rutas FXML de las pantallas que se conservan
+     */
+    public ViewRegistry(Set<String> cacheable) {
+        this.cacheable = Set.copyOf(cacheable);
+    }
+
+    /**
+     * Pantalla cargada: raíz, controlador y ruta del FXML.
+     */
+    public record View(String path, Parent root, Object controller) {}
+
+    /**
+     * Muestra una pantalla en la escena: avisa a la anterior que se oculta,
+     * cambia la raíz y avisa a la nueva que se muestra.
+     *
+     * @return la pantalla mostrada
+     * @throws IOException si el FXML no se pudo cargar
+     */
+    public View show(String path, Scene scene) throws IOException {
+        View next = get(path);
+        if (current != null && current != next && current.controller() instanceof ViewLifecycle hidden) {
+            hidden.onHide();
+        }
+        current = next;
+        scene.setRoot(next.root());
+        if (next.controller() instanceof ViewLifecycle shown) {
+            shown.onShow();
+        }
+        return next;
+    }
+
+    /**
+     * Ruta de la pantalla visible, o null si todavía no se mostró ninguna.
+     */
+    public String currentPath() {
+        return current != null ? current.path() : null;
+    }
+
+    /**
+     * Carga en segundo plano, una por vez, las pantallas conservables que
+     * todavía no están cargadas.
+     */
+    public void preload(List<String> paths) {
+        List<String> queued = new ArrayList<>();
+        List<CompletableFuture<View>> futures = new ArrayList<>();
+        for (String path : paths) {
+            CompletableFuture<View> future = new CompletableFuture<>();
+            if (cacheable.contains(path) && views.putIfAbsent(path, future) == null) {
+                queued.add(path);
+                futures.add(future);
+            }
+        }
+        if (queued.isEmpty()) {
+            return;
+        }
+
+        BackgroundTasks.getInstance().run("vistas.precargar", () -> {
+            for (int i = 0; i < queued.size(); i++) {
+                CompletableFuture<View> future = futures.get(i);
+                // Ya la cargó el hilo de JavaFX, o se descartaron las vistas
+                if (future.isDone() || views.get(queued.get(i)) != future) {
+                    continue;
+                }
+                try {
+                    future.complete(load(queued.get(i)));
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Descarta las pantallas conservadas (por ejemplo, al cerrar sesión: los
+     * controladores guardan datos del usuario). La visible sigue en la escena
+     * hasta que se muestre otra.
+     */
+    public void clear() {
+        views.clear();
+    }
+
+    // Métodos auxiliares privados
+
+    private View get(String path) throws IOException {
+        if (!cacheable.contains(path)) {
+            return load(path);
+        }
+        CompletableFuture<View> future = views.get(path);
+        if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+            return future.join();
+        }
+
+        // No está, falló la precarga o todavía no le tocó: se carga acá
+        View view = load(path);
+        if (future == null || future.isCompletedExceptionally()) {
+            views.put(path, CompletableFuture.completedFuture(view));
+            return view;
+        }
+        if (!future.complete(view)) {
+            // La precarga terminó mientras tanto; se usa esa
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                views.put(path, CompletableFuture.completedFuture(view));
+            }
+        }
+        return view;
+    }
+
+    private static View load(String path) throws IOException {
+        FXMLLoader loader = new FXMLLoader(ViewRegistry.class.getResource(path));
+        Parent root = loader.load();
+        return new View(path, root, loader.getController());
+    }
+}
@@ -0,0 +1,4 @@
+-- Ítems de venta por variante: lo usan el historial de un producto y el
+-- control de claves foráneas al borrar una variante, que sin índice recorre
+-- toda la tabla sale_items.
+CREATE INDEX IF NOT EXISTS idx_sale_items_variant ON sale_items(variant_id);